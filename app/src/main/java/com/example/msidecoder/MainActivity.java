@@ -2,7 +2,14 @@ package com.example.msidecoder;
 
 import android.Manifest;
 import android.content.pm.PackageManager;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.util.Log;
+import android.util.Size;
+import android.view.View;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -13,20 +20,33 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 import androidx.camera.view.PreviewView;
 import androidx.core.content.ContextCompat;
 import androidx.lifecycle.LifecycleOwner;
 
+import com.example.msidecoder.models.BarcodeResult;
+import com.example.msidecoder.models.Product;
+import com.example.msidecoder.scanner.AnalysisController;
 import com.example.msidecoder.scanner.BarcodeAnalyzer;
-import com.example.msidecoder.scanner.BarcodeResultListener;
+import com.example.msidecoder.scanner.ProductCatalog;
+import com.example.msidecoder.scanner.ResultDispatcher;
+import com.example.msidecoder.scanner.ScanJournal;
+import com.example.msidecoder.scanner.ScanMetrics;
+import com.example.msidecoder.scanner.ScanTrace;
 import com.google.common.util.concurrent.ListenableFuture;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-public class MainActivity extends AppCompatActivity implements BarcodeResultListener {
+public class MainActivity extends AppCompatActivity implements ResultDispatcher.Renderer {
 
     private static final String TAG = "MSIDecoder";
     
@@ -34,11 +54,36 @@ public class MainActivity extends AppCompatActivity implements BarcodeResultList
     private TextView statusText;
     private TextView barcodeTypeText;
     private TextView barcodeValueText;
+    private TextView productText;
     private TextView phaseInfoText;
+    private TextView metricsOverlay;
+
+    // Overlay de diagnostic (appui long sur le panneau de résultat), rafraîchi périodiquement;
+    // la trace de décodage est active tant qu'il est visible et vidée dans Logcat à sa fermeture
+    private static final long METRICS_REFRESH_MS = 500L;
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+    private final Runnable metricsRefresh = this::refreshMetricsOverlay;
     
     private ProcessCameraProvider cameraProvider;
     private BarcodeAnalyzer barcodeAnalyzer;
+    // Résultats des threads d'analyse fusionnés et appliqués au plus une fois par vsync
+    private ResultDispatcher resultDispatcher;
     private ExecutorService executor;
+    // Journal des scans (audit), dans le stockage privé de l'app
+    private ScanJournal scanJournal;
+
+    // Résolution d'analyse choisie d'après les bandes lues; un changement relie à nouveau
+    // le seul use case ImageAnalysis (l'aperçu n'est pas interrompu)
+    private final AnalysisController analysisController = new AnalysisController();
+    private ImageAnalysis imageAnalysis;
+    // État thermique transmis au contrôleur (Android 10+): résolution et cadence plafonnées
+    private PowerManager.OnThermalStatusChangedListener thermalListener;
+
+    // Lecture en masse (appui court sur le panneau de résultat): tous les symboles du frame
+    private boolean bulkMode;
+    private int bulkTotal;
+
+    private boolean firstScanLogged;
 
     // Permission launcher
     private final ActivityResultLauncher<String> requestPermissionLauncher =
@@ -52,12 +97,27 @@ public class MainActivity extends AppCompatActivity implements BarcodeResultList
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long launchNanos = System.nanoTime();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
         initViews();
         executor = Executors.newSingleThreadExecutor();
-        
+        analysisController.setListener((width, height) -> runOnUiThread(this::rebindImageAnalysis));
+        registerThermalListener();
+
+        // Analyseur créé dès le lancement: ses moteurs chauffent pendant la demande de
+        // permission et l'ouverture de la caméra, le premier frame ne paie plus leur démarrage
+        resultDispatcher = new ResultDispatcher(this);
+        barcodeAnalyzer = new BarcodeAnalyzer(resultDispatcher, null, BarcodeAnalyzer.defaultWorkerCount());
+        barcodeAnalyzer.setMlKitInput(BarcodeAnalyzer.MlKitInput.REGION);
+        barcodeAnalyzer.setAnalysisController(analysisController);
+        barcodeAnalyzer.getMetrics().markLaunch(launchNanos);
+        resultDispatcher.setMetrics(barcodeAnalyzer.getMetrics());
+        scanJournal = new ScanJournal(new File(getFilesDir(), "journal"));
+        barcodeAnalyzer.setJournal(scanJournal);
+        startWarmup();
+
         // Check camera permission
         if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) 
                 == PackageManager.PERMISSION_GRANTED) {
@@ -67,12 +127,102 @@ public class MainActivity extends AppCompatActivity implements BarcodeResultList
         }
     }
 
+    private void registerThermalListener() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q) {
+            return;
+        }
+        PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+        if (powerManager == null) {
+            return;
+        }
+        analysisController.setThermalStatus(powerManager.getCurrentThermalStatus());
+        thermalListener = status -> {
+            Log.i(TAG, "État thermique: " + status);
+            analysisController.setThermalStatus(status);
+        };
+        powerManager.addThermalStatusListener(ContextCompat.getMainExecutor(this), thermalListener);
+    }
+
+    // Chauffe des moteurs et ouverture du catalogue produits, hors du thread UI
+    private void startWarmup() {
+        BarcodeAnalyzer analyzer = barcodeAnalyzer;
+        File catalogFile = new File(getFilesDir(), "catalog.msic");
+        new Thread(() -> {
+            if (catalogFile.exists()) {
+                try {
+                    ProductCatalog catalog = ProductCatalog.open(catalogFile);
+                    analyzer.setCatalog(catalog);
+                    Log.i(TAG, "Catalogue produits: " + catalog.size() + " références");
+                } catch (IOException e) {
+                    Log.w(TAG, "Catalogue produits illisible", e);
+                }
+            }
+            long ms = analyzer.warmUp();
+            Log.i(TAG, "Moteurs prêts en " + ms + " ms");
+        }, "engine-warmup").start();
+    }
+
     private void initViews() {
         previewView = findViewById(R.id.previewView);
         statusText = findViewById(R.id.statusText);
         barcodeTypeText = findViewById(R.id.barcodeTypeText);
         barcodeValueText = findViewById(R.id.barcodeValueText);
+        productText = findViewById(R.id.productText);
         phaseInfoText = findViewById(R.id.phaseInfoText);
+        metricsOverlay = findViewById(R.id.metricsOverlay);
+
+        findViewById(R.id.resultContainer).setOnClickListener(v -> toggleBulkMode());
+        findViewById(R.id.resultContainer).setOnLongClickListener(v -> {
+            toggleMetricsOverlay();
+            return true;
+        });
+    }
+
+    private void toggleBulkMode() {
+        bulkMode = !bulkMode;
+        bulkTotal = 0;
+        if (barcodeAnalyzer != null) {
+            barcodeAnalyzer.setMultiSymbol(bulkMode);
+        }
+        Toast.makeText(this, bulkMode ? R.string.bulk_mode_on : R.string.bulk_mode_off,
+                Toast.LENGTH_SHORT).show();
+    }
+
+    private void toggleMetricsOverlay() {
+        if (barcodeAnalyzer == null) {
+            return;
+        }
+        ScanMetrics metrics = barcodeAnalyzer.getMetrics();
+        ScanTrace trace = barcodeAnalyzer.getTrace();
+        boolean enable = !metrics.isEnabled();
+        metrics.setEnabled(enable);
+        uiHandler.removeCallbacks(metricsRefresh);
+        if (enable) {
+            trace.clear();
+            trace.setLevel(ScanTrace.Level.VERBOSE);
+            metricsOverlay.setVisibility(View.VISIBLE);
+            refreshMetricsOverlay();
+        } else {
+            trace.setLevel(ScanTrace.Level.OFF);
+            dumpTrace(trace);
+            metricsOverlay.setVisibility(View.GONE);
+        }
+    }
+
+    private void dumpTrace(ScanTrace trace) {
+        for (String line : trace.dump().split("\n")) {
+            if (!line.isEmpty()) {
+                Log.d(TAG, line);
+            }
+        }
+    }
+
+    private void refreshMetricsOverlay() {
+        if (barcodeAnalyzer == null || !barcodeAnalyzer.getMetrics().isEnabled()) {
+            return;
+        }
+        metricsOverlay.setText(barcodeAnalyzer.getMetrics().snapshot().toString());
+        uiHandler.postDelayed(metricsRefresh, METRICS_REFRESH_MS);
     }
 
     private void startCamera() {
@@ -99,12 +249,7 @@ public class MainActivity extends AppCompatActivity implements BarcodeResultList
         preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
         // Image analysis use case for barcode scanning
-        ImageAnalysis imageAnalysis = new ImageAnalysis.Builder()
-                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
-                .build();
-
-        barcodeAnalyzer = new BarcodeAnalyzer(this);
-        imageAnalysis.setAnalyzer(executor, barcodeAnalyzer);
+        imageAnalysis = buildImageAnalysis();
 
         // Camera selector - back camera
         CameraSelector cameraSelector = CameraSelector.DEFAULT_BACK_CAMERA;
@@ -123,40 +268,128 @@ public class MainActivity extends AppCompatActivity implements BarcodeResultList
         }
     }
 
+    // Résolution cible du contrôleur (CameraX retient la plus proche disponible)
+    private ImageAnalysis buildImageAnalysis() {
+        Size target = new Size(analysisController.getTargetWidth(), analysisController.getTargetHeight());
+        ResolutionSelector selector = new ResolutionSelector.Builder()
+                .setResolutionStrategy(new ResolutionStrategy(target,
+                        ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER))
+                .build();
+        // Plusieurs workers: autant d'images ouvertes en même temps (plus une en attente);
+        // un frame arrivé quand tous sont occupés est refermé aussitôt par l'analyseur
+        int workers = barcodeAnalyzer.getWorkerCount();
+        ImageAnalysis.Builder builder = new ImageAnalysis.Builder().setResolutionSelector(selector);
+        if (workers > 1) {
+            builder.setBackpressureStrategy(ImageAnalysis.STRATEGY_BLOCK_PRODUCER)
+                    .setImageQueueDepth(workers + 1);
+        } else {
+            builder.setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+        }
+        ImageAnalysis analysis = builder.build();
+        analysis.setAnalyzer(executor, barcodeAnalyzer);
+        return analysis;
+    }
+
+    private void rebindImageAnalysis() {
+        if (isDestroyed() || cameraProvider == null || imageAnalysis == null) {
+            return;
+        }
+        cameraProvider.unbind(imageAnalysis);
+        imageAnalysis.clearAnalyzer();
+        imageAnalysis = buildImageAnalysis();
+        try {
+            cameraProvider.bindToLifecycle((LifecycleOwner) this, CameraSelector.DEFAULT_BACK_CAMERA, imageAnalysis);
+        } catch (Exception e) {
+            Log.w(TAG, "Changement de résolution d'analyse impossible", e);
+        }
+    }
+
     private void showPermissionDeniedMessage() {
         statusText.setText(R.string.camera_permission_required);
         Toast.makeText(this, R.string.grant_camera_permission, Toast.LENGTH_LONG).show();
     }
 
+    // Thread UI, seulement quand l'état affiché change (ResultDispatcher)
     @Override
-    public void onBarcodeDetected(String type, String value) {
-        runOnUiThread(() -> {
-            statusText.setText(R.string.barcode_detected);
-            barcodeTypeText.setText("Type: " + type);
-            barcodeValueText.setText("Valeur: " + value);
-            
-            barcodeTypeText.setVisibility(TextView.VISIBLE);
-            barcodeValueText.setVisibility(TextView.VISIBLE);
-        });
+    public void showBarcode(BarcodeResult result) {
+        logFirstScan();
+        statusText.setText(R.string.barcode_detected);
+        barcodeTypeText.setText("Type: " + result.getType());
+        barcodeValueText.setText("Valeur: " + result.getValue());
+        Product product = result.getProduct();
+        if (product != null) {
+            productText.setText(getString(R.string.product_label, product.getLabel()));
+        }
+
+        barcodeTypeText.setVisibility(TextView.VISIBLE);
+        barcodeValueText.setVisibility(TextView.VISIBLE);
+        productText.setVisibility(product != null ? TextView.VISIBLE : TextView.GONE);
     }
 
     @Override
-    public void onNoBarcodeDetected() {
-        runOnUiThread(() -> {
-            statusText.setText(R.string.no_barcode_detected);
-            barcodeTypeText.setVisibility(TextView.GONE);
-            barcodeValueText.setVisibility(TextView.GONE);
-        });
+    public void showBarcodes(List<BarcodeResult> results) {
+        logFirstScan();
+        bulkTotal += results.size();
+        StringBuilder values = new StringBuilder();
+        for (BarcodeResult result : results) {
+            if (values.length() > 0) {
+                values.append('\n');
+            }
+            values.append(result.getType()).append(": ").append(result.getValue());
+            if (result.getProduct() != null) {
+                values.append(" — ").append(result.getProduct().getLabel());
+            }
+        }
+        statusText.setText(getString(R.string.bulk_detected, results.size(), bulkTotal));
+        barcodeTypeText.setVisibility(TextView.GONE);
+        productText.setVisibility(TextView.GONE);
+        barcodeValueText.setText(values);
+        barcodeValueText.setVisibility(TextView.VISIBLE);
+    }
+
+    // Temps du lancement au premier scan, une fois par lancement (suivi en magasin via Logcat)
+    private void logFirstScan() {
+        if (firstScanLogged) {
+            return;
+        }
+        firstScanLogged = true;
+        ScanMetrics.Snapshot snapshot = barcodeAnalyzer.getMetrics().snapshot();
+        Log.i(TAG, String.format(Locale.ROOT, "Premier scan %.0f ms après le lancement (chauffe %.0f ms)",
+                snapshot.getLaunchToFirstDecodeMillis(), snapshot.getWarmupMillis()));
+    }
+
+    @Override
+    public void showNoBarcode() {
+        statusText.setText(R.string.no_barcode_detected);
+        barcodeTypeText.setVisibility(TextView.GONE);
+        barcodeValueText.setVisibility(TextView.GONE);
+        productText.setVisibility(TextView.GONE);
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        uiHandler.removeCallbacks(metricsRefresh);
+        if (thermalListener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            PowerManager powerManager = (PowerManager) getSystemService(POWER_SERVICE);
+            if (powerManager != null) {
+                powerManager.removeThermalStatusListener(thermalListener);
+            }
+        }
+        if (resultDispatcher != null) {
+            resultDispatcher.close();
+        }
         if (executor != null) {
             executor.shutdown();
         }
         if (barcodeAnalyzer != null) {
             barcodeAnalyzer.close();
         }
+        if (scanJournal != null) {
+            scanJournal.close();
+            if (scanJournal.getError() != null) {
+                Log.w(TAG, "Journal des scans arrêté", scanJournal.getError());
+            }
+        }
     }
 }
\ No newline at end of file
@@ -8,51 +8,119 @@ import androidx.annotation.NonNull;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageProxy;
 
+import com.example.msidecoder.models.BarcodeResult;
+import com.google.android.gms.tasks.Tasks;
 import com.google.mlkit.vision.barcode.BarcodeScanner;
 import com.google.mlkit.vision.barcode.BarcodeScannerOptions;
 import com.google.mlkit.vision.barcode.BarcodeScanning;
 import com.google.mlkit.vision.barcode.common.Barcode;
 import com.google.mlkit.vision.common.InputImage;
 
-import com.google.zxing.BarcodeFormat;
-import com.google.zxing.BinaryBitmap;
-import com.google.zxing.LuminanceSource;
-import com.google.zxing.MultiFormatReader;
-import com.google.zxing.NotFoundException;
-import com.google.zxing.Result;
-import com.google.zxing.common.HybridBinarizer;
-import com.google.zxing.PlanarYUVLuminanceSource;
-import com.google.zxing.DecodeHintType;
-
-import java.nio.ByteBuffer;
-import java.util.Collections;
-import java.util.EnumMap;
-import java.util.Map;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Analyseur CameraX: MSI, ZXing (Code 128) et MLKit lancés en parallèle sur chaque frame.
+ *
+ * Plusieurs frames peuvent être analysés en même temps, un par {@link FrameWorker} (pipeline,
+ * lecteurs et buffers propres au worker); un frame arrivé quand tous les workers sont occupés est
+ * refermé aussitôt. Sont partagés, sans verrou: l'anti-doublon ({@link RecentResultCache}), les
+ * métriques et la trace. L'état temporel (suivi, vote MSI, filtre de netteté) est propre à chaque
+ * worker, qui ne voit qu'une partie des frames: un vote MSI réparti sur deux workers n'atteint pas
+ * son quorum, un suivi ou une fenêtre de netteté perd les frames de l'autre. C'est pourquoi un seul
+ * worker est lancé par défaut ({@link #defaultWorkerCount}).
+ *
+ * Entrée MLKit ({@link #setMlKitInput}): image complète, ou seulement la région utile (symbole
+ * suivi, zones structurées de la pré-détection, ROI) copiée dans le buffer réutilisé du worker.
+ * Dans ce cas l'{@code ImageProxy} est refermé dès que MSI et ZXing ont fini, sans attendre
+ * l'inférence MLKit.
+ *
+ * {@link #warmUp} fait passer des images synthétiques par les trois moteurs avant le premier
+ * frame, sur un thread de fond, pendant l'ouverture de la caméra.
+ */
 public class BarcodeAnalyzer implements ImageAnalysis.Analyzer {
 
+    /** Image transmise à MLKit. */
+    public enum MlKitInput {
+        /** Frame complet ({@code InputImage.fromMediaImage}), ouvert jusqu'à la fin de l'inférence. */
+        FULL_FRAME,
+        /** Région utile seule (NV21 gris), frame complet quand il n'y en a pas ou qu'elle couvre presque tout. */
+        REGION
+    }
+
     private static final String TAG = "BarcodeAnalyzer";
+    private static final String SOURCE_MLKIT = "MLKit";
+
+    // Chauffe MLKit: image synthétique de taille d'analyse, attente bornée du chargement du modèle
+    private static final int WARMUP_WIDTH = 640;
+    private static final int WARMUP_HEIGHT = 480;
+    private static final long WARMUP_MLKIT_TIMEOUT_MS = 5000L;
 
     private final BarcodeResultListener listener;
     private final BarcodeScanner mlKitScanner;
     private final RoiProvider roiProvider;
 
-    // ZXing reader configuré pour Code 128 uniquement
-    private final MultiFormatReader zxingReader;
-    private final Map<DecodeHintType, Object> zxingHints;
+    // Métriques par étape, inactives par défaut (overlay de diagnostic)
+    private final ScanMetrics metrics = new ScanMetrics();
+    // Trace de diagnostic (anneau préalloué), remplace les Log.d par frame; OFF par défaut
+    private final ScanTrace trace = new ScanTrace();
+
+    // Résolution et cadence adaptatives (null: frames tous analysés, résolution fixe)
+    private volatile AnalysisController analysisController;
+    // Réveil de la veille sur mouvement, partagé par les workers (un frame à la fois en veille)
+    private final MotionDetector motionDetector = new MotionDetector();
 
-    private boolean isProcessing = false;
-    private String lastEmittedValue = null;
-    private long lastEmittedAtMs = 0L;
-    private static final long DEBOUNCE_MS = 1200L;
+    // Moteurs lancés en parallèle sur chaque frame: MSI et ZXing sur le pool, MLKit sur ses propres threads
+    private static final int ENGINE_COUNT = 3;
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+    private final FrameWorker[] workers;
+    private final ExecutorService decodePool;
+
+    // Symboles remis récemment (format + valeur, 1,2 s depuis la dernière remise), partagé par
+    // les workers, les moteurs et les deux modes
+    private final RecentResultCache recentResults = new RecentResultCache();
+
+    // Mode multi-symboles: pas d'arrêt au premier résultat, tous les symboles du frame sont
+    // collectés puis remis en un lot (sans les symboles récents)
+    private volatile boolean multiSymbol;
+
+    private volatile MlKitInput mlKitInput = MlKitInput.FULL_FRAME;
+
+    // Journal des scans remis (null: aucun)
+    private volatile ScanJournal journal;
+    // Catalogue produits: chaque MSI remis est résolu localement (null: aucun)
+    private volatile ProductCatalog catalog;
 
     public BarcodeAnalyzer(BarcodeResultListener listener) {
         this(listener, null);
     }
 
     public BarcodeAnalyzer(BarcodeResultListener listener, RoiProvider roiProvider) {
+        this(listener, roiProvider, 1);
+    }
+
+    /**
+     * @param workerCount frames analysés en parallèle (1: un seul frame en vol). Au-delà de 1,
+     *                    l'ImageAnalysis doit laisser plusieurs images ouvertes
+     *                    ({@code STRATEGY_BLOCK_PRODUCER} et {@code setImageQueueDepth}), et
+     *                    l'état temporel de chaque worker ne voit qu'une partie des frames
+     */
+    public BarcodeAnalyzer(BarcodeResultListener listener, RoiProvider roiProvider, int workerCount) {
         this.listener = listener;
         this.roiProvider = roiProvider;
+        this.workers = new FrameWorker[Math.max(1, workerCount)];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new FrameWorker();
+        }
+        this.decodePool = Executors.newFixedThreadPool(decodeThreads(workers.length));
 
         // MLKit: exclure Code 128 (géré par ZXing)
         BarcodeScannerOptions options = new BarcodeScannerOptions.Builder()
@@ -73,73 +141,415 @@ public class BarcodeAnalyzer implements ImageAnalysis.Analyzer {
                 )
                 .build();
         this.mlKitScanner = BarcodeScanning.getClient(options);
+    }
+
+    /**
+     * Nombre de workers conseillé: 1. Le vote MSI, le suivi et le filtre de netteté accumulent
+     * sur des frames consécutifs; répartis sur plusieurs workers, ils perdent des décodages que
+     * le débit gagné ne rattrape pas. Plusieurs workers restent possibles par le constructeur
+     * (mesure: {@code ReplayRunner --threads N}).
+     */
+    public static int defaultWorkerCount() {
+        return 1;
+    }
 
-        // ZXing: préparer le reader et les hints pour Code 128
-        this.zxingReader = new MultiFormatReader();
-        EnumMap<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
-        hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(BarcodeFormat.CODE_128));
-        hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
-        this.zxingHints = hints;
-        this.zxingReader.setHints(this.zxingHints);
+    // Deux moteurs du pool par worker, en laissant un cœur au thread d'analyse et à MLKit
+    private static int decodeThreads(int workerCount) {
+        return Math.max(1, Math.min(2 * workerCount, CORES - 1));
+    }
+
+    public int getWorkerCount() {
+        return workers.length;
     }
 
     @Override
     public void analyze(@NonNull ImageProxy imageProxy) {
-        if (isProcessing) {
+        long timestamp = imageProxy.getImageInfo().getTimestamp();
+        metrics.recordFrame(timestamp);
+        FrameWorker worker = acquireWorker();
+        if (worker == null) {
+            metrics.recordSkippedBusy();
+            imageProxy.close();
+            return;
+        }
+        AnalysisController controller = analysisController;
+        if (controller != null && !controller.shouldAnalyze(timestamp)) {
+            metrics.recordSkippedIdle();
             imageProxy.close();
+            worker.busy.set(false);
             return;
         }
+        worker.start(imageProxy, controller);
+    }
+
+    /**
+     * Chauffe des moteurs avant le premier frame, bloquante: à appeler sur un thread de fond (pas
+     * le thread UI), en parallèle de la permission et de l'ouverture de la caméra. MSI et ZXing
+     * décodent des frames synthétiques ({@link EngineWarmup}), puis MLKit traite une image
+     * synthétique passée par la copie NV21 de l'entrée par région, ce qui charge son modèle.
+     * Les workers ne sont pas touchés: des frames peuvent arriver pendant la chauffe. La durée
+     * est enregistrée dans les métriques.
+     *
+     * @return la durée de la chauffe en ms
+     */
+    public long warmUp() {
+        long start = System.nanoTime();
+        EngineWarmup.run(EngineWarmup.DEFAULT_ROUNDS);
+
+        Y8Frame frame = new SyntheticFrameGenerator().size(WARMUP_WIDTH, WARMUP_HEIGHT)
+                .render(SyntheticFrameGenerator.Symbology.CODE_128, "MSI-128-0042");
+        Nv21RegionBuffer buffer = new Nv21RegionBuffer();
+        if (buffer.copy(frame, new int[]{0, 0, frame.getWidth(), frame.getHeight()})) {
+            InputImage image = InputImage.fromByteArray(buffer.getData(), buffer.getWidth(),
+                    buffer.getHeight(), 0, InputImage.IMAGE_FORMAT_NV21);
+            try {
+                Tasks.await(mlKitScanner.process(image), WARMUP_MLKIT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                Log.w(TAG, "Chauffe MLKit incomplète: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
 
-        isProcessing = true;
+        long elapsed = System.nanoTime() - start;
+        metrics.recordWarmup(elapsed);
+        return elapsed / 1_000_000L;
+    }
 
-        // 1) Tentative ZXing (Code 128 uniquement) sur la luminance Y du frame
-        try {
-            String code128 = tryDecodeCode128WithZXing(imageProxy);
-            if (code128 != null && !code128.isEmpty()) {
-                Log.d(TAG, "ZXing Code128 détecté: " + code128);
-                emitIfNotDuplicate("Code 128 (ZXing)", code128);
-                isProcessing = false;
-                imageProxy.close();
+    private FrameWorker acquireWorker() {
+        for (FrameWorker worker : workers) {
+            if (worker.busy.compareAndSet(false, true)) {
+                return worker;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Un frame en vol et son état: pipeline (suivi, vote MSI, buffers), indicateurs d'annulation,
+     * résultats du frame. Réservé par {@code busy} du début de l'analyse à la fermeture du frame.
+     */
+    private final class FrameWorker {
+        final AtomicBoolean busy = new AtomicBoolean(false);
+
+        // Moteurs indépendants de la caméra (MSI maison, ZXing Code 128), partagés avec le rejeu JVM
+        private final DecodePipeline pipeline = new DecodePipeline(metrics, trace);
+        private final ImageProxyFrame frame = new ImageProxyFrame();
+        private final Runnable msiTask = this::runMsi;
+        private final Runnable zxingTask = this::runZXing;
+
+        private final AtomicBoolean frameSettled = new AtomicBoolean(false);
+        private final AtomicInteger pendingEngines = new AtomicInteger(0);
+        // Moteurs qui lisent encore l'ImageProxy; le dernier le referme (MLKit sur une copie: aucun)
+        private final AtomicInteger frameReaders = new AtomicInteger(0);
+        private volatile ImageProxy currentFrame;
+        private volatile long frameStartNanos;
+        private long frameTimestampNanos;
+        private int frameHeight;
+
+        // Entrée MLKit par région: un seul process() en vol par worker, le buffer est donc libre
+        // à chaque nouveau frame
+        private final Nv21RegionBuffer mlKitBuffer = new Nv21RegionBuffer();
+        private final int[] mlKitRegion = new int[4];
+
+        private AnalysisController frameController;
+        // Début de l'analyse du frame (latence du contrôleur et du journal)
+        private long frameClockNanos;
+        // Régions de barres trouvées par la pré-détection (le texte seul ne fait pas monter la résolution)
+        private boolean frameBars;
+
+        private boolean frameMultiSymbol;
+        private final List<BarcodeResult> frameResults = new ArrayList<>();
+        private final List<String> msiValues = new ArrayList<>();
+        private final List<String> zxingValues = new ArrayList<>();
+
+        void start(ImageProxy imageProxy, AnalysisController controller) {
+            frameController = controller;
+            frameClockNanos = System.nanoTime();
+
+            // Un seul frame en vol par worker: l'état de session est réutilisé d'un frame à l'autre
+            long t0 = metrics.start();
+            frameStartNanos = t0;
+            currentFrame = imageProxy;
+            frame.wrap(imageProxy);
+            frameTimestampNanos = frame.getTimestampNanos();
+            frameHeight = frame.getHeight();
+            frameSettled.set(false);
+            frameMultiSymbol = multiSymbol;
+            pipeline.setMultiSymbol(frameMultiSymbol);
+            synchronized (frameResults) {
+                frameResults.clear();
+            }
+            updateRoi();
+            metrics.stop(ScanMetrics.Stage.FRAME_SETUP, t0);
+            trace.record(ScanTrace.Level.DEBUG, ScanTrace.Event.FRAME,
+                    imageProxy.getWidth(), imageProxy.getHeight(),
+                    imageProxy.getImageInfo().getRotationDegrees());
+
+            // En veille, un mouvement dans le champ rend la pleine cadence (le frame reste analysé)
+            if (controller != null && controller.isIdle()) {
+                boolean moved;
+                synchronized (motionDetector) {
+                    moved = motionDetector.update(frame);
+                }
+                if (moved) {
+                    controller.onMotion(frameTimestampNanos);
+                }
+            }
+
+            // Pré-détection 1D: un frame sans région de barres ou trop flou n'est pas lu par MSI
+            // et ZXing (sauf lecture de secours périodique); en veille, sans barres ni mouvement,
+            // il n'est lu par aucun moteur
+            pipeline.setAnalysisController(controller);
+            pipeline.beginFrame(frame);
+            frameBars = pipeline.hasBarCandidates();
+            boolean decode1D = pipeline.shouldDecode1D();
+            boolean decodeMlKit = pipeline.shouldDecodeMlKit();
+            int engines = Math.max(1, (decode1D ? ENGINE_COUNT - 1 : 0) + (decodeMlKit ? 1 : 0));
+            pendingEngines.set(engines);
+            frameReaders.set(engines);
+
+            if (decode1D) {
+                // 0) MSI et 1) ZXing (Code 128) en parallèle sur le pool de décodage
+                submitEngine(msiTask);
+                submitEngine(zxingTask);
+            }
+
+            if (decodeMlKit) {
+                // 2) MLKit pour les autres formats (Code 128 exclu), asynchrone de son côté; hors
+                // du filtre 1D (codes 2D, que la pré-détection n'est pas faite pour reconnaître)
+                startMlKit(imageProxy);
+            } else if (!decode1D) {
+                // Veille: frame refermé tout de suite, le contrôleur le compte quand même
+                releaseFrame();
+                onEngineDone();
+            }
+        }
+
+        private void submitEngine(Runnable task) {
+            try {
+                decodePool.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Analyseur fermé: on libère quand même le frame
+                releaseFrame();
+                onEngineDone();
+            }
+        }
+
+        private void runMsi() {
+            if (frameMultiSymbol) {
+                runMsiAll();
                 return;
             }
-        } catch (Exception e) {
-            Log.d(TAG, "ZXing tentative échouée: " + e.getMessage());
-            // On poursuit avec MLKit
+            try {
+                String msi = pipeline.decodeMsi(frame, frameSettled);
+                if (msi != null) {
+                    trace.record(ScanTrace.Level.DEBUG, ScanTrace.Event.DECODED,
+                            ScanMetrics.Stage.MSI.ordinal(), 0, 0L, msi);
+                    offerResult(DecodePipeline.TYPE_MSI, msi, DecodePipeline.SOURCE_MSI);
+                }
+            } catch (Exception e) {
+                trace.record(ScanTrace.Level.ERROR, ScanTrace.Event.ENGINE_ERROR,
+                        ScanMetrics.Stage.MSI.ordinal(), 0, 0L, e);
+            } finally {
+                releaseFrame();
+                onEngineDone();
+            }
         }
 
-        // 2) MLKit pour les autres formats (Code 128 exclu)
-        @SuppressLint("UnsafeOptInUsageError")
-        InputImage image = InputImage.fromMediaImage(
-                imageProxy.getImage(),
-                imageProxy.getImageInfo().getRotationDegrees()
-        );
-
-        mlKitScanner.process(image)
-                .addOnSuccessListener(barcodes -> {
-                    if (!barcodes.isEmpty()) {
-                        Barcode barcode = barcodes.get(0);
-                        String type = getBarcodeTypeName(barcode.getFormat());
-                        String value = barcode.getDisplayValue();
-
-                        Log.d(TAG, "MLKit détecté - Type: " + type + ", Valeur: " + value);
-
-                        if (value != null && !value.isEmpty()) {
-                            emitIfNotDuplicate(type, value);
-                        } else {
-                            listener.onNoBarcodeDetected();
+        private void runZXing() {
+            if (frameMultiSymbol) {
+                runZXingAll();
+                return;
+            }
+            try {
+                String code128 = pipeline.decodeCode128(frame, frameSettled);
+                if (code128 != null && !code128.isEmpty()) {
+                    trace.record(ScanTrace.Level.DEBUG, ScanTrace.Event.DECODED,
+                            ScanMetrics.Stage.ZXING.ordinal(), 0, 0L, code128);
+                    offerResult(DecodePipeline.TYPE_CODE_128, code128, DecodePipeline.SOURCE_ZXING);
+                }
+            } catch (Exception e) {
+                trace.record(ScanTrace.Level.ERROR, ScanTrace.Event.ENGINE_ERROR,
+                        ScanMetrics.Stage.ZXING.ordinal(), 0, 0L, e);
+            } finally {
+                releaseFrame();
+                onEngineDone();
+            }
+        }
+
+        private void runMsiAll() {
+            try {
+                msiValues.clear();
+                pipeline.decodeMsiAll(frame, frameSettled, msiValues);
+                for (String msi : msiValues) {
+                    collectResult(DecodePipeline.TYPE_MSI, msi, DecodePipeline.SOURCE_MSI, ScanMetrics.Stage.MSI);
+                }
+            } catch (Exception e) {
+                trace.record(ScanTrace.Level.ERROR, ScanTrace.Event.ENGINE_ERROR,
+                        ScanMetrics.Stage.MSI.ordinal(), 0, 0L, e);
+            } finally {
+                releaseFrame();
+                onEngineDone();
+            }
+        }
+
+        private void runZXingAll() {
+            try {
+                zxingValues.clear();
+                pipeline.decodeCode128All(frame, frameSettled, zxingValues);
+                for (String code128 : zxingValues) {
+                    collectResult(DecodePipeline.TYPE_CODE_128, code128, DecodePipeline.SOURCE_ZXING,
+                            ScanMetrics.Stage.ZXING);
+                }
+            } catch (Exception e) {
+                trace.record(ScanTrace.Level.ERROR, ScanTrace.Event.ENGINE_ERROR,
+                        ScanMetrics.Stage.ZXING.ordinal(), 0, 0L, e);
+            } finally {
+                releaseFrame();
+                onEngineDone();
+            }
+        }
+
+        private void startMlKit(@NonNull ImageProxy imageProxy) {
+            InputImage image;
+            boolean readsFrame;
+            long inputStart = metrics.start();
+            try {
+                int rotation = imageProxy.getImageInfo().getRotationDegrees();
+                if (mlKitInput == MlKitInput.REGION && pipeline.getMlKitRegion(frame, mlKitRegion)
+                        && mlKitBuffer.copy(frame, mlKitRegion)) {
+                    image = InputImage.fromByteArray(mlKitBuffer.getData(), mlKitBuffer.getWidth(),
+                            mlKitBuffer.getHeight(), rotation, InputImage.IMAGE_FORMAT_NV21);
+                    readsFrame = false;
+                } else {
+                    @SuppressLint("UnsafeOptInUsageError")
+                    InputImage input = InputImage.fromMediaImage(imageProxy.getImage(), rotation);
+                    image = input;
+                    readsFrame = true;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Erreur de préparation MLKit: " + e.getMessage());
+                releaseFrame();
+                onEngineDone();
+                return;
+            }
+            metrics.stop(ScanMetrics.Stage.MLKIT_INPUT, inputStart);
+            if (!readsFrame) {
+                // Région copiée: MLKit n'a plus besoin de l'ImageProxy
+                releaseFrame();
+            }
+            final boolean releaseOnComplete = readsFrame;
+
+            // L'inférence MLKit ne peut pas être interrompue: si un autre moteur a déjà gagné,
+            // son résultat est simplement ignoré
+            long mlKitStart = metrics.start();
+            mlKitScanner.process(image)
+                    .addOnSuccessListener(barcodes -> {
+                        if (frameMultiSymbol) {
+                            for (Barcode barcode : barcodes) {
+                                String value = barcode.getDisplayValue();
+                                if (value != null && !value.isEmpty()) {
+                                    metrics.recordDecode(ScanMetrics.Stage.MLKIT);
+                                    collectResult(getBarcodeTypeName(barcode.getFormat()), value, SOURCE_MLKIT,
+                                            ScanMetrics.Stage.MLKIT);
+                                }
+                            }
+                        } else if (!barcodes.isEmpty()) {
+                            Barcode barcode = barcodes.get(0);
+                            String type = getBarcodeTypeName(barcode.getFormat());
+                            String value = barcode.getDisplayValue();
+
+                            trace.record(ScanTrace.Level.DEBUG, ScanTrace.Event.DECODED,
+                                    ScanMetrics.Stage.MLKIT.ordinal(), 0, 0L, value);
+
+                            if (value != null && !value.isEmpty()) {
+                                metrics.recordDecode(ScanMetrics.Stage.MLKIT);
+                                offerResult(type, value, SOURCE_MLKIT);
+                            }
+                        }
+                    })
+                    .addOnFailureListener(e -> trace.record(ScanTrace.Level.ERROR, ScanTrace.Event.ENGINE_ERROR,
+                            ScanMetrics.Stage.MLKIT.ordinal(), 0, 0L, e))
+                    .addOnCompleteListener(task -> {
+                        metrics.stop(ScanMetrics.Stage.MLKIT, mlKitStart);
+                        if (releaseOnComplete) {
+                            releaseFrame();
                         }
-                    } else {
-                        listener.onNoBarcodeDetected();
+                        onEngineDone();
+                    });
+        }
+
+        // Le premier résultat validé gagne; frameSettled sert aussi de signal d'annulation aux autres moteurs
+        private void offerResult(String type, String value, String source) {
+            if (frameSettled.compareAndSet(false, true)) {
+                emitIfNotDuplicate(type, value, source, frameClockNanos);
+            }
+        }
+
+        // Mode multi-symboles: un résultat par valeur sur le frame, tous moteurs confondus
+        private void collectResult(String type, String value, String source, ScanMetrics.Stage engine) {
+            trace.record(ScanTrace.Level.DEBUG, ScanTrace.Event.DECODED, engine.ordinal(), 0, 0L, value);
+            synchronized (frameResults) {
+                for (BarcodeResult result : frameResults) {
+                    if (value.equals(result.getValue())) {
+                        return;
                     }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Erreur de scan MLKit: " + e.getMessage());
-                    listener.onNoBarcodeDetected();
-                })
-                .addOnCompleteListener(task -> {
-                    isProcessing = false;
-                    imageProxy.close();
-                });
+                }
+                frameResults.add(new BarcodeResult(type, value, source));
+            }
+        }
+
+        // Le dernier lecteur de l'image la referme: la caméra récupère son buffer sans attendre MLKit
+        private void releaseFrame() {
+            if (frameReaders.decrementAndGet() != 0) {
+                return;
+            }
+            ImageProxy image = currentFrame;
+            currentFrame = null;
+            frame.release();
+            if (image != null) {
+                image.close();
+            }
+        }
+
+        // Le dernier moteur terminé notifie l'absence de résultat et libère le worker
+        private void onEngineDone() {
+            if (pendingEngines.decrementAndGet() != 0) {
+                return;
+            }
+            pipeline.endFrame();
+            boolean found = frameSettled.get();
+            if (frameMultiSymbol) {
+                synchronized (frameResults) {
+                    found = !frameResults.isEmpty();
+                    if (found) {
+                        emitBatch(frameResults, frameClockNanos);
+                    }
+                }
+            }
+            if (!found) {
+                trace.record(ScanTrace.Level.DEBUG, ScanTrace.Event.NO_RESULT, 0, 0, 0L);
+                listener.onNoBarcodeDetected();
+            }
+            AnalysisController controller = frameController;
+            if (controller != null) {
+                controller.onFrame(frameTimestampNanos, frameHeight, System.nanoTime() - frameClockNanos,
+                        frameBars, found, pipeline.getModuleWidth());
+            }
+            metrics.stop(ScanMetrics.Stage.FRAME, frameStartNanos);
+            busy.set(false);
+        }
+
+        // ROI fournie par l'UI (fractions de l'image redressée); sinon bande centrale par défaut
+        private void updateRoi() {
+            RectF f = roiProvider != null ? roiProvider.getRoiFraction() : null;
+            if (f != null) {
+                pipeline.setRoiFraction(f.left, f.top, f.right, f.bottom);
+            } else {
+                pipeline.clearRoiFraction();
+            }
+        }
     }
 
     private String getBarcodeTypeName(int format) {
@@ -175,235 +585,108 @@ public class BarcodeAnalyzer implements ImageAnalysis.Analyzer {
         }
     }
 
-    private String tryDecodeCode128WithZXing(@NonNull ImageProxy imageProxy) throws NotFoundException {
-        if (imageProxy.getImage() == null) {
-            return null;
+    private void emitIfNotDuplicate(String type, String value, String source, long frameStartNanos) {
+        long now = System.nanoTime();
+        if (!recentResults.offer(formatOf(type), value, now)) {
+            trace.record(ScanTrace.Level.DEBUG, ScanTrace.Event.DUPLICATE, 0, 0, 0L, value);
+            return;
         }
+        BarcodeResult result = new BarcodeResult(type, value, source);
+        resolveProduct(result);
+        listener.onBarcodeDetected(result);
+        journal(result, now - frameStartNanos);
+    }
 
-        // Extraire le plan Y en buffer contigu
-        ImageProxy.PlaneProxy yPlane = imageProxy.getPlanes()[0];
-        ByteBuffer yBuffer = yPlane.getBuffer().duplicate();
-        int width = imageProxy.getWidth();
-        int height = imageProxy.getHeight();
-        int rowStride = yPlane.getRowStride();
-        int pixelStride = yPlane.getPixelStride(); // souvent 1 pour Y
-
-        int rotation = imageProxy.getImageInfo().getRotationDegrees();
-        Log.d(TAG, "ZXing frame info - w=" + width + ", h=" + height + ", rowStride=" + rowStride + ", pixelStride=" + pixelStride + ", rotation=" + rotation);
-
-        byte[] yData = new byte[width * height];
-        if (pixelStride == 1 && rowStride == width) {
-            // Chemin rapide: data déjà contiguë
-            yBuffer.rewind();
-            yBuffer.get(yData, 0, Math.min(yData.length, yBuffer.remaining()));
+    // Lot des symboles nouveaux (hors symboles récents)
+    private void emitBatch(List<BarcodeResult> results, long frameStartNanos) {
+        long now = System.nanoTime();
+        List<BarcodeResult> fresh = new ArrayList<>(results.size());
+        for (BarcodeResult result : results) {
+            if (recentResults.offer(formatOf(result.getType()), result.getValue(), now)) {
+                resolveProduct(result);
+                fresh.add(result);
+            } else {
+                trace.record(ScanTrace.Level.DEBUG, ScanTrace.Event.DUPLICATE, 0, 0, 0L, result.getValue());
+            }
+        }
+        if (fresh.isEmpty()) {
+            return;
+        }
+        metrics.recordSymbols(fresh.size());
+        if (listener instanceof MultiBarcodeResultListener) {
+            ((MultiBarcodeResultListener) listener).onBarcodesDetected(fresh);
         } else {
-            // Recopie ligne par ligne en tenant compte du stride
-            byte[] row = new byte[rowStride];
-            for (int y = 0; y < height; y++) {
-                int pos = y * rowStride;
-                if (pos >= yBuffer.limit()) break;
-                yBuffer.position(pos);
-                int len = Math.min(rowStride, yBuffer.remaining());
-                yBuffer.get(row, 0, len);
-                for (int x = 0; x < width; x++) {
-                    int srcIndex = x * pixelStride;
-                    if (srcIndex < len) {
-                        yData[y * width + x] = row[srcIndex];
-                    }
-                }
+            for (BarcodeResult result : fresh) {
+                listener.onBarcodeDetected(result);
             }
         }
+        for (BarcodeResult result : fresh) {
+            journal(result, now - frameStartNanos);
+        }
+    }
 
-        // Préparer les sources: si rotation 90/270, on génère aussi un buffer Y explicitement pivoté
-        LuminanceSource[] bases;
-        String[] baseLabels;
-        if (rotation == 90 || rotation == 270) {
-            int rotatedWidth = height;
-            int rotatedHeight = width;
-            byte[] yRot = new byte[yData.length];
-            // Rotation 90° CW pour aligner les lignes d'échantillonnage 1D
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    int newX = y;
-                    int newY = (rotatedHeight - 1) - x;
-                    yRot[newY * rotatedWidth + newX] = yData[y * width + x];
-                }
-            }
+    private void resolveProduct(BarcodeResult result) {
+        ProductCatalog products = catalog;
+        if (products != null) {
+            products.resolve(result);
+        }
+    }
 
-            LuminanceSource fullRot = new PlanarYUVLuminanceSource(
-                    yRot, rotatedWidth, rotatedHeight,
-                    0, 0, rotatedWidth, rotatedHeight,
-                    false
-            );
-            int roiW = Math.max(1, (int) (rotatedWidth * 0.8f));
-            int roiH = Math.max(1, (int) (rotatedHeight * 0.3f));
-            int roiL = Math.max(0, (rotatedWidth - roiW) / 2);
-            int roiT = Math.max(0, (rotatedHeight - roiH) / 2);
-            if (roiProvider != null) {
-                RectF f = roiProvider.getRoiFraction();
-                if (f != null) {
-                    roiL = clampToInt(f.left * rotatedWidth, 0, Math.max(0, rotatedWidth - 1));
-                    roiT = clampToInt(f.top * rotatedHeight, 0, Math.max(0, rotatedHeight - 1));
-                    roiW = clampToInt(f.width() * rotatedWidth, 1, rotatedWidth - roiL);
-                    roiH = clampToInt(f.height() * rotatedHeight, 1, rotatedHeight - roiT);
-                }
-            }
-            LuminanceSource roiRot = new PlanarYUVLuminanceSource(
-                    yRot, rotatedWidth, rotatedHeight,
-                    roiL, roiT, roiW, roiH,
-                    false
-            );
-            Log.d(TAG, "ZXing ROI (rotated) - left=" + roiL + ", top=" + roiT + ", w=" + roiW + ", h=" + roiH + ", rotW=" + rotatedWidth + ", rotH=" + rotatedHeight);
-
-            // Créer aussi les sources sur le buffer original en fallback
-            LuminanceSource fullSource = new PlanarYUVLuminanceSource(
-                    yData, width, height,
-                    0, 0, width, height,
-                    false
-            );
-            int roiWidth = Math.max(1, (int) (width * 0.8f));
-            int roiHeight = Math.max(1, (int) (height * 0.3f));
-            int roiLeft = Math.max(0, (width - roiWidth) / 2);
-            int roiTop = Math.max(0, (height - roiHeight) / 2);
-            if (roiProvider != null) {
-                RectF f = roiProvider.getRoiFraction();
-                if (f != null) {
-                    roiLeft = clampToInt(f.left * width, 0, Math.max(0, width - 1));
-                    roiTop = clampToInt(f.top * height, 0, Math.max(0, height - 1));
-                    roiWidth = clampToInt(f.width() * width, 1, width - roiLeft);
-                    roiHeight = clampToInt(f.height() * height, 1, height - roiTop);
-                }
-            }
-            LuminanceSource roiSource = new PlanarYUVLuminanceSource(
-                    yData, width, height,
-                    roiLeft, roiTop, roiWidth, roiHeight,
-                    false
-            );
-            Log.d(TAG, "ZXing ROI - left=" + roiLeft + ", top=" + roiTop + ", w=" + roiWidth + ", h=" + roiHeight);
-
-            bases = new LuminanceSource[] { roiRot, fullRot, roiSource, fullSource };
-            baseLabels = new String[] { "ROI(rot)", "FULL(rot)", "ROI", "FULL" };
-        } else {
-            // Cas 0°/180°: sources sur buffer original
-            LuminanceSource fullSource = new PlanarYUVLuminanceSource(
-                    yData, width, height,
-                    0, 0, width, height,
-                    false
-            );
-            int roiWidth = Math.max(1, (int) (width * 0.8f));
-            int roiHeight = Math.max(1, (int) (height * 0.3f));
-            int roiLeft = Math.max(0, (width - roiWidth) / 2);
-            int roiTop = Math.max(0, (height - roiHeight) / 2);
-            LuminanceSource roiSource = new PlanarYUVLuminanceSource(
-                    yData, width, height,
-                    roiLeft, roiTop, roiWidth, roiHeight,
-                    false
-            );
-            Log.d(TAG, "ZXing ROI - left=" + roiLeft + ", top=" + roiTop + ", w=" + roiWidth + ", h=" + roiHeight);
-
-            bases = new LuminanceSource[] { roiSource, fullSource };
-            baseLabels = new String[] { "ROI", "FULL" };
+    // Sans I/O: le journal écrit sur son propre thread
+    private void journal(BarcodeResult result, long latencyNanos) {
+        ScanJournal target = journal;
+        if (target != null) {
+            target.append(result, System.currentTimeMillis(), latencyNanos);
         }
-        for (int b = 0; b < bases.length; b++) {
-            LuminanceSource base = bases[b];
-            String baseLabel = baseLabels[b];
-            LuminanceSource[] candidates;
-            if (base.isRotateSupported()) {
-                // Ordre préféré selon rotation pour augmenter les chances dès la 1ère tentative
-                if (rotation == 90) {
-                    candidates = new LuminanceSource[] {
-                            base.rotateCounterClockwise(), // 90°
-                            base,                           // 0°
-                            base.rotateCounterClockwise().rotateCounterClockwise(), // 180°
-                            base.rotateCounterClockwise().rotateCounterClockwise().rotateCounterClockwise() // 270°
-                    };
-                } else if (rotation == 270) {
-                    candidates = new LuminanceSource[] {
-                            base.rotateCounterClockwise().rotateCounterClockwise().rotateCounterClockwise(), // 270°
-                            base,                                                                           // 0°
-                            base.rotateCounterClockwise(),                                                  // 90°
-                            base.rotateCounterClockwise().rotateCounterClockwise()                          // 180°
-                    };
-                } else {
-                    candidates = new LuminanceSource[] {
-                            base,                           // 0°
-                            base.rotateCounterClockwise(),  // 90°
-                            base.rotateCounterClockwise().rotateCounterClockwise(), // 180°
-                            base.rotateCounterClockwise().rotateCounterClockwise().rotateCounterClockwise() // 270°
-                    };
-                }
-            } else {
-                candidates = new LuminanceSource[] { base };
-            }
+    }
 
-            for (int i = 0; i < candidates.length; i++) {
-                LuminanceSource src = candidates[i];
-                String label = (i == 0 ? "0/90 selon ordre" : (i == 1 ? "1" : (i == 2 ? "2" : "3")));
-                try {
-                    String text = decodeOnce(src);
-                    if (text != null) {
-                        Log.d(TAG, "ZXing succès orientationIndex=" + i + ", base=" + baseLabel);
-                        return text;
-                    }
-                } catch (NotFoundException e) {
-                    Log.d(TAG, "ZXing échec orientationIndex=" + i + ", base=" + baseLabel + ": " + (e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage()));
-                }
+    // ZXing et ML Kit lisent tous deux le Code 128: même symbole, libellés différents
+    private static String formatOf(String type) {
+        return DecodePipeline.TYPE_CODE_128.equals(type) ? "Code 128" : type;
+    }
 
-                // Tenter en inversé
-                if (src.invert() != null) {
-                    try {
-                        String textInv = decodeOnce(src.invert());
-                        if (textInv != null) {
-                            Log.d(TAG, "ZXing succès (inversé) orientationIndex=" + i + ", base=" + baseLabel);
-                            return textInv;
-                        }
-                    } catch (NotFoundException e) {
-                        Log.d(TAG, "ZXing échec (inversé) orientationIndex=" + i + ", base=" + baseLabel + ": " + (e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage()));
-                    }
-                }
-            }
-        }
+    /**
+     * Contrôleur de résolution et de cadence, alimenté à la fin de chaque frame analysé; les
+     * frames qu'il écarte (veille) sont refermés sans analyse. null: désactivé.
+     */
+    public void setAnalysisController(AnalysisController controller) {
+        this.analysisController = controller;
+    }
 
-        throw NotFoundException.getNotFoundInstance();
+    /** Mode multi-symboles (lecture en masse), pris en compte au frame suivant. */
+    public void setMultiSymbol(boolean enabled) {
+        this.multiSymbol = enabled;
     }
 
-    private String decodeOnce(LuminanceSource source) throws NotFoundException {
-        // 1) Essai HybridBinarizer (par défaut, généralement meilleur)
-        BinaryBitmap hybrid = new BinaryBitmap(new HybridBinarizer(source));
-        try {
-            Result result = zxingReader.decode(hybrid);
-            return result != null ? result.getText() : null;
-        } catch (NotFoundException first) {
-            zxingReader.reset();
-            // 2) Fallback GlobalHistogramBinarizer (peut aider en faible contraste)
-            BinaryBitmap global = new BinaryBitmap(new com.google.zxing.common.GlobalHistogramBinarizer(source));
-            try {
-                Result result2 = zxingReader.decode(global);
-                return result2 != null ? result2.getText() : null;
-            } catch (NotFoundException second) {
-                throw second;
-            } finally {
-                zxingReader.reset();
-            }
-        }
+    public boolean isMultiSymbol() {
+        return multiSymbol;
     }
 
-    private void emitIfNotDuplicate(String type, String value) {
-        long now = System.currentTimeMillis();
-        if (value != null && value.equals(lastEmittedValue) && (now - lastEmittedAtMs) < DEBOUNCE_MS) {
-            Log.d(TAG, "Résultat dupliqué ignoré: " + value);
-            return;
-        }
-        lastEmittedValue = value;
-        lastEmittedAtMs = now;
-        listener.onBarcodeDetected(type, value);
+    /** Image transmise à MLKit, prise en compte au frame suivant. */
+    public void setMlKitInput(MlKitInput input) {
+        this.mlKitInput = input;
+    }
+
+    public MlKitInput getMlKitInput() {
+        return mlKitInput;
+    }
+
+    /** Journal recevant chaque scan remis à l'UI (hors symboles récents), null pour aucun. */
+    public void setJournal(ScanJournal journal) {
+        this.journal = journal;
+    }
+
+    /** Catalogue produits associé aux résultats MSI ({@link BarcodeResult#getProduct}), null pour aucun. */
+    public void setCatalog(ProductCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    public ScanMetrics getMetrics() {
+        return metrics;
     }
 
-    private static int clampToInt(float v, int min, int max) {
-        int i = Math.round(v);
-        if (i < min) return min;
-        if (i > max) return max;
-        return i;
+    public ScanTrace getTrace() {
+        return trace;
     }
 
     public interface RoiProvider {
@@ -411,8 +694,9 @@ public class BarcodeAnalyzer implements ImageAnalysis.Analyzer {
     }
 
     public void close() {
+        decodePool.shutdown();
         if (mlKitScanner != null) {
             mlKitScanner.close();
         }
     }
-}
\ No newline at end of file
+}
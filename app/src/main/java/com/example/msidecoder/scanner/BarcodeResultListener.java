@@ -1,6 +1,8 @@
 package com.example.msidecoder.scanner;
 
+import com.example.msidecoder.models.BarcodeResult;
+
 public interface BarcodeResultListener {
-    void onBarcodeDetected(String type, String value);
+    void onBarcodeDetected(BarcodeResult result);
     void onNoBarcodeDetected();
-}
\ No newline at end of file
+}
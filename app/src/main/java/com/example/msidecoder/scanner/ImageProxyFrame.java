@@ -0,0 +1,61 @@
+package com.example.msidecoder.scanner;
+
+import androidx.camera.core.ImageProxy;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Adaptateur {@link LumaFrame} sur un {@link ImageProxy} CameraX (plan Y du YUV_420_888).
+ * Réutilisable: {@link #wrap} remplace le frame courant sans allocation.
+ */
+final class ImageProxyFrame implements LumaFrame {
+
+    private ImageProxy image;
+    private ImageProxy.PlaneProxy yPlane;
+
+    ImageProxyFrame wrap(ImageProxy image) {
+        this.image = image;
+        this.yPlane = image.getPlanes()[0];
+        return this;
+    }
+
+    void release() {
+        image = null;
+        yPlane = null;
+    }
+
+    @Override
+    public ByteBuffer getYBuffer() {
+        return yPlane.getBuffer();
+    }
+
+    @Override
+    public int getWidth() {
+        return image.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return image.getHeight();
+    }
+
+    @Override
+    public int getRowStride() {
+        return yPlane.getRowStride();
+    }
+
+    @Override
+    public int getPixelStride() {
+        return yPlane.getPixelStride();
+    }
+
+    @Override
+    public int getRotationDegrees() {
+        return image.getImageInfo().getRotationDegrees();
+    }
+
+    @Override
+    public long getTimestampNanos() {
+        return image.getImageInfo().getTimestamp();
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.msidecoder.scanner;
+
+import com.example.msidecoder.models.BarcodeResult;
+
+import java.util.List;
+
+/**
+ * Listener du mode multi-symboles: les symboles nouveaux d'un frame (tous moteurs confondus,
+ * sans doublon avec les frames récents) arrivent en un seul lot.
+ */
+public interface MultiBarcodeResultListener extends BarcodeResultListener {
+    void onBarcodesDetected(List<BarcodeResult> results);
+}
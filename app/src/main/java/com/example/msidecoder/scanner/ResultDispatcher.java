@@ -0,0 +1,186 @@
+package com.example.msidecoder.scanner;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import com.example.msidecoder.models.BarcodeResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Intermédiaire entre l'analyseur et l'UI: au lieu d'un {@code runOnUiThread} par frame, les
+ * états publiés par les threads d'analyse sont fusionnés et appliqués au plus une fois par vsync
+ * ({@link Choreographer}), sur le thread UI.
+ *
+ * <ul>
+ *   <li>un état identique à celui affiché (même symbole, "aucun code" répété) ne programme rien;</li>
+ *   <li>plusieurs détections entre deux vsync donnent une seule mise à jour (la dernière gagne,
+ *       et une détection l'emporte sur un "aucun code" du même intervalle);</li>
+ *   <li>"aucun code" n'est appliqué qu'après {@code noBarcodeIntervalMs} depuis la dernière mise à
+ *       jour: un frame manqué n'efface pas aussitôt un résultat.</li>
+ * </ul>
+ *
+ * Les lots du mode multi-symboles ({@link MultiBarcodeResultListener}) reçus entre deux vsync sont
+ * concaténés et remis ensemble: aucun symbole n'est perdu à la fusion.
+ *
+ * À créer sur le thread UI (le {@link Choreographer} est celui de son looper).
+ */
+public final class ResultDispatcher implements MultiBarcodeResultListener {
+
+    /** Appelé sur le thread UI, uniquement quand l'état affiché change. */
+    public interface Renderer {
+        void showBarcode(BarcodeResult result);
+
+        void showNoBarcode();
+
+        /** Nouveaux symboles lus en mode multi-symboles, depuis la dernière mise à jour. */
+        void showBarcodes(List<BarcodeResult> results);
+    }
+
+    public static final long DEFAULT_NO_BARCODE_INTERVAL_MS = 250L;
+
+    private final Renderer renderer;
+    private final long noBarcodeIntervalMs;
+    private final Choreographer choreographer;
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> onFrame();
+    private ScanMetrics metrics;
+
+    // Partagé entre threads d'analyse et thread UI (verrou: this)
+    private BarcodeResult pendingResult;
+    private boolean pendingNoBarcode;
+    private final List<BarcodeResult> pendingBatch = new ArrayList<>();
+    private boolean scheduled;
+    private boolean scheduledDelayed;
+    private long dueNanos;
+    private BarcodeResult shownResult;
+    private boolean shownNoBarcode;
+    private long lastUpdateMs;
+    private boolean closed;
+
+    public ResultDispatcher(Renderer renderer) {
+        this(renderer, DEFAULT_NO_BARCODE_INTERVAL_MS);
+    }
+
+    public ResultDispatcher(Renderer renderer, long noBarcodeIntervalMs) {
+        this.renderer = renderer;
+        this.noBarcodeIntervalMs = noBarcodeIntervalMs;
+        this.choreographer = Choreographer.getInstance();
+    }
+
+    /** Métriques alimentées avec le délai de publication (étape UI_DISPATCH). */
+    public synchronized void setMetrics(ScanMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public synchronized void onBarcodeDetected(BarcodeResult result) {
+        if (closed) {
+            return;
+        }
+        if (pendingResult == null && sameAs(shownResult, result)) {
+            // Symbole toujours affiché: annule un éventuel "aucun code" en attente
+            pendingNoBarcode = false;
+            return;
+        }
+        pendingResult = result;
+        pendingNoBarcode = false;
+        schedule(0L);
+    }
+
+    @Override
+    public synchronized void onBarcodesDetected(List<BarcodeResult> results) {
+        if (closed || results.isEmpty()) {
+            return;
+        }
+        // Déjà filtrés par l'analyseur: chaque lot contient des symboles nouveaux
+        pendingBatch.addAll(results);
+        pendingNoBarcode = false;
+        schedule(0L);
+    }
+
+    @Override
+    public synchronized void onNoBarcodeDetected() {
+        if (closed || shownNoBarcode || pendingResult != null || !pendingBatch.isEmpty() || pendingNoBarcode) {
+            return;
+        }
+        pendingNoBarcode = true;
+        long wait = lastUpdateMs + noBarcodeIntervalMs - SystemClock.uptimeMillis();
+        schedule(Math.max(0L, wait));
+    }
+
+    /** Annule la mise à jour en attente; plus rien n'est affiché ensuite. */
+    public synchronized void close() {
+        closed = true;
+        pendingResult = null;
+        pendingNoBarcode = false;
+        pendingBatch.clear();
+        if (scheduled) {
+            choreographer.removeFrameCallback(frameCallback);
+            scheduled = false;
+        }
+    }
+
+    // Choreographer accepte les appels depuis n'importe quel thread
+    private void schedule(long delayMs) {
+        if (scheduled && !(scheduledDelayed && delayMs == 0L)) {
+            return;
+        }
+        if (scheduled) {
+            // Détection arrivée pendant l'attente d'un "aucun code": au prochain vsync
+            choreographer.removeFrameCallback(frameCallback);
+        }
+        scheduled = true;
+        scheduledDelayed = delayMs > 0L;
+        long start = metrics != null ? metrics.start() : 0L;
+        dueNanos = start == 0L ? 0L : start + delayMs * 1_000_000L;
+        if (delayMs > 0L) {
+            choreographer.postFrameCallbackDelayed(frameCallback, delayMs);
+        } else {
+            choreographer.postFrameCallback(frameCallback);
+        }
+    }
+
+    private void onFrame() {
+        BarcodeResult result;
+        boolean noBarcode;
+        List<BarcodeResult> batch = null;
+        synchronized (this) {
+            scheduled = false;
+            result = pendingResult;
+            noBarcode = pendingNoBarcode;
+            pendingResult = null;
+            pendingNoBarcode = false;
+            if (!pendingBatch.isEmpty()) {
+                batch = new ArrayList<>(pendingBatch);
+                pendingBatch.clear();
+            }
+            if (result == null && !noBarcode && batch == null) {
+                return;
+            }
+            shownResult = batch == null ? result : null;
+            shownNoBarcode = result == null && batch == null;
+            lastUpdateMs = SystemClock.uptimeMillis();
+            if (metrics != null) {
+                metrics.stop(ScanMetrics.Stage.UI_DISPATCH, dueNanos);
+            }
+        }
+        if (batch != null) {
+            renderer.showBarcodes(batch);
+        } else if (result != null) {
+            renderer.showBarcode(result);
+        } else {
+            renderer.showNoBarcode();
+        }
+    }
+
+    private static boolean sameAs(BarcodeResult shown, BarcodeResult result) {
+        return shown != null && result != null
+                && equal(shown.getType(), result.getType())
+                && equal(shown.getValue(), result.getValue());
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.msidecoder.benchmark;
+
+import com.example.msidecoder.scanner.LumaFrame;
+import com.example.msidecoder.scanner.RowBinarizer;
+import com.example.msidecoder.scanner.YPlaneLuminanceSource;
+
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.common.HybridBinarizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binarisation: matrice 2D HybridBinarizer (plein cadre) contre lignes GlobalHistogram
+ * (15 lignes, le parcours d'une tentative {@code ScanlineDecoder}) et lignes {@link RowBinarizer}
+ * (mêmes 15 lignes, calculées au premier accès du frame; les tentatives suivantes les relisent).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinarizerBenchmark {
+
+    private static final int SCANLINES = 15;
+
+    @State(Scope.Thread)
+    public static class Frames extends FrameState {
+        @Override
+        protected String symbol() {
+            return "CODE_128";
+        }
+
+        @Override
+        protected int rotation() {
+            return 0;
+        }
+    }
+
+    private BitArray row = new BitArray(0);
+    private final RowBinarizer rowBinarizer = new RowBinarizer();
+
+    @Benchmark
+    public BitMatrix hybridMatrix(Frames state) throws NotFoundException {
+        return new HybridBinarizer(source(state.frame)).getBlackMatrix();
+    }
+
+    @Benchmark
+    public BitMatrix globalHistogramMatrix(Frames state) throws NotFoundException {
+        return new GlobalHistogramBinarizer(source(state.frame)).getBlackMatrix();
+    }
+
+    @Benchmark
+    public void globalHistogramRows(Frames state, Blackhole bh) {
+        LuminanceSource source = source(state.frame);
+        GlobalHistogramBinarizer binarizer = new GlobalHistogramBinarizer(source);
+        int height = source.getHeight();
+        int step = Math.max(1, height >> 5);
+        for (int i = 0; i < SCANLINES; i++) {
+            int offset = ((i + 1) / 2) * step;
+            int y = (i & 1) == 0 ? height / 2 + offset : height / 2 - offset;
+            try {
+                row = binarizer.getBlackRow(y, row);
+                bh.consume(row);
+            } catch (NotFoundException e) {
+                bh.consume(e);
+            }
+        }
+    }
+
+    @Benchmark
+    public void rowBinarizerRows(Frames state, Blackhole bh) {
+        LumaFrame frame = state.frame;
+        rowBinarizer.reset(frame);
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        if (row.getSize() != width) {
+            row = new BitArray(width);
+        }
+        int step = Math.max(1, height >> 5);
+        for (int i = 0; i < SCANLINES; i++) {
+            int offset = ((i + 1) / 2) * step;
+            int y = (i & 1) == 0 ? height / 2 + offset : height / 2 - offset;
+            bh.consume(rowBinarizer.getRow(false, y, 0, width, false, row));
+        }
+    }
+
+    private static LuminanceSource source(LumaFrame frame) {
+        return new YPlaneLuminanceSource(frame.getYBuffer(), frame.getWidth(), frame.getHeight(),
+                frame.getRowStride(), frame.getPixelStride());
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.msidecoder.benchmark;
+
+import com.example.msidecoder.models.Product;
+import com.example.msidecoder.scanner.ProductCatalog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalogue produits: ouverture d'un fichier compilé et résolution d'une valeur MSI (trouvée avec
+ * décodage du libellé, absente), sur un catalogue de taille Pharmony.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CatalogBenchmark {
+
+    @Param({"300000"})
+    public int products;
+
+    private File file;
+    private ProductCatalog catalog;
+    private String[] hits;
+    private String[] misses;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Random random = new Random(42L);
+        TreeMap<Integer, String> entries = new TreeMap<>();
+        while (entries.size() < products) {
+            int key = random.nextInt(10_000_000);
+            entries.put(key, "Produit " + key + " boîte de 30 comprimés");
+        }
+        int[] keys = new int[entries.size()];
+        String[] labels = new String[entries.size()];
+        int i = 0;
+        for (java.util.Map.Entry<Integer, String> e : entries.entrySet()) {
+            keys[i] = e.getKey();
+            labels[i++] = e.getValue();
+        }
+        file = File.createTempFile("catalog", ".msic");
+        ProductCatalog.write(file, keys, labels);
+        catalog = ProductCatalog.open(file);
+
+        hits = new String[1024];
+        misses = new String[1024];
+        for (int n = 0; n < hits.length; n++) {
+            hits[n] = String.format(Locale.ROOT, "%07d3", keys[random.nextInt(keys.length)]);
+            int miss;
+            do {
+                miss = random.nextInt(10_000_000);
+            } while (entries.containsKey(miss));
+            misses[n] = String.format(Locale.ROOT, "%07d3", miss);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public ProductCatalog open() throws IOException {
+        return ProductCatalog.open(file);
+    }
+
+    @Benchmark
+    public Product lookupHit() {
+        return catalog.lookup(hits[next++ & 1023]);
+    }
+
+    @Benchmark
+    public Product lookupMiss() {
+        return catalog.lookup(misses[next++ & 1023]);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.msidecoder.benchmark;
+
+import com.example.msidecoder.models.BarcodeResult;
+import com.example.msidecoder.scanner.DecodePipeline;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stratégies de décodage sur frames synthétiques: moteur MSI seul, cascade ZXing Code 128 seule,
+ * et pipeline séquentiel complet. Le symbole NONE mesure le coût d'un frame vide (cas majoritaire).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DecodeBenchmark {
+
+    @State(Scope.Thread)
+    public static class Frames extends FrameState {
+        @Param({"MSI", "CODE_128", "NONE"})
+        public String symbol;
+
+        @Param({"0", "90"})
+        public int rotation;
+
+        @Override
+        protected String symbol() {
+            return symbol;
+        }
+
+        @Override
+        protected int rotation() {
+            return rotation;
+        }
+    }
+
+    private DecodePipeline pipeline;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pipeline = new DecodePipeline();
+    }
+
+    @Benchmark
+    public String msi(Frames state) {
+        return pipeline.decodeMsi(state.frame, null);
+    }
+
+    @Benchmark
+    public String code128(Frames state) {
+        return pipeline.decodeCode128(state.frame, null);
+    }
+
+    @Benchmark
+    public BarcodeResult pipeline(Frames state) {
+        return pipeline.decode(state.frame);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.msidecoder.benchmark;
+
+import com.example.msidecoder.scanner.LumaFrame;
+import com.example.msidecoder.scanner.YPlaneLuminanceSource;
+
+import com.google.zxing.LuminanceSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction du plan Y et rotation: ancienne copie ligne par ligne + buffer pivoté,
+ * contre lecture en place par {@link YPlaneLuminanceSource} (vues recadrées/pivotées).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameAccessBenchmark {
+
+    @State(Scope.Thread)
+    public static class Frames extends FrameState {
+        @Param({"0", "90"})
+        public int rotation;
+
+        // Le contenu n'influe pas sur l'accès aux pixels
+        @Override
+        protected String symbol() {
+            return "NONE";
+        }
+
+        @Override
+        protected int rotation() {
+            return rotation;
+        }
+    }
+
+    private byte[] row = new byte[0];
+
+    /** Référence: copie contiguë du plan Y (chemin "strided" de l'ancien analyzer). */
+    @Benchmark
+    public byte[] legacyCopy(Frames state) {
+        return copyY(state.frame);
+    }
+
+    /** Référence: copie contiguë puis buffer pivoté d'un quart de tour. */
+    @Benchmark
+    public byte[] legacyCopyAndRotate(Frames state) {
+        byte[] yData = copyY(state.frame);
+        int width = state.width;
+        int height = state.height;
+        byte[] yRot = new byte[yData.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                yRot[((width - 1) - x) * height + y] = yData[y * width + x];
+            }
+        }
+        return yRot;
+    }
+
+    /** Lecture de toutes les lignes en place. */
+    @Benchmark
+    public void viewRows(Frames state, Blackhole bh) {
+        readAllRows(source(state.frame), bh);
+    }
+
+    /** Lecture de toutes les lignes d'une vue pivotée (colonnes capteur), sans copie. */
+    @Benchmark
+    public void viewRowsRotated(Frames state, Blackhole bh) {
+        readAllRows(source(state.frame).rotateCounterClockwise(), bh);
+    }
+
+    private void readAllRows(LuminanceSource source, Blackhole bh) {
+        for (int y = 0; y < source.getHeight(); y++) {
+            row = source.getRow(y, row);
+            bh.consume(row);
+        }
+    }
+
+    private static LuminanceSource source(LumaFrame frame) {
+        return new YPlaneLuminanceSource(frame.getYBuffer(), frame.getWidth(), frame.getHeight(),
+                frame.getRowStride(), frame.getPixelStride());
+    }
+
+    private static byte[] copyY(LumaFrame frame) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int rowStride = frame.getRowStride();
+        int pixelStride = frame.getPixelStride();
+        ByteBuffer yBuffer = frame.getYBuffer().duplicate();
+        byte[] yData = new byte[width * height];
+        byte[] row = new byte[rowStride];
+        for (int y = 0; y < height; y++) {
+            int pos = y * rowStride;
+            if (pos >= yBuffer.limit()) break;
+            yBuffer.position(pos);
+            int len = Math.min(rowStride, yBuffer.remaining());
+            yBuffer.get(row, 0, len);
+            for (int x = 0; x < width; x++) {
+                int srcIndex = x * pixelStride;
+                if (srcIndex < len) {
+                    yData[y * width + x] = row[srcIndex];
+                }
+            }
+        }
+        return yData;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.msidecoder.benchmark;
+
+import com.example.msidecoder.scanner.LumaFrame;
+import com.example.msidecoder.scanner.SyntheticFrameGenerator;
+import com.example.msidecoder.scanner.Y8Frame;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Frame synthétique partagé par les benchmarks: résolution et dégradations paramétrables,
+ * symbole et rotation capteur fixés par chaque benchmark. Le plan Y est recopié avec un
+ * rowStride aligné sur 64 octets, comme sur la plupart des capteurs, pour exercer le chemin
+ * "strided".
+ */
+@State(Scope.Thread)
+public abstract class FrameState {
+
+    public static final String MSI_VALUE = SyntheticFrameGenerator.withMod10("4833489");
+    public static final String CODE_128_VALUE = "MSI-128-0042";
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"0"})
+    public int blur;
+
+    @Param({"0"})
+    public float noise;
+
+    @Param({"180"})
+    public int contrast;
+
+    @Param({"false"})
+    public boolean inverted;
+
+    @Param({"10"})
+    public int quietZone;
+
+    public LumaFrame frame;
+    public int width;
+    public int height;
+
+    /** MSI, CODE_128 ou NONE (frame vide). */
+    protected abstract String symbol();
+
+    protected abstract int rotation();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String symbol = symbol();
+        int rotation = rotation();
+        String[] size = resolution.split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+
+        SyntheticFrameGenerator generator = new SyntheticFrameGenerator()
+                .size(width, height)
+                .rotation(rotation)
+                .moduleWidth(Math.max(1.5f, Math.min(width, height) / 480f * 2f))
+                .blur(blur)
+                .noise(noise)
+                .contrast(contrast)
+                .inverted(inverted)
+                .quietZone(quietZone);
+        Y8Frame packed;
+        if ("MSI".equals(symbol)) {
+            packed = generator.render(SyntheticFrameGenerator.Symbology.MSI, MSI_VALUE);
+        } else if ("CODE_128".equals(symbol)) {
+            packed = generator.render(SyntheticFrameGenerator.Symbology.CODE_128, CODE_128_VALUE);
+        } else {
+            packed = generator.renderEmpty();
+        }
+
+        int rowStride = (width + 63) & ~63;
+        ByteBuffer strided = ByteBuffer.allocateDirect(rowStride * height);
+        ByteBuffer src = packed.getYBuffer();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                strided.put(y * rowStride + x, src.get(y * width + x));
+            }
+        }
+        frame = new Y8Frame(strided, width, height, rowStride, 1, rotation, 0L);
+    }
+}
@@ -6,6 +6,7 @@ public class BarcodeResult {
     private String source; // MLKit, ZXing, or Custom MSI
     private boolean isValid;
     private String errorMessage;
+    private Product product; // catalogue produits (MSI), null si inconnu
     
     public BarcodeResult(String type, String value, String source) {
         this.type = type;
@@ -29,6 +30,7 @@ public class BarcodeResult {
     public String getSource() { return source; }
     public boolean isValid() { return isValid; }
     public String getErrorMessage() { return errorMessage; }
+    public Product getProduct() { return product; }
 
     // Setters
     public void setType(String type) { this.type = type; }
@@ -36,6 +38,7 @@ public class BarcodeResult {
     public void setSource(String source) { this.source = source; }
     public void setValid(boolean valid) { this.isValid = valid; }
     public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+    public void setProduct(Product product) { this.product = product; }
 
     @Override
     public String toString() {
@@ -46,6 +49,7 @@ public class BarcodeResult {
                 "type='" + type + '\'' +
                 ", value='" + value + '\'' +
                 ", source='" + source + '\'' +
+                (product != null ? ", product='" + product.getLabel() + '\'' : "") +
                 '}';
     }
 }
\ No newline at end of file
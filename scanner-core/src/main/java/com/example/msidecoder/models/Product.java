@@ -0,0 +1,23 @@
+package com.example.msidecoder.models;
+
+public class Product {
+    private String code; // 7 premiers chiffres du MSI
+    private String label;
+
+    public Product(String code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    // Getters
+    public String getCode() { return code; }
+    public String getLabel() { return label; }
+
+    @Override
+    public String toString() {
+        return "Product{" +
+                "code='" + code + '\'' +
+                ", label='" + label + '\'' +
+                '}';
+    }
+}
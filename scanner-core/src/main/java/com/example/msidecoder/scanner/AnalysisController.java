@@ -0,0 +1,356 @@
+package com.example.msidecoder.scanner;
+
+/**
+ * Choisit la résolution d'analyse et la cadence d'analyse d'après les frames décodés: latence,
+ * taux de succès et largeur de bande fine apparente ({@link DecodePipeline#getModuleWidth()}).
+ *
+ * <ul>
+ *   <li>résolution: la plus basse qui garde la bande fine la plus étroite lue au-dessus de
+ *       {@link #COMFORT_MODULE_PX}; montée dès qu'elle passe sous {@link #MIN_MODULE_PX}, ou
+ *       quand des frames avec barres ne donnent plus rien (bandes MSI trop fines pour être lues),
+ *       retour vers la résolution de départ si cette montée n'a rien donné, sans nouvel essai
+ *       avant un décodage, un mouvement ou la veille (texte ou motif pris pour des barres: une
+ *       montée, pas une oscillation); descente aussi quand la latence moyenne dépasse le budget,
+ *       si la bande reste lisible;</li>
+ *   <li>cadence: tous les frames tant que la scène contient des barres, un frame par
+ *       {@code idleIntervalNanos} après {@link #IDLE_AFTER_NS} sans barres ni décodage, un
+ *       par {@code deepIdleIntervalNanos} après {@link #DEEP_IDLE_AFTER_NS} (veille profonde).
+ *       En veille, un frame sans barres ne passe que par {@link MotionDetector} et la
+ *       pré-détection: ni MLKit ni lecture 1D, secours compris
+ *       ({@link DecodePipeline#setAnalysisController}); des barres ({@code bars}) ou un
+ *       mouvement ({@link #onMotion}) rendent aussitôt les moteurs et la pleine cadence;</li>
+ *   <li>état thermique ({@link #setThermalStatus}, valeurs de {@code PowerManager}): à partir de
+ *       {@link #THERMAL_MODERATE}, la cadence active est plafonnée (15, 10 puis 5 fps); la
+ *       résolution la plus haute n'est exclue qu'à {@link #THERMAL_CRITICAL}, car c'est elle qui
+ *       lit les bandes MSI fines (moins de frames plutôt que plus de lecture).</li>
+ * </ul>
+ *
+ * Le contrôleur ne lit aucune horloge: seuls les timestamps des frames le font avancer, ce qui
+ * permet de le piloter avec une horloge et des frames simulés (voir {@code AdaptiveSimulation}
+ * dans tools). Décisions prises sur des fenêtres de {@link #EVALUATION_NS}, et gelées
+ * {@link #HOLD_NS} après un changement de résolution (frames encore à l'ancienne taille).
+ */
+public final class AnalysisController {
+
+    /** Appelé, sur le thread de {@link #onFrame}, quand la résolution cible change. */
+    public interface Listener {
+        void onResolutionChanged(int width, int height);
+    }
+
+    /** Résolutions d'analyse par défaut (capteur paysage), de la plus basse à la plus haute. */
+    public static final int[][] DEFAULT_RESOLUTIONS = {{640, 480}, {1280, 720}, {1920, 1080}};
+
+    // Bande fine MSI lisible à partir de 2 px (1,5 px ne décode plus); marge de 50% pour descendre
+    public static final float MIN_MODULE_PX = 2f;
+    public static final float COMFORT_MODULE_PX = 3f;
+
+    public static final long EVALUATION_NS = 1_000_000_000L;
+    public static final long HOLD_NS = 2_000_000_000L;
+    public static final long IDLE_AFTER_NS = 2_000_000_000L;
+    // Montée faute de décodage: pas de redescente avant ce délai (évite d'osciller)
+    public static final long DOWN_BLOCK_NS = 5_000_000_000L;
+    public static final long DEEP_IDLE_AFTER_NS = 30_000_000_000L;
+
+    // États thermiques, mêmes valeurs que PowerManager.THERMAL_STATUS_*
+    public static final int THERMAL_NONE = 0;
+    public static final int THERMAL_LIGHT = 1;
+    public static final int THERMAL_MODERATE = 2;
+    public static final int THERMAL_SEVERE = 3;
+    public static final int THERMAL_CRITICAL = 4;
+
+    private static final long DEFAULT_LATENCY_BUDGET_NS = 50_000_000L;
+    private static final long DEFAULT_IDLE_INTERVAL_NS = 200_000_000L;
+    private static final long DEFAULT_DEEP_IDLE_INTERVAL_NS = 1_000_000_000L;
+    // Intervalle minimal entre frames analysés selon l'état thermique (15, 10 et 5 fps)
+    private static final long MODERATE_INTERVAL_NS = 66_666_666L;
+    private static final long SEVERE_INTERVAL_NS = 100_000_000L;
+    private static final long CRITICAL_INTERVAL_NS = 200_000_000L;
+    // Frames avec barres sans aucun décodage dans une fenêtre avant de monter en résolution
+    private static final int MIN_FAILED_FRAMES = 10;
+
+    private final int[][] resolutions;
+    private final int homeLevel;
+    private Listener listener;
+    private long latencyBudgetNanos = DEFAULT_LATENCY_BUDGET_NS;
+    private long idleIntervalNanos = DEFAULT_IDLE_INTERVAL_NS;
+    private long deepIdleIntervalNanos = DEFAULT_DEEP_IDLE_INTERVAL_NS;
+    private int thermalStatus = THERMAL_NONE;
+
+    private int level;
+    private boolean started;
+    private long windowStartNanos;
+    private long holdUntilNanos;
+    private long downBlockedUntilNanos;
+    // Montée faute de décodage revenue bredouille: pas de nouvel essai avant une nouvelle scène
+    private boolean climbFailed;
+    private long lastActivityNanos;
+    private long lastAnalyzedNanos;
+    private boolean analyzedOnce;
+    private long lastFrameNanos;
+    private boolean idle;
+    private boolean deepIdle;
+
+    // Fenêtre courante
+    private int frames;
+    private int barFrames;
+    private int decodedFrames;
+    private long latencySumNanos;
+    private float thinnestModule;
+    private int frameHeight;
+
+    public AnalysisController() {
+        this(DEFAULT_RESOLUTIONS, 1);
+    }
+
+    /**
+     * @param resolutions  résolutions {largeur, hauteur} croissantes
+     * @param initialLevel indice de la résolution de départ
+     */
+    public AnalysisController(int[][] resolutions, int initialLevel) {
+        if (resolutions.length == 0 || initialLevel < 0 || initialLevel >= resolutions.length) {
+            throw new IllegalArgumentException("Résolutions ou niveau initial invalides");
+        }
+        this.resolutions = resolutions;
+        this.homeLevel = initialLevel;
+        this.level = initialLevel;
+    }
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Latence moyenne par frame au-delà de laquelle la résolution baisse (si la bande reste lisible). */
+    public synchronized void setLatencyBudgetNanos(long latencyBudgetNanos) {
+        this.latencyBudgetNanos = latencyBudgetNanos;
+    }
+
+    /** Intervalle entre deux frames analysés en veille (0: pas de veille). */
+    public synchronized void setIdleIntervalNanos(long idleIntervalNanos) {
+        this.idleIntervalNanos = idleIntervalNanos;
+    }
+
+    /** Intervalle entre deux frames analysés en veille profonde (0: pas de veille profonde). */
+    public synchronized void setDeepIdleIntervalNanos(long deepIdleIntervalNanos) {
+        this.deepIdleIntervalNanos = deepIdleIntervalNanos;
+    }
+
+    /**
+     * Nouvel état thermique de l'appareil ({@code PowerManager.THERMAL_STATUS_*}). Si la
+     * résolution courante dépasse le plafond de cet état, elle baisse tout de suite (listener
+     * appelé sur le thread appelant); elle ne remonte ensuite qu'au fil des évaluations.
+     */
+    public void setThermalStatus(int status) {
+        Listener notify = null;
+        int width = 0;
+        int height = 0;
+        synchronized (this) {
+            thermalStatus = status;
+            int max = maxLevel();
+            if (level > max) {
+                level = max;
+                holdUntilNanos = lastFrameNanos + HOLD_NS;
+                notify = listener;
+                width = resolutions[level][0];
+                height = resolutions[level][1];
+            }
+        }
+        if (notify != null) {
+            notify.onResolutionChanged(width, height);
+        }
+    }
+
+    public synchronized int getThermalStatus() {
+        return thermalStatus;
+    }
+
+    public synchronized int getLevel() {
+        return level;
+    }
+
+    public synchronized int getTargetWidth() {
+        return resolutions[level][0];
+    }
+
+    public synchronized int getTargetHeight() {
+        return resolutions[level][1];
+    }
+
+    public synchronized boolean isIdle() {
+        return idle;
+    }
+
+    public synchronized boolean isDeepIdle() {
+        return deepIdle;
+    }
+
+    /** Intervalle minimal courant entre deux frames analysés (0: tous). */
+    public synchronized long getIntervalNanos() {
+        long interval = deepIdle ? deepIdleIntervalNanos : idle ? idleIntervalNanos : 0L;
+        return Math.max(interval, thermalIntervalNanos());
+    }
+
+    /**
+     * À appeler à l'arrivée d'un frame: false si la cadence courante l'écarte (le frame est fermé
+     * sans analyse et sans appel à {@link #onFrame}).
+     */
+    public synchronized boolean shouldAnalyze(long timestampNanos) {
+        long interval = getIntervalNanos();
+        if (interval > 0L && analyzedOnce && timestampNanos - lastAnalyzedNanos >= 0L
+                && timestampNanos - lastAnalyzedNanos < interval) {
+            return false;
+        }
+        lastAnalyzedNanos = timestampNanos;
+        analyzedOnce = true;
+        return true;
+    }
+
+    /**
+     * Mouvement détecté sur un frame analysé en veille ({@link MotionDetector}): compte comme une
+     * activité, la pleine cadence revient dès le frame suivant.
+     */
+    public synchronized void onMotion(long timestampNanos) {
+        if (!started) {
+            return;
+        }
+        lastActivityNanos = Math.max(lastActivityNanos, timestampNanos);
+        idle = false;
+        deepIdle = false;
+        climbFailed = false;
+    }
+
+    /**
+     * Bilan d'un frame analysé.
+     *
+     * @param frameHeight   hauteur du frame reçu (capteur), pour rapporter la bande à la résolution
+     * @param latencyNanos  durée de l'analyse (tous moteurs)
+     * @param bars          la pré-détection a trouvé des régions de barres, ou n'a pas tourné
+     *                      ({@link DecodePipeline#hasBarCandidates()}); une scène seulement
+     *                      texturée (texte, motif) n'en est pas une
+     * @param decoded       au moins un symbole lu
+     * @param moduleWidthPx bande fine la plus étroite lue (0: inconnue)
+     */
+    public void onFrame(long timestampNanos, int frameHeight, long latencyNanos,
+                        boolean bars, boolean decoded, float moduleWidthPx) {
+        Listener notify = null;
+        int width = 0;
+        int height = 0;
+        synchronized (this) {
+            if (!started || timestampNanos < windowStartNanos - EVALUATION_NS) {
+                // Premier frame, ou horloge repartie en arrière (nouvelle session caméra); un
+                // léger désordre vient des workers parallèles et n'est pas un retour en arrière
+                started = true;
+                lastActivityNanos = timestampNanos;
+                holdUntilNanos = timestampNanos;
+                downBlockedUntilNanos = timestampNanos;
+                climbFailed = false;
+                startWindow(timestampNanos);
+            }
+            if (bars || decoded) {
+                lastActivityNanos = timestampNanos;
+            }
+            long inactive = timestampNanos - lastActivityNanos;
+            idle = idleIntervalNanos > 0L && inactive >= IDLE_AFTER_NS;
+            deepIdle = idle && deepIdleIntervalNanos > 0L && inactive >= DEEP_IDLE_AFTER_NS;
+            if (idle || decoded) {
+                climbFailed = false;
+            }
+            lastFrameNanos = timestampNanos;
+
+            frames++;
+            latencySumNanos += latencyNanos;
+            this.frameHeight = frameHeight;
+            if (bars) {
+                barFrames++;
+            }
+            if (decoded) {
+                decodedFrames++;
+                if (moduleWidthPx > 0f && (thinnestModule == 0f || moduleWidthPx < thinnestModule)) {
+                    thinnestModule = moduleWidthPx;
+                }
+            }
+
+            if (timestampNanos - windowStartNanos >= EVALUATION_NS) {
+                int next = timestampNanos >= holdUntilNanos ? evaluate(timestampNanos) : level;
+                startWindow(timestampNanos);
+                if (next != level) {
+                    level = next;
+                    holdUntilNanos = timestampNanos + HOLD_NS;
+                    notify = listener;
+                    width = resolutions[level][0];
+                    height = resolutions[level][1];
+                }
+            }
+        }
+        if (notify != null) {
+            notify.onResolutionChanged(width, height);
+        }
+    }
+
+    private int evaluate(long now) {
+        if (thinnestModule > 0f && frameHeight > 0) {
+            // Bande rapportée à chaque résolution: la plus basse qui reste confortable
+            if (thinnestModule < MIN_MODULE_PX) {
+                return Math.max(level, Math.min(level + 1, maxLevel()));
+            }
+            if (level > 0 && now >= downBlockedUntilNanos) {
+                float lower = thinnestModule * resolutions[level - 1][1] / frameHeight;
+                long meanLatency = latencySumNanos / frames;
+                if (lower >= COMFORT_MODULE_PX
+                        || (meanLatency > latencyBudgetNanos && lower >= MIN_MODULE_PX)) {
+                    return level - 1;
+                }
+            }
+            return level;
+        }
+        if (decodedFrames == 0 && barFrames >= minFailedFrames() && level < maxLevel() && !climbFailed) {
+            // Des barres, aucune lecture: bandes peut-être trop fines à cette résolution
+            downBlockedUntilNanos = now + DOWN_BLOCK_NS;
+            return level + 1;
+        }
+        if (decodedFrames == 0 && level > homeLevel && now >= downBlockedUntilNanos) {
+            // La montée n'a rien donné (barres sans symbole, texte): retour vers la résolution de départ
+            climbFailed = true;
+            return level - 1;
+        }
+        return level;
+    }
+
+    // Cadence plafonnée: moitié des frames attendus sur une fenêtre, sans dépasser MIN_FAILED_FRAMES
+    private int minFailedFrames() {
+        long interval = thermalIntervalNanos();
+        if (interval == 0L) {
+            return MIN_FAILED_FRAMES;
+        }
+        return (int) Math.max(2L, Math.min(MIN_FAILED_FRAMES, EVALUATION_NS / interval / 2));
+    }
+
+    // Résolution la plus haute permise par l'état thermique
+    private int maxLevel() {
+        if (thermalStatus >= THERMAL_CRITICAL) {
+            return Math.max(0, resolutions.length - 2);
+        }
+        return resolutions.length - 1;
+    }
+
+    private long thermalIntervalNanos() {
+        if (thermalStatus >= THERMAL_CRITICAL) {
+            return CRITICAL_INTERVAL_NS;
+        }
+        if (thermalStatus >= THERMAL_SEVERE) {
+            return SEVERE_INTERVAL_NS;
+        }
+        if (thermalStatus >= THERMAL_MODERATE) {
+            return MODERATE_INTERVAL_NS;
+        }
+        return 0L;
+    }
+
+    private void startWindow(long timestampNanos) {
+        windowStartNanos = timestampNanos;
+        frames = 0;
+        barFrames = 0;
+        decodedFrames = 0;
+        latencySumNanos = 0L;
+        thinnestModule = 0f;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.msidecoder.scanner;
+
+/**
+ * Ordonnanceur des tentatives de décodage d'un frame.
+ *
+ * Chaque combinaison (base, direction, polarité...) est un "slot" numéroté dans l'ordre de priorité
+ * par défaut. Les succès sont comptés par slot avec une décroissance exponentielle, et les slots
+ * sont reclassés selon ce score: ce qui réussit sur cet appareil et cette scène passe en tête.
+ *
+ * Le nombre de tentatives par frame est plafonné: les meilleurs slots sont essayés, plus un slot
+ * d'exploration pris à tour de rôle parmi les autres pour que rien ne soit écarté définitivement.
+ * Un slot sans objet sur ce frame (base absente) est retiré du plan par l'appelant
+ * ({@code availableMask}) et sa place revient au suivant. Au plus 32 slots. Aucune allocation
+ * après construction. Une instance n'est pas thread-safe.
+ */
+public class AttemptScheduler {
+
+    // Appliqué à tous les scores à chaque succès: les vieux succès pèsent de moins en moins
+    private static final float DECAY = 0.9f;
+
+    private final int slotCount;
+    private final int allSlots;
+    private final int maxAttemptsPerFrame;
+    private final float[] scores;
+    private final int[] ranking;
+    private final long[] attempts;
+    private final long[] successes;
+    private int exploreCursor;
+
+    public AttemptScheduler(int slotCount, int maxAttemptsPerFrame) {
+        if (slotCount <= 0 || maxAttemptsPerFrame <= 0) {
+            throw new IllegalArgumentException("slotCount and maxAttemptsPerFrame must be > 0");
+        }
+        if (slotCount > Integer.SIZE) {
+            throw new IllegalArgumentException("slotCount must be <= " + Integer.SIZE);
+        }
+        this.slotCount = slotCount;
+        this.allSlots = slotCount == Integer.SIZE ? -1 : (1 << slotCount) - 1;
+        this.maxAttemptsPerFrame = Math.min(maxAttemptsPerFrame, slotCount);
+        this.scores = new float[slotCount];
+        this.ranking = new int[slotCount];
+        this.attempts = new long[slotCount];
+        this.successes = new long[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            ranking[i] = i;
+        }
+    }
+
+    /**
+     * Remplit {@code out} avec les slots à essayer pour ce frame, dans l'ordre.
+     *
+     * @return le nombre de slots écrits (au plus maxAttemptsPerFrame)
+     */
+    public int plan(int[] out) {
+        return plan(out, allSlots);
+    }
+
+    /**
+     * Comme {@link #plan(int[])}, parmi les seuls slots dont le bit est à 1 dans
+     * {@code availableMask} (bit i: slot i).
+     *
+     * @return le nombre de slots écrits (au plus maxAttemptsPerFrame, 0 si aucun slot disponible)
+     */
+    public int plan(int[] out, int availableMask) {
+        int mask = availableMask & allSlots;
+        int available = Integer.bitCount(mask);
+        int count = Math.min(maxAttemptsPerFrame, available);
+        int written = 0;
+        int i = 0;
+        if (count == available) {
+            for (; written < count; i++) {
+                if (isAvailable(mask, ranking[i])) {
+                    out[written++] = ranking[i];
+                }
+            }
+            return count;
+        }
+        // Meilleurs slots, puis un slot d'exploration parmi ceux qui restent
+        int best = count - 1;
+        for (; written < best; i++) {
+            if (isAvailable(mask, ranking[i])) {
+                out[written++] = ranking[i];
+            }
+        }
+        int others = available - best;
+        int explore = exploreCursor % others;
+        exploreCursor = (explore + 1) % others;
+        for (; ; i++) {
+            if (isAvailable(mask, ranking[i]) && explore-- == 0) {
+                out[written] = ranking[i];
+                return count;
+            }
+        }
+    }
+
+    private static boolean isAvailable(int mask, int slot) {
+        return (mask >>> slot & 1) != 0;
+    }
+
+    public void recordAttempt(int slot) {
+        attempts[slot]++;
+    }
+
+    public void recordSuccess(int slot) {
+        successes[slot]++;
+        for (int i = 0; i < slotCount; i++) {
+            scores[i] *= DECAY;
+        }
+        scores[slot] += 1f;
+        rerank();
+    }
+
+    // Tri par insertion stable: score décroissant, priorité par défaut (index) en cas d'égalité
+    private void rerank() {
+        for (int i = 1; i < slotCount; i++) {
+            int slot = ranking[i];
+            int j = i - 1;
+            while (j >= 0 && isBefore(slot, ranking[j])) {
+                ranking[j + 1] = ranking[j];
+                j--;
+            }
+            ranking[j + 1] = slot;
+        }
+    }
+
+    private boolean isBefore(int a, int b) {
+        if (scores[a] != scores[b]) {
+            return scores[a] > scores[b];
+        }
+        return a < b;
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public int getMaxAttemptsPerFrame() {
+        return maxAttemptsPerFrame;
+    }
+
+    public long getAttempts(int slot) {
+        return attempts[slot];
+    }
+
+    public long getSuccesses(int slot) {
+        return successes[slot];
+    }
+}
@@ -0,0 +1,343 @@
+package com.example.msidecoder.scanner;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Pré-détection rapide de symboles 1D sur le plan Y sous-échantillonné, avant tout binariseur.
+ *
+ * Le plan est découpé en cellules; dans chaque cellule on somme, sur une grille de points
+ * espacés de {@code step} pixels, le gradient horizontal et le gradient vertical centrés
+ * (|p(x+1) - p(x-1)|, sur deux pixels). La phase de la grille est décalée d'un pixel d'une
+ * ligne de points à l'autre (et d'une colonne à l'autre pour le gradient vertical): sans cela,
+ * une largeur de module multiple du pas place tous les points au milieu des modules et les
+ * barres passent inaperçues. Des barres 1D donnent une énergie forte sur un seul axe
+ * (perpendiculaire aux barres); un mur ou un fond flou n'en donnent sur aucun, du texte ou un
+ * code 2D sur les deux. Les seuils sont relatifs au bruit du frame, estimé par le 1er quartile
+ * de l'énergie du plus faible des deux axes de chaque cellule (le bruit seul, y compris dans
+ * une cellule de barres).
+ *
+ * Les cellules dominées par un même axe sont regroupées en composantes connexes, classées par
+ * énergie: ce sont les régions candidates (rectangles capteur, marge d'une cellule pour les
+ * quiet zones) transmises aux moteurs MSI et ZXing.
+ *
+ * {@link #isTextured()} indique si le frame a de la structure tout court (1D ou 2D): sinon il
+ * peut être ignoré par tous les moteurs, MLKit compris. {@link #getTexturedBounds} en donne
+ * l'enveloppe (région d'entrée de MLKit, qui lit aussi les codes 2D).
+ *
+ * Netteté d'une candidate ({@link #getSharpness}): somme des carrés des gradients de l'axe dominant
+ * divisée par leur somme, soit la pente moyenne des transitions pondérée par elle-même. La somme
+ * seule ne mesure que le contraste total (un bord flou donne des gradients plus faibles mais sur
+ * plus de points); le rapport baisse dès que les transitions s'étalent (flou de bougé, mise au point).
+ *
+ * Buffers préalloués (agrandis si la taille de frame augmente), aucune allocation par frame.
+ * Une instance n'est pas thread-safe.
+ */
+public final class BarcodePresenceDetector {
+
+    // Lecture en masse (plateau de colis): une candidate par symbole visible
+    public static final int MAX_CANDIDATES = 10;
+
+    // Au plus 180 points sur le petit côté: pas de 3 px en 480p, 4 px en 720p, 6 px en 1080p
+    private static final int TARGET_SAMPLES_SHORT_SIDE = 180;
+    private static final int CELL_SAMPLES = 8;
+    // Gradient moyen par point (0..255) sur l'axe dominant pour une cellule "barres",
+    // et au moins NOISE_FACTOR fois le bruit estimé du frame
+    private static final int MIN_BAR_ENERGY = 12;
+    private static final float MIN_DOMINANCE = 1.6f;
+    // Gradient moyen par point sur l'un des axes pour considérer le frame structuré (codes 2D, MLKit)
+    private static final int MIN_TEXTURE_ENERGY = 10;
+    private static final int NOISE_FACTOR = 2;
+    private static final int MIN_COMPONENT_CELLS = 2;
+
+    private static final byte NONE = 0;
+    private static final byte BARS_ACROSS_X = 1; // barres verticales en capteur: lire des lignes
+    private static final byte BARS_ACROSS_Y = 2; // barres horizontales en capteur: lire des colonnes
+
+    private int gridWidth;
+    private int gridHeight;
+    private int[] energyX = new int[0];
+    private int[] energyY = new int[0];
+    private int[] squaresX = new int[0];
+    private int[] squaresY = new int[0];
+    private byte[] cellClass = new byte[0];
+    private int[] labels = new int[0];
+    private int[] stack = new int[0];
+    private final int[] noiseHistogram = new int[256];
+
+    private int candidateCount;
+    private final int[] candidates = new int[MAX_CANDIDATES * 4];
+    private final long[] candidateScores = new long[MAX_CANDIDATES];
+    private final boolean[] candidateColumns = new boolean[MAX_CANDIDATES];
+    private final float[] candidateSharpness = new float[MAX_CANDIDATES];
+    private boolean textured;
+    // Enveloppe des cellules structurées, en cellules (maxima inclus), et taille de cellule
+    private int texturedMinX;
+    private int texturedMinY;
+    private int texturedMaxX;
+    private int texturedMaxY;
+    private int texturedCellPixels;
+    private int frameWidth;
+    private int frameHeight;
+
+    /**
+     * Analyse un frame.
+     *
+     * @return le nombre de régions candidates (0..{@link #MAX_CANDIDATES})
+     */
+    public int detect(ByteBuffer yPlane, int width, int height, int rowStride, int pixelStride) {
+        candidateCount = 0;
+        textured = false;
+        texturedMinX = Integer.MAX_VALUE;
+        texturedMinY = Integer.MAX_VALUE;
+        texturedMaxX = -1;
+        texturedMaxY = -1;
+        frameWidth = width;
+        frameHeight = height;
+        if (width < 2 || height < 2) {
+            return 0;
+        }
+        int shortSide = Math.min(width, height);
+        int step = Math.max(1, (shortSide + TARGET_SAMPLES_SHORT_SIDE - 1) / TARGET_SAMPLES_SHORT_SIDE);
+        int cellPixels = step * CELL_SAMPLES;
+        int gw = (width - 2) / cellPixels;
+        int gh = (height - 2) / cellPixels;
+        if (gw == 0 || gh == 0) {
+            return 0;
+        }
+        ensureCapacity(gw, gh);
+
+        int samples = CELL_SAMPLES * CELL_SAMPLES;
+        int limit = yPlane.limit();
+        for (int i = 0; i < noiseHistogram.length; i++) {
+            noiseHistogram[i] = 0;
+        }
+        for (int cy = 0; cy < gh; cy++) {
+            for (int cx = 0; cx < gw; cx++) {
+                int sumX = 0;
+                int sumY = 0;
+                int sqX = 0;
+                int sqY = 0;
+                // Décalage d'un pixel: les différences centrées restent dans le plan
+                int y0 = cy * cellPixels + 1;
+                int x0 = cx * cellPixels + 1;
+                for (int sy = 0; sy < CELL_SAMPLES; sy++) {
+                    int phaseX = sy % step;
+                    for (int sx = 0; sx < CELL_SAMPLES; sx++) {
+                        int index = (y0 + sy * step + sx % step) * rowStride
+                                + (x0 + sx * step + phaseX) * pixelStride;
+                        if (index + rowStride >= limit) {
+                            continue;
+                        }
+                        int left = yPlane.get(index - pixelStride) & 0xFF;
+                        int right = yPlane.get(index + pixelStride) & 0xFF;
+                        int above = yPlane.get(index - rowStride) & 0xFF;
+                        int below = yPlane.get(index + rowStride) & 0xFF;
+                        int gx = right - left;
+                        int gy = below - above;
+                        sumX += Math.abs(gx);
+                        sumY += Math.abs(gy);
+                        sqX += gx * gx;
+                        sqY += gy * gy;
+                    }
+                }
+                int cell = cy * gw + cx;
+                energyX[cell] = sumX;
+                energyY[cell] = sumY;
+                squaresX[cell] = sqX;
+                squaresY[cell] = sqY;
+                noiseHistogram[Math.min(255, Math.min(sumX, sumY) / samples)]++;
+            }
+        }
+
+        // Bruit du frame: 1er quartile de l'axe faible des cellules
+        int quartile = (gw * gh) / 4;
+        int noise = 0;
+        for (int seen = 0; noise < 255; noise++) {
+            seen += noiseHistogram[noise];
+            if (seen > quartile) {
+                break;
+            }
+        }
+        int barThreshold = Math.max(MIN_BAR_ENERGY, NOISE_FACTOR * noise) * samples;
+        int textureThreshold = Math.max(MIN_TEXTURE_ENERGY, NOISE_FACTOR * noise) * samples;
+        for (int cell = 0; cell < gw * gh; cell++) {
+            cellClass[cell] = classify(energyX[cell], energyY[cell], barThreshold, textureThreshold);
+            if (energyX[cell] >= textureThreshold || energyY[cell] >= textureThreshold) {
+                int cx = cell % gw;
+                int cy = cell / gw;
+                texturedMinX = Math.min(texturedMinX, cx);
+                texturedMinY = Math.min(texturedMinY, cy);
+                texturedMaxX = Math.max(texturedMaxX, cx);
+                texturedMaxY = Math.max(texturedMaxY, cy);
+            }
+        }
+        texturedCellPixels = cellPixels;
+
+        findComponents(cellPixels, width, height);
+        return candidateCount;
+    }
+
+    private byte classify(int sumX, int sumY, int barThreshold, int textureThreshold) {
+        if (sumX >= textureThreshold || sumY >= textureThreshold) {
+            textured = true;
+        }
+        if (sumX >= barThreshold && sumX >= MIN_DOMINANCE * sumY) {
+            return BARS_ACROSS_X;
+        }
+        if (sumY >= barThreshold && sumY >= MIN_DOMINANCE * sumX) {
+            return BARS_ACROSS_Y;
+        }
+        return NONE;
+    }
+
+    // Composantes connexes (4-voisinage) de cellules de même classe, les plus énergiques gardées
+    private void findComponents(int cellPixels, int width, int height) {
+        int cells = gridWidth * gridHeight;
+        for (int i = 0; i < cells; i++) {
+            labels[i] = 0;
+        }
+        int label = 0;
+        for (int seed = 0; seed < cells; seed++) {
+            byte cls = cellClass[seed];
+            if (cls == NONE || labels[seed] != 0) {
+                continue;
+            }
+            label++;
+            int minX = gridWidth;
+            int minY = gridHeight;
+            int maxX = -1;
+            int maxY = -1;
+            int count = 0;
+            long score = 0;
+            long gradients = 0;
+            long squares = 0;
+            int top = 0;
+            stack[top++] = seed;
+            labels[seed] = label;
+            while (top > 0) {
+                int cell = stack[--top];
+                int cx = cell % gridWidth;
+                int cy = cell / gridWidth;
+                count++;
+                if (cls == BARS_ACROSS_X) {
+                    score += energyX[cell] - energyY[cell];
+                    gradients += energyX[cell];
+                    squares += squaresX[cell];
+                } else {
+                    score += energyY[cell] - energyX[cell];
+                    gradients += energyY[cell];
+                    squares += squaresY[cell];
+                }
+                if (cx < minX) minX = cx;
+                if (cx > maxX) maxX = cx;
+                if (cy < minY) minY = cy;
+                if (cy > maxY) maxY = cy;
+                if (cx > 0) top = push(cell - 1, cls, label, top);
+                if (cx + 1 < gridWidth) top = push(cell + 1, cls, label, top);
+                if (cy > 0) top = push(cell - gridWidth, cls, label, top);
+                if (cy + 1 < gridHeight) top = push(cell + gridWidth, cls, label, top);
+            }
+            if (count >= MIN_COMPONENT_CELLS) {
+                offerCandidate(score, cls == BARS_ACROSS_Y, squares / (float) Math.max(1L, gradients),
+                        Math.max(0, (minX - 1) * cellPixels),
+                        Math.max(0, (minY - 1) * cellPixels),
+                        Math.min(width, (maxX + 2) * cellPixels),
+                        Math.min(height, (maxY + 2) * cellPixels));
+            }
+        }
+    }
+
+    private int push(int cell, byte cls, int label, int top) {
+        if (labels[cell] == 0 && cellClass[cell] == cls) {
+            labels[cell] = label;
+            stack[top++] = cell;
+        }
+        return top;
+    }
+
+    // Insertion triée par score décroissant, limitée à MAX_CANDIDATES
+    private void offerCandidate(long score, boolean columns, float sharpness,
+                                int left, int top, int right, int bottom) {
+        int pos = candidateCount;
+        while (pos > 0 && candidateScores[pos - 1] < score) {
+            pos--;
+        }
+        if (pos >= MAX_CANDIDATES) {
+            return;
+        }
+        int last = Math.min(candidateCount, MAX_CANDIDATES - 1);
+        for (int i = last; i > pos; i--) {
+            candidateScores[i] = candidateScores[i - 1];
+            candidateColumns[i] = candidateColumns[i - 1];
+            candidateSharpness[i] = candidateSharpness[i - 1];
+            System.arraycopy(candidates, (i - 1) * 4, candidates, i * 4, 4);
+        }
+        candidateScores[pos] = score;
+        candidateColumns[pos] = columns;
+        candidateSharpness[pos] = sharpness;
+        candidates[pos * 4] = left;
+        candidates[pos * 4 + 1] = top;
+        candidates[pos * 4 + 2] = right;
+        candidates[pos * 4 + 3] = bottom;
+        if (candidateCount < MAX_CANDIDATES) {
+            candidateCount++;
+        }
+    }
+
+    public int getCandidateCount() {
+        return candidateCount;
+    }
+
+    /** Rectangle capteur {gauche, haut, droite, bas} (droite/bas exclus) de la candidate {@code i}. */
+    public void getCandidate(int i, int[] out) {
+        System.arraycopy(candidates, i * 4, out, 0, 4);
+    }
+
+    /** true si les barres de la candidate {@code i} sont horizontales en capteur (lecture par colonnes). */
+    public boolean isCandidateColumns(int i) {
+        return candidateColumns[i];
+    }
+
+    /** Pente moyenne des transitions de la candidate {@code i} (niveaux de gris par pixel, 0..255). */
+    public float getSharpness(int i) {
+        return candidateSharpness[i];
+    }
+
+    /** false si aucune cellule n'a de contraste local: frame vide pour tous les moteurs. */
+    public boolean isTextured() {
+        return textured;
+    }
+
+    /**
+     * Enveloppe des cellules structurées (1D, 2D, texte), rectangle capteur {gauche, haut, droite,
+     * bas} avec une cellule de marge (quiet zones).
+     *
+     * @return false si le frame n'a aucune structure
+     */
+    public boolean getTexturedBounds(int[] out) {
+        if (!textured || texturedMaxX < 0) {
+            return false;
+        }
+        int cell = texturedCellPixels;
+        out[0] = Math.max(0, (texturedMinX - 1) * cell);
+        out[1] = Math.max(0, (texturedMinY - 1) * cell);
+        out[2] = Math.min(frameWidth, (texturedMaxX + 2) * cell);
+        out[3] = Math.min(frameHeight, (texturedMaxY + 2) * cell);
+        return true;
+    }
+
+    private void ensureCapacity(int gw, int gh) {
+        gridWidth = gw;
+        gridHeight = gh;
+        int cells = gw * gh;
+        if (energyX.length < cells) {
+            energyX = new int[cells];
+            energyY = new int[cells];
+            squaresX = new int[cells];
+            squaresY = new int[cells];
+            cellClass = new byte[cells];
+            labels = new int[cells];
+            stack = new int[cells];
+        }
+    }
+}
@@ -0,0 +1,879 @@
+package com.example.msidecoder.scanner;
+
+import com.example.msidecoder.models.BarcodeResult;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.oned.Code128Reader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moteurs de décodage indépendants de la caméra (MSI maison, ZXing Code 128) appliqués à un
+ * {@link LumaFrame}. Utilisé par {@code BarcodeAnalyzer} sur le flux CameraX et par le rejeu JVM.
+ *
+ * {@link #decodeMsi} et {@link #decodeCode128} ont chacun leur propre état et peuvent tourner en
+ * parallèle sur deux threads, mais chacun ne doit traiter qu'un frame à la fois.
+ *
+ * Encadrer les moteurs d'un frame par {@link #beginFrame} / {@link #endFrame} (fait par
+ * {@link #decode}). Tant qu'un symbole est suivi, les deux moteurs ne parcourent que la fenêtre
+ * prédite par {@link RoiTracker}. Sinon {@link BarcodePresenceDetector} remplace la ROI fixe et le
+ * frame complet par les régions candidates classées, et {@link SharpnessGate} écarte les frames
+ * trop flous pour être lus: un frame sans région de barres ou flou n'est pas lu par MSI et ZXing
+ * ({@link #shouldDecode1D}). Ces filtres ne sont que 1D (MLKit, qui lit aussi les codes 2D, n'y
+ * est pas soumis) et un frame écarté sur {@link #FALLBACK_INTERVAL} d'affilée est lu quand même,
+ * sur la ROI et le frame complet s'il était vide: un symbole sous les seuils de la pré-détection
+ * (faible contraste, petit) reste lu, moins souvent. Sans ces appels, la recherche reste celle
+ * par ROI/FULL. Avec un {@link AnalysisController} en veille ({@link #setAnalysisController}), un
+ * frame sans région de barres n'est lu par aucun moteur, MLKit compris, ni par la lecture de
+ * secours ({@link #shouldDecodeMlKit}): il ne sert qu'à guetter un mouvement ou des barres.
+ *
+ * Entre {@link #beginFrame} et {@link #endFrame}, les deux moteurs lisent les lignes du frame dans
+ * une binarisation 1D commune ({@link RowBinarizer}): chaque ligne capteur n'est seuillée qu'une
+ * fois pour MSI, ZXing, les deux directions et les deux polarités.
+ *
+ * Mode multi-symboles ({@link #setMultiSymbol}): pas de suivi, chaque région candidate est lue
+ * par les deux moteurs ({@link #decodeMsiAll}, {@link #decodeCode128All}) au lieu de s'arrêter au
+ * premier symbole.
+ */
+public class DecodePipeline {
+
+    public static final String TYPE_MSI = "MSI";
+    public static final String TYPE_CODE_128 = "Code 128 (ZXing)";
+    public static final String SOURCE_MSI = "Custom MSI";
+    public static final String SOURCE_ZXING = "ZXing";
+
+    // Cascade ZXing: slots = base (ROI/FULL) x direction (lignes/colonnes) x polarité,
+    // dans l'ordre de priorité par défaut; l'ordonnanceur les reclasse selon les succès
+    private static final int ZXING_SLOTS = 8;
+    private static final int ZXING_MAX_ATTEMPTS_PER_FRAME = 3;
+    // Slots sans frame complet ((slot & 2) == 0): ROI et ROI/inv, lignes et colonnes
+    private static final int ZXING_ROI_SLOTS = 0x33;
+    private static final int ZXING_ALL_SLOTS = 0xFF;
+
+    /** Libellés des slots de la cascade ZXing (index = slot), pour les métriques par branche. */
+    public static final String[] ZXING_SLOT_LABELS = {
+            "ROI/ROWS", "ROI/COLUMNS", "FULL/ROWS", "FULL/COLUMNS",
+            "ROI/ROWS/inv", "ROI/COLUMNS/inv", "FULL/ROWS/inv", "FULL/COLUMNS/inv"
+    };
+
+    // ROI par défaut: bande centrale 80% x 30% (coordonnées écran)
+    private static final float DEFAULT_ROI_WIDTH = 0.8f;
+    private static final float DEFAULT_ROI_HEIGHT = 0.3f;
+
+    // Boîte déduite d'une ligne de lecture 1D: demi-épaisseur relative à la longueur du symbole
+    private static final float HIT_HALF_THICKNESS = 0.15f;
+    private static final int HIT_MIN_HALF_THICKNESS_PX = 4;
+
+    // Un seul symbole attendu: seules les meilleures régions candidates sont parcourues
+    private static final int SINGLE_SYMBOL_CANDIDATES = 3;
+
+    /** Frames écartés d'affilée (aucune région de barres, flous) avant d'en lire un quand même. */
+    public static final int FALLBACK_INTERVAL = 4;
+
+    // Région MLKit: marge autour de la fenêtre suivie (fraction de sa taille), et surface au-delà
+    // de laquelle le frame complet est transmis tel quel (la copie ne vaut plus la peine)
+    private static final float MLKIT_TRACK_MARGIN = 0.25f;
+    private static final float MLKIT_MAX_AREA = 0.6f;
+
+    private final ScanMetrics metrics;
+    private final ScanTrace trace;
+
+    // Décodeur MSI maison (buffers préalloués, réutilisés d'un frame à l'autre); le résultat
+    // est voté sur les lignes et les frames consécutifs (check digit MSI trop faible seul)
+    private final MsiDecoder msiDecoder;
+    private final MsiVoteAccumulator msiVoter;
+
+    // ZXing: lecteur Code 128 appliqué ligne par ligne (pas d'image pivotée)
+    private final ScanlineDecoder zxingScanner;
+    private final AttemptScheduler zxingScheduler;
+    private final int[] zxingPlan = new int[ZXING_SLOTS];
+
+    // ROI fournie par l'appelant (fractions de l'image redressée), à fixer avant le décodage du frame
+    private boolean hasRoi;
+    private float roiLeft;
+    private float roiTop;
+    private float roiRight;
+    private float roiBottom;
+
+    // Suivi du dernier symbole: fenêtre fixée par beginFrame, lue par les deux moteurs
+    private final RoiTracker tracker = new RoiTracker();
+    private final float[] trackWindow = new float[4];
+    private final float[] roiWindow = new float[4];
+    private boolean tracking;
+    private final int[] msiLocation = new int[4];
+    private final int[] msiSensor = new int[4];
+    private final float[] msiHit = new float[4];
+    private final float[] zxingHit = new float[4];
+    private final int[] zxingSegment = new int[4];
+
+    // Binarisation 1D partagée par les moteurs, associée au frame par beginFrame
+    private final RowBinarizer rowBinarizer = new RowBinarizer();
+    private boolean rowBinarization = true;
+
+    // Pré-détection (hors suivi): régions candidates en coordonnées capteur, fixées par beginFrame
+    private final BarcodePresenceDetector presence = new BarcodePresenceDetector();
+    private boolean presenceEnabled = true;
+    private boolean presenceChecked;
+    private boolean frameEmpty;
+    private boolean barCandidates;
+    private AnalysisController controller;
+    private boolean idleSkip;
+    private SharpnessGate sharpnessGate = new SharpnessGate();
+    private boolean frameBlurred;
+    // Netteté soumise au filtre sur ce frame (gateOffered), signalée par endFrame s'il est lu
+    private boolean gateOffered;
+    private float gateSharpness;
+    private long gateTimestampNanos;
+    private int skippedFrames;
+    private int candidateCount;
+    private final int[] candidateRects = new int[BarcodePresenceDetector.MAX_CANDIDATES * 4];
+    private final int[] zxingRect = new int[4];
+    private boolean multiSymbol;
+
+    // Largeur de bande fine des symboles lus sur le frame (pixels capteur, 0: aucune), écrite
+    // par chaque moteur sur son propre champ
+    private float msiModuleWidth;
+    private float code128ModuleWidth;
+
+    public DecodePipeline() {
+        this(new ScanMetrics(), new ScanTrace());
+    }
+
+    public DecodePipeline(ScanMetrics metrics) {
+        this(metrics, new ScanTrace());
+    }
+
+    /**
+     * @param metrics métriques alimentées par le pipeline (inactives tant qu'elles ne sont pas activées)
+     * @param trace   trace de diagnostic (niveau OFF par défaut)
+     */
+    public DecodePipeline(ScanMetrics metrics, ScanTrace trace) {
+        this.metrics = metrics;
+        this.trace = trace;
+        this.msiDecoder = new MsiDecoder();
+        this.msiVoter = new MsiVoteAccumulator();
+        this.msiDecoder.setVoter(msiVoter);
+
+        EnumMap<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(BarcodeFormat.CODE_128));
+        this.zxingScanner = new ScanlineDecoder(new Code128Reader(), hints, ScanlineDecoder.DEFAULT_SCANLINES, metrics);
+        this.zxingScheduler = new AttemptScheduler(ZXING_SLOTS, ZXING_MAX_ATTEMPTS_PER_FRAME);
+        this.msiDecoder.setRowBinarizer(rowBinarizer);
+        this.zxingScanner.setRowBinarizer(rowBinarizer);
+    }
+
+    public ScanMetrics getMetrics() {
+        return metrics;
+    }
+
+    public ScanTrace getTrace() {
+        return trace;
+    }
+
+    public void setRoiFraction(float left, float top, float right, float bottom) {
+        roiLeft = left;
+        roiTop = top;
+        roiRight = right;
+        roiBottom = bottom;
+        hasRoi = true;
+    }
+
+    public void clearRoiFraction() {
+        hasRoi = false;
+    }
+
+    public RoiTracker getTracker() {
+        return tracker;
+    }
+
+    /** Active/désactive la pré-détection de présence (activée par défaut). */
+    public void setPresenceDetection(boolean enabled) {
+        this.presenceEnabled = enabled;
+    }
+
+    /** Active/désactive la binarisation partagée (activée par défaut; sinon chaque moteur seuille ses lignes). */
+    public void setRowBinarization(boolean enabled) {
+        this.rowBinarization = enabled;
+    }
+
+    /** Mode multi-symboles (lecture en masse), à changer entre deux frames. */
+    public void setMultiSymbol(boolean enabled) {
+        if (enabled && !multiSymbol) {
+            tracker.reset();
+        }
+        this.multiSymbol = enabled;
+    }
+
+    public boolean isMultiSymbol() {
+        return multiSymbol;
+    }
+
+    /** Filtre de netteté appliqué aux frames pré-détectés, null pour le désactiver. */
+    public void setSharpnessGate(SharpnessGate gate) {
+        this.sharpnessGate = gate;
+    }
+
+    /**
+     * Contrôleur de cadence partagé par les workers, null sans mode adaptatif: tant qu'il est en
+     * veille, {@link #beginFrame} ne retient aucun moteur pour un frame sans région de barres.
+     * Le mouvement ({@link AnalysisController#onMotion}) est à signaler avant {@link #beginFrame}.
+     */
+    public void setAnalysisController(AnalysisController controller) {
+        this.controller = controller;
+    }
+
+    /**
+     * Début d'un frame, avant de lancer les moteurs: fenêtre prédite par le suivi ou, à défaut,
+     * pré-détection des régions candidates et filtre de netteté.
+     */
+    public void beginFrame(LumaFrame frame) {
+        tracking = !multiSymbol && tracker.beginFrame(trackWindow);
+        presenceChecked = false;
+        frameEmpty = false;
+        barCandidates = true;
+        idleSkip = false;
+        frameBlurred = false;
+        gateOffered = false;
+        candidateCount = 0;
+        msiModuleWidth = 0f;
+        code128ModuleWidth = 0f;
+        if (rowBinarization) {
+            rowBinarizer.reset(frame);
+        }
+        if (tracking || !presenceEnabled) {
+            // Symbole suivi: déjà lu sur un frame récent, ni pré-détection ni filtre de netteté
+            skippedFrames = 0;
+            return;
+        }
+        long t0 = metrics.start();
+        int detected = presence.detect(frame.getYBuffer(), frame.getWidth(), frame.getHeight(),
+                frame.getRowStride(), frame.getPixelStride());
+        candidateCount = multiSymbol ? detected : Math.min(detected, SINGLE_SYMBOL_CANDIDATES);
+        for (int i = 0; i < candidateCount; i++) {
+            presence.getCandidate(i, zxingRect);
+            System.arraycopy(zxingRect, 0, candidateRects, i * 4, 4);
+        }
+        frameEmpty = !presence.isTextured();
+        barCandidates = candidateCount > 0;
+        presenceChecked = true;
+        SharpnessGate gate = sharpnessGate;
+        if (gate != null && candidateCount > 0) {
+            gateSharpness = presence.getSharpness(0);
+            gateTimestampNanos = frame.getTimestampNanos();
+            gateOffered = true;
+            frameBlurred = !gate.offer(gateSharpness, gateTimestampNanos);
+        }
+        metrics.stop(ScanMetrics.Stage.PRESENCE, t0);
+        if (frameEmpty) {
+            metrics.recordEmptyFrame();
+        } else if (frameBlurred) {
+            metrics.recordBlurredFrame();
+        }
+        AnalysisController analysis = controller;
+        if (candidateCount == 0 && analysis != null && analysis.isIdle()) {
+            // Veille sans barres: aucun moteur, et pas de lecture de secours à décompter
+            idleSkip = true;
+        } else if (candidateCount > 0 && !frameBlurred) {
+            skippedFrames = 0;
+        } else if (++skippedFrames >= FALLBACK_INTERVAL) {
+            // Lecture de secours: sans région, recherche par ROI/FULL comme sans pré-détection
+            skippedFrames = 0;
+            frameBlurred = false;
+            if (candidateCount == 0) {
+                presenceChecked = false;
+            }
+        }
+    }
+
+    /** true si la pré-détection n'a trouvé aucune structure (ni 1D ni 2D). */
+    public boolean isFrameEmpty() {
+        return frameEmpty;
+    }
+
+    /**
+     * true si le frame a des barres à lire: symbole suivi, pré-détection désactivée ou au moins une
+     * région candidate (même floue, même si la lecture de secours ne vient pas d'elle). Un frame
+     * seulement texturé (texte, motif, code 2D) n'en a pas: c'est ce qu'attend
+     * {@link AnalysisController#onFrame}. Entre {@link #beginFrame} et {@link #endFrame}.
+     */
+    public boolean hasBarCandidates() {
+        return barCandidates;
+    }
+
+    /** true si le frame est trop flou au regard des frames récents (MSI et ZXing ne le lisent pas). */
+    public boolean isFrameBlurred() {
+        return frameBlurred;
+    }
+
+    /**
+     * true si MSI et ZXing ont à lire ce frame: ni flou, ni sans région de barres après la
+     * pré-détection (à part la lecture de secours), ni écarté par la veille.
+     */
+    public boolean shouldDecode1D() {
+        return !idleSkip && !frameBlurred && !(presenceChecked && candidateCount == 0);
+    }
+
+    /**
+     * true si MLKit a à lire ce frame: toujours, sauf en veille sur un frame sans région de barres
+     * (voir {@link #setAnalysisController}). Entre {@link #beginFrame} et {@link #endFrame}.
+     */
+    public boolean shouldDecodeMlKit() {
+        return !idleSkip;
+    }
+
+    /**
+     * Région du frame à transmettre à MLKit, rectangle capteur {gauche, haut, droite, bas}: fenêtre
+     * du symbole suivi (élargie), sinon enveloppe des zones structurées de la pré-détection, sinon
+     * ROI de l'appelant. Entre {@link #beginFrame} et {@link #endFrame}, depuis le thread qui
+     * encadre le frame; n'écrit que dans {@code out}.
+     *
+     * @return false s'il faut transmettre le frame complet (aucune région, ou région couvrant
+     *         l'essentiel du frame)
+     */
+    public boolean getMlKitRegion(LumaFrame frame, int[] out) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        if (tracking) {
+            float marginX = (trackWindow[2] - trackWindow[0]) * MLKIT_TRACK_MARGIN;
+            float marginY = (trackWindow[3] - trackWindow[1]) * MLKIT_TRACK_MARGIN;
+            roiWindow[0] = Math.max(0f, trackWindow[0] - marginX);
+            roiWindow[1] = Math.max(0f, trackWindow[1] - marginY);
+            roiWindow[2] = Math.min(1f, trackWindow[2] + marginX);
+            roiWindow[3] = Math.min(1f, trackWindow[3] + marginY);
+            windowToSensor(roiWindow, width, height, frame.getRotationDegrees(), out);
+        } else if (presenceChecked) {
+            if (!presence.getTexturedBounds(out)) {
+                return false;
+            }
+        } else if (hasRoi) {
+            roiWindow[0] = roiLeft;
+            roiWindow[1] = roiTop;
+            roiWindow[2] = roiRight;
+            roiWindow[3] = roiBottom;
+            windowToSensor(roiWindow, width, height, frame.getRotationDegrees(), out);
+        } else {
+            return false;
+        }
+        long area = (long) (out[2] - out[0]) * (out[3] - out[1]);
+        return area > 0 && area < MLKIT_MAX_AREA * width * height;
+    }
+
+    /**
+     * Largeur de bande fine (pixels capteur) du symbole le plus fin lu sur le dernier frame, ou 0
+     * si rien n'a été lu. Valable après {@link #endFrame()}, jusqu'au {@link #beginFrame} suivant.
+     */
+    public float getModuleWidth() {
+        return thinnest(msiModuleWidth, code128ModuleWidth);
+    }
+
+    private static float thinnest(float a, float b) {
+        if (a <= 0f) {
+            return b;
+        }
+        return b <= 0f ? a : Math.min(a, b);
+    }
+
+    /**
+     * Fin d'un frame, une fois tous les moteurs terminés: un frame sans localisation élargit la
+     * fenêtre, un frame lu par MSI ou ZXing ouvre celle du meilleur frame ({@link SharpnessGate}).
+     */
+    public void endFrame() {
+        SharpnessGate gate = sharpnessGate;
+        if (gateOffered && gate != null && getModuleWidth() > 0f) {
+            gate.onDecoded(gateSharpness, gateTimestampNanos);
+        }
+        gateOffered = false;
+        tracker.endFrame();
+        rowBinarizer.release();
+        tracking = false;
+        presenceChecked = false;
+        frameEmpty = false;
+        barCandidates = false;
+        idleSkip = false;
+        frameBlurred = false;
+        candidateCount = 0;
+    }
+
+    /**
+     * Décodage séquentiel (MSI puis Code 128), pour le rejeu et les outils hors ligne.
+     *
+     * @return le résultat ou null si rien n'a été décodé
+     */
+    public BarcodeResult decode(LumaFrame frame) {
+        beginFrame(frame);
+        try {
+            String msi = decodeMsi(frame, null);
+            if (msi != null) {
+                return new BarcodeResult(TYPE_MSI, msi, SOURCE_MSI);
+            }
+            String code128 = decodeCode128(frame, null);
+            if (code128 != null && !code128.isEmpty()) {
+                return new BarcodeResult(TYPE_CODE_128, code128, SOURCE_ZXING);
+            }
+            return null;
+        } finally {
+            endFrame();
+        }
+    }
+
+    /**
+     * Tous les symboles d'un frame (mode multi-symboles), pour le rejeu et les outils hors ligne.
+     * Un seul résultat par valeur, MSI d'abord.
+     */
+    public List<BarcodeResult> decodeAll(LumaFrame frame) {
+        List<BarcodeResult> results = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+        beginFrame(frame);
+        try {
+            decodeMsiAll(frame, null, values);
+            for (String value : values) {
+                results.add(new BarcodeResult(TYPE_MSI, value, SOURCE_MSI));
+            }
+            values.clear();
+            decodeCode128All(frame, null, values);
+            for (String value : values) {
+                if (!value.isEmpty() && !containsValue(results, value)) {
+                    results.add(new BarcodeResult(TYPE_CODE_128, value, SOURCE_ZXING));
+                }
+            }
+        } finally {
+            endFrame();
+        }
+        return results;
+    }
+
+    private static boolean containsValue(List<BarcodeResult> results, String value) {
+        for (BarcodeResult result : results) {
+            if (value.equals(result.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * MSI sur chaque région candidate (mode multi-symboles; sinon équivaut à {@link #decodeMsi}).
+     * Les voix sont limitées à une candidate du frame: deux symboles de même longueur ne se
+     * mélangent pas, au prix du cumul entre frames.
+     *
+     * @return le nombre de valeurs ajoutées à {@code out} (valeurs déjà présentes ignorées)
+     */
+    public int decodeMsiAll(LumaFrame frame, AtomicBoolean cancelled, List<String> out) {
+        if (!multiSymbol || !presenceChecked) {
+            return addDistinct(out, decodeMsi(frame, cancelled));
+        }
+        if (frameBlurred) {
+            return 0;
+        }
+        long t0 = metrics.start();
+        long traceStart = trace.start();
+        msiVoter.beginFrame(frame.getTimestampNanos());
+        int found = 0;
+        for (int i = 0; i < candidateCount && (cancelled == null || !cancelled.get()); i++) {
+            msiVoter.reset();
+            System.arraycopy(candidateRects, i * 4, msiSensor, 0, 4);
+            found += addDistinct(out, decodeMsiRegion(frame, msiSensor, presence.isCandidateColumns(i), cancelled));
+        }
+        msiVoter.reset();
+        metrics.stop(ScanMetrics.Stage.MSI, t0);
+        trace.record(ScanTrace.Level.VERBOSE, ScanTrace.Event.MSI_PASS,
+                0, found, ScanTrace.elapsedSince(traceStart));
+        for (int i = 0; i < found; i++) {
+            metrics.recordDecode(ScanMetrics.Stage.MSI);
+        }
+        return found;
+    }
+
+    /**
+     * Cascade ZXing sur chaque région candidate (mode multi-symboles; sinon équivaut à
+     * {@link #decodeCode128}).
+     *
+     * @return le nombre de valeurs ajoutées à {@code out} (valeurs déjà présentes ignorées)
+     */
+    public int decodeCode128All(LumaFrame frame, AtomicBoolean cancelled, List<String> out) {
+        if (!multiSymbol || !presenceChecked) {
+            return addDistinct(out, decodeCode128(frame, cancelled));
+        }
+        if (frameBlurred) {
+            return 0;
+        }
+        long t0 = metrics.start();
+        LuminanceSource display = displaySource(frame);
+        // Un plan par frame, commun aux régions: l'exploration avance d'un cran par frame
+        int planned = zxingScheduler.plan(zxingPlan, ZXING_ROI_SLOTS);
+        int found = 0;
+        for (int i = 0; i < candidateCount && (cancelled == null || !cancelled.get()); i++) {
+            candidateToDisplay(frame, i);
+            int x = zxingRect[0];
+            int y = zxingRect[1];
+            LuminanceSource region = display.crop(x, y, zxingRect[2] - x, zxingRect[3] - y);
+            found += addDistinct(out, runCascade(planned, region, x, y, null, 0, 0,
+                    display.getWidth(), display.getHeight(), false, cancelled));
+        }
+        metrics.stop(ScanMetrics.Stage.ZXING, t0);
+        for (int i = 0; i < found; i++) {
+            metrics.recordDecode(ScanMetrics.Stage.ZXING);
+        }
+        return found;
+    }
+
+    private static int addDistinct(List<String> out, String value) {
+        if (value == null || value.isEmpty() || out.contains(value)) {
+            return 0;
+        }
+        out.add(value);
+        return 1;
+    }
+
+    public String decodeMsi(LumaFrame frame, AtomicBoolean cancelled) {
+        if (frameBlurred) {
+            return null;
+        }
+        long t0 = metrics.start();
+        long traceStart = trace.start();
+        msiVoter.beginFrame(frame.getTimestampNanos());
+        int rotation = frame.getRotationDegrees();
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+
+        String msi = null;
+        if (tracking) {
+            // Symbole suivi: seule la fenêtre prédite (convertie en rectangle capteur) est parcourue
+            windowToSensor(trackWindow, width, height, rotation, msiSensor);
+            msi = decodeMsiRegion(frame, msiSensor, rotation == 90 || rotation == 270, cancelled);
+        } else if (presenceChecked) {
+            // Régions candidates de la pré-détection, par score décroissant (aucune: rien à lire)
+            for (int i = 0; i < candidateCount && msi == null; i++) {
+                System.arraycopy(candidateRects, i * 4, msiSensor, 0, 4);
+                msi = decodeMsiRegion(frame, msiSensor, presence.isCandidateColumns(i), cancelled);
+            }
+        } else {
+            msiSensor[0] = 0;
+            msiSensor[1] = 0;
+            msiSensor[2] = width;
+            msiSensor[3] = height;
+            // Capteur tourné de 90/270: les barres affichées verticales sont des lignes capteur -> colonnes d'abord
+            msi = decodeMsiRegion(frame, msiSensor, rotation == 90 || rotation == 270, cancelled);
+        }
+        if (msi != null && msiDecoder.getLastLocation(msiLocation)) {
+            sensorToDisplay(msiLocation, 0, width, height, rotation);
+            sensorToDisplay(msiLocation, 2, width, height, rotation);
+            boolean quarterTurn = rotation == 90 || rotation == 270;
+            reportHit(msiLocation, quarterTurn ? height : width, quarterTurn ? width : height, msiHit);
+        }
+        metrics.stop(ScanMetrics.Stage.MSI, t0);
+        trace.record(ScanTrace.Level.VERBOSE, ScanTrace.Event.MSI_PASS,
+                0, msi != null ? 1 : 0, ScanTrace.elapsedSince(traceStart));
+        if (msi != null) {
+            metrics.recordDecode(ScanMetrics.Stage.MSI);
+        }
+        return msi;
+    }
+
+    private String decodeMsiRegion(LumaFrame frame, int[] rect, boolean columnsFirst, AtomicBoolean cancelled) {
+        String msi = msiDecoder.decode(
+                frame.getYBuffer(),
+                frame.getRowStride(),
+                frame.getPixelStride(),
+                rect[0], rect[1],
+                rect[2] - rect[0],
+                rect[3] - rect[1],
+                columnsFirst,
+                cancelled
+        );
+        if (msi != null) {
+            msiModuleWidth = thinnest(msiModuleWidth, msiDecoder.getLastModuleWidth());
+        }
+        return msi;
+    }
+
+    public String decodeCode128(LumaFrame frame, AtomicBoolean cancelled) {
+        long t0 = metrics.start();
+        String text = scanCode128(frame, cancelled);
+        metrics.stop(ScanMetrics.Stage.ZXING, t0);
+        if (text != null) {
+            metrics.recordDecode(ScanMetrics.Stage.ZXING);
+        }
+        return text;
+    }
+
+    private String scanCode128(LumaFrame frame, AtomicBoolean cancelled) {
+        boolean useCandidates = !tracking && presenceChecked;
+        if (frameBlurred || (useCandidates && candidateCount == 0)) {
+            // Pré-détection: frame flou ou aucune région de barres, pas de binarisation
+            return null;
+        }
+        long roiStart = metrics.start();
+        LuminanceSource display = displaySource(frame);
+
+        // ROI centrale en coordonnées écran (bande horizontale du cadre de visée)
+        int displayWidth = display.getWidth();
+        int displayHeight = display.getHeight();
+        int roiWidth = Math.max(1, (int) (displayWidth * DEFAULT_ROI_WIDTH));
+        int roiHeight = Math.max(1, (int) (displayHeight * DEFAULT_ROI_HEIGHT));
+        int roiX = Math.max(0, (displayWidth - roiWidth) / 2);
+        int roiY = Math.max(0, (displayHeight - roiHeight) / 2);
+        // Priorité: fenêtre du symbole suivi, puis régions candidates, puis ROI de l'appelant,
+        // puis bande centrale
+        LuminanceSource full = tracking ? null : display;
+        int fullX = 0;
+        int fullY = 0;
+        if (useCandidates) {
+            // ROI = meilleure candidate; "FULL" = enveloppe de toutes les candidates (aucun si une seule)
+            candidateToDisplay(frame, 0);
+            roiX = zxingRect[0];
+            roiY = zxingRect[1];
+            roiWidth = zxingRect[2] - zxingRect[0];
+            roiHeight = zxingRect[3] - zxingRect[1];
+            full = null;
+            if (candidateCount > 1) {
+                int l = roiX;
+                int t = roiY;
+                int r = roiX + roiWidth;
+                int b = roiY + roiHeight;
+                for (int i = 1; i < candidateCount; i++) {
+                    candidateToDisplay(frame, i);
+                    l = Math.min(l, zxingRect[0]);
+                    t = Math.min(t, zxingRect[1]);
+                    r = Math.max(r, zxingRect[2]);
+                    b = Math.max(b, zxingRect[3]);
+                }
+                full = display.crop(l, t, r - l, b - t);
+                fullX = l;
+                fullY = t;
+            }
+        } else if (tracking) {
+            roiX = clampToInt(trackWindow[0] * displayWidth, 0, Math.max(0, displayWidth - 1));
+            roiY = clampToInt(trackWindow[1] * displayHeight, 0, Math.max(0, displayHeight - 1));
+            roiWidth = clampToInt((trackWindow[2] - trackWindow[0]) * displayWidth, 1, displayWidth - roiX);
+            roiHeight = clampToInt((trackWindow[3] - trackWindow[1]) * displayHeight, 1, displayHeight - roiY);
+        } else if (hasRoi) {
+            roiX = clampToInt(roiLeft * displayWidth, 0, Math.max(0, displayWidth - 1));
+            roiY = clampToInt(roiTop * displayHeight, 0, Math.max(0, displayHeight - 1));
+            roiWidth = clampToInt((roiRight - roiLeft) * displayWidth, 1, displayWidth - roiX);
+            roiHeight = clampToInt((roiBottom - roiTop) * displayHeight, 1, displayHeight - roiY);
+        }
+        LuminanceSource roiSource = display.crop(roiX, roiY, roiWidth, roiHeight);
+        metrics.stop(ScanMetrics.Stage.ROI_SETUP, roiStart);
+        trace.record(ScanTrace.Level.VERBOSE, ScanTrace.Event.ROI,
+                roiX, roiY, ((long) roiWidth << 32) | roiHeight);
+
+        // Sans frame complet (suivi, candidate unique), les slots FULL cèdent leur place
+        int planned = zxingScheduler.plan(zxingPlan, full != null ? ZXING_ALL_SLOTS : ZXING_ROI_SLOTS);
+        return runCascade(planned, roiSource, roiX, roiY, full, fullX, fullY, displayWidth, displayHeight,
+                true, cancelled);
+    }
+
+    // Lire le plan Y en place (pas de copie): rowStride/pixelStride gérés par la source.
+    // Vue redressée (orientation écran): seule l'origine et les pas de parcours changent,
+    // le coût ne dépend donc plus de la rotation capteur
+    private static LuminanceSource displaySource(LumaFrame frame) {
+        LuminanceSource display = new YPlaneLuminanceSource(
+                frame.getYBuffer(), frame.getWidth(), frame.getHeight(),
+                frame.getRowStride(), frame.getPixelStride());
+        for (int turns = ((360 - frame.getRotationDegrees()) / 90) & 3; turns > 0; turns--) {
+            display = display.rotateCounterClockwise();
+        }
+        return display;
+    }
+
+    // Rectangle de la candidate i en coordonnées écran, dans zxingRect
+    private void candidateToDisplay(LumaFrame frame, int i) {
+        System.arraycopy(candidateRects, i * 4, zxingRect, 0, 4);
+        sensorRectToDisplay(zxingRect, frame.getWidth(), frame.getHeight(), frame.getRotationDegrees());
+    }
+
+    /**
+     * Tentatives ZXing plafonnées: les {@code planned} premiers slots de {@code zxingPlan}, dans
+     * l'ordre appris par l'ordonnanceur (par défaut: lignes écran d'abord, code tenu
+     * horizontalement dans le cadre). Le plan ne contient de slot FULL qu'avec {@code full};
+     * {@code locate}: le symbole décodé est transmis au suivi.
+     */
+    private String runCascade(int planned, LuminanceSource roiSource, int roiX, int roiY,
+                              LuminanceSource full, int fullX, int fullY,
+                              int displayWidth, int displayHeight, boolean locate, AtomicBoolean cancelled) {
+        for (int i = 0; i < planned && (cancelled == null || !cancelled.get()); i++) {
+            int slot = zxingPlan[i];
+            boolean fullSlot = (slot & 2) != 0;
+            LuminanceSource base = fullSlot ? full : roiSource;
+            ScanlineDecoder.Direction direction = (slot & 1) == 0
+                    ? ScanlineDecoder.Direction.ROWS
+                    : ScanlineDecoder.Direction.COLUMNS;
+            boolean inverted = (slot & 4) != 0;
+
+            zxingScheduler.recordAttempt(slot);
+            metrics.recordAttempt(slot);
+            long attemptStart = trace.start();
+            String text = zxingScanner.decode(base, direction, inverted, cancelled);
+            trace.record(ScanTrace.Level.VERBOSE, ScanTrace.Event.ZXING_ATTEMPT,
+                    slot, text != null ? 1 : 0, ScanTrace.elapsedSince(attemptStart));
+            if (text != null) {
+                zxingScheduler.recordSuccess(slot);
+                metrics.recordBranchSuccess(slot);
+                recordCode128Module();
+                int line = zxingScanner.getLastLine();
+                if (locate && line >= 0) {
+                    locateZXing(direction, base.getWidth(), line,
+                            fullSlot ? fullX : roiX, fullSlot ? fullY : roiY, displayWidth, displayHeight);
+                }
+                return text;
+            }
+        }
+        return null;
+    }
+
+    // Code 128: 11 modules par caractère; les points ZXing (milieu du start, milieu du stop)
+    // couvrent 11 modules par caractère hors start
+    private void recordCode128Module() {
+        int codewords = zxingScanner.getLastCodewords();
+        int extent = zxingScanner.getLastEnd() - zxingScanner.getLastStart();
+        if (codewords > 1 && extent > 0) {
+            code128ModuleWidth = thinnest(code128ModuleWidth, extent / (11f * (codewords - 1)));
+        }
+    }
+
+    // Ligne de lecture ZXing -> segment en coordonnées écran (COLUMNS: vue pivotée anti-horaire,
+    // (x, y) de la vue = (largeur - 1 - y, x) de la base)
+    private void locateZXing(ScanlineDecoder.Direction direction, int baseWidth, int line,
+                             int offsetX, int offsetY, int displayWidth, int displayHeight) {
+        int[] segment = zxingSegment;
+        int start = zxingScanner.getLastStart();
+        int end = zxingScanner.getLastEnd();
+        if (direction == ScanlineDecoder.Direction.ROWS) {
+            segment[0] = offsetX + start;
+            segment[1] = offsetY + line;
+            segment[2] = offsetX + end;
+            segment[3] = offsetY + line;
+        } else {
+            segment[0] = offsetX + baseWidth - 1 - line;
+            segment[1] = offsetY + start;
+            segment[2] = segment[0];
+            segment[3] = offsetY + end;
+        }
+        reportHit(segment, displayWidth, displayHeight, zxingHit);
+    }
+
+    // Segment de lecture (coordonnées écran) -> boîte en fractions, transmise au suivi
+    private void reportHit(int[] segment, int displayWidth, int displayHeight, float[] box) {
+        int x0 = Math.min(segment[0], segment[2]);
+        int x1 = Math.max(segment[0], segment[2]);
+        int y0 = Math.min(segment[1], segment[3]);
+        int y1 = Math.max(segment[1], segment[3]);
+        int length = Math.max(x1 - x0, y1 - y0);
+        int half = Math.max(HIT_MIN_HALF_THICKNESS_PX, Math.round(length * HIT_HALF_THICKNESS));
+        if (x1 - x0 >= y1 - y0) {
+            y0 -= half;
+            y1 += half;
+        } else {
+            x0 -= half;
+            x1 += half;
+        }
+        box[0] = Math.max(0f, x0 / (float) displayWidth);
+        box[1] = Math.max(0f, y0 / (float) displayHeight);
+        box[2] = Math.min(1f, (x1 + 1) / (float) displayWidth);
+        box[3] = Math.min(1f, (y1 + 1) / (float) displayHeight);
+        tracker.onHit(box[0], box[1], box[2], box[3]);
+    }
+
+    // Point capteur out[i], out[i+1] -> écran (l'écran est le capteur tourné de rotation dans le sens horaire)
+    private static void sensorToDisplay(int[] out, int i, int width, int height, int rotation) {
+        int sx = out[i];
+        int sy = out[i + 1];
+        switch (rotation) {
+            case 90:
+                out[i] = height - 1 - sy;
+                out[i + 1] = sx;
+                break;
+            case 180:
+                out[i] = width - 1 - sx;
+                out[i + 1] = height - 1 - sy;
+                break;
+            case 270:
+                out[i] = sy;
+                out[i + 1] = width - 1 - sx;
+                break;
+            default:
+                break;
+        }
+    }
+
+    // Fenêtre en fractions de l'écran -> rectangle capteur {gauche, haut, droite, bas} (bornes exclues à droite/en bas)
+    private static void windowToSensor(float[] window, int width, int height, int rotation, int[] out) {
+        boolean quarterTurn = rotation == 90 || rotation == 270;
+        int displayWidth = quarterTurn ? height : width;
+        int displayHeight = quarterTurn ? width : height;
+        int dl = clampToInt(window[0] * displayWidth, 0, displayWidth - 1);
+        int dt = clampToInt(window[1] * displayHeight, 0, displayHeight - 1);
+        int dr = clampToInt(window[2] * displayWidth, dl + 1, displayWidth);
+        int db = clampToInt(window[3] * displayHeight, dt + 1, displayHeight);
+        switch (rotation) {
+            case 90:
+                out[0] = dt;
+                out[1] = height - dr;
+                out[2] = db;
+                out[3] = height - dl;
+                break;
+            case 180:
+                out[0] = width - dr;
+                out[1] = height - db;
+                out[2] = width - dl;
+                out[3] = height - dt;
+                break;
+            case 270:
+                out[0] = width - db;
+                out[1] = dl;
+                out[2] = width - dt;
+                out[3] = dr;
+                break;
+            default:
+                out[0] = dl;
+                out[1] = dt;
+                out[2] = dr;
+                out[3] = db;
+                break;
+        }
+    }
+
+    // Rectangle capteur {gauche, haut, droite, bas} -> rectangle écran, sur place (bornes exclues à droite/en bas)
+    private static void sensorRectToDisplay(int[] rect, int width, int height, int rotation) {
+        int l = rect[0];
+        int t = rect[1];
+        int r = rect[2];
+        int b = rect[3];
+        switch (rotation) {
+            case 90:
+                rect[0] = height - b;
+                rect[1] = l;
+                rect[2] = height - t;
+                rect[3] = r;
+                break;
+            case 180:
+                rect[0] = width - r;
+                rect[1] = height - b;
+                rect[2] = width - l;
+                rect[3] = height - t;
+                break;
+            case 270:
+                rect[0] = t;
+                rect[1] = width - r;
+                rect[2] = b;
+                rect[3] = width - l;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static int clampToInt(float v, int min, int max) {
+        int i = Math.round(v);
+        if (i < min) return min;
+        if (i > max) return max;
+        return i;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.msidecoder.scanner;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogramme de latences à seaux logarithmiques (puissances de 2 en microsecondes, de &lt;1 µs
+ * à ~16 s). Taille fixe, enregistrement sans verrou ni allocation, utilisable depuis plusieurs threads.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 25;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get())) {
+            if (maxNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    // Seau 0: < 1 µs, seau i: [2^(i-1), 2^i) µs (µs approchées par nanos >> 10)
+    private static int bucketOf(long nanos) {
+        long micros = nanos >> 10;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(BUCKETS - 1, bucket);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0.0 : totalNanos.get() / (double) n / 1e6;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /** Borne haute (ms) du seau contenant le quantile demandé. */
+    public double getPercentileMillis(double quantile) {
+        long n = count.get();
+        if (n == 0) {
+            return 0.0;
+        }
+        long target = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return Math.min((1L << i) * 1024L / 1e6, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0L);
+        }
+        count.set(0L);
+        totalNanos.set(0L);
+        maxNanos.set(0L);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.msidecoder.scanner;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Frame de luminance indépendant de la caméra: plan Y et sa géométrie.
+ *
+ * CameraX ({@code ImageProxy}) s'y adapte côté app; le rejeu hors ligne fournit des dumps Y8/YUV
+ * ou des frames synthétiques. Le buffer n'est valide que pendant le traitement du frame.
+ */
+public interface LumaFrame {
+
+    ByteBuffer getYBuffer();
+
+    int getWidth();
+
+    int getHeight();
+
+    int getRowStride();
+
+    int getPixelStride();
+
+    /** Rotation horaire (0/90/180/270) à appliquer pour redresser le frame à l'écran. */
+    int getRotationDegrees();
+
+    long getTimestampNanos();
+}
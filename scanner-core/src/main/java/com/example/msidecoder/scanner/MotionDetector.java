@@ -0,0 +1,108 @@
+package com.example.msidecoder.scanner;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Détection de mouvement à bas coût pour la veille de l'analyseur: le frame est résumé par la
+ * luminance moyenne d'une grille grossière ({@link #GRID_WIDTH} x {@link #GRID_HEIGHT} cellules,
+ * quelques points par cellule, quelques centaines de lectures en tout), comparée à celle du frame
+ * précédent. La variation moyenne de l'ensemble est retirée avant la comparaison: un changement
+ * d'exposition n'est pas un mouvement, un objet qui entre dans le champ en est un.
+ *
+ * Le frame de référence n'est gardé que {@link #MAX_GAP_NS}: au-delà (fin de veille puis retour),
+ * le frame suivant redevient la référence sans signaler de mouvement. Une instance n'est pas
+ * thread-safe.
+ */
+public final class MotionDetector {
+
+    public static final int GRID_WIDTH = 16;
+    public static final int GRID_HEIGHT = 12;
+    public static final long MAX_GAP_NS = 3_000_000_000L;
+
+    // Écart moyen par cellule (niveaux de gris), au-dessus du bruit capteur d'une scène fixe
+    private static final float DEFAULT_THRESHOLD = 6f;
+    private static final int CELL_SAMPLES = 4;
+
+    private final float threshold;
+    private final float[] reference = new float[GRID_WIDTH * GRID_HEIGHT];
+    private final float[] current = new float[GRID_WIDTH * GRID_HEIGHT];
+    private boolean hasReference;
+    private long referenceNanos;
+    private float lastDifference;
+
+    public MotionDetector() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /** @param threshold écart moyen de luminance par cellule (0..255) compté comme mouvement */
+    public MotionDetector(float threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Compare le frame au précédent et le garde comme référence.
+     *
+     * @return true si la scène a bougé
+     */
+    public boolean update(LumaFrame frame) {
+        long timestampNanos = frame.getTimestampNanos();
+        if (hasReference && (timestampNanos < referenceNanos || timestampNanos - referenceNanos > MAX_GAP_NS)) {
+            // Référence trop ancienne, ou horloge repartie en arrière (nouvelle session caméra)
+            hasReference = false;
+        }
+        float mean = sample(frame.getYBuffer(), frame.getWidth(), frame.getHeight(),
+                frame.getRowStride(), frame.getPixelStride());
+
+        boolean moved = false;
+        lastDifference = 0f;
+        if (hasReference) {
+            float referenceMean = 0f;
+            for (float v : reference) {
+                referenceMean += v;
+            }
+            referenceMean /= reference.length;
+            float sum = 0f;
+            for (int i = 0; i < current.length; i++) {
+                sum += Math.abs((current[i] - mean) - (reference[i] - referenceMean));
+            }
+            lastDifference = sum / current.length;
+            moved = lastDifference >= threshold;
+        }
+        System.arraycopy(current, 0, reference, 0, current.length);
+        hasReference = true;
+        referenceNanos = timestampNanos;
+        return moved;
+    }
+
+    /** Écart moyen par cellule mesuré par le dernier {@link #update} (0 sans référence). */
+    public float getLastDifference() {
+        return lastDifference;
+    }
+
+    public void reset() {
+        hasReference = false;
+        lastDifference = 0f;
+    }
+
+    // Moyennes de cellules dans current; retourne la moyenne du frame
+    private float sample(ByteBuffer y, int width, int height, int rowStride, int pixelStride) {
+        float total = 0f;
+        for (int cy = 0; cy < GRID_HEIGHT; cy++) {
+            for (int cx = 0; cx < GRID_WIDTH; cx++) {
+                int sum = 0;
+                for (int sy = 0; sy < CELL_SAMPLES; sy++) {
+                    int row = (int) ((cy + (sy + 0.5f) / CELL_SAMPLES) * height / GRID_HEIGHT);
+                    int base = Math.min(row, height - 1) * rowStride;
+                    for (int sx = 0; sx < CELL_SAMPLES; sx++) {
+                        int col = (int) ((cx + (sx + 0.5f) / CELL_SAMPLES) * width / GRID_WIDTH);
+                        sum += y.get(base + Math.min(col, width - 1) * pixelStride) & 0xFF;
+                    }
+                }
+                float cell = sum / (float) (CELL_SAMPLES * CELL_SAMPLES);
+                current[cy * GRID_WIDTH + cx] = cell;
+                total += cell;
+            }
+        }
+        return total / current.length;
+    }
+}
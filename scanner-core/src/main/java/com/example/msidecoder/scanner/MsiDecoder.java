@@ -0,0 +1,515 @@
+package com.example.msidecoder.scanner;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Décodeur MSI "fines bandes" (voir DOCS/lecture_msi_fines_band.md).
+ *
+ * Chaque ligne d'échantillonnage du plan Y est seuillée en longueurs de plages (runs),
+ * la largeur d'une bande fine est estimée sur le motif start, puis chaque plage est
+ * quantifiée en 1 ou 2 bandes fines pour obtenir la suite binaire start/chiffres/stop.
+ *
+ * Tous les buffers de travail sont des tableaux primitifs préalloués et réutilisés d'un
+ * frame à l'autre: aucune allocation tant que rien n'est décodé. Pas de dépendance Android,
+ * la classe est utilisable telle quelle depuis un test JVM. Une instance n'est pas thread-safe.
+ *
+ * Avec un {@link MsiVoteAccumulator} ({@link #setVoter}), chaque ligne cadrée vote (chiffres
+ * illisibles compris) et seul le résultat voté est rendu, au lieu de la première ligne propre.
+ *
+ * Avec un {@link RowBinarizer} associé au frame ({@link #setRowBinarizer}), les lignes sont
+ * prises dans la binarisation partagée avec ZXing au lieu d'être seuillées ici.
+ */
+public class MsiDecoder {
+
+    public enum CheckMode {
+        /** Aucun contrôle (déconseillé: MSI détecte mal les erreurs). */
+        NONE,
+        /** Modulo 10 (le plus courant). */
+        MOD10,
+        /** Modulo 11 (pondérations 2..7 depuis la droite). */
+        MOD11,
+        /** Modulo 11 puis modulo 10 (deux chiffres de contrôle). */
+        MOD11_10
+    }
+
+    // Motifs fixes (1 = bande noire, 0 = bande blanche)
+    private static final int START_MODULES = 3;  // 110
+    private static final int STOP_MODULES = 4;   // 1001
+    private static final int DIGIT_MODULES = 12;
+
+    // Quiet zone: au moins 3 bandes fines blanches
+    private static final float QUIET_ZONE_MODULES = 3f;
+    // Contraste minimal (max - min) pour qu'une ligne soit exploitable
+    private static final int MIN_CONTRAST = 32;
+    private static final int MIN_DIGITS = 3;
+    private static final int SCANLINES = 12;
+
+    private final CheckMode checkMode;
+
+    // Buffers réutilisés (agrandis uniquement si la taille de frame augmente)
+    private int[] line = new int[0];
+    private int[] runs = new int[0];
+    private byte[] bits = new byte[0];
+    // Ligne seuillée (1: pixel sombre), lue par le découpage en plages et l'échantillonnage
+    private byte[] dark = new byte[0];
+    private char[] digits = new char[0];
+    private int runCount;
+    private int firstRunBlack;
+    private int lineLength;
+
+    // Position de la ligne courante et du symbole candidat, puis de la dernière ligne retenue
+    // (segment capteur x0,y0 -> x1,y1), pour le suivi de ROI
+    private int lineX;
+    private int lineY;
+    private boolean lineColumns;
+    private int candidateFrom;
+    private int candidateTo;
+    private float candidateModule;
+    private boolean hasLocation;
+    private final int[] location = new int[4];
+    private float locationModule;
+
+    // Vote multi-lignes/multi-frames (null: première ligne valide retenue)
+    private MsiVoteAccumulator voter;
+    private boolean lineOffered;
+
+    private RowBinarizer rowBinarizer;
+
+    public MsiDecoder() {
+        this(CheckMode.MOD10);
+    }
+
+    public MsiDecoder(CheckMode checkMode) {
+        this.checkMode = checkMode;
+    }
+
+    public void setVoter(MsiVoteAccumulator voter) {
+        this.voter = voter;
+    }
+
+    /** Binarisation partagée du frame, null pour seuiller chaque ligne ici. */
+    public void setRowBinarizer(RowBinarizer rowBinarizer) {
+        this.rowBinarizer = rowBinarizer;
+    }
+
+    /**
+     * Décode un MSI sur le plan Y complet: lignes horizontales puis colonnes,
+     * chacune lue dans les deux sens.
+     *
+     * @return la valeur (check digit inclus) ou null si rien n'a été trouvé
+     */
+    public String decode(ByteBuffer yPlane, int width, int height, int rowStride, int pixelStride) {
+        return decode(yPlane, rowStride, pixelStride, 0, 0, width, height, false, null);
+    }
+
+    /**
+     * Décode un MSI dans la région [left, left+width) x [top, top+height) du plan Y.
+     * Les colonnes sont lues en place (pas de buffer pivoté).
+     *
+     * @param columnsFirst commencer par les colonnes (capteur tourné de 90/270 par rapport à l'écran)
+     * @param cancelled    si non null, vérifié entre deux lignes: abandon dès qu'il passe à true
+     */
+    public String decode(ByteBuffer yPlane, int rowStride, int pixelStride,
+                         int left, int top, int width, int height, boolean columnsFirst,
+                         AtomicBoolean cancelled) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        ensureCapacity(Math.max(width, height));
+        hasLocation = false;
+
+        String result = scan(yPlane, rowStride, pixelStride, left, top, width, height, columnsFirst, cancelled);
+        if (result == null) {
+            result = scan(yPlane, rowStride, pixelStride, left, top, width, height, !columnsFirst, cancelled);
+        }
+        return result;
+    }
+
+    private String scan(ByteBuffer yPlane, int rowStride, int pixelStride,
+                        int left, int top, int width, int height, boolean columns,
+                        AtomicBoolean cancelled) {
+        // Lignes d'échantillonnage: centre puis alternativement au-dessus/au-dessous
+        int extent = columns ? width : height;
+        int length = columns ? height : width;
+        int middle = extent / 2;
+        int step = Math.max(1, extent / (SCANLINES + 1));
+        int limit = yPlane.limit();
+        RowBinarizer shared = rowBinarizer != null && rowBinarizer.isBound() ? rowBinarizer : null;
+
+        for (int i = 0; i < SCANLINES; i++) {
+            if (cancelled != null && cancelled.get()) {
+                return null;
+            }
+            int offset = ((i + 1) / 2) * step;
+            int pos = (i & 1) == 0 ? middle + offset : middle - offset;
+            if (pos < 0 || pos >= extent) {
+                break;
+            }
+
+            int base;
+            int increment;
+            if (columns) {
+                base = top * rowStride + (left + pos) * pixelStride;
+                increment = rowStride;
+                lineX = left + pos;
+                lineY = top;
+            } else {
+                base = (top + pos) * rowStride + left * pixelStride;
+                increment = pixelStride;
+                lineX = left;
+                lineY = top + pos;
+            }
+            lineColumns = columns;
+            lineOffered = false;
+            String text;
+            if (shared != null) {
+                boolean textured = columns
+                        ? shared.getLine(true, left + pos, top, length, dark)
+                        : shared.getLine(false, top + pos, left, length, dark);
+                text = textured ? decodeDark(length) : null;
+            } else {
+                if (base + (length - 1) * increment >= limit) {
+                    continue;
+                }
+                for (int k = 0; k < length; k++) {
+                    line[k] = yPlane.get(base + k * increment) & 0xFF;
+                }
+                text = decodeLine(length);
+            }
+            if (voter != null) {
+                // Seule une ligne qui vient de voter peut compléter un résultat: les voix des
+                // frames précédents ne produisent rien seules (ligne plate, autre symbole)
+                String voted = lineOffered ? voter.resolve(checkMode) : null;
+                if (voted != null) {
+                    return voted;
+                }
+            } else if (text != null) {
+                return text;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Décode une ligne déjà échantillonnée dans {@code line[0..length)}.
+     */
+    String decodeLine(int length) {
+        if (!threshold(length)) {
+            return null;
+        }
+        return decodeDark(length);
+    }
+
+    // Ligne déjà seuillée dans dark[0..length)
+    private String decodeDark(int length) {
+        lineOffered = false;
+        if (!toRuns(length)) {
+            return null;
+        }
+        String text = decodeRuns(false);
+        if (text == null) {
+            text = decodeRuns(true);
+        }
+        return text;
+    }
+
+    // Seuil au milieu de la dynamique de la ligne
+    private boolean threshold(int length) {
+        int min = 255;
+        int max = 0;
+        for (int i = 0; i < length; i++) {
+            int v = line[i];
+            if (v < min) min = v;
+            if (v > max) max = v;
+        }
+        if (max - min < MIN_CONTRAST) {
+            return false;
+        }
+        int threshold = (min + max) >> 1;
+        for (int i = 0; i < length; i++) {
+            dark[i] = line[i] < threshold ? (byte) 1 : (byte) 0;
+        }
+        return true;
+    }
+
+    // Découpage de la ligne seuillée en plages
+    private boolean toRuns(int length) {
+        lineLength = length;
+        boolean black = dark[0] != 0;
+        firstRunBlack = black ? 1 : 0;
+        int count = 0;
+        int current = 0;
+        for (int i = 0; i < length; i++) {
+            boolean b = dark[i] != 0;
+            if (b == black) {
+                current++;
+            } else {
+                runs[count++] = current;
+                black = b;
+                current = 1;
+            }
+        }
+        runs[count++] = current;
+        runCount = count;
+        // start + 1 chiffre + stop = au moins 3 + 8 + 3 plages, encadrées par les quiet zones
+        return runCount >= 16;
+    }
+
+    private int runAt(int i, boolean reversed) {
+        return reversed ? runs[runCount - 1 - i] : runs[i];
+    }
+
+    private boolean isBlack(int i, boolean reversed) {
+        int index = reversed ? runCount - 1 - i : i;
+        return ((index & 1) == 0) == (firstRunBlack == 1);
+    }
+
+    private String decodeRuns(boolean reversed) {
+        // Candidat start: plage blanche (quiet zone) + noire large + blanche fine
+        for (int i = 1; i + 1 < runCount; i++) {
+            if (!isBlack(i, reversed)) {
+                continue;
+            }
+            int bar = runAt(i, reversed);
+            int space = runAt(i + 1, reversed);
+            if (bar < space) {
+                continue;
+            }
+            float module = (bar + space) / (float) START_MODULES;
+            if (runAt(i - 1, reversed) < QUIET_ZONE_MODULES * module) {
+                continue;
+            }
+            String text = decodeFrom(i, module, reversed);
+            if (text != null) {
+                return text;
+            }
+        }
+        return null;
+    }
+
+    private String decodeFrom(int start, float module, boolean reversed) {
+        // 1re passe: trouver la quiet zone de fin avec la largeur estimée sur le start
+        int end = -1;
+        int pixels = 0;
+        int modules = 0;
+        boolean broken = false;
+        for (int k = start; k < runCount; k++) {
+            int run = runAt(k, reversed);
+            if (!isBlack(k, reversed) && run >= QUIET_ZONE_MODULES * module) {
+                end = k;
+                break;
+            }
+            int m = Math.round(run / module);
+            if (m < 1 || m > 2) {
+                if (voter == null) {
+                    return null;
+                }
+                broken = true;
+            }
+            pixels += run;
+            modules += m;
+        }
+        if (end < 0) {
+            return null;
+        }
+        int origin = 0;
+        for (int k = 0; k < start; k++) {
+            origin += runAt(k, reversed);
+        }
+        candidateFrom = reversed ? lineLength - origin - pixels : origin;
+        candidateTo = candidateFrom + pixels - 1;
+        candidateModule = module;
+        if (broken) {
+            // Plage abîmée (bruit, reflet): l'erreur reste locale si on échantillonne au centre
+            // de chaque bande fine, la ligne peut alors voter pour les chiffres intacts
+            return sampleModules(origin, pixels, module, reversed);
+        }
+        if (!isValidLength(modules)) {
+            return null;
+        }
+
+        // 2e passe: largeur affinée sur tout le symbole, puis construction de la suite binaire
+        float refined = pixels / (float) modules;
+        candidateModule = refined;
+        int bitCount = 0;
+        for (int k = start; k < end; k++) {
+            int m = Math.round(runAt(k, reversed) / refined);
+            if (m < 1 || m > 2) {
+                return null;
+            }
+            byte bit = isBlack(k, reversed) ? (byte) 1 : (byte) 0;
+            for (int j = 0; j < m; j++) {
+                bits[bitCount++] = bit;
+            }
+        }
+        if (!isValidLength(bitCount)) {
+            return null;
+        }
+        return decodeBits(bitCount);
+    }
+
+    // Suite binaire lue au centre de chaque bande fine, la longueur étant ramenée au nombre
+    // valide (3 + 12 * n + 4) le plus proche de l'étendue du symbole
+    private String sampleModules(int origin, int pixels, float module, boolean reversed) {
+        int digitCount = Math.round((pixels / module - START_MODULES - STOP_MODULES) / DIGIT_MODULES);
+        if (digitCount < MIN_DIGITS) {
+            return null;
+        }
+        int bitCount = START_MODULES + digitCount * DIGIT_MODULES + STOP_MODULES;
+        if (bitCount > bits.length) {
+            return null;
+        }
+        float refined = pixels / (float) bitCount;
+        for (int j = 0; j < bitCount; j++) {
+            int p = origin + (int) ((j + 0.5f) * refined);
+            int index = reversed ? lineLength - 1 - p : p;
+            bits[j] = dark[index];
+        }
+        return decodeBits(bitCount);
+    }
+
+    private static boolean isValidLength(int modules) {
+        int payload = modules - START_MODULES - STOP_MODULES;
+        return payload >= DIGIT_MODULES * MIN_DIGITS && payload % DIGIT_MODULES == 0;
+    }
+
+    private String decodeBits(int bitCount) {
+        // Start 110
+        if (bits[0] != 1 || bits[1] != 1 || bits[2] != 0) {
+            return null;
+        }
+        // Stop 1001
+        int s = bitCount - STOP_MODULES;
+        if (bits[s] != 1 || bits[s + 1] != 0 || bits[s + 2] != 0 || bits[s + 3] != 1) {
+            return null;
+        }
+
+        // Chaque chiffre = 4 triplets "1x0", x étant le bit du chiffre (poids fort en premier)
+        int digitCount = (bitCount - START_MODULES - STOP_MODULES) / DIGIT_MODULES;
+        int unreadable = 0;
+        for (int d = 0; d < digitCount; d++) {
+            int offset = START_MODULES + d * DIGIT_MODULES;
+            int value = 0;
+            for (int j = 0; j < 4; j++) {
+                int t = offset + j * 3;
+                if (bits[t] != 1 || bits[t + 2] != 0) {
+                    value = -1;
+                    break;
+                }
+                value = (value << 1) | bits[t + 1];
+            }
+            if (value < 0 || value > 9) {
+                if (voter == null) {
+                    return null;
+                }
+                // Chiffre illisible: la ligne vote quand même pour les autres positions
+                digits[d] = '?';
+                unreadable++;
+            } else {
+                digits[d] = (char) ('0' + value);
+            }
+        }
+
+        // Une ligne cadrée vote une seule fois, si au moins 2/3 de ses chiffres sont lisibles
+        if (voter != null && !lineOffered && unreadable * 3 <= digitCount) {
+            voter.offer(digits, digitCount);
+            lineOffered = true;
+            recordLocation();
+        }
+        if (unreadable > 0 || !isCheckValid(digits, digitCount, checkMode)) {
+            return null;
+        }
+        recordLocation();
+        return new String(digits, 0, digitCount);
+    }
+
+    private void recordLocation() {
+        location[0] = lineColumns ? lineX : lineX + candidateFrom;
+        location[1] = lineColumns ? lineY + candidateFrom : lineY;
+        location[2] = lineColumns ? lineX : lineX + candidateTo;
+        location[3] = lineColumns ? lineY + candidateTo : lineY;
+        locationModule = candidateModule;
+        hasLocation = true;
+    }
+
+    /** Largeur de bande fine (pixels capteur) de la ligne retenue par {@link #getLastLocation}. */
+    public float getLastModuleWidth() {
+        return hasLocation ? locationModule : 0f;
+    }
+
+    /**
+     * Segment capteur {x0, y0, x1, y1} couvert par le symbole sur la dernière ligne retenue
+     * (ligne décodée, ou dernière ligne ayant voté) du dernier appel à decode.
+     *
+     * @return false si aucune ligne n'a été retenue
+     */
+    public boolean getLastLocation(int[] out) {
+        if (!hasLocation) {
+            return false;
+        }
+        System.arraycopy(location, 0, out, 0, 4);
+        return true;
+    }
+
+    static boolean isCheckValid(char[] digits, int count, CheckMode mode) {
+        switch (mode) {
+            case NONE:
+                return true;
+            case MOD10:
+                return count >= 2 && mod10(digits, count - 1) == digits[count - 1] - '0';
+            case MOD11:
+                return count >= 2 && mod11(digits, count - 1) == digits[count - 1] - '0';
+            case MOD11_10:
+                return count >= 3
+                        && mod11(digits, count - 2) == digits[count - 2] - '0'
+                        && mod10(digits, count - 1) == digits[count - 1] - '0';
+            default:
+                return false;
+        }
+    }
+
+    // Luhn: depuis la droite, un chiffre sur deux est doublé (en commençant par le plus à droite)
+    static int mod10(char[] digits, int count) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = count - 1; i >= 0; i--) {
+            int d = digits[i] - '0';
+            if (doubled) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            sum += d;
+            doubled = !doubled;
+        }
+        return (10 - (sum % 10)) % 10;
+    }
+
+    // Pondérations 2,3,4,5,6,7 répétées depuis la droite; un reste donnant 10 est invalide
+    static int mod11(char[] digits, int count) {
+        int sum = 0;
+        int weight = 2;
+        for (int i = count - 1; i >= 0; i--) {
+            sum += (digits[i] - '0') * weight;
+            weight = weight == 7 ? 2 : weight + 1;
+        }
+        int check = (11 - (sum % 11)) % 11;
+        return check == 10 ? -1 : check;
+    }
+
+    private void ensureCapacity(int length) {
+        if (line.length < length) {
+            line = new int[length];
+            runs = new int[length];
+            dark = new byte[length];
+            bits = new byte[length * 2];
+            digits = new char[(length * 2) / DIGIT_MODULES + 1];
+        }
+    }
+
+    /** Accès au buffer de ligne pour injecter des échantillons (tests JVM). */
+    int[] lineBuffer(int length) {
+        ensureCapacity(length);
+        return line;
+    }
+}
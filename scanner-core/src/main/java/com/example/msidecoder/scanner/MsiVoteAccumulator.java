@@ -0,0 +1,173 @@
+package com.example.msidecoder.scanner;
+
+/**
+ * Vote par position sur les chiffres MSI lus par plusieurs lignes d'échantillonnage et plusieurs
+ * frames consécutifs du même symbole.
+ *
+ * Chaque ligne correctement cadrée (start, stop, longueur multiple de 12) apporte une voix par
+ * chiffre lisible, même si d'autres chiffres de la ligne sont illisibles ou si le check digit est
+ * faux. Les voix des frames précédents sont atténuées à chaque nouveau frame et oubliées après
+ * une interruption. Un résultat n'est produit que lorsque chaque position a un gagnant net
+ * (au moins {@code minSupport} voix et 2/3 des voix de la position) et que le check digit du
+ * résultat voté est valide: une lecture isolée, même propre, ne suffit plus. Il faut aussi que
+ * le frame courant ait apporté des voix: les voix anciennes seules ne produisent jamais de
+ * résultat (frame vide, autre symbole dans le champ).
+ *
+ * Tableaux préalloués, aucune allocation hors résultat. Une instance n'est pas thread-safe.
+ */
+public final class MsiVoteAccumulator {
+
+    private static final int MAX_DIGITS = 24;
+    private static final float DEFAULT_MIN_SUPPORT = 1.5f;
+    private static final float DEFAULT_DECAY = 0.7f;
+    private static final long DEFAULT_MAX_GAP_NS = 300_000_000L;
+    private static final float MIN_SHARE = 2f / 3f;
+    private static final float FORGET_BELOW = 0.05f;
+    // Atténuation des voix après un résultat: elles départagent encore, sans suffire à le redonner
+    private static final float RESOLVED_DECAY = 0.25f;
+
+    private final float minSupport;
+    private final float decay;
+    private final long maxGapNanos;
+
+    // votes[(longueur * MAX_DIGITS + position) * 10 + chiffre]
+    private final float[] votes = new float[(MAX_DIGITS + 1) * MAX_DIGITS * 10];
+    private final float[] lengthWeight = new float[MAX_DIGITS + 1];
+    private final char[] resolved = new char[MAX_DIGITS];
+    private long lastTimestampNanos;
+    private boolean hasFrame;
+    private boolean offered;
+
+    public MsiVoteAccumulator() {
+        this(DEFAULT_MIN_SUPPORT, DEFAULT_DECAY, DEFAULT_MAX_GAP_NS);
+    }
+
+    /**
+     * @param minSupport  voix minimales pour le chiffre gagnant de chaque position (1,5 par défaut:
+     *                    une ligne propre seule ne suffit pas, elle doit être confirmée par une autre
+     *                    ligne ou par les voix atténuées des frames précédents)
+     * @param decay       facteur appliqué aux voix existantes à chaque nouveau frame (0..1)
+     * @param maxGapNanos au-delà de cet écart de timestamps, les voix sont oubliées
+     */
+    public MsiVoteAccumulator(float minSupport, float decay, long maxGapNanos) {
+        this.minSupport = minSupport;
+        this.decay = decay;
+        this.maxGapNanos = maxGapNanos;
+    }
+
+    /** Nouveau frame: atténue les voix précédentes, ou repart de zéro après une interruption. */
+    public void beginFrame(long timestampNanos) {
+        if (hasFrame) {
+            long gap = timestampNanos - lastTimestampNanos;
+            if (gap < 0 || gap > maxGapNanos) {
+                reset();
+            } else if (gap > 0) {
+                age();
+            }
+        }
+        lastTimestampNanos = timestampNanos;
+        hasFrame = true;
+        offered = false;
+    }
+
+    /**
+     * Voix d'une ligne: {@code digits[0..count)}, '?' pour un chiffre illisible.
+     */
+    public void offer(char[] digits, int count) {
+        if (count <= 0 || count > MAX_DIGITS) {
+            return;
+        }
+        lengthWeight[count] += 1f;
+        offered = true;
+        int base = count * MAX_DIGITS * 10;
+        for (int p = 0; p < count; p++) {
+            int d = digits[p] - '0';
+            if (d >= 0 && d <= 9) {
+                votes[base + p * 10 + d] += 1f;
+            }
+        }
+    }
+
+    /**
+     * Résultat voté si le frame courant a apporté des voix, toutes les positions sont sûres et
+     * le check digit valide, sinon null. Après un résultat, les voix sont fortement atténuées:
+     * le frame suivant du même symbole doit à nouveau réunir ses propres voix (deux lignes
+     * propres) pour le redonner.
+     */
+    public String resolve(MsiDecoder.CheckMode checkMode) {
+        if (!offered) {
+            return null;
+        }
+        for (int count = 1; count <= MAX_DIGITS; count++) {
+            if (lengthWeight[count] < minSupport) {
+                continue;
+            }
+            if (resolveLength(count) && MsiDecoder.isCheckValid(resolved, count, checkMode)) {
+                scale(RESOLVED_DECAY);
+                offered = false;
+                return new String(resolved, 0, count);
+            }
+        }
+        return null;
+    }
+
+    private boolean resolveLength(int count) {
+        int base = count * MAX_DIGITS * 10;
+        for (int p = 0; p < count; p++) {
+            int offset = base + p * 10;
+            float best = 0f;
+            float total = 0f;
+            int bestDigit = -1;
+            for (int d = 0; d < 10; d++) {
+                float v = votes[offset + d];
+                total += v;
+                if (v > best) {
+                    best = v;
+                    bestDigit = d;
+                }
+            }
+            if (bestDigit < 0 || best < minSupport || best < MIN_SHARE * total) {
+                return false;
+            }
+            resolved[p] = (char) ('0' + bestDigit);
+        }
+        return true;
+    }
+
+    private void age() {
+        scale(decay);
+    }
+
+    private void scale(float factor) {
+        for (int count = 1; count <= MAX_DIGITS; count++) {
+            if (lengthWeight[count] == 0f) {
+                continue;
+            }
+            lengthWeight[count] *= factor;
+            boolean forget = lengthWeight[count] < FORGET_BELOW;
+            if (forget) {
+                lengthWeight[count] = 0f;
+            }
+            int from = count * MAX_DIGITS * 10;
+            int to = from + count * 10;
+            for (int i = from; i < to; i++) {
+                votes[i] = forget ? 0f : votes[i] * factor;
+            }
+        }
+    }
+
+    public void reset() {
+        offered = false;
+        for (int count = 1; count <= MAX_DIGITS; count++) {
+            if (lengthWeight[count] == 0f) {
+                continue;
+            }
+            lengthWeight[count] = 0f;
+            int from = count * MAX_DIGITS * 10;
+            int to = from + count * 10;
+            for (int i = from; i < to; i++) {
+                votes[i] = 0f;
+            }
+        }
+    }
+}
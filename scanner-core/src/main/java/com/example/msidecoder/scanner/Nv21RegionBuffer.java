@@ -0,0 +1,84 @@
+package com.example.msidecoder.scanner;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Copie d'une région du plan Y en NV21 gris (chrominance neutre), pour les moteurs qui prennent
+ * une image en tableau d'octets (MLKit {@code InputImage.fromByteArray}). Seule la région est
+ * copiée: le frame source peut être refermé dès {@link #copy} terminé.
+ *
+ * Le tableau est réutilisé tant que la taille de la région ne change pas (il a toujours la taille
+ * exacte de l'image); la région est alignée vers l'extérieur sur {@link #ALIGN} pixels pour que sa
+ * taille reste stable d'un frame à l'autre. Le consommateur doit avoir fini de le lire avant la
+ * copie suivante. Une instance n'est pas thread-safe.
+ */
+public final class Nv21RegionBuffer {
+
+    /** Alignement des bords de la région (pair: NV21 impose des dimensions paires). */
+    public static final int ALIGN = 32;
+
+    private static final byte NEUTRAL_CHROMA = (byte) 128;
+
+    private byte[] data = new byte[0];
+    private int width;
+    private int height;
+
+    /**
+     * Copie le rectangle capteur {gauche, haut, droite, bas} (droite/bas exclus), élargi à
+     * {@link #ALIGN} pixels puis réduit aux bornes du frame et à des dimensions paires.
+     *
+     * @return false si la région est vide après réduction
+     */
+    public boolean copy(LumaFrame frame, int[] rect) {
+        int left = Math.max(0, rect[0] / ALIGN * ALIGN);
+        int top = Math.max(0, rect[1] / ALIGN * ALIGN);
+        int right = Math.min(frame.getWidth(), (rect[2] + ALIGN - 1) / ALIGN * ALIGN);
+        int bottom = Math.min(frame.getHeight(), (rect[3] + ALIGN - 1) / ALIGN * ALIGN);
+        int w = (right - left) & ~1;
+        int h = (bottom - top) & ~1;
+        if (w <= 0 || h <= 0) {
+            return false;
+        }
+        int luma = w * h;
+        int size = luma + luma / 2;
+        if (data.length != size) {
+            // Chrominance écrite une fois: les copies suivantes de même taille ne touchent que Y
+            data = new byte[size];
+            Arrays.fill(data, luma, size, NEUTRAL_CHROMA);
+        }
+        width = w;
+        height = h;
+
+        // Vue propre: la position du buffer partagé avec les autres moteurs n'est pas touchée
+        ByteBuffer y = frame.getYBuffer().duplicate();
+        int rowStride = frame.getRowStride();
+        int pixelStride = frame.getPixelStride();
+        for (int row = 0; row < h; row++) {
+            int offset = (top + row) * rowStride + left * pixelStride;
+            int out = row * w;
+            if (pixelStride == 1) {
+                y.position(offset);
+                y.get(data, out, w);
+            } else {
+                for (int x = 0; x < w; x++) {
+                    data[out + x] = y.get(offset + x * pixelStride);
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Pixels NV21 de la dernière copie ({@code largeur * hauteur * 3 / 2} octets). */
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.msidecoder.scanner;
+
+import com.example.msidecoder.models.BarcodeResult;
+import com.example.msidecoder.models.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Catalogue produits indexé sur les 7 premiers chiffres du MSI (usage Pharmony, voir
+ * DOCS/lecture_msi_fines_band.md): résolution locale d'un décodage, sans réseau.
+ *
+ * Fichier binaire compilé à l'avance ({@link #write}, outil {@code CatalogBuilder}):
+ * {@code [magic][version][nombre]}, clés {@code int} triées, décalages {@code int} des libellés
+ * (nombre + 1), puis libellés UTF-8 bout à bout. À l'ouverture, le fichier est mappé et seules les
+ * clés sont copiées en un bloc dans un {@code int[]}: aucun objet par produit, ouverture en
+ * quelques millisecondes pour des centaines de milliers d'entrées. Une recherche est une
+ * recherche dichotomique sur ce tableau (une vingtaine de comparaisons), le libellé n'est décodé
+ * qu'en cas de succès.
+ *
+ * Lecture seule après ouverture: utilisable sans verrou depuis plusieurs threads.
+ */
+public final class ProductCatalog {
+
+    /** Chiffres du MSI qui identifient le produit (check digit et chiffres suivants ignorés). */
+    public static final int KEY_DIGITS = 7;
+
+    static final int MAGIC = 0x4D534943; // "MSIC"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 12;
+
+    private final int[] keys;
+    private final ByteBuffer data;
+    private final int offsetsStart;
+    private final int labelsStart;
+
+    private ProductCatalog(int[] keys, ByteBuffer data, int offsetsStart, int labelsStart) {
+        this.keys = keys;
+        this.data = data;
+        this.offsetsStart = offsetsStart;
+        this.labelsStart = labelsStart;
+    }
+
+    /** Ouvre un catalogue compilé (fichier mappé en lecture seule). */
+    public static ProductCatalog open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long size = raf.length();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Catalogue invalide (taille " + size + "): " + file);
+            }
+            MappedByteBuffer data = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("Catalogue invalide (en-tête): " + file);
+            }
+            // Nombre validé et tailles calculées en long avant toute allocation: un en-tête corrompu
+            // donne une IOException, pas un débordement ni un OutOfMemoryError
+            int count = data.getInt(8);
+            if (count < 0 || HEADER_BYTES + 8L * count + 4 > size) {
+                throw new IOException("Catalogue invalide (tronqué): " + file);
+            }
+            int offsetsStart = HEADER_BYTES + 4 * count;
+            int labelsStart = offsetsStart + 4 * (count + 1);
+            int labelsSize = data.getInt(offsetsStart + 4 * count);
+            if (labelsSize < 0 || labelsStart + (long) labelsSize > size) {
+                throw new IOException("Catalogue invalide (tronqué): " + file);
+            }
+            int[] keys = new int[count];
+            data.position(HEADER_BYTES);
+            data.asIntBuffer().get(keys);
+            return new ProductCatalog(keys, data, offsetsStart, labelsStart);
+        }
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * Clé d'une valeur MSI: ses {@link #KEY_DIGITS} premiers chiffres, ou -1 si elle en a moins
+     * ou contient autre chose que des chiffres.
+     */
+    public static int keyOf(CharSequence value) {
+        if (value == null || value.length() < KEY_DIGITS) {
+            return -1;
+        }
+        int key = 0;
+        for (int i = 0; i < KEY_DIGITS; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            key = key * 10 + digit;
+        }
+        return key;
+    }
+
+    /** Rang du produit de clé {@code key}, ou -1 s'il est absent. */
+    public int indexOf(int key) {
+        return key < 0 ? -1 : Math.max(-1, Arrays.binarySearch(keys, key));
+    }
+
+    /** Libellé du produit de rang {@code index} (décodé à chaque appel). */
+    public String labelAt(int index) {
+        int start = data.getInt(offsetsStart + 4 * index);
+        int end = data.getInt(offsetsStart + 4 * index + 4);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(labelsStart + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** Produit d'une valeur MSI, ou null s'il n'est pas au catalogue. */
+    public Product lookup(CharSequence msiValue) {
+        int key = keyOf(msiValue);
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        return new Product(msiValue.subSequence(0, KEY_DIGITS).toString(), labelAt(index));
+    }
+
+    /**
+     * Associe son produit à un résultat MSI ({@link BarcodeResult#setProduct}); les autres
+     * symbologies ne sont pas touchées.
+     *
+     * @return true si le produit a été trouvé
+     */
+    public boolean resolve(BarcodeResult result) {
+        if (!DecodePipeline.TYPE_MSI.equals(result.getType())) {
+            return false;
+        }
+        Product product = lookup(result.getValue());
+        result.setProduct(product);
+        return product != null;
+    }
+
+    /**
+     * Compile un catalogue.
+     *
+     * @param keys   clés triées strictement croissantes ({@link #keyOf})
+     * @param labels libellés dans l'ordre des clés
+     */
+    public static void write(File file, int[] keys, String[] labels) throws IOException {
+        if (keys.length != labels.length) {
+            throw new IllegalArgumentException("Clés et libellés de tailles différentes");
+        }
+        byte[][] encoded = new byte[labels.length][];
+        for (int i = 0; i < labels.length; i++) {
+            if (i > 0 && keys[i] <= keys[i - 1]) {
+                throw new IllegalArgumentException("Clés non triées ou en double au rang " + i);
+            }
+            encoded[i] = labels[i].getBytes(StandardCharsets.UTF_8);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(keys.length);
+            for (int key : keys) {
+                out.writeInt(key);
+            }
+            int offset = 0;
+            out.writeInt(0);
+            for (byte[] label : encoded) {
+                offset += label.length;
+                out.writeInt(offset);
+            }
+            for (byte[] label : encoded) {
+                out.write(label);
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.msidecoder.scanner;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Anti-doublon des résultats remis: un symbole (format + valeur) remis depuis moins de
+ * {@code ttlNanos} n'est pas remis à nouveau, quel que soit le nombre de symboles alternant dans
+ * le champ. L'échéance court depuis la dernière remise, pas depuis la dernière lecture: un symbole
+ * tenu dans le champ est remis à nouveau toutes les {@code ttlNanos} (affichage rafraîchi après
+ * une perte de quelques frames, nouveau scan volontaire journalisé).
+ *
+ * Mémoire fixe: table associative par ensembles ({@link #WAYS} entrées par ensemble, choisi par un
+ * hachage des caractères calculé sans allocation). Un ensemble plein remplace l'entrée expirée ou,
+ * à défaut, la plus ancienne: au-delà de la capacité, les symboles les moins récents peuvent être
+ * remis une fois de plus, jamais perdus.
+ *
+ * Sans verrou, partagé par les workers d'analyse: la lecture d'un symbole connu ne fait qu'une
+ * lecture de sa date, plus un CAS à l'échéance (aucune allocation); une insertion publie une
+ * entrée par CAS sur la première case libre de l'ensemble, si bien que deux workers lisant le même
+ * nouveau symbole ne le remettent qu'une fois (sauf remplacement concurrent dans un ensemble
+ * plein: une remise de plus).
+ */
+public final class RecentResultCache {
+
+    public static final long DEFAULT_TTL_NS = 1_200_000_000L;
+    public static final int DEFAULT_CAPACITY = 128;
+
+    private static final int WAYS = 4;
+
+    private static final AtomicLongFieldUpdater<Entry> EMITTED =
+            AtomicLongFieldUpdater.newUpdater(Entry.class, "emittedNanos");
+
+    private final long ttlNanos;
+    private final int setMask;
+    private final AtomicReferenceArray<Entry> entries;
+
+    public RecentResultCache() {
+        this(DEFAULT_TTL_NS, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param ttlNanos durée pendant laquelle un symbole remis est ignoré
+     * @param capacity nombre de symboles retenus (arrondi à une puissance de deux, au moins {@link #WAYS})
+     */
+    public RecentResultCache(long ttlNanos, int capacity) {
+        if (ttlNanos <= 0 || capacity <= 0) {
+            throw new IllegalArgumentException("ttl et capacité doivent être positifs");
+        }
+        int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS));
+        if (sets * WAYS < capacity) {
+            sets <<= 1;
+        }
+        this.ttlNanos = ttlNanos;
+        this.setMask = sets - 1;
+        this.entries = new AtomicReferenceArray<>(sets * WAYS);
+    }
+
+    public int getCapacity() {
+        return entries.length();
+    }
+
+    public long getTtlNanos() {
+        return ttlNanos;
+    }
+
+    /**
+     * Enregistre le symbole s'il est nouveau.
+     *
+     * @param nowNanos horloge monotone ({@link System#nanoTime()} ou timestamp du frame)
+     * @return true si le symbole doit être remis (absent, ou remis pour la dernière fois il y a
+     *         plus de {@code ttlNanos})
+     */
+    public boolean offer(String format, String value, long nowNanos) {
+        int hash = hash(format, value);
+        int base = (hash & setMask) * WAYS;
+        while (true) {
+            int victim = base;
+            Entry victimEntry = entries.get(base);
+            for (int i = base; i < base + WAYS; i++) {
+                Entry entry = entries.get(i);
+                if (entry == null) {
+                    victim = i;
+                    victimEntry = null;
+                    break;
+                }
+                if (entry.hash == hash && equal(entry.format, format) && entry.value.equals(value)) {
+                    return touch(entry, nowNanos);
+                }
+                if (entry.emittedNanos < victimEntry.emittedNanos) {
+                    victim = i;
+                    victimEntry = entry;
+                }
+            }
+            if (entries.compareAndSet(victim, victimEntry, new Entry(hash, format, value, nowNanos))) {
+                return true;
+            }
+            // Case prise entre-temps (peut-être par le même symbole): nouveau parcours de l'ensemble
+        }
+    }
+
+    // Date de remise avancée par CAS, seulement à l'échéance: un seul worker remet le symbole
+    private boolean touch(Entry entry, long nowNanos) {
+        while (true) {
+            long previous = entry.emittedNanos;
+            if (nowNanos - previous < ttlNanos) {
+                return false;
+            }
+            if (EMITTED.compareAndSet(entry, previous, nowNanos)) {
+                return true;
+            }
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+    }
+
+    // FNV-1a sur les caractères: format et valeur combinés sans concaténation
+    private static int hash(String format, String value) {
+        int h = 0x811c9dc5;
+        if (format != null) {
+            for (int i = 0; i < format.length(); i++) {
+                h = (h ^ format.charAt(i)) * 0x01000193;
+            }
+        }
+        h = (h ^ 0xff) * 0x01000193;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static final class Entry {
+        final int hash;
+        final String format;
+        final String value;
+        volatile long emittedNanos;
+
+        Entry(int hash, String format, String value, long emittedNanos) {
+            this.hash = hash;
+            this.format = format;
+            this.value = value;
+            this.emittedNanos = emittedNanos;
+        }
+    }
+}
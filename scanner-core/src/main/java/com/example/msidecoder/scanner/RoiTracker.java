@@ -0,0 +1,132 @@
+package com.example.msidecoder.scanner;
+
+/**
+ * Suivi de la position du dernier symbole décodé d'un frame à l'autre, en fractions de l'image
+ * redressée (orientation écran, 0..1).
+ *
+ * Après un décodage, la fenêtre de recherche du frame suivant est la dernière boîte, décalée du
+ * mouvement observé entre deux décodages et élargie d'une marge. Chaque frame sans décodage
+ * double la marge; après {@code maxMisses} échecs consécutifs la piste est abandonnée et les
+ * moteurs reviennent à la ROI par défaut et au frame complet.
+ *
+ * Protocole par frame: {@link #beginFrame}, puis {@link #onHit} pour chaque moteur ayant localisé
+ * le symbole, puis {@link #endFrame}. Les méthodes sont synchronisées: les moteurs tournent en
+ * parallèle sur des threads différents.
+ */
+public final class RoiTracker {
+
+    private static final int DEFAULT_MAX_MISSES = 3;
+    // Marge initiale: 25% de la boîte (plus MIN_HALF_SIZE de chaque côté), doublée à chaque échec
+    private static final float BASE_MARGIN = 0.25f;
+    private static final float MIN_HALF_SIZE = 0.03f;
+    // Lissage exponentiel de la vitesse (fraction d'image par frame)
+    private static final float MOTION_SMOOTHING = 0.5f;
+
+    private final int maxMisses;
+
+    private boolean hasTrack;
+    private float left;
+    private float top;
+    private float right;
+    private float bottom;
+    private float velocityX;
+    private float velocityY;
+    private int misses;
+    private long frameIndex;
+    private long lastHitFrame;
+    private boolean hitThisFrame;
+
+    public RoiTracker() {
+        this(DEFAULT_MAX_MISSES);
+    }
+
+    public RoiTracker(int maxMisses) {
+        this.maxMisses = maxMisses;
+    }
+
+    /**
+     * Début d'un frame.
+     *
+     * @param window reçoit la fenêtre prédite {gauche, haut, droite, bas} si une piste existe
+     * @return true si une piste existe (fenêtre remplie), false pour une recherche complète
+     */
+    public synchronized boolean beginFrame(float[] window) {
+        frameIndex++;
+        hitThisFrame = false;
+        if (!hasTrack) {
+            return false;
+        }
+        long ahead = frameIndex - lastHitFrame;
+        float cx = (left + right) / 2f + velocityX * ahead;
+        float cy = (top + bottom) / 2f + velocityY * ahead;
+        float grow = 1f + BASE_MARGIN * (1 << Math.min(misses, 8));
+        float halfWidth = (right - left) / 2f * grow + MIN_HALF_SIZE;
+        float halfHeight = (bottom - top) / 2f * grow + MIN_HALF_SIZE;
+        window[0] = clamp(cx - halfWidth);
+        window[1] = clamp(cy - halfHeight);
+        window[2] = clamp(cx + halfWidth);
+        window[3] = clamp(cy + halfHeight);
+        if (window[2] <= window[0] || window[3] <= window[1]) {
+            // Prédiction sortie de l'image: piste perdue
+            hasTrack = false;
+            return false;
+        }
+        return true;
+    }
+
+    /** Symbole localisé dans le frame courant (fractions de l'image redressée). */
+    public synchronized void onHit(float l, float t, float r, float b) {
+        if (hitThisFrame) {
+            // Deuxième moteur sur le même frame: union des boîtes, la vitesse est déjà à jour
+            left = Math.min(left, l);
+            top = Math.min(top, t);
+            right = Math.max(right, r);
+            bottom = Math.max(bottom, b);
+            return;
+        }
+        if (hasTrack) {
+            long elapsed = Math.max(1L, frameIndex - lastHitFrame);
+            float vx = ((l + r) - (left + right)) / 2f / elapsed;
+            float vy = ((t + b) - (top + bottom)) / 2f / elapsed;
+            velocityX = MOTION_SMOOTHING * vx + (1f - MOTION_SMOOTHING) * velocityX;
+            velocityY = MOTION_SMOOTHING * vy + (1f - MOTION_SMOOTHING) * velocityY;
+        } else {
+            velocityX = 0f;
+            velocityY = 0f;
+        }
+        left = l;
+        top = t;
+        right = r;
+        bottom = b;
+        misses = 0;
+        lastHitFrame = frameIndex;
+        hitThisFrame = true;
+        hasTrack = true;
+    }
+
+    /** Fin du frame: un frame sans localisation compte comme un échec. */
+    public synchronized void endFrame() {
+        if (hasTrack && !hitThisFrame && ++misses > maxMisses) {
+            hasTrack = false;
+        }
+    }
+
+    public synchronized boolean isTracking() {
+        return hasTrack;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    public synchronized void reset() {
+        hasTrack = false;
+        misses = 0;
+        velocityX = 0f;
+        velocityY = 0f;
+    }
+
+    private static float clamp(float v) {
+        return v < 0f ? 0f : (v > 1f ? 1f : v);
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.msidecoder.scanner;
+
+import com.google.zxing.common.BitArray;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Binarisation 1D des lignes du plan Y, calculée une fois par frame et partagée par tous les
+ * lecteurs: MSI et ZXing Code 128, lignes et colonnes écran, deux polarités, ROI comme frame
+ * complet.
+ *
+ * Les lignes sont celles du capteur (rangées ou colonnes), sur une grille de {@link #GRID} pixels:
+ * une demande est servie par la ligne de grille qui la contient, décalage sans effet sur des
+ * barres qui la coupent. Chaque ligne est seuillée sur toute sa longueur au milieu du min/max
+ * local (blocs de {@link #BLOCK} pixels, fenêtre de 5 blocs), le seuil global de la ligne
+ * prenant le relais là où le contraste local est trop faible (quiet zones, fonds unis). Une ligne
+ * sans contraste est marquée vide. Les lecteurs n'en prennent que le segment de leur région, dans
+ * le sens voulu; l'inversion de polarité est faite par le lecteur.
+ *
+ * {@link #reset} (entre deux frames) est réservé au thread qui encadre le frame; pendant le frame,
+ * les lectures sont sans verrou depuis plusieurs threads: une ligne est réclamée par CAS, calculée
+ * par un seul thread et publiée; un autre thread qui la demande entre-temps attend sa publication
+ * (quelques microsecondes). Aucune allocation après le premier frame d'une taille donnée.
+ */
+public final class RowBinarizer {
+
+    /** Pas de la grille de lignes partagées, en pixels capteur. */
+    public static final int GRID = 4;
+    /** Taille des blocs de min/max local. */
+    public static final int BLOCK = 32;
+
+    // Même plancher que MsiDecoder: en dessous, la ligne n'est pas exploitable
+    private static final int MIN_CONTRAST = 32;
+    // Contraste local minimal, en fraction du contraste de la ligne, pour garder le seuil local
+    private static final int LOCAL_CONTRAST_DIVISOR = 4;
+
+    private static final int COMPUTING = 1;
+    private static final int READY = 2;
+    private static final int FLAT = 3;
+
+    private ByteBuffer buffer;
+    private int width;
+    private int height;
+    private int rowStride;
+    private int pixelStride;
+    private int limit;
+    private boolean bound;
+
+    // Lignes de grille: rangées [0, rowKeys), colonnes [rowKeys, rowKeys + columnKeys)
+    private int rowKeys;
+    private int columnKeys;
+    private int wordsPerLine;
+    private int[] words = new int[0];
+    // État par ligne: génération * 4 + COMPUTING/READY/FLAT (autre valeur: pas encore calculée)
+    private AtomicIntegerArray states = new AtomicIntegerArray(0);
+    private int generation;
+
+    /** Associe le frame suivant; toutes les lignes du frame précédent sont oubliées. */
+    public void reset(LumaFrame frame) {
+        buffer = frame.getYBuffer();
+        width = frame.getWidth();
+        height = frame.getHeight();
+        rowStride = frame.getRowStride();
+        pixelStride = frame.getPixelStride();
+        limit = buffer.limit();
+        rowKeys = (height + GRID - 1) / GRID;
+        columnKeys = (width + GRID - 1) / GRID;
+        wordsPerLine = (Math.max(width, height) + 31) >> 5;
+        int keys = rowKeys + columnKeys;
+        if (states.length() < keys || words.length < keys * wordsPerLine) {
+            states = new AtomicIntegerArray(keys);
+            words = new int[keys * wordsPerLine];
+            generation = 0;
+        }
+        // Génération sur 30 bits: les états des frames précédents ne correspondent plus
+        generation = (generation + 1) & 0x3fffffff;
+        bound = true;
+    }
+
+    /** Détache le frame (fin de frame): les lecteurs reviennent à leur propre binarisation. */
+    public void release() {
+        bound = false;
+        buffer = null;
+    }
+
+    public boolean isBound() {
+        return bound;
+    }
+
+    /**
+     * Segment d'une ligne capteur, pour ZXing (bit à 1: pixel sombre).
+     *
+     * @param columns  colonne capteur {@code index} (sinon rangée)
+     * @param from     premier pixel du segment le long de la ligne
+     * @param length   longueur du segment; {@code out} est redimensionné si besoin
+     * @param reversed segment lu de {@code from + length - 1} vers {@code from}
+     * @return false si la ligne n'a pas assez de contraste (out non modifié)
+     */
+    public boolean getRow(boolean columns, int index, int from, int length, boolean reversed, BitArray out) {
+        int base = line(columns, index);
+        if (base < 0) {
+            return false;
+        }
+        out.clear();
+        int[] w = words;
+        int last = from + length - 1;
+        for (int i = 0; i < length; i++) {
+            int p = reversed ? last - i : from + i;
+            if ((w[base + (p >> 5)] & (1 << (p & 31))) != 0) {
+                out.set(i);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Segment d'une ligne capteur, pour MSI ({@code out[i]} à 1: pixel sombre), lu dans le sens
+     * du capteur.
+     *
+     * @return false si la ligne n'a pas assez de contraste
+     */
+    public boolean getLine(boolean columns, int index, int from, int length, byte[] out) {
+        int base = line(columns, index);
+        if (base < 0) {
+            return false;
+        }
+        int[] w = words;
+        for (int i = 0; i < length; i++) {
+            int p = from + i;
+            out[i] = (byte) ((w[base + (p >> 5)] >>> (p & 31)) & 1);
+        }
+        return true;
+    }
+
+    // Début de la ligne de grille dans words, ou -1 si elle est vide; la calcule au premier appel
+    private int line(boolean columns, int index) {
+        int key = columns ? rowKeys + index / GRID : index / GRID;
+        int ready = generation << 2;
+        while (true) {
+            int state = states.get(key);
+            if (state == (ready | READY)) {
+                return key * wordsPerLine;
+            }
+            if (state == (ready | FLAT)) {
+                return -1;
+            }
+            if (state == (ready | COMPUTING)) {
+                // Calculée par l'autre moteur: publiée d'ici quelques microsecondes
+                Thread.yield();
+                continue;
+            }
+            if (states.compareAndSet(key, state, ready | COMPUTING)) {
+                boolean textured = compute(columns, key, index);
+                states.set(key, ready | (textured ? READY : FLAT));
+                return textured ? key * wordsPerLine : -1;
+            }
+        }
+    }
+
+    private boolean compute(boolean columns, int key, int index) {
+        int extent = columns ? width : height;
+        int position = Math.min(extent - 1, (index / GRID) * GRID + GRID / 2);
+        int length = columns ? height : width;
+        int start = columns ? position * pixelStride : position * rowStride;
+        int step = columns ? rowStride : pixelStride;
+        if (start + (length - 1) * step >= limit) {
+            return false;
+        }
+
+        int globalMin = 255;
+        int globalMax = 0;
+        for (int i = 0, offset = start; i < length; i++, offset += step) {
+            int v = buffer.get(offset) & 0xFF;
+            if (v < globalMin) globalMin = v;
+            if (v > globalMax) globalMax = v;
+        }
+        int contrast = globalMax - globalMin;
+        if (contrast < MIN_CONTRAST) {
+            return false;
+        }
+        int globalThreshold = (globalMin + globalMax) >> 1;
+        int minLocal = Math.max(MIN_CONTRAST, contrast / LOCAL_CONTRAST_DIVISOR);
+
+        int base = key * wordsPerLine;
+        int[] w = words;
+        for (int i = 0; i < wordsPerLine; i++) {
+            w[base + i] = 0;
+        }
+
+        // Fenêtre glissante de 5 blocs (b-2..b+2), min/max empaquetés (min << 8 | max)
+        int blocks = (length + BLOCK - 1) / BLOCK;
+        int s0 = blockStats(start, step, length, -2);
+        int s1 = blockStats(start, step, length, -1);
+        int s2 = blockStats(start, step, length, 0);
+        int s3 = blockStats(start, step, length, 1);
+        int s4 = blockStats(start, step, length, 2);
+        for (int b = 0; b < blocks; b++) {
+            int lo = Math.min(Math.min(Math.min(s0 >> 8, s1 >> 8), Math.min(s2 >> 8, s3 >> 8)), s4 >> 8);
+            int hi = Math.max(Math.max(Math.max(s0 & 0xFF, s1 & 0xFF), Math.max(s2 & 0xFF, s3 & 0xFF)), s4 & 0xFF);
+            int threshold = hi - lo >= minLocal ? (lo + hi) >> 1 : globalThreshold;
+            int end = Math.min(length, (b + 1) * BLOCK);
+            for (int p = b * BLOCK, offset = start + p * step; p < end; p++, offset += step) {
+                if ((buffer.get(offset) & 0xFF) < threshold) {
+                    w[base + (p >> 5)] |= 1 << (p & 31);
+                }
+            }
+            s0 = s1;
+            s1 = s2;
+            s2 = s3;
+            s3 = s4;
+            s4 = blockStats(start, step, length, b + 3);
+        }
+        return true;
+    }
+
+    // Min/max d'un bloc (min << 8 | max); bloc hors ligne: neutre pour la fenêtre
+    private int blockStats(int start, int step, int length, int block) {
+        int from = block * BLOCK;
+        if (block < 0 || from >= length) {
+            return 255 << 8;
+        }
+        int end = Math.min(length, from + BLOCK);
+        int min = 255;
+        int max = 0;
+        for (int p = from, offset = start + from * step; p < end; p++, offset += step) {
+            int v = buffer.get(offset) & 0xFF;
+            if (v < min) min = v;
+            if (v > max) max = v;
+        }
+        return (min << 8) | max;
+    }
+}
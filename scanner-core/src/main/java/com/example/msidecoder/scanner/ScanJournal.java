@@ -0,0 +1,386 @@
+package com.example.msidecoder.scanner;
+
+import com.example.msidecoder.models.BarcodeResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Journal des scans (valeur, format, moteur, horodatage, latence), en ajout seul dans des
+ * segments de taille fixe mappés en mémoire ({@code scans-000001.seg}, ...).
+ *
+ * {@link #append} ne fait aucune I/O: l'entrée est déposée dans une file sans verrou et le thread
+ * d'écriture du journal la copie dans le segment courant; chaque lot (file vidée) est ensuite
+ * écrit sur disque en un seul {@code force()}. Une entrée copiée dans le mapping survit à un crash
+ * de l'app (pages du noyau), un lot forcé à une coupure d'alimentation. Au redémarrage, l'écriture
+ * reprend après le dernier enregistrement valide du dernier segment.
+ *
+ * Format d'un segment: en-tête de {@link #HEADER_BYTES} octets (magic, version, date de création),
+ * puis enregistrements {@code [longueur][CRC32][contenu]}; le contenu est
+ * {@code [date ms][latence µs][format][moteur][valeur]}, chaînes UTF-8 préfixées par leur longueur.
+ * La longueur est écrite en dernier: une longueur nulle (fin du fichier préalloué, ou écriture
+ * interrompue) ou un CRC faux termine le segment. Quand un enregistrement ne tient plus, le
+ * segment suivant est créé; au-delà de {@code maxSegments}, les plus anciens sont supprimés (un
+ * segment impossible à supprimer est signalé et reste sur disque: l'écriture continue, la
+ * suppression est retentée à la rotation suivante). Lecture: {@link ScanJournalReader}.
+ */
+public final class ScanJournal {
+
+    private static final Logger LOG = Logger.getLogger(ScanJournal.class.getName());
+
+    public static final int DEFAULT_SEGMENT_BYTES = 1 << 20;
+    public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+    static final int MAGIC = 0x4D534A31; // "MSJ1"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    // Longueur et CRC devant chaque contenu
+    static final int RECORD_HEADER_BYTES = 8;
+    static final String SEGMENT_PREFIX = "scans-";
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final int MAX_SHORT_STRING = 255;
+    private static final int MAX_VALUE = 0xFFFF;
+    // Contenu le plus long: date, latence, format, moteur, valeur (préfixes de longueur compris)
+    static final int MAX_RECORD_BYTES = 8 + 4 + 1 + MAX_SHORT_STRING + 1 + MAX_SHORT_STRING + 2 + MAX_VALUE;
+
+    // Entrées en attente au-delà desquelles append() les refuse (écriture bloquée ou en échec)
+    private static final int MAX_PENDING = 1024;
+    private static final long CLOSE_TIMEOUT_MS = 1000L;
+
+    private final File directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile IOException error;
+    private volatile long written;
+    // Tests seulement: exécuté par le thread d'écriture avant chaque enregistrement
+    volatile Runnable beforeWrite;
+
+    // Thread d'écriture seulement
+    private final CRC32 crc = new CRC32();
+    private final byte[] record = new byte[MAX_RECORD_BYTES];
+    private final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+    private MappedByteBuffer segment;
+    // Vue du segment pour les copies en bloc (position propre)
+    private ByteBuffer segmentView;
+    private int segmentIndex;
+    private int position;
+
+    public ScanJournal(File directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * Démarre le thread d'écriture; le dossier et le segment courant sont ouverts par ce thread
+     * (aucune I/O sur le thread appelant). Une erreur d'I/O, ou toute autre exception du thread
+     * d'écriture, arrête le journal ({@link #getError}).
+     *
+     * @param segmentBytes taille d'un segment (préalloué et mappé en entier)
+     * @param maxSegments  segments conservés, le plus ancien est supprimé à la rotation
+     */
+    public ScanJournal(File directory, int segmentBytes, int maxSegments) {
+        if (segmentBytes < HEADER_BYTES + RECORD_HEADER_BYTES + MAX_RECORD_BYTES + 4) {
+            throw new IllegalArgumentException("Segment trop petit: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.writer = new Thread(this::runWriter, "scan-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Ajoute un scan, sans bloquer (depuis n'importe quel thread).
+     *
+     * @param timeMillis   horodatage du scan (horloge murale)
+     * @param latencyNanos du début de l'analyse du frame à la remise du résultat
+     * @return false si le journal est fermé, en échec ou saturé (entrée perdue, comptée)
+     */
+    public boolean append(BarcodeResult result, long timeMillis, long latencyNanos) {
+        if (closed || error != null) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        int queued = pending.incrementAndGet();
+        if (queued > MAX_PENDING) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        long micros = Math.max(0L, Math.min(Integer.MAX_VALUE, latencyNanos / 1000L));
+        queue.offer(new Entry(timeMillis, (int) micros,
+                nonNull(result.getType()), nonNull(result.getValue()), nonNull(result.getSource())));
+        // Seule la première entrée d'un lot réveille le thread d'écriture; les suivantes sont vues
+        // avant qu'il ne se rendorme (voir runWriter)
+        if (queued == 1) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /** Écrit les entrées en attente et arrête le thread d'écriture (attente bornée). */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /** Enregistrements écrits depuis l'ouverture. */
+    public long getWritten() {
+        return written;
+    }
+
+    /** Entrées refusées (journal fermé, en échec ou saturé). */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Erreur qui a arrêté le journal, ou null. Une exception autre qu'une erreur d'I/O y est
+     * enveloppée (cause).
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    private void runWriter() {
+        try {
+            open();
+            boolean dirty = false;
+            while (true) {
+                Entry entry = queue.poll();
+                if (entry != null) {
+                    pending.decrementAndGet();
+                    write(entry);
+                    dirty = true;
+                    continue;
+                }
+                if (pending.get() > 0) {
+                    // Entrée comptée mais pas encore déposée par append(): arrive tout de suite
+                    Thread.yield();
+                    continue;
+                }
+                // File vide: fin du lot, écrit sur disque en une fois
+                if (dirty) {
+                    segment.force();
+                    dirty = false;
+                }
+                if (closed) {
+                    return;
+                }
+                LockSupport.park(this);
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (RuntimeException e) {
+            // Sans cela, le thread mourrait en silence et append() accepterait encore des entrées
+            fail(new IOException("Thread d'écriture du journal arrêté", e));
+        }
+    }
+
+    private void fail(IOException e) {
+        error = e;
+        queue.clear();
+        LOG.log(Level.SEVERE, "Journal des scans arrêté", e);
+    }
+
+    private void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Dossier du journal impossible à créer: " + directory);
+        }
+        int[] indexes = segmentIndexes(directory);
+        if (indexes.length == 0) {
+            startSegment(1);
+            return;
+        }
+        int last = indexes[indexes.length - 1];
+        MappedByteBuffer mapped = map(segmentFile(directory, last));
+        if (mapped.getInt(0) != MAGIC || mapped.getShort(4) != VERSION) {
+            // Segment inconnu (autre version): laissé tel quel, écriture dans le suivant
+            startSegment(last + 1);
+            return;
+        }
+        useSegment(mapped, last);
+        position = ScanJournalReader.endOf(mapped, HEADER_BYTES, crc, record, null);
+    }
+
+    private void useSegment(MappedByteBuffer mapped, int index) {
+        segment = mapped;
+        segmentView = mapped.duplicate();
+        segmentIndex = index;
+    }
+
+    private void write(Entry entry) throws IOException {
+        Runnable hook = beforeWrite;
+        if (hook != null) {
+            hook.run();
+        }
+        ByteBuffer out = recordBuffer;
+        out.clear();
+        out.putLong(entry.timeMillis);
+        out.putInt(entry.latencyMicros);
+        putString(out, entry.type, MAX_SHORT_STRING);
+        putString(out, entry.source, MAX_SHORT_STRING);
+        putString(out, entry.value, MAX_VALUE);
+        int length = out.position();
+        crc.reset();
+        crc.update(record, 0, length);
+
+        // Place pour l'enregistrement et pour la longueur nulle qui le suit
+        if (position + RECORD_HEADER_BYTES + length + 4 > segmentBytes) {
+            segment.force();
+            startSegment(segmentIndex + 1);
+        }
+        segmentView.position(position + RECORD_HEADER_BYTES);
+        segmentView.put(record, 0, length);
+        segment.putInt(position + 4, (int) crc.getValue());
+        // Longueur en dernier: l'enregistrement n'existe qu'une fois complet
+        segment.putInt(position, length);
+        position += RECORD_HEADER_BYTES + length;
+        written++;
+    }
+
+    // Chaîne UTF-8 préfixée par sa longueur (1 octet, ou 2 pour la valeur), tronquée à max octets
+    private static void putString(ByteBuffer out, String s, int max) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, max);
+        if (max > MAX_SHORT_STRING) {
+            out.putShort((short) length);
+        } else {
+            out.put((byte) length);
+        }
+        out.put(bytes, 0, length);
+    }
+
+    private void startSegment(int index) throws IOException {
+        useSegment(map(segmentFile(directory, index)), index);
+        segment.putInt(0, MAGIC);
+        segment.putShort(4, VERSION);
+        segment.putShort(6, (short) 0);
+        segment.putLong(8, System.currentTimeMillis());
+        position = HEADER_BYTES;
+        segment.putInt(position, 0);
+
+        // Un segment qui résiste reste en trop jusqu'à la rotation suivante, qui le retente
+        int[] indexes = segmentIndexes(directory);
+        for (int i = 0; i < indexes.length - maxSegments; i++) {
+            File old = segmentFile(directory, indexes[i]);
+            if (!old.delete()) {
+                LOG.warning("Segment impossible à supprimer: " + old);
+            }
+        }
+    }
+
+    // Fichier préalloué (zéros) et mappé en entier; le mapping reste valide après fermeture du canal
+    private MappedByteBuffer map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < segmentBytes) {
+                raf.setLength(segmentBytes);
+            }
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    static File segmentFile(File directory, int index) {
+        return new File(directory, String.format(Locale.ROOT, "%s%06d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    /** Numéros des segments du dossier, croissants. */
+    static int[] segmentIndexes(File directory) {
+        String[] names = directory.list();
+        if (names == null) {
+            return new int[0];
+        }
+        int[] indexes = new int[names.length];
+        int count = 0;
+        for (String name : names) {
+            if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                try {
+                    indexes[count++] = Integer.parseInt(
+                            name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                } catch (NumberFormatException e) {
+                    // Autre fichier du dossier
+                }
+            }
+        }
+        indexes = Arrays.copyOf(indexes, count);
+        Arrays.sort(indexes);
+        return indexes;
+    }
+
+    private static String nonNull(String s) {
+        return s != null ? s : "";
+    }
+
+    /** Un scan du journal. */
+    public static final class Entry {
+        private final long timeMillis;
+        private final int latencyMicros;
+        private final String type;
+        private final String value;
+        private final String source;
+
+        Entry(long timeMillis, int latencyMicros, String type, String value, String source) {
+            this.timeMillis = timeMillis;
+            this.latencyMicros = latencyMicros;
+            this.type = type;
+            this.value = value;
+            this.source = source;
+        }
+
+        public long getTimeMillis() {
+            return timeMillis;
+        }
+
+        public int getLatencyMicros() {
+            return latencyMicros;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        /** Moteur qui a lu le symbole (MSI maison, ZXing, MLKit). */
+        public String getSource() {
+            return source;
+        }
+
+        public BarcodeResult toResult() {
+            return new BarcodeResult(type, value, source);
+        }
+    }
+}
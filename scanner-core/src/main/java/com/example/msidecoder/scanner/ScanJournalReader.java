@@ -0,0 +1,107 @@
+package com.example.msidecoder.scanner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Lecture séquentielle d'un dossier {@link ScanJournal}: segments dans l'ordre, mappés en lecture
+ * seule, enregistrements copiés en bloc et vérifiés (CRC) un par un. La lecture d'un segment
+ * s'arrête au premier enregistrement absent ou invalide (fin des données, écriture interrompue);
+ * un segment d'une autre version est ignoré.
+ *
+ * Lisible pendant que l'app écrit (les enregistrements en cours d'écriture sont ignorés), ou hors
+ * ligne sur une copie du dossier ({@code JournalExport}).
+ */
+public final class ScanJournalReader {
+
+    /** Reçoit les scans dans l'ordre d'écriture. */
+    public interface Sink {
+        void accept(ScanJournal.Entry entry) throws IOException;
+    }
+
+    private ScanJournalReader() {
+    }
+
+    /**
+     * Lit tous les scans du dossier.
+     *
+     * @return le nombre de scans lus
+     */
+    public static long read(File directory, Sink sink) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] record = new byte[ScanJournal.MAX_RECORD_BYTES];
+        long[] count = new long[1];
+        Sink counting = entry -> {
+            count[0]++;
+            sink.accept(entry);
+        };
+        for (int index : ScanJournal.segmentIndexes(directory)) {
+            try (RandomAccessFile raf = new RandomAccessFile(ScanJournal.segmentFile(directory, index), "r")) {
+                long size = Math.min(raf.length(), Integer.MAX_VALUE);
+                if (size < ScanJournal.HEADER_BYTES) {
+                    continue;
+                }
+                MappedByteBuffer segment = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+                if (segment.getInt(0) != ScanJournal.MAGIC || segment.getShort(4) != ScanJournal.VERSION) {
+                    continue;
+                }
+                endOf(segment, ScanJournal.HEADER_BYTES, crc, record, counting);
+            }
+        }
+        return count[0];
+    }
+
+    /**
+     * Parcourt les enregistrements valides à partir de {@code start}.
+     *
+     * @param record tampon de {@link ScanJournal#MAX_RECORD_BYTES} octets
+     * @param sink   null pour seulement trouver la fin
+     * @return la position qui suit le dernier enregistrement valide
+     */
+    static int endOf(ByteBuffer segment, int start, CRC32 crc, byte[] record, Sink sink) throws IOException {
+        ByteBuffer view = segment.duplicate();
+        int limit = segment.capacity();
+        int position = start;
+        while (position + ScanJournal.RECORD_HEADER_BYTES <= limit) {
+            int length = segment.getInt(position);
+            if (length <= 0 || length > record.length
+                    || position + ScanJournal.RECORD_HEADER_BYTES + length > limit) {
+                break;
+            }
+            view.position(position + ScanJournal.RECORD_HEADER_BYTES);
+            view.get(record, 0, length);
+            crc.reset();
+            crc.update(record, 0, length);
+            if ((int) crc.getValue() != segment.getInt(position + 4)) {
+                break;
+            }
+            if (sink != null) {
+                sink.accept(decode(record, length));
+            }
+            position += ScanJournal.RECORD_HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private static ScanJournal.Entry decode(byte[] record, int length) {
+        ByteBuffer in = ByteBuffer.wrap(record, 0, length);
+        long timeMillis = in.getLong();
+        int latencyMicros = in.getInt();
+        String type = getString(in, in.get() & 0xFF);
+        String source = getString(in, in.get() & 0xFF);
+        String value = getString(in, in.getShort() & 0xFFFF);
+        return new ScanJournal.Entry(timeMillis, latencyMicros, type, value, source);
+    }
+
+    private static String getString(ByteBuffer in, int length) {
+        String s = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return s;
+    }
+}
@@ -0,0 +1,442 @@
+package com.example.msidecoder.scanner;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Métriques du pipeline de scan: latence par étape, tentatives par branche de la cascade ZXing,
+ * frames perdus, temps jusqu'au premier décodage, articles scannés par minute.
+ * Le lancement de l'app (durée de la chauffe des moteurs, temps jusqu'au premier scan) est
+ * enregistré même désactivé et n'est pas remis à zéro avec la session.
+ *
+ * Désactivé par défaut: {@link #start()} renvoie 0 sans lire l'horloge et tous les
+ * enregistrements sont ignorés, le coût se limite alors à la lecture d'un booléen volatile.
+ * Activé, tout est en compteurs atomiques de taille fixe (aucune allocation par frame).
+ * {@link #snapshot()} produit une copie figée, lisible depuis l'UI ou les outils.
+ */
+public final class ScanMetrics {
+
+    public enum Stage {
+        /** Adaptation du frame CameraX et de la ROI avant lancement des moteurs. */
+        FRAME_SETUP,
+        /** Pré-détection de présence de barres (plan Y sous-échantillonné). */
+        PRESENCE,
+        /** Vue redressée + recadrage ROI (remplace l'ancienne copie/rotation du plan Y). */
+        ROI_SETUP,
+        /** Binarisation des lignes d'échantillonnage. */
+        BINARIZE,
+        MSI,
+        ZXING,
+        /** Entrée MLKit: copie de la région retenue, ou image complète. */
+        MLKIT_INPUT,
+        /** Aller-retour {@code process()} MLKit. */
+        MLKIT,
+        /** Délai entre la publication d'un état et son exécution sur le thread UI. */
+        UI_DISPATCH,
+        /** Frame complet, de {@code analyze()} à la fin du dernier moteur. */
+        FRAME
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private volatile boolean enabled;
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[STAGES.length];
+    private final AtomicLongArray decodes = new AtomicLongArray(STAGES.length);
+    private final AtomicLongArray branchAttempts;
+    private final AtomicLongArray branchSuccesses;
+    private final String[] branchLabels;
+
+    private final AtomicLong framesAnalyzed = new AtomicLong();
+    private final AtomicLong framesSkippedBusy = new AtomicLong();
+    private final AtomicLong framesEmpty = new AtomicLong();
+    private final AtomicLong framesBlurred = new AtomicLong();
+    private final AtomicLong framesSkippedIdle = new AtomicLong();
+    private final AtomicLong framesDropped = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong symbols = new AtomicLong();
+    private final AtomicLong lastTimestampNanos = new AtomicLong();
+    private final AtomicLong minIntervalNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong sessionStartNanos = new AtomicLong();
+    private final AtomicLong firstDecodeNanos = new AtomicLong(-1L);
+    private final AtomicLong launchNanos = new AtomicLong();
+    private final AtomicLong launchFirstDecodeNanos = new AtomicLong(-1L);
+    private final AtomicLong warmupNanos = new AtomicLong(-1L);
+
+    public ScanMetrics() {
+        this(DecodePipeline.ZXING_SLOT_LABELS);
+    }
+
+    public ScanMetrics(String[] branchLabels) {
+        this.branchLabels = branchLabels.clone();
+        this.branchAttempts = new AtomicLongArray(branchLabels.length);
+        this.branchSuccesses = new AtomicLongArray(branchLabels.length);
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        if (enabled && !this.enabled) {
+            reset();
+        }
+        this.enabled = enabled;
+    }
+
+    /** Horodatage de début d'étape, ou 0 si les métriques sont désactivées. */
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public void stop(Stage stage, long startNanos) {
+        if (startNanos != 0L) {
+            histograms[stage.ordinal()].record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public void record(Stage stage, long nanos) {
+        if (enabled) {
+            histograms[stage.ordinal()].record(nanos);
+        }
+    }
+
+    /**
+     * Frame reçu par l'analyseur. Les trous de timestamps plus grands que l'intervalle minimal
+     * observé sont comptés comme frames perdus (STRATEGY_KEEP_ONLY_LATEST ne les signale pas).
+     */
+    public void recordFrame(long timestampNanos) {
+        if (!enabled) {
+            return;
+        }
+        framesAnalyzed.incrementAndGet();
+        sessionStartNanos.compareAndSet(0L, System.nanoTime());
+        long last = lastTimestampNanos.getAndSet(timestampNanos);
+        if (last == 0L || timestampNanos <= last) {
+            return;
+        }
+        long interval = timestampNanos - last;
+        long min = minIntervalNanos.get();
+        if (interval < min) {
+            minIntervalNanos.compareAndSet(min, interval);
+            return;
+        }
+        long missed = Math.round(interval / (double) min) - 1;
+        if (missed > 0) {
+            framesDropped.addAndGet(missed);
+        }
+    }
+
+    /** Frame refermé sans traitement car le précédent était encore en cours. */
+    public void recordSkippedBusy() {
+        if (enabled) {
+            framesSkippedBusy.incrementAndGet();
+        }
+    }
+
+    /** Frame écarté par la pré-détection (aucune structure): aucun moteur lancé. */
+    public void recordEmptyFrame() {
+        if (enabled) {
+            framesEmpty.incrementAndGet();
+        }
+    }
+
+    /** Frame écarté par le filtre de netteté. */
+    public void recordBlurredFrame() {
+        if (enabled) {
+            framesBlurred.incrementAndGet();
+        }
+    }
+
+    /** Frame refermé sans analyse par la cadence réduite (veille, {@link AnalysisController}). */
+    public void recordSkippedIdle() {
+        if (enabled) {
+            framesSkippedIdle.incrementAndGet();
+        }
+    }
+
+    public void recordAttempt(int branch) {
+        if (enabled) {
+            branchAttempts.incrementAndGet(branch);
+        }
+    }
+
+    public void recordBranchSuccess(int branch) {
+        if (enabled) {
+            branchSuccesses.incrementAndGet(branch);
+        }
+    }
+
+    /** Décodage réussi par un moteur (MSI, ZXING ou MLKIT). */
+    public void recordDecode(Stage engine) {
+        long launch = launchNanos.get();
+        if (launch != 0L && launchFirstDecodeNanos.get() < 0L) {
+            launchFirstDecodeNanos.compareAndSet(-1L, System.nanoTime() - launch);
+        }
+        if (!enabled) {
+            return;
+        }
+        decodes.incrementAndGet(engine.ordinal());
+        long start = sessionStartNanos.get();
+        if (start != 0L) {
+            firstDecodeNanos.compareAndSet(-1L, System.nanoTime() - start);
+        }
+    }
+
+    /** Origine du temps jusqu'au premier décodage (sinon: premier frame reçu). */
+    public void markSessionStart(long nanoTime) {
+        sessionStartNanos.set(nanoTime);
+    }
+
+    /** Lancement de l'app: origine du temps jusqu'au premier scan (enregistré même désactivé). */
+    public void markLaunch(long nanoTime) {
+        launchNanos.set(nanoTime);
+        launchFirstDecodeNanos.set(-1L);
+    }
+
+    /** Durée de la chauffe des moteurs au lancement (enregistrée même désactivé). */
+    public void recordWarmup(long nanos) {
+        warmupNanos.set(nanos);
+    }
+
+    /** Symboles distincts remis à l'UI (débit de lecture en articles par minute). */
+    public void recordSymbols(int count) {
+        if (enabled) {
+            symbols.addAndGet(count);
+        }
+    }
+
+    public void recordAllocatedBytes(long bytes) {
+        if (enabled) {
+            allocatedBytes.addAndGet(bytes);
+        }
+    }
+
+    public void reset() {
+        for (LatencyHistogram h : histograms) {
+            h.reset();
+        }
+        for (int i = 0; i < STAGES.length; i++) {
+            decodes.set(i, 0L);
+        }
+        for (int i = 0; i < branchLabels.length; i++) {
+            branchAttempts.set(i, 0L);
+            branchSuccesses.set(i, 0L);
+        }
+        framesAnalyzed.set(0L);
+        framesSkippedBusy.set(0L);
+        framesEmpty.set(0L);
+        framesBlurred.set(0L);
+        framesSkippedIdle.set(0L);
+        framesDropped.set(0L);
+        allocatedBytes.set(0L);
+        symbols.set(0L);
+        lastTimestampNanos.set(0L);
+        minIntervalNanos.set(Long.MAX_VALUE);
+        sessionStartNanos.set(0L);
+        firstDecodeNanos.set(-1L);
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /** Copie figée des métriques. */
+    public static final class Snapshot {
+
+        private final long[] counts = new long[STAGES.length];
+        private final double[] meanMs = new double[STAGES.length];
+        private final double[] p50Ms = new double[STAGES.length];
+        private final double[] p95Ms = new double[STAGES.length];
+        private final double[] maxMs = new double[STAGES.length];
+        private final long[] decodes = new long[STAGES.length];
+        private final String[] branchLabels;
+        private final long[] branchAttempts;
+        private final long[] branchSuccesses;
+        private final long framesAnalyzed;
+        private final long framesSkippedBusy;
+        private final long framesEmpty;
+        private final long framesBlurred;
+        private final long framesSkippedIdle;
+        private final long framesDropped;
+        private final long allocatedBytes;
+        private final double timeToFirstDecodeMs;
+        private final double launchToFirstDecodeMs;
+        private final double warmupMs;
+        private final long symbols;
+        private final double symbolsPerMinute;
+
+        private Snapshot(ScanMetrics m) {
+            for (int i = 0; i < STAGES.length; i++) {
+                LatencyHistogram h = m.histograms[i];
+                counts[i] = h.getCount();
+                meanMs[i] = h.getMeanMillis();
+                p50Ms[i] = h.getPercentileMillis(0.50);
+                p95Ms[i] = h.getPercentileMillis(0.95);
+                maxMs[i] = h.getMaxMillis();
+                decodes[i] = m.decodes.get(i);
+            }
+            branchLabels = m.branchLabels;
+            branchAttempts = new long[branchLabels.length];
+            branchSuccesses = new long[branchLabels.length];
+            for (int i = 0; i < branchLabels.length; i++) {
+                branchAttempts[i] = m.branchAttempts.get(i);
+                branchSuccesses[i] = m.branchSuccesses.get(i);
+            }
+            framesAnalyzed = m.framesAnalyzed.get();
+            framesSkippedBusy = m.framesSkippedBusy.get();
+            framesEmpty = m.framesEmpty.get();
+            framesBlurred = m.framesBlurred.get();
+            framesSkippedIdle = m.framesSkippedIdle.get();
+            framesDropped = m.framesDropped.get();
+            allocatedBytes = m.allocatedBytes.get();
+            long first = m.firstDecodeNanos.get();
+            timeToFirstDecodeMs = first < 0 ? -1.0 : first / 1e6;
+            long launchFirst = m.launchFirstDecodeNanos.get();
+            launchToFirstDecodeMs = launchFirst < 0 ? -1.0 : launchFirst / 1e6;
+            long warmup = m.warmupNanos.get();
+            warmupMs = warmup < 0 ? -1.0 : warmup / 1e6;
+            symbols = m.symbols.get();
+            long start = m.sessionStartNanos.get();
+            long elapsed = start == 0L ? 0L : System.nanoTime() - start;
+            symbolsPerMinute = elapsed > 0L ? symbols * 60e9 / elapsed : 0.0;
+        }
+
+        public long getCount(Stage stage) {
+            return counts[stage.ordinal()];
+        }
+
+        public double getMeanMillis(Stage stage) {
+            return meanMs[stage.ordinal()];
+        }
+
+        public double getP50Millis(Stage stage) {
+            return p50Ms[stage.ordinal()];
+        }
+
+        public double getP95Millis(Stage stage) {
+            return p95Ms[stage.ordinal()];
+        }
+
+        public double getMaxMillis(Stage stage) {
+            return maxMs[stage.ordinal()];
+        }
+
+        public long getDecodes(Stage engine) {
+            return decodes[engine.ordinal()];
+        }
+
+        public int getBranchCount() {
+            return branchLabels.length;
+        }
+
+        public String getBranchLabel(int branch) {
+            return branchLabels[branch];
+        }
+
+        public long getBranchAttempts(int branch) {
+            return branchAttempts[branch];
+        }
+
+        public long getBranchSuccesses(int branch) {
+            return branchSuccesses[branch];
+        }
+
+        public long getFramesAnalyzed() {
+            return framesAnalyzed;
+        }
+
+        public long getFramesSkippedBusy() {
+            return framesSkippedBusy;
+        }
+
+        public long getFramesEmpty() {
+            return framesEmpty;
+        }
+
+        public long getFramesBlurred() {
+            return framesBlurred;
+        }
+
+        public long getFramesSkippedIdle() {
+            return framesSkippedIdle;
+        }
+
+        public long getFramesDropped() {
+            return framesDropped;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        public long getSymbols() {
+            return symbols;
+        }
+
+        /** Symboles distincts par minute depuis le début de la session. */
+        public double getSymbolsPerMinute() {
+            return symbolsPerMinute;
+        }
+
+        /** Temps jusqu'au premier décodage en ms, ou -1 si rien n'a encore été décodé. */
+        public double getTimeToFirstDecodeMillis() {
+            return timeToFirstDecodeMs;
+        }
+
+        /** Temps du lancement de l'app au premier décodage en ms, ou -1 (pas encore, ou lancement non marqué). */
+        public double getLaunchToFirstDecodeMillis() {
+            return launchToFirstDecodeMs;
+        }
+
+        /** Durée de la chauffe des moteurs en ms, ou -1 si elle n'a pas (encore) eu lieu. */
+        public double getWarmupMillis() {
+            return warmupMs;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.ROOT, "frames=%d perdus=%d ignorés(occupé)=%d veille=%d vides=%d flous=%d 1er décodage=%s%n",
+                    framesAnalyzed, framesDropped, framesSkippedBusy, framesSkippedIdle, framesEmpty, framesBlurred,
+                    millis(timeToFirstDecodeMs)));
+            if (warmupMs >= 0 || launchToFirstDecodeMs >= 0) {
+                sb.append(String.format(Locale.ROOT, "lancement: chauffe=%s 1er scan=%s%n",
+                        millis(warmupMs), millis(launchToFirstDecodeMs)));
+            }
+            for (Stage stage : STAGES) {
+                int i = stage.ordinal();
+                if (counts[i] == 0) {
+                    continue;
+                }
+                sb.append(String.format(Locale.ROOT, "%-11s n=%-6d moy=%.2f p50<%.2f p95<%.2f max=%.2f ms",
+                        stage, counts[i], meanMs[i], p50Ms[i], p95Ms[i], maxMs[i]));
+                if (decodes[i] > 0) {
+                    sb.append(" ok=").append(decodes[i]);
+                }
+                sb.append('\n');
+            }
+            for (int i = 0; i < branchLabels.length; i++) {
+                if (branchAttempts[i] > 0) {
+                    sb.append(String.format(Locale.ROOT, "  %-16s %d/%d%n",
+                            branchLabels[i], branchSuccesses[i], branchAttempts[i]));
+                }
+            }
+            if (symbols > 0) {
+                sb.append(String.format(Locale.ROOT, "articles=%d (%.1f/min)%n", symbols, symbolsPerMinute));
+            }
+            if (allocatedBytes > 0 && framesAnalyzed > 0) {
+                sb.append(String.format(Locale.ROOT, "alloc=%d o/frame%n", allocatedBytes / framesAnalyzed));
+            }
+            return sb.toString();
+        }
+
+        private static String millis(double ms) {
+            return ms < 0 ? "-" : String.format(Locale.ROOT, "%.0f ms", ms);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.msidecoder.scanner;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Trace de diagnostic du chemin de décodage, à la place des {@code Log.d} par tentative.
+ *
+ * Filtrée par niveau: à {@link Level#OFF} (défaut), {@link #isEnabled(Level)} se résume à la
+ * lecture d'un champ volatile et rien n'est écrit. Activée, chaque événement est rangé dans un
+ * anneau préalloué (tableaux parallèles de primitives + une référence déjà existante: valeur
+ * décodée, exception), sans formatage ni allocation. Le texte n'est produit qu'au {@link #dump}.
+ *
+ * Plusieurs threads peuvent écrire en même temps; un emplacement réécrit pendant le dump est
+ * simplement ignoré.
+ */
+public final class ScanTrace {
+
+    public enum Level { OFF, ERROR, DEBUG, VERBOSE }
+
+    public enum Event {
+        /** a = largeur, b = hauteur, c = rotation. */
+        FRAME,
+        /** a = x, b = y, c = largeur << 32 | hauteur (coordonnées écran). */
+        ROI,
+        /** a = slot de la cascade ZXing, b = 1 si décodé, c = durée ns. */
+        ZXING_ATTEMPT,
+        /** b = 1 si décodé, c = durée ns. */
+        MSI_PASS,
+        /** a = moteur ({@link ScanMetrics.Stage}), détail = valeur. */
+        DECODED,
+        /** a = moteur, détail = exception. */
+        ENGINE_ERROR,
+        /** Détail = valeur déjà émise récemment. */
+        DUPLICATE,
+        NO_RESULT
+    }
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final Event[] EVENTS = Event.values();
+    private static final ScanMetrics.Stage[] STAGES = ScanMetrics.Stage.values();
+
+    private volatile Level level = Level.OFF;
+
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+    // seqs[i] = numéro de l'événement stocké + 1 (0: vide, -1: écriture en cours)
+    private final long[] seqs;
+    private final long[] times;
+    private final byte[] events;
+    private final int[] argA;
+    private final int[] argB;
+    private final long[] argC;
+    private final Object[] details;
+
+    public ScanTrace() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /** @param capacity arrondie à la puissance de 2 supérieure */
+    public ScanTrace(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        seqs = new long[size];
+        times = new long[size];
+        events = new byte[size];
+        argA = new int[size];
+        argB = new int[size];
+        argC = new long[size];
+        details = new Object[size];
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    public boolean isEnabled(Level at) {
+        return at.ordinal() <= level.ordinal() && at != Level.OFF;
+    }
+
+    /** Horloge pour mesurer une durée, ou 0 si le niveau VERBOSE est inactif. */
+    public long start() {
+        return isEnabled(Level.VERBOSE) ? System.nanoTime() : 0L;
+    }
+
+    public static long elapsedSince(long start) {
+        return start == 0L ? 0L : System.nanoTime() - start;
+    }
+
+    public void record(Level at, Event event, int a, int b, long c) {
+        record(at, event, a, b, c, null);
+    }
+
+    public void record(Level at, Event event, int a, int b, long c, Object detail) {
+        if (!isEnabled(at)) {
+            return;
+        }
+        long seq = sequence.getAndIncrement();
+        int i = (int) (seq & mask);
+        seqs[i] = -1L;
+        times[i] = System.nanoTime();
+        events[i] = (byte) event.ordinal();
+        argA[i] = a;
+        argB[i] = b;
+        argC[i] = c;
+        details[i] = detail;
+        seqs[i] = seq + 1;
+    }
+
+    public void clear() {
+        for (int i = 0; i < seqs.length; i++) {
+            seqs[i] = 0L;
+            details[i] = null;
+        }
+    }
+
+    /** Événements conservés, du plus ancien au plus récent, une ligne par événement. */
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        dump(out);
+        return out.toString();
+    }
+
+    public void dump(StringBuilder out) {
+        long end = sequence.get();
+        long begin = Math.max(0L, end - seqs.length);
+        long origin = 0L;
+        for (long seq = begin; seq < end; seq++) {
+            int i = (int) (seq & mask);
+            if (seqs[i] != seq + 1) {
+                continue;
+            }
+            long time = times[i];
+            Event event = EVENTS[events[i]];
+            int a = argA[i];
+            int b = argB[i];
+            long c = argC[i];
+            Object detail = details[i];
+            if (seqs[i] != seq + 1) {
+                continue;
+            }
+            if (origin == 0L) {
+                origin = time;
+            }
+            out.append(String.format(Locale.ROOT, "+%9.3f ms %-13s ", (time - origin) / 1e6, event));
+            appendArgs(out, event, a, b, c, detail);
+            out.append('\n');
+        }
+    }
+
+    private static void appendArgs(StringBuilder out, Event event, int a, int b, long c, Object detail) {
+        switch (event) {
+            case FRAME:
+                out.append(a).append('x').append(b).append(" rot=").append(c);
+                break;
+            case ROI:
+                out.append("x=").append(a).append(" y=").append(b)
+                        .append(' ').append(c >>> 32).append('x').append(c & 0xFFFFFFFFL);
+                break;
+            case ZXING_ATTEMPT:
+                out.append(a >= 0 && a < DecodePipeline.ZXING_SLOT_LABELS.length
+                        ? DecodePipeline.ZXING_SLOT_LABELS[a] : String.valueOf(a));
+                out.append(b != 0 ? " ok " : " échec ");
+                out.append(String.format(Locale.ROOT, "%.2f ms", c / 1e6));
+                break;
+            case MSI_PASS:
+                out.append(b != 0 ? "ok " : "échec ");
+                out.append(String.format(Locale.ROOT, "%.2f ms", c / 1e6));
+                break;
+            case DECODED:
+            case ENGINE_ERROR:
+                out.append(a >= 0 && a < STAGES.length ? STAGES[a].name() : String.valueOf(a));
+                if (detail instanceof Throwable) {
+                    Throwable t = (Throwable) detail;
+                    out.append(' ').append(t.getClass().getSimpleName()).append(": ").append(t.getMessage());
+                } else if (detail != null) {
+                    out.append(' ').append(detail);
+                }
+                break;
+            case DUPLICATE:
+                out.append(detail);
+                break;
+            default:
+                break;
+        }
+    }
+}
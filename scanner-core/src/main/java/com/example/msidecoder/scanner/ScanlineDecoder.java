@@ -0,0 +1,222 @@
+package com.example.msidecoder.scanner;
+
+import com.google.zxing.Binarizer;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.ReaderException;
+import com.google.zxing.Result;
+import com.google.zxing.ResultPoint;
+import com.google.zxing.common.BitArray;
+import com.google.zxing.common.GlobalHistogramBinarizer;
+import com.google.zxing.oned.OneDReader;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lecture 1D par lignes d'échantillonnage, sans jamais construire d'image pivotée.
+ *
+ * Les lignes (ROWS) sont lues sur la source telle quelle, les colonnes (COLUMNS) sur une vue
+ * pivotée d'un quart de tour ({@link YPlaneLuminanceSource} ne copie rien). Chaque ligne est
+ * binarisée une seule fois puis essayée dans les deux sens de lecture; la lecture inversée
+ * (bandes claires sur fond sombre) retourne simplement les bits de la même {@link BitArray}.
+ * Avec un {@link RowBinarizer} associé au frame ({@link #setRowBinarizer}), les lignes d'une
+ * {@link YPlaneLuminanceSource} sont prises dans sa binarisation partagée au lieu d'être seuillées
+ * à nouveau; {@code GlobalHistogramBinarizer} reste utilisé pour les autres sources.
+ *
+ * {@code maxScanlines} lignes réparties sur toute la hauteur de la source, à partir du centre; les
+ * hints sont ceux de {@code decodeRow} ({@code TRY_HARDER}, propre au balayage d'une image
+ * complète, n'a pas d'effet ici).
+ *
+ * Une instance réutilise ses BitArray: à utiliser depuis un seul thread.
+ */
+public class ScanlineDecoder {
+
+    public enum Direction { ROWS, COLUMNS }
+
+    public static final int DEFAULT_SCANLINES = 15;
+
+    private final OneDReader reader;
+    private final Map<DecodeHintType, ?> hints;
+    private final int maxScanlines;
+    private final ScanMetrics metrics;
+
+    private BitArray rowBits = new BitArray(0);
+
+    // Binarisation partagée du frame (null ou détachée: GlobalHistogramBinarizer par ligne)
+    private RowBinarizer rowBinarizer;
+    private final int[] sensorLine = new int[4];
+
+    // Position du dernier décodage, en coordonnées de la source orientée (voir getLast*)
+    private int lastLine = -1;
+    private int lastStart;
+    private int lastEnd;
+    private int lastCodewords;
+
+    public ScanlineDecoder(OneDReader reader, Map<DecodeHintType, ?> hints) {
+        this(reader, hints, DEFAULT_SCANLINES);
+    }
+
+    public ScanlineDecoder(OneDReader reader, Map<DecodeHintType, ?> hints, int maxScanlines) {
+        this(reader, hints, maxScanlines, null);
+    }
+
+    /** @param metrics si non null, reçoit le temps de binarisation de chaque ligne (étape BINARIZE) */
+    public ScanlineDecoder(OneDReader reader, Map<DecodeHintType, ?> hints, int maxScanlines,
+                           ScanMetrics metrics) {
+        this.reader = reader;
+        this.hints = hints;
+        this.maxScanlines = maxScanlines;
+        this.metrics = metrics;
+    }
+
+    /** Binarisation partagée du frame, null pour seuiller chaque ligne (GlobalHistogramBinarizer). */
+    public void setRowBinarizer(RowBinarizer rowBinarizer) {
+        this.rowBinarizer = rowBinarizer;
+    }
+
+    /**
+     * Balaye la source dans la direction demandée.
+     *
+     * @param inverted  lire en polarité inversée (bandes claires sur fond sombre)
+     * @param cancelled si non null, vérifié entre deux lignes: abandon dès qu'il passe à true
+     * @return le texte décodé ou null
+     */
+    public String decode(LuminanceSource source, Direction direction, boolean inverted,
+                         AtomicBoolean cancelled) {
+        lastLine = -1;
+        LuminanceSource oriented = direction == Direction.COLUMNS
+                ? source.rotateCounterClockwise()
+                : source;
+        RowBinarizer shared = rowBinarizer != null && rowBinarizer.isBound()
+                && oriented instanceof YPlaneLuminanceSource ? rowBinarizer : null;
+        Binarizer binarizer = shared == null ? new GlobalHistogramBinarizer(oriented) : null;
+
+        int width = oriented.getWidth();
+        int height = oriented.getHeight();
+        if (rowBits.getSize() != width) {
+            rowBits = new BitArray(width);
+        }
+
+        // Ligne centrale puis alternativement au-dessus/au-dessous, réparties sur toute la hauteur
+        // (OneDReader sans TRY_HARDER ne couvre que le tiers central, avec TRY_HARDER toutes les
+        // lignes): un symbole loin du centre d'un crop large reste lu en maxScanlines lignes
+        int middle = height >> 1;
+        int step = Math.max(1, height / (maxScanlines + 1));
+        for (int i = 0; i < maxScanlines; i++) {
+            if (cancelled != null && cancelled.get()) {
+                return null;
+            }
+            int offset = ((i + 1) / 2) * step;
+            int y = (i & 1) == 0 ? middle + offset : middle - offset;
+            if (y < 0 || y >= height) {
+                break;
+            }
+
+            BitArray row = rowBits;
+            long t0 = metrics != null ? metrics.start() : 0L;
+            try {
+                if (shared != null) {
+                    ((YPlaneLuminanceSource) oriented).sensorLine(y, sensorLine);
+                    if (!shared.getRow(sensorLine[0] == 1, sensorLine[1], sensorLine[2], width,
+                            sensorLine[3] == 1, row)) {
+                        continue;
+                    }
+                } else {
+                    row = binarizer.getBlackRow(y, rowBits);
+                }
+            } catch (NotFoundException e) {
+                continue;
+            } finally {
+                if (metrics != null) {
+                    metrics.stop(ScanMetrics.Stage.BINARIZE, t0);
+                }
+            }
+
+            if (inverted) {
+                invert(row);
+            }
+            String text = decodeBothWays(y, row);
+            if (text != null) {
+                return text;
+            }
+        }
+        return null;
+    }
+
+    private String decodeBothWays(int y, BitArray row) {
+        String text = decodeRow(y, row, false);
+        if (text == null) {
+            row.reverse();
+            text = decodeRow(y, row, true);
+            row.reverse();
+        }
+        return text;
+    }
+
+    private String decodeRow(int y, BitArray row, boolean reversed) {
+        try {
+            Result result = reader.decodeRow(y, row, hints);
+            if (result == null) {
+                return null;
+            }
+            recordLocation(y, row.getSize(), result.getResultPoints(), reversed);
+            byte[] raw = result.getRawBytes();
+            lastCodewords = raw != null ? raw.length : 0;
+            return result.getText();
+        } catch (ReaderException e) {
+            return null;
+        }
+    }
+
+    // Les lecteurs 1D rendent les extrémités du symbole sur la ligne, dans le repère de la BitArray lue
+    private void recordLocation(int y, int size, ResultPoint[] points, boolean reversed) {
+        if (points == null || points.length < 2 || points[0] == null || points[points.length - 1] == null) {
+            return;
+        }
+        int a = Math.round(points[0].getX());
+        int b = Math.round(points[points.length - 1].getX());
+        if (reversed) {
+            a = size - 1 - a;
+            b = size - 1 - b;
+        }
+        lastLine = y;
+        lastStart = Math.max(0, Math.min(a, b));
+        lastEnd = Math.min(size - 1, Math.max(a, b));
+    }
+
+    /**
+     * Ligne du dernier décodage réussi, dans la source orientée (la source elle-même pour ROWS,
+     * sa vue pivotée d'un quart de tour anti-horaire pour COLUMNS), ou -1 si inconnue.
+     */
+    public int getLastLine() {
+        return lastLine;
+    }
+
+    /** Début du symbole sur {@link #getLastLine()} (abscisse dans la source orientée). */
+    public int getLastStart() {
+        return lastStart;
+    }
+
+    /** Fin du symbole sur {@link #getLastLine()}. */
+    public int getLastEnd() {
+        return lastEnd;
+    }
+
+    /**
+     * Nombre de caractères symbole du dernier décodage (Code 128: start, données et contrôle,
+     * {@code Result.getRawBytes()}), ou 0 si le lecteur ne le fournit pas.
+     */
+    public int getLastCodewords() {
+        return lastCodewords;
+    }
+
+    // Les bits au-delà de getSize() sont ignorés par les lecteurs 1D (getNextSet/getNextUnset bornés)
+    private static void invert(BitArray row) {
+        int[] words = row.getBitArray();
+        for (int i = 0; i < words.length; i++) {
+            words[i] = ~words[i];
+        }
+    }
+}
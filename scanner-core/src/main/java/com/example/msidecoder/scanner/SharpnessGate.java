@@ -0,0 +1,90 @@
+package com.example.msidecoder.scanner;
+
+/**
+ * Filtre de netteté: décide, frame par frame, si un frame vaut la peine d'être décodé.
+ *
+ * La netteté est celle de la meilleure région candidate ({@link BarcodePresenceDetector#getSharpness}).
+ * Deux règles, sur les timestamps des frames:
+ * <ul>
+ *   <li>seuil adaptatif: un frame sous {@code ratio} fois le pic récent (atténué de moitié toutes
+ *       les {@code halfLifeNanos}) est flou (bougé, mise au point en cours) et ignoré;</li>
+ *   <li>meilleur frame: dans une fenêtre de {@code windowNanos} après un frame décodé (signalé
+ *       par {@link #onDecoded}), seuls les frames au moins aussi nets (à {@link #BEST_TOLERANCE}
+ *       près) sont décodés. Un frame net lu, suivi de frames plus flous du même symbole, n'est
+ *       pas retenté sur ces derniers; tant que rien n'est lu, aucune fenêtre ne s'ouvre.</li>
+ * </ul>
+ * Le pic s'atténuant, un changement de scène ou d'éclairage ne bloque jamais le décodage
+ * durablement. Une instance n'est pas thread-safe (appelée par le thread d'analyse).
+ */
+public final class SharpnessGate {
+
+    private static final float DEFAULT_RATIO = 0.6f;
+    private static final long DEFAULT_HALF_LIFE_NS = 250_000_000L;
+    private static final long DEFAULT_WINDOW_NS = 150_000_000L;
+    // Frames à 15% du meilleur de la fenêtre: aussi lisibles, utiles au vote MSI multi-frames
+    private static final float BEST_TOLERANCE = 0.85f;
+
+    private final float ratio;
+    private final long halfLifeNanos;
+    private final long windowNanos;
+
+    private boolean hasPeak;
+    private float peak;
+    private long peakTimestampNanos;
+    private boolean hasWindow;
+    private float windowBest;
+    private long windowStartNanos;
+
+    public SharpnessGate() {
+        this(DEFAULT_RATIO, DEFAULT_HALF_LIFE_NS, DEFAULT_WINDOW_NS);
+    }
+
+    /**
+     * @param ratio         fraction du pic récent en dessous de laquelle un frame est ignoré (0..1)
+     * @param halfLifeNanos demi-vie du pic de netteté
+     * @param windowNanos   durée de la fenêtre de sélection du meilleur frame
+     */
+    public SharpnessGate(float ratio, long halfLifeNanos, long windowNanos) {
+        this.ratio = ratio;
+        this.halfLifeNanos = halfLifeNanos;
+        this.windowNanos = windowNanos;
+    }
+
+    /** @return true si le frame doit être décodé */
+    public boolean offer(float sharpness, long timestampNanos) {
+        if (hasPeak && timestampNanos < peakTimestampNanos) {
+            // Horloge repartie en arrière (nouvelle session caméra)
+            reset();
+        }
+        float reference = 0f;
+        if (hasPeak) {
+            reference = peak * (float) Math.pow(0.5, (timestampNanos - peakTimestampNanos) / (double) halfLifeNanos);
+        }
+        if (sharpness >= reference) {
+            peak = sharpness;
+            peakTimestampNanos = timestampNanos;
+            hasPeak = true;
+        } else if (sharpness < ratio * reference) {
+            return false;
+        }
+        boolean windowOpen = hasWindow && timestampNanos - windowStartNanos <= windowNanos;
+        return !windowOpen || sharpness >= BEST_TOLERANCE * windowBest;
+    }
+
+    /**
+     * Frame décodé, de netteté {@code sharpness}: ouvre la fenêtre du meilleur frame à partir de
+     * lui (un décodage dans une fenêtre ouverte la fait repartir de ce frame).
+     */
+    public void onDecoded(float sharpness, long timestampNanos) {
+        windowStartNanos = timestampNanos;
+        windowBest = sharpness;
+        hasWindow = true;
+    }
+
+    public void reset() {
+        hasPeak = false;
+        hasWindow = false;
+        peak = 0f;
+        windowBest = 0f;
+    }
+}
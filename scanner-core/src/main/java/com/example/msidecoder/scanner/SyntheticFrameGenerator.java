@@ -0,0 +1,221 @@
+package com.example.msidecoder.scanner;
+
+import com.google.zxing.oned.Code128Writer;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Génère des frames Y8 synthétiques contenant un symbole MSI (table msi_map de
+ * DOCS/lecture_msi_fines_band.md) ou Code 128 (encodeur ZXing), pour les benchmarks,
+ * le rejeu et la chauffe des moteurs.
+ *
+ * Le symbole est dessiné horizontalement en orientation écran puis stocké en orientation
+ * capteur selon la rotation demandée, comme le ferait CameraX. Flou horizontal (bougé),
+ * bruit gaussien, contraste, inversion et largeur de quiet zone sont paramétrables.
+ * Réglages par setters chaînables; une instance n'est pas thread-safe.
+ */
+public class SyntheticFrameGenerator {
+
+    public enum Symbology { MSI, CODE_128 }
+
+    // Table msi_map (1 = bande noire, 0 = bande blanche)
+    private static final String[] MSI_MAP = {
+            "100100100100", "100100100110", "100100110100", "100100110110", "100110100100",
+            "100110100110", "100110110100", "100110110110", "110100100100", "110100100110"
+    };
+    private static final String MSI_START = "110";
+    private static final String MSI_STOP = "1001";
+
+    private int width = 1280;
+    private int height = 720;
+    private int rotationDegrees = 0;
+    private float moduleWidth = 3f;
+    private int quietZoneModules = 10;
+    private int blurRadius = 0;
+    private float noiseSigma = 0f;
+    private int contrast = 180;
+    private boolean inverted = false;
+    private float centerX = 0.5f;
+    private float centerY = 0.5f;
+    private final Random random;
+
+    public SyntheticFrameGenerator() {
+        this(42L);
+    }
+
+    public SyntheticFrameGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /** Dimensions capteur (avant rotation). */
+    public SyntheticFrameGenerator size(int width, int height) {
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    public SyntheticFrameGenerator rotation(int rotationDegrees) {
+        this.rotationDegrees = rotationDegrees;
+        return this;
+    }
+
+    /** Largeur d'une bande fine en pixels (fractions autorisées). */
+    public SyntheticFrameGenerator moduleWidth(float moduleWidth) {
+        this.moduleWidth = moduleWidth;
+        return this;
+    }
+
+    public SyntheticFrameGenerator quietZone(int modules) {
+        this.quietZoneModules = modules;
+        return this;
+    }
+
+    /** Flou horizontal (boîte de 2 * radius + 1 pixels), simule le bougé le long de la lecture. */
+    public SyntheticFrameGenerator blur(int radius) {
+        this.blurRadius = radius;
+        return this;
+    }
+
+    public SyntheticFrameGenerator noise(float sigma) {
+        this.noiseSigma = sigma;
+        return this;
+    }
+
+    /** Écart entre niveaux sombre et clair (0..255), centré sur 128. */
+    public SyntheticFrameGenerator contrast(int contrast) {
+        this.contrast = contrast;
+        return this;
+    }
+
+    public SyntheticFrameGenerator inverted(boolean inverted) {
+        this.inverted = inverted;
+        return this;
+    }
+
+    /** Centre du symbole en fractions de l'image écran (0.5, 0.5 par défaut). */
+    public SyntheticFrameGenerator position(float centerX, float centerY) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        return this;
+    }
+
+    /** Motif de bandes fines MSI (start + chiffres + stop), sans quiet zone. */
+    public static boolean[] msiModules(String digits) {
+        StringBuilder bits = new StringBuilder(MSI_START);
+        for (int i = 0; i < digits.length(); i++) {
+            bits.append(MSI_MAP[digits.charAt(i) - '0']);
+        }
+        bits.append(MSI_STOP);
+        boolean[] modules = new boolean[bits.length()];
+        for (int i = 0; i < modules.length; i++) {
+            modules[i] = bits.charAt(i) == '1';
+        }
+        return modules;
+    }
+
+    /** Complète des chiffres MSI avec leur check digit modulo 10. */
+    public static String withMod10(String digits) {
+        return digits + MsiDecoder.mod10(digits.toCharArray(), digits.length());
+    }
+
+    /** Motif de modules Code 128 (encodeur ZXing), sans quiet zone. */
+    public static boolean[] code128Modules(String contents) {
+        return new Code128Writer().encode(contents);
+    }
+
+    public Y8Frame render(Symbology symbology, String contents) {
+        boolean[] modules = symbology == Symbology.MSI ? msiModules(contents) : code128Modules(contents);
+        return render(modules);
+    }
+
+    /** Frame uniforme sans symbole (bruit éventuel inclus). */
+    public Y8Frame renderEmpty() {
+        return render(new boolean[0]);
+    }
+
+    public Y8Frame render(boolean[] modules) {
+        boolean quarterTurn = rotationDegrees == 90 || rotationDegrees == 270;
+        int displayWidth = quarterTurn ? height : width;
+        int displayHeight = quarterTurn ? width : height;
+
+        int light = Math.min(255, 128 + contrast / 2);
+        int dark = Math.max(0, 128 - contrast / 2);
+        if (inverted) {
+            int t = light;
+            light = dark;
+            dark = t;
+        }
+
+        // Profil d'une ligne écran: symbole centré, quiet zones incluses
+        int[] profile = new int[displayWidth];
+        float symbolWidth = (modules.length + 2 * quietZoneModules) * moduleWidth;
+        float x0 = displayWidth * centerX - symbolWidth / 2f + quietZoneModules * moduleWidth;
+        for (int x = 0; x < displayWidth; x++) {
+            int m = (int) Math.floor((x + 0.5f - x0) / moduleWidth);
+            profile[x] = m >= 0 && m < modules.length && modules[m] ? dark : light;
+        }
+        if (blurRadius > 0) {
+            profile = boxBlur(profile, blurRadius);
+        }
+
+        // Barres sur la moitié de la hauteur écran, centrées sur centerY
+        int barTop = Math.round(displayHeight * (centerY - 0.25f));
+        int barBottom = barTop + displayHeight / 2;
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(width * height);
+        for (int dy = 0; dy < displayHeight; dy++) {
+            boolean inBars = dy >= barTop && dy < barBottom;
+            for (int dx = 0; dx < displayWidth; dx++) {
+                float v = inBars ? profile[dx] : light;
+                if (noiseSigma > 0f) {
+                    v += (float) random.nextGaussian() * noiseSigma;
+                }
+                int value = Math.max(0, Math.min(255, Math.round(v)));
+                buffer.put(sensorIndex(dx, dy), (byte) value);
+            }
+        }
+        return new Y8Frame(buffer, width, height, rotationDegrees, 0L);
+    }
+
+    // Écran (dx, dy) -> capteur, l'écran étant le capteur tourné de rotationDegrees dans le sens horaire
+    private int sensorIndex(int dx, int dy) {
+        int sx;
+        int sy;
+        switch (rotationDegrees) {
+            case 90:
+                sx = dy;
+                sy = height - 1 - dx;
+                break;
+            case 180:
+                sx = width - 1 - dx;
+                sy = height - 1 - dy;
+                break;
+            case 270:
+                sx = width - 1 - dy;
+                sy = dx;
+                break;
+            default:
+                sx = dx;
+                sy = dy;
+                break;
+        }
+        return sy * width + sx;
+    }
+
+    private static int[] boxBlur(int[] in, int radius) {
+        int[] out = new int[in.length];
+        int n = in.length;
+        for (int x = 0; x < n; x++) {
+            int sum = 0;
+            int count = 0;
+            for (int k = x - radius; k <= x + radius; k++) {
+                int i = k < 0 ? 0 : (k >= n ? n - 1 : k);
+                sum += in[i];
+                count++;
+            }
+            out[x] = sum / count;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.msidecoder.scanner;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link LumaFrame} simple sur un buffer déjà en mémoire (dumps Y8/YUV, frames synthétiques).
+ */
+public final class Y8Frame implements LumaFrame {
+
+    private final ByteBuffer buffer;
+    private final int width;
+    private final int height;
+    private final int rowStride;
+    private final int pixelStride;
+    private final int rotationDegrees;
+    private final long timestampNanos;
+
+    public Y8Frame(ByteBuffer buffer, int width, int height, int rotationDegrees, long timestampNanos) {
+        this(buffer, width, height, width, 1, rotationDegrees, timestampNanos);
+    }
+
+    public Y8Frame(ByteBuffer buffer, int width, int height, int rowStride, int pixelStride,
+                   int rotationDegrees, long timestampNanos) {
+        this.buffer = buffer;
+        this.width = width;
+        this.height = height;
+        this.rowStride = rowStride;
+        this.pixelStride = pixelStride;
+        this.rotationDegrees = rotationDegrees;
+        this.timestampNanos = timestampNanos;
+    }
+
+    @Override
+    public ByteBuffer getYBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getRowStride() {
+        return rowStride;
+    }
+
+    @Override
+    public int getPixelStride() {
+        return pixelStride;
+    }
+
+    @Override
+    public int getRotationDegrees() {
+        return rotationDegrees;
+    }
+
+    @Override
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+}
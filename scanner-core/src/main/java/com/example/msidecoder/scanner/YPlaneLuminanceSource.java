@@ -0,0 +1,205 @@
+package com.example.msidecoder.scanner;
+
+import com.google.zxing.LuminanceSource;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link LuminanceSource} ZXing lisant directement le plan Y (ByteBuffer du PlaneProxy CameraX),
+ * sans copie intermédiaire, en respectant rowStride/pixelStride.
+ *
+ * Le recadrage et les rotations de 90° sont des vues: elles partagent le même buffer et ne font
+ * que changer l'origine et les pas de parcours. Seul {@link #getMatrix()} matérialise les pixels
+ * (utilisé uniquement par les binariseurs 2D).
+ *
+ * Une source et ses vues dérivées partagent la position du buffer: à utiliser depuis un seul thread.
+ */
+public final class YPlaneLuminanceSource extends LuminanceSource {
+
+    private final ByteBuffer buffer;
+    private final int rowStride;
+    private final int pixelStride;
+
+    // Rectangle couvert, en coordonnées capteur
+    private final int left;
+    private final int top;
+    private final int dataWidth;
+    private final int dataHeight;
+
+    // Nombre de quarts de tour anti-horaires appliqués (0..3)
+    private final int rotation;
+
+    // index(x, y) = origin + x * stepX + y * stepY, en coordonnées de la vue
+    private final int origin;
+    private final int stepX;
+    private final int stepY;
+
+    public YPlaneLuminanceSource(ByteBuffer yPlane, int width, int height, int rowStride, int pixelStride) {
+        this(yPlane.duplicate(), rowStride, pixelStride, 0, 0, width, height, 0);
+    }
+
+    private YPlaneLuminanceSource(ByteBuffer buffer, int rowStride, int pixelStride,
+                                  int left, int top, int dataWidth, int dataHeight, int rotation) {
+        super((rotation & 1) == 0 ? dataWidth : dataHeight, (rotation & 1) == 0 ? dataHeight : dataWidth);
+        this.buffer = buffer;
+        this.rowStride = rowStride;
+        this.pixelStride = pixelStride;
+        this.left = left;
+        this.top = top;
+        this.dataWidth = dataWidth;
+        this.dataHeight = dataHeight;
+        this.rotation = rotation;
+
+        int right = dataWidth - 1;
+        int bottom = dataHeight - 1;
+        switch (rotation) {
+            case 1: // (x, y) -> capteur (W-1-y, x)
+                origin = index(right, 0);
+                stepX = rowStride;
+                stepY = -pixelStride;
+                break;
+            case 2: // (x, y) -> capteur (W-1-x, H-1-y)
+                origin = index(right, bottom);
+                stepX = -pixelStride;
+                stepY = -rowStride;
+                break;
+            case 3: // (x, y) -> capteur (y, H-1-x)
+                origin = index(0, bottom);
+                stepX = -rowStride;
+                stepY = pixelStride;
+                break;
+            default:
+                origin = index(0, 0);
+                stepX = pixelStride;
+                stepY = rowStride;
+                break;
+        }
+    }
+
+    private int index(int sx, int sy) {
+        return (top + sy) * rowStride + (left + sx) * pixelStride;
+    }
+
+    @Override
+    public byte[] getRow(int y, byte[] row) {
+        if (y < 0 || y >= getHeight()) {
+            throw new IllegalArgumentException("Requested row is outside the image: " + y);
+        }
+        int width = getWidth();
+        if (row == null || row.length < width) {
+            row = new byte[width];
+        }
+        int offset = origin + y * stepY;
+        if (stepX == 1) {
+            // Chemin rapide: pixels contigus
+            buffer.position(offset);
+            buffer.get(row, 0, width);
+        } else {
+            for (int x = 0; x < width; x++) {
+                row[x] = buffer.get(offset);
+                offset += stepX;
+            }
+        }
+        return row;
+    }
+
+    /**
+     * Ligne capteur parcourue par la ligne {@code y} de la vue, pour {@link RowBinarizer}:
+     * {@code out} = {colonne capteur (1) ou rangée (0), indice, premier pixel le long de la ligne,
+     * parcours inversé (1) ou non (0)}; le segment a la largeur de la vue.
+     */
+    void sensorLine(int y, int[] out) {
+        switch (rotation) {
+            case 1:
+                out[0] = 1;
+                out[1] = left + dataWidth - 1 - y;
+                out[2] = top;
+                out[3] = 0;
+                break;
+            case 2:
+                out[0] = 0;
+                out[1] = top + dataHeight - 1 - y;
+                out[2] = left;
+                out[3] = 1;
+                break;
+            case 3:
+                out[0] = 1;
+                out[1] = left + y;
+                out[2] = top;
+                out[3] = 1;
+                break;
+            default:
+                out[0] = 0;
+                out[1] = top + y;
+                out[2] = left;
+                out[3] = 0;
+                break;
+        }
+    }
+
+    @Override
+    public byte[] getMatrix() {
+        int width = getWidth();
+        int height = getHeight();
+        byte[] matrix = new byte[width * height];
+        byte[] row = null;
+        for (int y = 0; y < height; y++) {
+            row = getRow(y, row);
+            System.arraycopy(row, 0, matrix, y * width, width);
+        }
+        return matrix;
+    }
+
+    @Override
+    public boolean isCropSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource crop(int x, int y, int width, int height) {
+        // Conversion du rectangle de la vue en rectangle capteur
+        int sx;
+        int sy;
+        int sw;
+        int sh;
+        switch (rotation) {
+            case 1:
+                sx = dataWidth - y - height;
+                sy = x;
+                sw = height;
+                sh = width;
+                break;
+            case 2:
+                sx = dataWidth - x - width;
+                sy = dataHeight - y - height;
+                sw = width;
+                sh = height;
+                break;
+            case 3:
+                sx = y;
+                sy = dataHeight - x - width;
+                sw = height;
+                sh = width;
+                break;
+            default:
+                sx = x;
+                sy = y;
+                sw = width;
+                sh = height;
+                break;
+        }
+        return new YPlaneLuminanceSource(buffer, rowStride, pixelStride,
+                left + sx, top + sy, sw, sh, rotation);
+    }
+
+    @Override
+    public boolean isRotateSupported() {
+        return true;
+    }
+
+    @Override
+    public LuminanceSource rotateCounterClockwise() {
+        return new YPlaneLuminanceSource(buffer, rowStride, pixelStride,
+                left, top, dataWidth, dataHeight, (rotation + 1) & 3);
+    }
+}
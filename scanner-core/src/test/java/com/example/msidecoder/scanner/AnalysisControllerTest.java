@@ -0,0 +1,352 @@
+package com.example.msidecoder.scanner;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AnalysisControllerTest {
+
+    private static final long FRAME_NS = 33_333_333L;
+    private static final long LATENCY_NS = 10_000_000L;
+    private static final int FRAME_HEIGHT = 720;
+
+    private AnalysisController controller;
+    // Horloge simulée: timestamp du prochain frame de la caméra
+    private long now;
+    private int resolutionChanges;
+
+    @Before
+    public void setUp() {
+        controller = new AnalysisController();
+        controller.setListener(new AnalysisController.Listener() {
+            @Override
+            public void onResolutionChanged(int width, int height) {
+                resolutionChanges++;
+            }
+        });
+        now = 0L;
+    }
+
+    @Test
+    public void becomesIdleAfterTwoSecondsWithoutBars() {
+        runFor(AnalysisController.IDLE_AFTER_NS - FRAME_NS, false);
+        assertFalse(controller.isIdle());
+        assertEquals(0L, controller.getIntervalNanos());
+
+        runFor(2 * FRAME_NS, false);
+        assertTrue(controller.isIdle());
+        assertEquals(200_000_000L, controller.getIntervalNanos());
+    }
+
+    @Test
+    public void idleCadenceSkipsFrames() {
+        runFor(AnalysisController.IDLE_AFTER_NS + FRAME_NS, false);
+        assertTrue(controller.isIdle());
+
+        // 200 ms à 30 fps: un frame sur 7 (233 ms), 4 par seconde
+        int analyzed = runFor(1_000_000_000L, false);
+        assertEquals(4, analyzed);
+    }
+
+    @Test
+    public void texturedFrameRestoresFullCadence() {
+        runFor(AnalysisController.IDLE_AFTER_NS + FRAME_NS, false);
+        assertTrue(controller.isIdle());
+
+        while (!controller.shouldAnalyze(now)) {
+            now += FRAME_NS;
+        }
+        controller.onFrame(now, FRAME_HEIGHT, LATENCY_NS, true, false, 0f);
+        now += FRAME_NS;
+        assertFalse(controller.isIdle());
+        assertEquals(0L, controller.getIntervalNanos());
+        assertTrue(controller.shouldAnalyze(now));
+    }
+
+    @Test
+    public void thinModulesRaiseResolution() {
+        assertEquals(1, controller.getLevel());
+        long end = now + AnalysisController.EVALUATION_NS + FRAME_NS;
+        while (now < end) {
+            if (controller.shouldAnalyze(now)) {
+                controller.onFrame(now, FRAME_HEIGHT, LATENCY_NS, true, true, 1.5f);
+            }
+            now += FRAME_NS;
+        }
+        assertEquals(2, controller.getLevel());
+        assertEquals(1920, controller.getTargetWidth());
+        assertEquals(1, resolutionChanges);
+    }
+
+    @Test
+    public void wideModulesLowerResolution() {
+        // 4,5 px en 720p: 3 px en 480p, encore confortable
+        long end = now + AnalysisController.EVALUATION_NS + FRAME_NS;
+        while (now < end) {
+            if (controller.shouldAnalyze(now)) {
+                controller.onFrame(now, FRAME_HEIGHT, LATENCY_NS, true, true, 4.5f);
+            }
+            now += FRAME_NS;
+        }
+        assertEquals(0, controller.getLevel());
+        assertEquals(640, controller.getTargetWidth());
+    }
+
+    @Test
+    public void barsWithoutDecodeProbeHigherResolutionThenReturn() {
+        runFor(AnalysisController.EVALUATION_NS + FRAME_NS, true);
+        assertEquals(2, controller.getLevel());
+
+        // Rien lu à la résolution haute: retour à la résolution de départ après le blocage
+        runFor(AnalysisController.DOWN_BLOCK_NS + AnalysisController.EVALUATION_NS, true);
+        assertEquals(1, controller.getLevel());
+        assertEquals(2, resolutionChanges);
+    }
+
+    @Test
+    public void deepIdleAfterThirtySeconds() {
+        runFor(AnalysisController.DEEP_IDLE_AFTER_NS - 500_000_000L, false);
+        assertTrue(controller.isIdle());
+        assertFalse(controller.isDeepIdle());
+
+        runFor(1_000_000_000L, false);
+        assertTrue(controller.isDeepIdle());
+        assertEquals(1_000_000_000L, controller.getIntervalNanos());
+        assertEquals(2, runFor(2_000_000_000L, false));
+    }
+
+    @Test
+    public void motionWakesFromDeepIdle() {
+        runFor(AnalysisController.DEEP_IDLE_AFTER_NS + 1_000_000_000L, false);
+        assertTrue(controller.isDeepIdle());
+
+        controller.onMotion(now);
+        assertFalse(controller.isIdle());
+        assertFalse(controller.isDeepIdle());
+        assertEquals(0L, controller.getIntervalNanos());
+
+        // Sans barres ni mouvement, la veille revient après IDLE_AFTER_NS
+        runFor(AnalysisController.IDLE_AFTER_NS + FRAME_NS, false);
+        assertTrue(controller.isIdle());
+        assertFalse(controller.isDeepIdle());
+    }
+
+    @Test
+    public void thermalStatusCapsCadence() {
+        controller.setThermalStatus(AnalysisController.THERMAL_LIGHT);
+        assertEquals(0L, controller.getIntervalNanos());
+        controller.setThermalStatus(AnalysisController.THERMAL_MODERATE);
+        assertEquals(66_666_666L, controller.getIntervalNanos());
+        controller.setThermalStatus(AnalysisController.THERMAL_SEVERE);
+        assertEquals(100_000_000L, controller.getIntervalNanos());
+
+        // 10 fps au plus, même avec des barres dans le champ: un frame sur 4 à 30 fps (133 ms)
+        assertEquals(8, runFor(1_000_000_000L, true));
+        assertFalse(controller.isIdle());
+
+        // La veille garde son intervalle s'il est plus long
+        runFor(AnalysisController.IDLE_AFTER_NS + 200_000_000L, false);
+        assertEquals(200_000_000L, controller.getIntervalNanos());
+    }
+
+    @Test
+    public void criticalStatusDropsHighestResolution() {
+        controller = new AnalysisController(AnalysisController.DEFAULT_RESOLUTIONS, 2);
+        controller.setListener(new AnalysisController.Listener() {
+            @Override
+            public void onResolutionChanged(int width, int height) {
+                resolutionChanges++;
+            }
+        });
+        controller.setThermalStatus(AnalysisController.THERMAL_SEVERE);
+        assertEquals(2, controller.getLevel());
+        assertEquals(0, resolutionChanges);
+
+        controller.setThermalStatus(AnalysisController.THERMAL_CRITICAL);
+        assertEquals(1, controller.getLevel());
+        assertEquals(1, resolutionChanges);
+        assertEquals(200_000_000L, controller.getIntervalNanos());
+
+        // Bandes trop fines: pas de remontée au-delà du plafond
+        long end = now + 2 * AnalysisController.HOLD_NS;
+        while (now < end) {
+            if (controller.shouldAnalyze(now)) {
+                controller.onFrame(now, FRAME_HEIGHT, LATENCY_NS, true, true, 1.5f);
+            }
+            now += FRAME_NS;
+        }
+        assertEquals(1, controller.getLevel());
+
+        controller.setThermalStatus(AnalysisController.THERMAL_NONE);
+        assertEquals(0L, controller.getIntervalNanos());
+    }
+
+    @Test
+    public void failedClimbIsNotRetriedUntilANewScene() {
+        runFor(AnalysisController.EVALUATION_NS + FRAME_NS, true);
+        runFor(AnalysisController.DOWN_BLOCK_NS + AnalysisController.EVALUATION_NS, true);
+        assertEquals(1, controller.getLevel());
+
+        // Mêmes barres illisibles: pas de nouvelle montée
+        runFor(3 * AnalysisController.DOWN_BLOCK_NS, true);
+        assertEquals(1, controller.getLevel());
+        assertEquals(2, resolutionChanges);
+
+        // Un mouvement annonce une autre scène: la montée est de nouveau tentée
+        controller.onMotion(now);
+        runFor(AnalysisController.HOLD_NS + AnalysisController.EVALUATION_NS, true);
+        assertEquals(2, controller.getLevel());
+    }
+
+    @Test
+    public void finePrintWithoutBarsIdlesAtTheSameResolution() {
+        // Petits caractères: scène texturée, aucune région de barres
+        Scene scene = new Scene(1);
+        runPipelineFor(scene, 3 * AnalysisController.EVALUATION_NS);
+        assertTrue(controller.isIdle());
+        assertEquals(0, scene.decoded);
+        assertEquals(1, controller.getLevel());
+        assertEquals(0, resolutionChanges);
+    }
+
+    @Test
+    public void largePrintTakenForBarsClimbsOnlyOnce() {
+        // Gros caractères: la pré-détection y voit des barres, rien ne se décode
+        Scene scene = new Scene(3);
+        runPipelineFor(scene, AnalysisController.DOWN_BLOCK_NS + 3 * AnalysisController.EVALUATION_NS);
+        assertEquals(0, scene.decoded);
+        assertEquals(1, controller.getLevel());
+        assertEquals(2, resolutionChanges);
+
+        runPipelineFor(scene, AnalysisController.DOWN_BLOCK_NS);
+        assertEquals(1, controller.getLevel());
+        assertEquals(2, resolutionChanges);
+    }
+
+    @Test
+    public void idleRunsNoEngineUntilMotionOrBars() {
+        Scene scene = new Scene(1);
+        runPipelineFor(scene, AnalysisController.IDLE_AFTER_NS + FRAME_NS);
+        assertTrue(controller.isIdle());
+
+        // Veille sur une scène fixe sans barres: ni MLKit ni lecture 1D, même de secours
+        int engineFrames = scene.engineFrames;
+        int analyzed = runPipelineFor(scene, 2_000_000_000L);
+        assertTrue(analyzed > DecodePipeline.FALLBACK_INTERVAL);
+        assertEquals(engineFrames, scene.engineFrames);
+        assertTrue(controller.isIdle());
+
+        // Mouvement (la page est retirée): les moteurs tournent dès le frame qui le voit
+        scene.showBlank();
+        runPipelineFor(scene, AnalysisController.IDLE_AFTER_NS / 2);
+        assertFalse(controller.isIdle());
+        assertTrue(scene.engineFrames > engineFrames);
+
+        // Veille de nouveau, puis un symbole sans mouvement détectable: ses barres suffisent
+        runPipelineFor(scene, AnalysisController.IDLE_AFTER_NS + FRAME_NS);
+        assertTrue(controller.isIdle());
+        scene.showMsi("48334890");
+        scene.motion.reset();
+        runPipelineFor(scene, FRAME_NS * 10);
+        assertFalse(controller.isIdle());
+        assertTrue(scene.decoded > 0);
+    }
+
+    // Frames de la caméra pendant durationNanos; retourne le nombre de frames analysés
+    private int runFor(long durationNanos, boolean textured) {
+        int analyzed = 0;
+        long end = now + durationNanos;
+        while (now < end) {
+            if (controller.shouldAnalyze(now)) {
+                controller.onFrame(now, FRAME_HEIGHT, LATENCY_NS, textured, false, 0f);
+                analyzed++;
+            }
+            now += FRAME_NS;
+        }
+        return analyzed;
+    }
+
+    // Frames rendus à la résolution demandée par le contrôleur et lus par un vrai pipeline, avec
+    // le protocole de l'analyseur (mouvement guetté en veille, état de la pré-détection lu avant
+    // endFrame); retourne le nombre de frames analysés
+    private int runPipelineFor(Scene scene, long durationNanos) {
+        int analyzed = 0;
+        long end = now + durationNanos;
+        scene.pipeline.setAnalysisController(controller);
+        while (now < end) {
+            if (controller.shouldAnalyze(now)) {
+                int width = controller.getTargetWidth();
+                int height = controller.getTargetHeight();
+                Y8Frame frame = new Y8Frame(scene.render(width, height), width, height, 0, now);
+                if (controller.isIdle() && scene.motion.update(frame)) {
+                    controller.onMotion(now);
+                }
+                scene.pipeline.beginFrame(frame);
+                boolean bars = scene.pipeline.hasBarCandidates();
+                boolean decode1D = scene.pipeline.shouldDecode1D();
+                if (decode1D || scene.pipeline.shouldDecodeMlKit()) {
+                    scene.engineFrames++;
+                }
+                boolean decoded = decode1D
+                        && (scene.pipeline.decodeMsi(frame, null) != null
+                        || scene.pipeline.decodeCode128(frame, null) != null);
+                scene.pipeline.endFrame();
+                if (decoded) {
+                    scene.decoded++;
+                }
+                controller.onFrame(now, height, LATENCY_NS, bars, decoded, scene.pipeline.getModuleWidth());
+                analyzed++;
+            }
+            now += FRAME_NS;
+        }
+        return analyzed;
+    }
+
+    // Page de texte fixe devant la caméra (ou fond uni, ou symbole MSI), rendue une fois par
+    // résolution
+    private static final class Scene {
+        final DecodePipeline pipeline = new DecodePipeline();
+        final MotionDetector motion = new MotionDetector();
+        final int scale;
+        int decoded;
+        // Frames où au moins un moteur (MLKit, MSI/ZXing) aurait tourné
+        int engineFrames;
+        private boolean blank;
+        private boolean[] modules;
+        private int width;
+        private ByteBuffer pixels;
+
+        Scene(int scale) {
+            this.scale = scale;
+        }
+
+        void showBlank() {
+            blank = true;
+            pixels = null;
+        }
+
+        void showMsi(String digits) {
+            modules = TestFrames.msi(digits);
+            pixels = null;
+        }
+
+        ByteBuffer render(int width, int height) {
+            if (pixels == null || this.width != width) {
+                this.width = width;
+                if (modules != null) {
+                    pixels = TestFrames.render(modules, 3f, width, height, 0);
+                } else if (blank) {
+                    pixels = TestFrames.blank(width, height);
+                } else {
+                    pixels = TestFrames.text(width, height, scale, 4);
+                }
+            }
+            return pixels;
+        }
+    }
+}
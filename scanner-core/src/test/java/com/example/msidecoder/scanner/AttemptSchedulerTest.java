@@ -0,0 +1,89 @@
+package com.example.msidecoder.scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class AttemptSchedulerTest {
+
+    @Test
+    public void defaultOrderThenRotatingExploration() {
+        AttemptScheduler scheduler = new AttemptScheduler(8, 3);
+        // Deux meilleurs slots, puis un slot d'exploration pris à tour de rôle parmi les 6 autres
+        for (int explore = 2; explore < 8; explore++) {
+            assertPlan(scheduler, 0, 1, explore);
+        }
+        assertPlan(scheduler, 0, 1, 2);
+    }
+
+    @Test
+    public void successfulSlotMovesFirst() {
+        AttemptScheduler scheduler = new AttemptScheduler(8, 3);
+        scheduler.recordAttempt(5);
+        scheduler.recordSuccess(5);
+        assertPlan(scheduler, 5, 0, 1);
+        assertEquals(1L, scheduler.getAttempts(5));
+        assertEquals(1L, scheduler.getSuccesses(5));
+    }
+
+    @Test
+    public void recentSuccessesOutweighOldOnes() {
+        AttemptScheduler scheduler = new AttemptScheduler(8, 3);
+        scheduler.recordSuccess(6);
+        scheduler.recordSuccess(3);
+        // Score de 6 atténué (0,9) au succès de 3 (1)
+        assertPlan(scheduler, 3, 6, 0);
+        scheduler.recordSuccess(6);
+        // Le curseur d'exploration a avancé d'un cran
+        assertPlan(scheduler, 6, 3, 1);
+    }
+
+    @Test
+    public void capAboveSlotCountTriesEverySlot() {
+        AttemptScheduler scheduler = new AttemptScheduler(4, 10);
+        assertEquals(4, scheduler.getMaxAttemptsPerFrame());
+        assertPlan(scheduler, 0, 1, 2, 3);
+    }
+
+    @Test
+    public void unavailableSlotsGiveTheirPlace() {
+        AttemptScheduler scheduler = new AttemptScheduler(8, 3);
+        // Slot 2 en tête du classement, mais absent de ce frame: les trois tentatives restent
+        scheduler.recordSuccess(2);
+        int roiSlots = 0x33;
+        assertMaskedPlan(scheduler, roiSlots, 0, 1, 4);
+        assertMaskedPlan(scheduler, roiSlots, 0, 1, 5);
+        assertMaskedPlan(scheduler, roiSlots, 0, 1, 4);
+        // Disponible de nouveau, il reprend la tête
+        assertMaskedPlan(scheduler, 0x07, 2, 0, 1);
+    }
+
+    @Test
+    public void fewerAvailableSlotsThanTheCap() {
+        AttemptScheduler scheduler = new AttemptScheduler(8, 3);
+        assertMaskedPlan(scheduler, 0x05, 0, 2);
+        assertMaskedPlan(scheduler, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyCap() {
+        new AttemptScheduler(8, 0);
+    }
+
+    private static void assertPlan(AttemptScheduler scheduler, int... expected) {
+        int[] plan = new int[scheduler.getSlotCount()];
+        assertPlan(expected, plan, scheduler.plan(plan));
+    }
+
+    private static void assertMaskedPlan(AttemptScheduler scheduler, int availableMask, int... expected) {
+        int[] plan = new int[scheduler.getSlotCount()];
+        assertPlan(expected, plan, scheduler.plan(plan, availableMask));
+    }
+
+    private static void assertPlan(int[] expected, int[] plan, int count) {
+        int[] actual = new int[count];
+        System.arraycopy(plan, 0, actual, 0, count);
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.msidecoder.scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BarcodePresenceDetectorTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    @Test
+    public void emptySceneHasNoTextureAndNoCandidate() {
+        Y8Frame frame = new SyntheticFrameGenerator(1).size(WIDTH, HEIGHT).noise(4f).renderEmpty();
+        BarcodePresenceDetector detector = new BarcodePresenceDetector();
+        assertEquals(0, detect(detector, frame));
+        assertFalse(detector.isTextured());
+    }
+
+    @Test
+    public void finePrintIsTexturedWithoutCandidate() {
+        // Petits caractères: contraste sur les deux axes dans chaque cellule
+        Y8Frame frame = new Y8Frame(TestFrames.text(WIDTH, HEIGHT, 1, 4), WIDTH, HEIGHT, 0, 0L);
+        BarcodePresenceDetector detector = new BarcodePresenceDetector();
+        assertEquals(0, detect(detector, frame));
+        assertTrue(detector.isTextured());
+    }
+
+    @Test
+    public void barsBecomeACandidateAroundTheSymbol() {
+        Y8Frame frame = new SyntheticFrameGenerator(2).size(WIDTH, HEIGHT).moduleWidth(2.5f).noise(3f)
+                .position(0.3f, 0.5f).render(SyntheticFrameGenerator.Symbology.MSI, "48334890");
+        BarcodePresenceDetector detector = new BarcodePresenceDetector();
+        assertTrue(detect(detector, frame) >= 1);
+        assertTrue(detector.isTextured());
+        assertFalse(detector.isCandidateColumns(0));
+
+        int[] rect = new int[4];
+        detector.getCandidate(0, rect);
+        int centerX = (int) (WIDTH * 0.3f);
+        assertTrue(rect[0] < centerX && centerX < rect[2]);
+        assertTrue(rect[1] < HEIGHT / 2 && HEIGHT / 2 < rect[3]);
+        // La candidate ne couvre pas tout le frame
+        assertTrue(rect[2] - rect[0] < WIDTH * 3 / 4);
+    }
+
+    @Test
+    public void modulesAsWideAsTheSamplingStepAreSeen() {
+        // 3 px en 480p: le pas d'échantillonnage, chaque point tombait dans un module
+        for (long seed = 1; seed <= 4; seed++) {
+            Y8Frame frame = new SyntheticFrameGenerator(seed).size(WIDTH, HEIGHT).moduleWidth(3f)
+                    .render(SyntheticFrameGenerator.Symbology.MSI, "48334890");
+            assertTrue("graine " + seed, detect(new BarcodePresenceDetector(), frame) >= 1);
+        }
+    }
+
+    @Test
+    public void rotatedBarsAreReadByColumns() {
+        Y8Frame frame = new SyntheticFrameGenerator(3).size(WIDTH, HEIGHT).moduleWidth(2.5f).noise(3f)
+                .rotation(90).render(SyntheticFrameGenerator.Symbology.CODE_128, "MSI-128-0042");
+        BarcodePresenceDetector detector = new BarcodePresenceDetector();
+        assertTrue(detect(detector, frame) >= 1);
+        assertTrue(detector.isCandidateColumns(0));
+    }
+
+    private static int detect(BarcodePresenceDetector detector, Y8Frame frame) {
+        return detector.detect(frame.getYBuffer(), frame.getWidth(), frame.getHeight(),
+                frame.getRowStride(), frame.getPixelStride());
+    }
+}
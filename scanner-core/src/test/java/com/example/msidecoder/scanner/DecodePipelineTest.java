@@ -0,0 +1,173 @@
+package com.example.msidecoder.scanner;
+
+import com.example.msidecoder.models.BarcodeResult;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DecodePipelineTest {
+
+    private static final String MSI_VALUE = "48334890";
+    private static final String CODE_128_VALUE = "MSI-128-0042";
+
+    @Test
+    public void decodesMsiAtEveryRotation() {
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            BarcodeResult result = new DecodePipeline().decode(frame(TestFrames.msi(MSI_VALUE), 2.5f, rotation));
+            assertEquals("rotation " + rotation, DecodePipeline.TYPE_MSI, result.getType());
+            assertEquals("rotation " + rotation, MSI_VALUE, result.getValue());
+        }
+    }
+
+    @Test
+    public void decodesCode128AtEveryRotation() {
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            BarcodeResult result = new DecodePipeline().decode(frame(TestFrames.code128(CODE_128_VALUE), 2f, rotation));
+            assertEquals("rotation " + rotation, DecodePipeline.TYPE_CODE_128, result.getType());
+            assertEquals("rotation " + rotation, CODE_128_VALUE, result.getValue());
+        }
+    }
+
+    @Test
+    public void blankFrameDecodesNothing() {
+        assertNull(new DecodePipeline().decode(new Y8Frame(TestFrames.blank(640, 480), 640, 480, 0, 0L)));
+    }
+
+    @Test
+    public void frameWithoutCandidateGetsAFallbackRead() {
+        DecodePipeline pipeline = new DecodePipeline();
+        Y8Frame blank = new Y8Frame(TestFrames.blank(640, 480), 640, 480, 0, 0L);
+        for (int round = 0; round < 2; round++) {
+            for (int i = 1; i <= DecodePipeline.FALLBACK_INTERVAL; i++) {
+                assertEquals("frame " + i, i == DecodePipeline.FALLBACK_INTERVAL, shouldDecode1D(pipeline, blank));
+            }
+        }
+    }
+
+    @Test
+    public void blurredFramesGetAFallbackRead() {
+        DecodePipeline pipeline = new DecodePipeline();
+        // Pic gardé toute la durée du test: seuls les frames flous sont écartés
+        pipeline.setSharpnessGate(new SharpnessGate(0.6f, 60_000_000_000L, 0L));
+        SyntheticFrameGenerator generator = new SyntheticFrameGenerator(7).size(640, 480).moduleWidth(2.5f);
+        Y8Frame sharp = generator.render(SyntheticFrameGenerator.Symbology.MSI, MSI_VALUE);
+        Y8Frame blurred = generator.blur(4).render(SyntheticFrameGenerator.Symbology.MSI, MSI_VALUE);
+
+        assertTrue(shouldDecode1D(pipeline, sharp));
+        for (int i = 1; i <= DecodePipeline.FALLBACK_INTERVAL; i++) {
+            assertEquals("frame " + i, i == DecodePipeline.FALLBACK_INTERVAL, shouldDecode1D(pipeline, blurred));
+        }
+        assertFalse(shouldDecode1D(pipeline, blurred));
+    }
+
+    @Test
+    public void threePixelModulesAreNotGatedOut() {
+        BarcodeResult result = new DecodePipeline().decode(frame(TestFrames.msi(MSI_VALUE), 3f, 0));
+        assertEquals(MSI_VALUE, result.getValue());
+    }
+
+    @Test
+    public void multiSymbolReadsTwoMsiSymbolsOfOneFrame() {
+        Y8Frame frame = sideBySide(
+                generator(1).render(SyntheticFrameGenerator.Symbology.MSI, MSI_VALUE),
+                generator(2).render(SyntheticFrameGenerator.Symbology.MSI, "12345674"));
+        DecodePipeline pipeline = new DecodePipeline();
+        pipeline.setMultiSymbol(true);
+        List<String> values = new ArrayList<>();
+        pipeline.beginFrame(frame);
+        try {
+            assertEquals(2, pipeline.decodeMsiAll(frame, null, values));
+        } finally {
+            pipeline.endFrame();
+        }
+        assertEquals(set(MSI_VALUE, "12345674"), new HashSet<>(values));
+
+        // Mode simple: un seul symbole par frame
+        assertEquals(1, new DecodePipeline().decodeAll(frame).size());
+    }
+
+    @Test
+    public void multiSymbolReadsTwoCode128SymbolsOfOneFrame() {
+        Y8Frame frame = sideBySide(
+                generator(3).render(SyntheticFrameGenerator.Symbology.CODE_128, "COLIS-A1"),
+                generator(4).render(SyntheticFrameGenerator.Symbology.CODE_128, "COLIS-B2"));
+        DecodePipeline pipeline = new DecodePipeline();
+        pipeline.setMultiSymbol(true);
+        List<String> values = new ArrayList<>();
+        pipeline.beginFrame(frame);
+        try {
+            assertEquals(2, pipeline.decodeCode128All(frame, null, values));
+        } finally {
+            pipeline.endFrame();
+        }
+        assertEquals(set("COLIS-A1", "COLIS-B2"), new HashSet<>(values));
+    }
+
+    @Test
+    public void decodeAllReturnsEverySymbology() {
+        Y8Frame frame = sideBySide(
+                generator(5).render(SyntheticFrameGenerator.Symbology.MSI, MSI_VALUE),
+                generator(6).render(SyntheticFrameGenerator.Symbology.CODE_128, CODE_128_VALUE));
+        DecodePipeline pipeline = new DecodePipeline();
+        pipeline.setMultiSymbol(true);
+        List<BarcodeResult> results = pipeline.decodeAll(frame);
+        assertEquals(2, results.size());
+        Set<String> types = new HashSet<>();
+        Set<String> values = new HashSet<>();
+        for (BarcodeResult result : results) {
+            types.add(result.getType());
+            values.add(result.getValue());
+        }
+        assertEquals(set(DecodePipeline.TYPE_MSI, DecodePipeline.TYPE_CODE_128), types);
+        assertEquals(set(MSI_VALUE, CODE_128_VALUE), values);
+        assertTrue(pipeline.decodeAll(new SyntheticFrameGenerator(7).size(1280, 720).noise(3f).renderEmpty()).isEmpty());
+    }
+
+    private static boolean shouldDecode1D(DecodePipeline pipeline, Y8Frame frame) {
+        pipeline.beginFrame(frame);
+        try {
+            return pipeline.shouldDecode1D();
+        } finally {
+            pipeline.endFrame();
+        }
+    }
+
+    private static Y8Frame frame(boolean[] modules, float moduleWidth, int rotation) {
+        ByteBuffer y = TestFrames.render(modules, moduleWidth, 640, 480, rotation);
+        return new Y8Frame(y, 640, 480, rotation, 0L);
+    }
+
+    private static SyntheticFrameGenerator generator(long seed) {
+        return new SyntheticFrameGenerator(seed).size(640, 720).moduleWidth(2f).noise(3f);
+    }
+
+    // Deux frames 640x720 côte à côte: un symbole dans chaque moitié d'un frame 1280x720
+    private static Y8Frame sideBySide(Y8Frame left, Y8Frame right) {
+        ByteBuffer y = ByteBuffer.allocateDirect(1280 * 720);
+        for (int row = 0; row < 720; row++) {
+            for (int col = 0; col < 640; col++) {
+                y.put(row * 1280 + col, left.getYBuffer().get(row * 640 + col));
+                y.put(row * 1280 + 640 + col, right.getYBuffer().get(row * 640 + col));
+            }
+        }
+        return new Y8Frame(y, 1280, 720, 0, 0L);
+    }
+
+    private static Set<String> set(String... values) {
+        Set<String> set = new HashSet<>();
+        for (String value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+}
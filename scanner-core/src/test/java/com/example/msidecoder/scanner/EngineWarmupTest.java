@@ -0,0 +1,15 @@
+package com.example.msidecoder.scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class EngineWarmupTest {
+
+    @Test
+    public void everyWarmupSceneDecodes() {
+        // Par passe: MSI lignes et colonnes, Code 128 droit et inversé (candidate unique: les
+        // tentatives FULL inutiles laissent leur place aux slots inversés)
+        assertEquals(3 * 4, EngineWarmup.run(EngineWarmup.DEFAULT_ROUNDS));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.msidecoder.scanner;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MotionDetectorTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final long FRAME_NS = 33_333_333L;
+
+    @Test
+    public void firstFrameIsOnlyReference() {
+        MotionDetector detector = new MotionDetector();
+        assertFalse(detector.update(scene(0L, 0, false)));
+        assertEquals(0f, detector.getLastDifference(), 0f);
+    }
+
+    @Test
+    public void stillSceneDoesNotMove() {
+        MotionDetector detector = new MotionDetector();
+        detector.update(scene(0L, 0, false));
+        assertFalse(detector.update(scene(FRAME_NS, 0, false)));
+    }
+
+    @Test
+    public void exposureChangeIsNotMotion() {
+        MotionDetector detector = new MotionDetector();
+        detector.update(scene(0L, 0, false));
+        assertFalse(detector.update(scene(FRAME_NS, 40, false)));
+    }
+
+    @Test
+    public void objectEnteringIsMotion() {
+        MotionDetector detector = new MotionDetector();
+        detector.update(scene(0L, 0, false));
+        assertTrue(detector.update(scene(FRAME_NS, 0, true)));
+        assertTrue(detector.getLastDifference() > 6f);
+        // Nouvelle référence: la scène ne bouge plus ensuite
+        assertFalse(detector.update(scene(2 * FRAME_NS, 0, true)));
+    }
+
+    @Test
+    public void staleReferenceIsReplaced() {
+        MotionDetector detector = new MotionDetector();
+        detector.update(scene(0L, 0, false));
+        assertFalse(detector.update(scene(MotionDetector.MAX_GAP_NS + FRAME_NS, 0, true)));
+        // Horloge repartie en arrière (nouvelle session caméra)
+        assertFalse(detector.update(scene(0L, 0, false)));
+    }
+
+    // Dégradé horizontal, éclairé de offset, avec un rectangle sombre au centre si object
+    private static Y8Frame scene(long timestampNanos, int offset, boolean object) {
+        ByteBuffer y = ByteBuffer.allocateDirect(WIDTH * HEIGHT);
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                int v = 60 + col * 120 / WIDTH + offset;
+                if (object && row >= HEIGHT / 4 && row < HEIGHT * 3 / 4
+                        && col >= WIDTH / 4 && col < WIDTH * 3 / 4) {
+                    v = 20;
+                }
+                y.put(row * WIDTH + col, (byte) v);
+            }
+        }
+        return new Y8Frame(y, WIDTH, HEIGHT, 0, timestampNanos);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.msidecoder.scanner;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MsiDecoderTest {
+
+    // 4833489 + check digit modulo 10
+    private static final String MSI_VALUE = "48334890";
+
+    @Test
+    public void checkModes() {
+        assertEquals(0, MsiDecoder.mod10("4833489".toCharArray(), 7));
+        assertTrue(valid("48334890", MsiDecoder.CheckMode.MOD10));
+        assertFalse(valid("48334891", MsiDecoder.CheckMode.MOD10));
+
+        // 1000000: modulo 11 = 9, modulo 10 = 8
+        assertTrue(valid("10000009", MsiDecoder.CheckMode.MOD11));
+        assertFalse(valid("10000009", MsiDecoder.CheckMode.MOD10));
+        assertTrue(valid("10000008", MsiDecoder.CheckMode.MOD10));
+        // 4833489: reste modulo 11 de 10, aucun check digit possible
+        assertEquals(-1, MsiDecoder.mod11("4833489".toCharArray(), 7));
+        assertFalse(valid("48334890", MsiDecoder.CheckMode.MOD11));
+
+        assertTrue(valid("123456741", MsiDecoder.CheckMode.MOD11_10));
+        assertFalse(valid("123456742", MsiDecoder.CheckMode.MOD11_10));
+
+        assertTrue(valid("48334891", MsiDecoder.CheckMode.NONE));
+    }
+
+    @Test
+    public void decodesAllSensorRotations() {
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            ByteBuffer y = TestFrames.render(TestFrames.msi(MSI_VALUE), 3f, 640, 480, rotation);
+            assertEquals("rotation " + rotation, MSI_VALUE, new MsiDecoder().decode(y, 640, 480, 640, 1));
+        }
+    }
+
+    @Test
+    public void honoursRowAndPixelStrides() {
+        ByteBuffer y = TestFrames.render(TestFrames.msi(MSI_VALUE), 3f, 640, 480, 0, 1300, 2, false);
+        assertEquals(MSI_VALUE, new MsiDecoder().decode(y, 640, 480, 1300, 2));
+    }
+
+    @Test
+    public void rejectsSymbolFailingTheCheckMode() {
+        ByteBuffer y = TestFrames.render(TestFrames.msi("10000009"), 3f, 640, 480, 0);
+        assertEquals("10000009", new MsiDecoder(MsiDecoder.CheckMode.MOD11).decode(y, 640, 480, 640, 1));
+        assertNull(new MsiDecoder(MsiDecoder.CheckMode.MOD10).decode(y, 640, 480, 640, 1));
+    }
+
+    @Test
+    public void blankFrameDecodesNothing() {
+        assertNull(new MsiDecoder().decode(TestFrames.blank(640, 480), 640, 480, 640, 1));
+    }
+
+    @Test
+    public void noisyEmptyFrameDecodesNothing() {
+        Y8Frame frame = new SyntheticFrameGenerator(3).size(640, 480).noise(4f).renderEmpty();
+        assertNull(new MsiDecoder().decode(frame.getYBuffer(), 640, 480, 640, 1));
+    }
+
+    @Test
+    public void regionDecodeStopsWhenCancelled() {
+        ByteBuffer y = TestFrames.render(TestFrames.msi(MSI_VALUE), 3f, 640, 480, 0);
+        MsiDecoder decoder = new MsiDecoder();
+        assertNull(decoder.decode(y, 640, 1, 0, 0, 640, 480, false, new AtomicBoolean(true)));
+        assertEquals(MSI_VALUE, decoder.decode(y, 640, 1, 0, 0, 640, 480, false, new AtomicBoolean(false)));
+    }
+
+    private static boolean valid(String digits, MsiDecoder.CheckMode mode) {
+        return MsiDecoder.isCheckValid(digits.toCharArray(), digits.length(), mode);
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.msidecoder.scanner;
+
+import com.example.msidecoder.models.BarcodeResult;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class MsiVoteAccumulatorTest {
+
+    private static final long FRAME_NS = 33_000_000L;
+    private static final char[] MSI = "48334890".toCharArray();
+
+    @Test
+    public void singleLineIsNotEnough() {
+        MsiVoteAccumulator voter = new MsiVoteAccumulator();
+        voter.beginFrame(0L);
+        voter.offer(MSI, MSI.length);
+        assertNull(voter.resolve(MsiDecoder.CheckMode.MOD10));
+        voter.offer(MSI, MSI.length);
+        assertEquals("48334890", voter.resolve(MsiDecoder.CheckMode.MOD10));
+    }
+
+    @Test
+    public void previousFrameConfirmsALoneLine() {
+        MsiVoteAccumulator voter = new MsiVoteAccumulator();
+        voter.beginFrame(0L);
+        voter.offer(MSI, MSI.length);
+        assertNull(voter.resolve(MsiDecoder.CheckMode.MOD10));
+        voter.beginFrame(FRAME_NS);
+        voter.offer(MSI, MSI.length);
+        assertEquals("48334890", voter.resolve(MsiDecoder.CheckMode.MOD10));
+    }
+
+    @Test
+    public void majorityOutvotesADamagedDigit() {
+        MsiVoteAccumulator voter = new MsiVoteAccumulator();
+        voter.beginFrame(0L);
+        voter.offer("48334890".toCharArray(), 8);
+        voter.offer("48384890".toCharArray(), 8);
+        // 1 voix contre 1 sur la 4e position: pas de gagnant net
+        assertNull(voter.resolve(MsiDecoder.CheckMode.MOD10));
+        voter.offer("48334890".toCharArray(), 8);
+        voter.offer("48334890".toCharArray(), 8);
+        assertEquals("48334890", voter.resolve(MsiDecoder.CheckMode.MOD10));
+    }
+
+    @Test
+    public void votedValueMustPassTheCheckDigit() {
+        MsiVoteAccumulator voter = new MsiVoteAccumulator();
+        voter.beginFrame(0L);
+        voter.offer("48334891".toCharArray(), 8);
+        voter.offer("48334891".toCharArray(), 8);
+        assertNull(voter.resolve(MsiDecoder.CheckMode.MOD10));
+        assertEquals("48334891", voter.resolve(MsiDecoder.CheckMode.NONE));
+    }
+
+    @Test
+    public void gapForgetsVotes() {
+        MsiVoteAccumulator voter = new MsiVoteAccumulator();
+        voter.beginFrame(0L);
+        voter.offer(MSI, MSI.length);
+        voter.beginFrame(1_000_000_000L);
+        voter.offer(MSI, MSI.length);
+        assertNull(voter.resolve(MsiDecoder.CheckMode.MOD10));
+    }
+
+    @Test
+    public void staleVotesAloneNeverResolve() {
+        MsiVoteAccumulator voter = new MsiVoteAccumulator();
+        long t = 0L;
+        for (int i = 0; i < 3; i++) {
+            voter.beginFrame(t);
+            voter.offer(MSI, MSI.length);
+            voter.offer(MSI, MSI.length);
+            voter.resolve(MsiDecoder.CheckMode.MOD10);
+            t += FRAME_NS;
+        }
+        // Frame suivant sans aucune ligne MSI: les voix restantes ne redonnent pas le code
+        voter.beginFrame(t);
+        assertNull(voter.resolve(MsiDecoder.CheckMode.MOD10));
+    }
+
+    @Test
+    public void resolvedVotesOnlyBreakTies() {
+        MsiVoteAccumulator voter = new MsiVoteAccumulator();
+        voter.beginFrame(0L);
+        voter.offer(MSI, MSI.length);
+        voter.offer(MSI, MSI.length);
+        assertNotNull(voter.resolve(MsiDecoder.CheckMode.MOD10));
+
+        // Une seule ligne au frame suivant: les voix atténuées du résultat ne la complètent pas
+        voter.beginFrame(FRAME_NS);
+        voter.offer(MSI, MSI.length);
+        assertNull(voter.resolve(MsiDecoder.CheckMode.MOD10));
+    }
+
+    @Test
+    public void pipelineDoesNotRepeatMsiOverAnotherSymbol() {
+        for (boolean presence : new boolean[]{true, false}) {
+            DecodePipeline pipeline = new DecodePipeline();
+            pipeline.setPresenceDetection(presence);
+            SyntheticFrameGenerator generator = new SyntheticFrameGenerator(3)
+                    .size(640, 480).moduleWidth(3f).noise(3f);
+            long t = 0L;
+            for (int i = 0; i < 3; i++) {
+                Y8Frame frame = generator.render(SyntheticFrameGenerator.Symbology.MSI, "48334890");
+                pipeline.decode(at(frame, t));
+                t += FRAME_NS;
+            }
+
+            Y8Frame code128 = generator.render(SyntheticFrameGenerator.Symbology.CODE_128, "QRX-777");
+            BarcodeResult result = pipeline.decode(at(code128, t));
+            assertNotNull("presence " + presence, result);
+            assertEquals("presence " + presence, "QRX-777", result.getValue());
+            t += FRAME_NS;
+
+            assertNull("presence " + presence, pipeline.decode(at(generator.renderEmpty(), t)));
+        }
+    }
+
+    private static Y8Frame at(Y8Frame frame, long timestampNanos) {
+        return new Y8Frame(frame.getYBuffer(), frame.getWidth(), frame.getHeight(), 0, timestampNanos);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.msidecoder.scanner;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class Nv21RegionBufferTest {
+
+    private static final int WIDTH = 99;
+    private static final int HEIGHT = 69;
+    // Plan entrelacé (pixelStride 2) avec fin de ligne
+    private static final int ROW_STRIDE = 2 * WIDTH + 5;
+    private static final int PIXEL_STRIDE = 2;
+
+    @Test
+    public void regionIsAlignedOutwardsAndCopiedWithStrides() {
+        Nv21RegionBuffer region = new Nv21RegionBuffer();
+        assertTrue(region.copy(frame(), new int[]{40, 10, 90, 60}));
+        // Bords alignés sur 32 px: [32, 96) x [0, 64)
+        assertEquals(64, region.getWidth());
+        assertEquals(64, region.getHeight());
+        assertRegion(region, 32, 0);
+    }
+
+    @Test
+    public void regionIsClampedToTheFrameWithEvenSize() {
+        Nv21RegionBuffer region = new Nv21RegionBuffer();
+        assertTrue(region.copy(frame(), new int[]{70, 40, 99, 69}));
+        // [64, 99) x [32, 69) réduit à des dimensions paires
+        assertEquals(34, region.getWidth());
+        assertEquals(36, region.getHeight());
+        assertRegion(region, 64, 32);
+    }
+
+    @Test
+    public void sameSizeReusesTheArray() {
+        Nv21RegionBuffer region = new Nv21RegionBuffer();
+        assertTrue(region.copy(frame(), new int[]{0, 0, 30, 30}));
+        byte[] data = region.getData();
+        assertTrue(region.copy(frame(), new int[]{33, 33, 60, 60}));
+        assertSame(data, region.getData());
+        assertRegion(region, 32, 32);
+
+        assertTrue(region.copy(frame(), new int[]{0, 0, 60, 30}));
+        assertEquals(64 * 32 * 3 / 2, region.getData().length);
+        assertRegion(region, 0, 0);
+    }
+
+    @Test
+    public void emptyRegionIsRejected() {
+        assertFalse(new Nv21RegionBuffer().copy(frame(), new int[]{128, 0, 160, 32}));
+    }
+
+    // Valeur distincte par pixel capteur
+    private static int value(int x, int y) {
+        return (x * 7 + y * 13) & 0xFF;
+    }
+
+    private static LumaFrame frame() {
+        ByteBuffer y = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT);
+        for (int i = 0; i < y.capacity(); i++) {
+            y.put(i, (byte) 0xEE);
+        }
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                y.put(row * ROW_STRIDE + col * PIXEL_STRIDE, (byte) value(col, row));
+            }
+        }
+        return new Y8Frame(y, WIDTH, HEIGHT, ROW_STRIDE, PIXEL_STRIDE, 0, 0L);
+    }
+
+    private static void assertRegion(Nv21RegionBuffer region, int left, int top) {
+        byte[] data = region.getData();
+        int w = region.getWidth();
+        int h = region.getHeight();
+        assertEquals(w * h * 3 / 2, data.length);
+        for (int row = 0; row < h; row++) {
+            for (int x = 0; x < w; x++) {
+                assertEquals("(" + x + ", " + row + ")", value(left + x, top + row), data[row * w + x] & 0xFF);
+            }
+        }
+        // Chrominance neutre: image grise
+        for (int i = w * h; i < data.length; i++) {
+            assertEquals(128, data[i] & 0xFF);
+        }
+    }
+}
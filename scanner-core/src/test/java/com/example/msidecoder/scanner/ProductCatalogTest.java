@@ -0,0 +1,127 @@
+package com.example.msidecoder.scanner;
+
+import com.example.msidecoder.models.BarcodeResult;
+import com.example.msidecoder.models.Product;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ProductCatalogTest {
+
+    private static final int[] KEYS = {1000000, 4833489, 9999999};
+    private static final String[] LABELS = {"Sérum physiologique 5 ml", "Doliprane 1000 mg", ""};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeOpenLookupRoundTrip() throws IOException {
+        ProductCatalog catalog = ProductCatalog.open(catalog());
+        assertEquals(3, catalog.size());
+        for (int i = 0; i < KEYS.length; i++) {
+            assertEquals(i, catalog.indexOf(KEYS[i]));
+            assertEquals(LABELS[i], catalog.labelAt(i));
+        }
+
+        // Check digit et chiffres suivants ignorés
+        Product product = catalog.lookup("48334890");
+        assertEquals("4833489", product.getCode());
+        assertEquals("Doliprane 1000 mg", product.getLabel());
+        assertEquals("Sérum physiologique 5 ml", catalog.lookup("100000012").getLabel());
+        assertNull(catalog.lookup("48334880"));
+        assertEquals(-1, catalog.indexOf(0));
+    }
+
+    @Test
+    public void shortOrNonNumericValuesHaveNoKey() throws IOException {
+        assertEquals(4833489, ProductCatalog.keyOf("4833489"));
+        assertEquals(-1, ProductCatalog.keyOf("483348"));
+        assertEquals(-1, ProductCatalog.keyOf(""));
+        assertEquals(-1, ProductCatalog.keyOf(null));
+        assertEquals(-1, ProductCatalog.keyOf("48A34890"));
+
+        ProductCatalog catalog = ProductCatalog.open(catalog());
+        assertNull(catalog.lookup("483348"));
+        assertEquals(-1, catalog.indexOf(-1));
+    }
+
+    @Test
+    public void resolveOnlyTouchesMsiResults() throws IOException {
+        ProductCatalog catalog = ProductCatalog.open(catalog());
+        BarcodeResult msi = new BarcodeResult(DecodePipeline.TYPE_MSI, "48334890", "Custom MSI");
+        assertTrue(catalog.resolve(msi));
+        assertEquals("Doliprane 1000 mg", msi.getProduct().getLabel());
+
+        BarcodeResult code128 = new BarcodeResult("CODE_128", "48334890", "ZXing");
+        assertFalse(catalog.resolve(code128));
+        assertNull(code128.getProduct());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unsortedKeysAreRejected() throws IOException {
+        ProductCatalog.write(folder.newFile(), new int[]{4833489, 1000000}, new String[]{"a", "b"});
+    }
+
+    @Test
+    public void damagedFilesAreRejected() throws IOException {
+        File file = catalog();
+        long size = file.length();
+
+        // Libellés tronqués
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size - 3);
+        }
+        assertRejected(file);
+
+        // Magic inconnu
+        file = catalog();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.writeInt(0x12345678);
+        }
+        assertRejected(file);
+
+        // En-tête seul, coupé avant le nombre d'entrées
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(8);
+        }
+        assertRejected(file);
+    }
+
+    @Test
+    public void corruptedEntryCountIsRejectedBeforeAllocating() throws IOException {
+        for (int count : new int[]{0x40000000, -1, Integer.MAX_VALUE, KEYS.length + 1}) {
+            File file = catalog();
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(8);
+                raf.writeInt(count);
+            }
+            assertRejected(file);
+        }
+    }
+
+    private File catalog() throws IOException {
+        File file = folder.newFile();
+        ProductCatalog.write(file, KEYS, LABELS);
+        return file;
+    }
+
+    private static void assertRejected(File file) {
+        try {
+            ProductCatalog.open(file);
+            fail("catalogue accepté: " + file);
+        } catch (IOException expected) {
+            // attendu
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.msidecoder.scanner;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RecentResultCacheTest {
+
+    private static final long TTL_NS = 1_200_000_000L;
+    private static final long FRAME_NS = 33_000_000L;
+
+    @Test
+    public void suppressesRepeatsWithinTtl() {
+        RecentResultCache cache = new RecentResultCache(TTL_NS, 16);
+        assertTrue(cache.offer("MSI", "48334890", 0L));
+        assertFalse(cache.offer("MSI", "48334890", FRAME_NS));
+        assertFalse(cache.offer("MSI", "48334890", TTL_NS - 1));
+        assertTrue(cache.offer("MSI", "48334890", TTL_NS));
+    }
+
+    @Test
+    public void heldSymbolIsEmittedAgainEveryTtl() {
+        RecentResultCache cache = new RecentResultCache(TTL_NS, 16);
+        int emitted = 0;
+        // Symbole lu à chaque frame pendant 2,5 s: remis à 0, 1,2 s et 2,4 s
+        for (long t = 0L; t <= 2_500_000_000L; t += FRAME_NS) {
+            if (cache.offer("CODE_128", "QRX-777", t)) {
+                emitted++;
+            }
+        }
+        assertEquals(3, emitted);
+    }
+
+    @Test
+    public void distinctSymbolsAreIndependent() {
+        RecentResultCache cache = new RecentResultCache(TTL_NS, 16);
+        assertTrue(cache.offer("MSI", "48334890", 0L));
+        assertTrue(cache.offer("CODE_128", "48334890", FRAME_NS));
+        assertTrue(cache.offer("MSI", "12345674", 2 * FRAME_NS));
+        assertFalse(cache.offer("MSI", "48334890", 3 * FRAME_NS));
+        assertFalse(cache.offer("CODE_128", "48334890", 3 * FRAME_NS));
+    }
+
+    @Test
+    public void alternatingSymbolsStaySuppressed() {
+        RecentResultCache cache = new RecentResultCache(TTL_NS, 16);
+        for (int i = 0; i < 10; i++) {
+            String value = "CODE-" + i;
+            assertTrue(cache.offer("CODE_128", value, i * FRAME_NS));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertFalse(cache.offer("CODE_128", "CODE-" + i, (10 + i) * FRAME_NS));
+        }
+    }
+
+    @Test
+    public void fullCacheForgetsTheOldestSymbol() {
+        // Un seul ensemble de 4 entrées
+        RecentResultCache cache = new RecentResultCache(TTL_NS, 4);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(cache.offer("CODE_128", "CODE-" + i, i * FRAME_NS));
+        }
+        // CODE-0 a été remplacé: remis une fois de plus, jamais perdu
+        assertTrue(cache.offer("CODE_128", "CODE-0", 5 * FRAME_NS));
+        assertFalse(cache.offer("CODE_128", "CODE-4", 6 * FRAME_NS));
+    }
+
+    @Test
+    public void olderFrameFromAnotherWorkerIsADuplicate() {
+        // Un worker en retard remet un frame plus ancien que la dernière lecture
+        RecentResultCache cache = new RecentResultCache(TTL_NS, 16);
+        assertTrue(cache.offer("MSI", "48334890", 5 * FRAME_NS));
+        assertFalse(cache.offer("MSI", "48334890", 4 * FRAME_NS));
+        assertTrue(cache.offer("MSI", "48334890", 5 * FRAME_NS + TTL_NS));
+    }
+
+    @Test
+    public void clearForgetsEverything() {
+        RecentResultCache cache = new RecentResultCache(TTL_NS, 16);
+        assertTrue(cache.offer("MSI", "48334890", 0L));
+        cache.clear();
+        assertTrue(cache.offer("MSI", "48334890", FRAME_NS));
+    }
+
+    @Test
+    public void concurrentWorkersDeliverASymbolOncePerTtl() throws InterruptedException {
+        for (int round = 0; round < 50; round++) {
+            RecentResultCache cache = new RecentResultCache(TTL_NS, 16);
+            String value = "CODE-" + round;
+            // Nouveau symbole, puis échéance atteinte: une seule remise à chaque fois
+            assertEquals(1, offerFromWorkers(cache, value, FRAME_NS));
+            assertEquals(0, offerFromWorkers(cache, value, 2 * FRAME_NS));
+            assertEquals(1, offerFromWorkers(cache, value, 2 * FRAME_NS + TTL_NS));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyCapacity() {
+        new RecentResultCache(TTL_NS, 0);
+    }
+
+    // Même symbole offert au même instant par 4 workers: nombre de remises
+    private static int offerFromWorkers(RecentResultCache cache, String value, long nowNanos)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger delivered = new AtomicInteger();
+        Thread[] workers = new Thread[4];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (cache.offer("CODE_128", value, nowNanos)) {
+                    delivered.incrementAndGet();
+                }
+            });
+            workers[i].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return delivered.get();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.msidecoder.scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RoiTrackerTest {
+
+    private static final float EPS = 1e-5f;
+
+    @Test
+    public void noWindowBeforeTheFirstHit() {
+        RoiTracker tracker = new RoiTracker();
+        assertFalse(tracker.beginFrame(new float[4]));
+        tracker.endFrame();
+        assertFalse(tracker.isTracking());
+    }
+
+    @Test
+    public void windowIsTheLastBoxWithAMargin() {
+        RoiTracker tracker = new RoiTracker();
+        hit(tracker, 0.4f, 0.45f, 0.6f, 0.55f);
+
+        float[] window = new float[4];
+        assertTrue(tracker.beginFrame(window));
+        // Demi-taille x 1,25 + 0,03 de chaque côté
+        assertArrayEquals(new float[]{0.345f, 0.4075f, 0.655f, 0.5925f}, window, EPS);
+    }
+
+    @Test
+    public void windowFollowsTheObservedMotion() {
+        RoiTracker tracker = new RoiTracker();
+        hit(tracker, 0.2f, 0.4f, 0.4f, 0.6f);
+        hit(tracker, 0.3f, 0.4f, 0.5f, 0.6f);
+
+        // Vitesse lissée: 0,5 x 0,1 par frame
+        float[] window = new float[4];
+        assertTrue(tracker.beginFrame(window));
+        assertEquals(0.45f, (window[0] + window[2]) / 2f, EPS);
+        assertEquals(0.5f, (window[1] + window[3]) / 2f, EPS);
+    }
+
+    @Test
+    public void eachMissWidensTheWindow() {
+        RoiTracker tracker = new RoiTracker();
+        hit(tracker, 0.4f, 0.45f, 0.6f, 0.55f);
+        float[] window = new float[4];
+        tracker.beginFrame(window);
+        float first = window[2] - window[0];
+        tracker.endFrame();
+        assertEquals(1, tracker.getMisses());
+
+        tracker.beginFrame(window);
+        // Marge doublée: 0,1 x 1,5 + 0,03 de chaque côté
+        assertEquals(0.36f, window[2] - window[0], EPS);
+        assertTrue(window[2] - window[0] > first);
+    }
+
+    @Test
+    public void trackExpiresAfterMaxMisses() {
+        RoiTracker tracker = new RoiTracker(3);
+        hit(tracker, 0.4f, 0.45f, 0.6f, 0.55f);
+        float[] window = new float[4];
+        for (int miss = 1; miss <= 3; miss++) {
+            assertTrue("échec " + miss, tracker.beginFrame(window));
+            tracker.endFrame();
+            assertTrue(tracker.isTracking());
+        }
+        assertTrue(tracker.beginFrame(window));
+        tracker.endFrame();
+        assertFalse(tracker.isTracking());
+        assertFalse(tracker.beginFrame(window));
+    }
+
+    @Test
+    public void hitResetsTheMissCount() {
+        RoiTracker tracker = new RoiTracker(1);
+        hit(tracker, 0.4f, 0.45f, 0.6f, 0.55f);
+        tracker.beginFrame(new float[4]);
+        tracker.endFrame();
+        assertEquals(1, tracker.getMisses());
+        hit(tracker, 0.4f, 0.45f, 0.6f, 0.55f);
+        assertEquals(0, tracker.getMisses());
+        tracker.beginFrame(new float[4]);
+        tracker.endFrame();
+        assertTrue(tracker.isTracking());
+    }
+
+    @Test
+    public void secondEngineOnTheSameFrameExtendsTheBox() {
+        RoiTracker tracker = new RoiTracker();
+        tracker.beginFrame(new float[4]);
+        tracker.onHit(0.4f, 0.45f, 0.6f, 0.5f);
+        tracker.onHit(0.45f, 0.48f, 0.7f, 0.55f);
+        tracker.endFrame();
+
+        float[] window = new float[4];
+        assertTrue(tracker.beginFrame(window));
+        assertEquals(0.55f, (window[0] + window[2]) / 2f, EPS);
+        assertEquals(0.5f, (window[1] + window[3]) / 2f, EPS);
+    }
+
+    @Test
+    public void predictionLeavingTheImageDropsTheTrack() {
+        RoiTracker tracker = new RoiTracker(10);
+        hit(tracker, 0.6f, 0.4f, 0.7f, 0.5f);
+        hit(tracker, 0.9f, 0.4f, 1.0f, 0.5f);
+        float[] window = new float[4];
+        boolean tracking = true;
+        for (int i = 0; i < 10 && tracking; i++) {
+            tracking = tracker.beginFrame(window);
+            tracker.endFrame();
+        }
+        assertFalse(tracking);
+        assertFalse(tracker.isTracking());
+    }
+
+    private static void hit(RoiTracker tracker, float l, float t, float r, float b) {
+        tracker.beginFrame(new float[4]);
+        tracker.onHit(l, t, r, b);
+        tracker.endFrame();
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.msidecoder.scanner;
+
+import com.google.zxing.common.BitArray;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RowBinarizerTest {
+
+    private static final boolean[] MSI = TestFrames.msi("48334890");
+    // Milieu entre DARK et LIGHT: les deux seuils (local et global) le donnent sur un rendu net
+    private static final int MIDPOINT = (TestFrames.DARK + TestFrames.LIGHT) / 2;
+
+    @Test
+    public void rowsFollowTheBarsInBothDirections() {
+        Y8Frame frame = frame(TestFrames.render(MSI, 3f, 640, 480, 0), 640, 480, 640, 1);
+        RowBinarizer binarizer = bound(frame);
+        boolean[] expected = sensorLine(frame, false, 240);
+
+        BitArray bits = new BitArray(640);
+        assertTrue(binarizer.getRow(false, 240, 0, 640, false, bits));
+        assertBits(expected, 0, 640, false, bits);
+
+        BitArray segment = new BitArray(300);
+        assertTrue(binarizer.getRow(false, 241, 100, 300, true, segment));
+        assertBits(expected, 100, 300, true, segment);
+
+        byte[] line = new byte[300];
+        assertTrue(binarizer.getLine(false, 239, 100, 300, line));
+        for (int i = 0; i < 300; i++) {
+            assertEquals("pixel " + (100 + i), expected[100 + i] ? 1 : 0, line[i]);
+        }
+    }
+
+    @Test
+    public void columnsOfAnInterleavedQuarterTurnPlane() {
+        // Capteur tourné de 90: barres horizontales dans le plan, lues en colonnes
+        Y8Frame frame = frame(TestFrames.render(MSI, 2f, 320, 240, 90, 700, 2, false), 320, 240, 700, 2);
+        RowBinarizer binarizer = bound(frame);
+        boolean[] expected = sensorLine(frame, true, 160);
+
+        BitArray bits = new BitArray(240);
+        assertTrue(binarizer.getRow(true, 160, 0, 240, false, bits));
+        assertBits(expected, 0, 240, false, bits);
+        // Rangée capteur: parallèle aux barres, sans contraste
+        assertFalse(binarizer.getRow(false, 120, 0, 320, false, bits));
+    }
+
+    @Test
+    public void flatLineIsReportedEmpty() {
+        RowBinarizer binarizer = bound(frame(TestFrames.blank(640, 480), 640, 480, 640, 1));
+        BitArray bits = new BitArray(640);
+        bits.set(7);
+        assertFalse(binarizer.getRow(false, 240, 0, 640, false, bits));
+        assertTrue(bits.get(7));
+        assertFalse(binarizer.getLine(true, 320, 0, 480, new byte[480]));
+    }
+
+    @Test
+    public void nextFrameForgetsPreviousLines() {
+        RowBinarizer binarizer = new RowBinarizer();
+        Y8Frame first = frame(TestFrames.render(MSI, 3f, 640, 480, 0), 640, 480, 640, 1);
+        Y8Frame inverted = frame(TestFrames.render(MSI, 3f, 640, 480, 0, 640, 1, true), 640, 480, 640, 1);
+
+        BitArray bits = new BitArray(640);
+        binarizer.reset(first);
+        assertTrue(binarizer.getRow(false, 240, 0, 640, false, bits));
+        assertBits(sensorLine(first, false, 240), 0, 640, false, bits);
+
+        binarizer.reset(inverted);
+        assertTrue(binarizer.getRow(false, 240, 0, 640, false, bits));
+        assertBits(sensorLine(inverted, false, 240), 0, 640, false, bits);
+
+        binarizer.release();
+        assertFalse(binarizer.isBound());
+    }
+
+    @Test
+    public void linesClaimedByConcurrentReadersMatchASingleReader() throws InterruptedException {
+        Y8Frame frame = frame(TestFrames.render(MSI, 2.5f, 640, 480, 0), 640, 480, 640, 1);
+        byte[][] expected = readAllRows(bound(frame));
+
+        for (int round = 0; round < 20; round++) {
+            RowBinarizer shared = bound(frame);
+            byte[][][] results = new byte[4][][];
+            Thread[] readers = new Thread[results.length];
+            for (int i = 0; i < readers.length; i++) {
+                final int reader = i;
+                readers[i] = new Thread(() -> results[reader] = readAllRows(shared));
+                readers[i].start();
+            }
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            for (byte[][] result : results) {
+                for (int row = 0; row < expected.length; row++) {
+                    assertArrayEquals("rangée " + row, expected[row], result[row]);
+                }
+            }
+        }
+    }
+
+    private static Y8Frame frame(ByteBuffer y, int width, int height, int rowStride, int pixelStride) {
+        return new Y8Frame(y, width, height, rowStride, pixelStride, 0, 0L);
+    }
+
+    private static RowBinarizer bound(Y8Frame frame) {
+        RowBinarizer binarizer = new RowBinarizer();
+        binarizer.reset(frame);
+        return binarizer;
+    }
+
+    private static byte[][] readAllRows(RowBinarizer binarizer) {
+        byte[][] rows = new byte[480][640];
+        for (int row = 0; row < rows.length; row++) {
+            binarizer.getLine(false, row, 0, 640, rows[row]);
+        }
+        return rows;
+    }
+
+    // Pixels sombres d'une ligne capteur
+    private static boolean[] sensorLine(Y8Frame frame, boolean columns, int index) {
+        ByteBuffer y = frame.getYBuffer();
+        int length = columns ? frame.getHeight() : frame.getWidth();
+        boolean[] dark = new boolean[length];
+        for (int p = 0; p < length; p++) {
+            int offset = columns
+                    ? p * frame.getRowStride() + index * frame.getPixelStride()
+                    : index * frame.getRowStride() + p * frame.getPixelStride();
+            dark[p] = (y.get(offset) & 0xFF) < MIDPOINT;
+        }
+        return dark;
+    }
+
+    private static void assertBits(boolean[] expected, int from, int length, boolean reversed, BitArray bits) {
+        for (int i = 0; i < length; i++) {
+            int p = reversed ? from + length - 1 - i : from + i;
+            assertEquals("pixel " + p, expected[p], bits.get(i));
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.msidecoder.scanner;
+
+import com.example.msidecoder.models.BarcodeResult;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ScanJournalTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeReopenReadRoundTrip() throws IOException {
+        File directory = folder.newFolder("journal");
+
+        ScanJournal journal = new ScanJournal(directory);
+        journal.append(new BarcodeResult("MSI", "48334890", "Custom MSI"), 1_000L, 12_345_000L);
+        journal.append(new BarcodeResult("CODE_128", "QRX-777", "ZXing"), 2_000L, 8_000_000L);
+        awaitWritten(journal, 2L);
+        journal.close();
+        assertNull(journal.getError());
+        assertEquals(2L, journal.getWritten());
+
+        // Réouverture: l'écriture reprend après le dernier enregistrement valide
+        journal = new ScanJournal(directory);
+        journal.append(new BarcodeResult("EAN_13", "4006381333931", "MLKit"), 3_000L, 20_000_000L);
+        awaitWritten(journal, 1L);
+        journal.close();
+        assertNull(journal.getError());
+        assertEquals(0L, journal.getDropped());
+
+        List<ScanJournal.Entry> entries = readAll(directory);
+        assertEquals(3, entries.size());
+        assertEntry(entries.get(0), 1_000L, 12_345, "MSI", "48334890", "Custom MSI");
+        assertEntry(entries.get(1), 2_000L, 8_000, "CODE_128", "QRX-777", "ZXing");
+        assertEntry(entries.get(2), 3_000L, 20_000, "EAN_13", "4006381333931", "MLKit");
+        assertEquals("QRX-777", entries.get(1).toResult().getValue());
+    }
+
+    @Test
+    public void rotationDropsOldestSegments() throws IOException {
+        File directory = folder.newFolder("rotation");
+        int segmentBytes = ScanJournal.HEADER_BYTES + ScanJournal.RECORD_HEADER_BYTES
+                + ScanJournal.MAX_RECORD_BYTES + 4;
+        // Deux enregistrements de 30 000 caractères par segment
+        char[] fill = new char[30_000];
+        ScanJournal journal = new ScanJournal(directory, segmentBytes, 2);
+        for (int i = 0; i < 6; i++) {
+            Arrays.fill(fill, (char) ('a' + i));
+            journal.append(new BarcodeResult("CODE_128", new String(fill), "ZXing"), i, 0L);
+        }
+        awaitWritten(journal, 6L);
+        journal.close();
+        assertNull(journal.getError());
+        assertEquals(6L, journal.getWritten());
+
+        List<ScanJournal.Entry> entries = readAll(directory);
+        assertEquals(4, entries.size());
+        assertEquals(2L, entries.get(0).getTimeMillis());
+        assertEquals(5L, entries.get(3).getTimeMillis());
+        assertEquals('f', entries.get(3).getValue().charAt(0));
+    }
+
+    @Test
+    public void damagedRecordEndsTheJournalAndIsOverwritten() throws IOException {
+        File directory = folder.newFolder("damaged");
+        ScanJournal journal = new ScanJournal(directory);
+        journal.append(new BarcodeResult("MSI", "48334890", "Custom MSI"), 1_000L, 0L);
+        journal.append(new BarcodeResult("CODE_128", "QRX-777", "ZXing"), 2_000L, 0L);
+        awaitWritten(journal, 2L);
+        journal.close();
+
+        // Dernier octet du second enregistrement abîmé: son CRC ne correspond plus
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, "scans-000001.seg"), "rw")) {
+            int first = ScanJournal.HEADER_BYTES;
+            file.seek(first);
+            int second = first + ScanJournal.RECORD_HEADER_BYTES + file.readInt();
+            file.seek(second);
+            int end = second + ScanJournal.RECORD_HEADER_BYTES + file.readInt();
+            file.seek(end - 1);
+            int last = file.read();
+            file.seek(end - 1);
+            file.write(last ^ 0xFF);
+        }
+        List<ScanJournal.Entry> entries = readAll(directory);
+        assertEquals(1, entries.size());
+
+        // Réouverture: l'enregistrement abîmé est remplacé par le suivant
+        journal = new ScanJournal(directory);
+        journal.append(new BarcodeResult("EAN_13", "4006381333931", "MLKit"), 3_000L, 0L);
+        awaitWritten(journal, 1L);
+        journal.close();
+        assertNull(journal.getError());
+
+        entries = readAll(directory);
+        assertEquals(2, entries.size());
+        assertEquals(1_000L, entries.get(0).getTimeMillis());
+        assertEquals("4006381333931", entries.get(1).getValue());
+    }
+
+    @Test
+    public void failedDeleteKeepsWritingAndIsRetriedAtTheNextRotation() throws IOException {
+        File directory = folder.newFolder("undeletable");
+        int segmentBytes = ScanJournal.HEADER_BYTES + ScanJournal.RECORD_HEADER_BYTES
+                + ScanJournal.MAX_RECORD_BYTES + 4;
+        char[] fill = new char[30_000];
+        ScanJournal journal = new ScanJournal(directory, segmentBytes, 10);
+        for (int i = 0; i < 4; i++) {
+            journal.append(new BarcodeResult("CODE_128", new String(fill), "ZXing"), i, 0L);
+        }
+        awaitWritten(journal, 4L);
+        journal.close();
+        assertArrayEquals(new int[]{1, 2}, ScanJournal.segmentIndexes(directory));
+
+        // Segment 1 remplacé par un dossier non vide: sa suppression échoue
+        File oldest = ScanJournal.segmentFile(directory, 1);
+        assertTrue(oldest.delete());
+        assertTrue(oldest.mkdir());
+        File blocker = new File(oldest, "blocker");
+        assertTrue(blocker.createNewFile());
+
+        journal = new ScanJournal(directory, segmentBytes, 2);
+        assertTrue(journal.append(new BarcodeResult("CODE_128", new String(fill), "ZXing"), 4L, 0L));
+        awaitWritten(journal, 1L);
+        assertNull(journal.getError());
+        assertArrayEquals(new int[]{1, 2, 3}, ScanJournal.segmentIndexes(directory));
+
+        // Suppression de nouveau possible: faite à la rotation suivante
+        assertTrue(blocker.delete());
+        assertTrue(journal.append(new BarcodeResult("CODE_128", new String(fill), "ZXing"), 5L, 0L));
+        assertTrue(journal.append(new BarcodeResult("CODE_128", new String(fill), "ZXing"), 6L, 0L));
+        awaitWritten(journal, 3L);
+        journal.close();
+        assertNull(journal.getError());
+        assertEquals(3L, journal.getWritten());
+        assertArrayEquals(new int[]{3, 4}, ScanJournal.segmentIndexes(directory));
+        assertEquals(3, readAll(directory).size());
+    }
+
+    @Test
+    public void writerExceptionStopsTheJournal() throws IOException {
+        ScanJournal journal = new ScanJournal(folder.newFolder("failing"));
+        journal.beforeWrite = () -> {
+            throw new IllegalStateException("écriture impossible");
+        };
+        assertTrue(journal.append(new BarcodeResult("MSI", "48334890", "Custom MSI"), 1_000L, 0L));
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (journal.getError() == null && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(1_000_000L);
+        }
+        assertTrue(journal.getError().getCause() instanceof IllegalStateException);
+
+        // Journal arrêté: les entrées suivantes sont refusées et comptées
+        assertFalse(journal.append(new BarcodeResult("MSI", "48334890", "Custom MSI"), 2_000L, 0L));
+        assertEquals(1L, journal.getDropped());
+        assertEquals(0L, journal.getWritten());
+        journal.close();
+    }
+
+    // close() n'attend le thread d'écriture qu'une seconde: attente plus large sur une machine chargée
+    private static void awaitWritten(ScanJournal journal, long count) {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (journal.getWritten() < count && journal.getError() == null && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(1_000_000L);
+        }
+    }
+
+    private static List<ScanJournal.Entry> readAll(File directory) throws IOException {
+        List<ScanJournal.Entry> entries = new ArrayList<>();
+        long count = ScanJournalReader.read(directory, entries::add);
+        assertEquals(entries.size(), count);
+        return entries;
+    }
+
+    private static void assertEntry(ScanJournal.Entry entry, long timeMillis, int latencyMicros,
+                                    String type, String value, String source) {
+        assertEquals(timeMillis, entry.getTimeMillis());
+        assertEquals(latencyMicros, entry.getLatencyMicros());
+        assertEquals(type, entry.getType());
+        assertEquals(value, entry.getValue());
+        assertEquals(source, entry.getSource());
+    }
+}
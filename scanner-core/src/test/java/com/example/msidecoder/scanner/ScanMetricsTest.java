@@ -0,0 +1,121 @@
+package com.example.msidecoder.scanner;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScanMetricsTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void disabledMetricsRecordNothing() {
+        ScanMetrics metrics = new ScanMetrics();
+        assertEquals(0L, metrics.start());
+        metrics.record(ScanMetrics.Stage.MSI, 5 * MS);
+        metrics.recordFrame(1_000 * MS);
+        metrics.recordDecode(ScanMetrics.Stage.MSI);
+
+        ScanMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(0L, snapshot.getCount(ScanMetrics.Stage.MSI));
+        assertEquals(0L, snapshot.getFramesAnalyzed());
+        assertEquals(0L, snapshot.getDecodes(ScanMetrics.Stage.MSI));
+    }
+
+    @Test
+    public void aggregatesEachStageSeparately() {
+        ScanMetrics metrics = enabled();
+        metrics.record(ScanMetrics.Stage.MSI, 2 * MS);
+        metrics.record(ScanMetrics.Stage.MSI, 4 * MS);
+        metrics.record(ScanMetrics.Stage.MSI, 30 * MS);
+        metrics.record(ScanMetrics.Stage.ZXING, 1 * MS);
+
+        ScanMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(3L, snapshot.getCount(ScanMetrics.Stage.MSI));
+        assertEquals(12.0, snapshot.getMeanMillis(ScanMetrics.Stage.MSI), 1e-9);
+        assertEquals(30.0, snapshot.getMaxMillis(ScanMetrics.Stage.MSI), 1e-9);
+        // Bornes de seaux en puissances de 2 µs: p50 dans le seau de 4 ms, p95 plafonné au max
+        assertTrue(snapshot.getP50Millis(ScanMetrics.Stage.MSI) >= 4.0);
+        assertTrue(snapshot.getP50Millis(ScanMetrics.Stage.MSI) < 30.0);
+        assertEquals(30.0, snapshot.getP95Millis(ScanMetrics.Stage.MSI), 1e-9);
+
+        assertEquals(1L, snapshot.getCount(ScanMetrics.Stage.ZXING));
+        assertEquals(1.0, snapshot.getMeanMillis(ScanMetrics.Stage.ZXING), 1e-9);
+        assertEquals(0L, snapshot.getCount(ScanMetrics.Stage.MLKIT));
+    }
+
+    @Test
+    public void timestampGapsCountAsDroppedFrames() {
+        ScanMetrics metrics = enabled();
+        long t = 1_000 * MS;
+        metrics.recordFrame(t);
+        metrics.recordFrame(t += 33 * MS);
+        metrics.recordFrame(t += 33 * MS);
+        // Deux frames manquants entre ces deux-là
+        metrics.recordFrame(t + 99 * MS);
+
+        ScanMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(4L, snapshot.getFramesAnalyzed());
+        assertEquals(2L, snapshot.getFramesDropped());
+    }
+
+    @Test
+    public void resetOnReEnable() {
+        ScanMetrics metrics = enabled();
+        metrics.record(ScanMetrics.Stage.FRAME, 10 * MS);
+        metrics.recordSkippedBusy();
+        metrics.setEnabled(false);
+        metrics.setEnabled(true);
+
+        ScanMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(0L, snapshot.getCount(ScanMetrics.Stage.FRAME));
+        assertEquals(0L, snapshot.getFramesSkippedBusy());
+        assertEquals(-1.0, snapshot.getTimeToFirstDecodeMillis(), 0.0);
+    }
+
+    @Test
+    public void launchTimingsSurviveDisabledMetricsAndReset() {
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.markLaunch(System.nanoTime());
+        metrics.recordWarmup(350 * MS);
+        metrics.recordDecode(ScanMetrics.Stage.MSI);
+        metrics.setEnabled(true);
+        metrics.reset();
+
+        ScanMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(350.0, snapshot.getWarmupMillis(), 1e-9);
+        assertTrue(snapshot.getLaunchToFirstDecodeMillis() >= 0.0);
+        assertEquals(0L, snapshot.getDecodes(ScanMetrics.Stage.MSI));
+    }
+
+    @Test
+    public void pipelineFeedsEngineAndBranchCounters() {
+        ScanMetrics metrics = enabled();
+        DecodePipeline pipeline = new DecodePipeline(metrics);
+        pipeline.decode(new SyntheticFrameGenerator(1).size(640, 480).moduleWidth(2f)
+                .render(SyntheticFrameGenerator.Symbology.CODE_128, "MSI-128-0042"));
+
+        ScanMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1L, snapshot.getCount(ScanMetrics.Stage.MSI));
+        assertEquals(1L, snapshot.getCount(ScanMetrics.Stage.ZXING));
+        assertEquals(0L, snapshot.getDecodes(ScanMetrics.Stage.MSI));
+        assertEquals(1L, snapshot.getDecodes(ScanMetrics.Stage.ZXING));
+        long attempts = 0;
+        long successes = 0;
+        for (int i = 0; i < snapshot.getBranchCount(); i++) {
+            attempts += snapshot.getBranchAttempts(i);
+            successes += snapshot.getBranchSuccesses(i);
+        }
+        assertTrue(attempts >= 1);
+        assertEquals(1L, successes);
+    }
+
+    private static ScanMetrics enabled() {
+        ScanMetrics metrics = new ScanMetrics();
+        metrics.setEnabled(true);
+        return metrics;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.msidecoder.scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScanTraceTest {
+
+    @Test
+    public void offByDefault() {
+        ScanTrace trace = new ScanTrace(8);
+        assertFalse(trace.isEnabled(ScanTrace.Level.ERROR));
+        assertEquals(0L, trace.start());
+        trace.record(ScanTrace.Level.ERROR, ScanTrace.Event.NO_RESULT, 0, 0, 0L);
+        assertEquals("", trace.dump());
+    }
+
+    @Test
+    public void levelGatesMoreDetailedEvents() {
+        ScanTrace trace = new ScanTrace(8);
+        trace.setLevel(ScanTrace.Level.DEBUG);
+        assertTrue(trace.isEnabled(ScanTrace.Level.ERROR));
+        assertTrue(trace.isEnabled(ScanTrace.Level.DEBUG));
+        assertFalse(trace.isEnabled(ScanTrace.Level.VERBOSE));
+        assertFalse(trace.isEnabled(ScanTrace.Level.OFF));
+
+        trace.record(ScanTrace.Level.VERBOSE, ScanTrace.Event.MSI_PASS, 0, 1, 1_000L);
+        trace.record(ScanTrace.Level.DEBUG, ScanTrace.Event.FRAME, 640, 480, 90L);
+        trace.record(ScanTrace.Level.ERROR, ScanTrace.Event.DUPLICATE, 0, 0, 0L, "48334890");
+
+        String[] lines = lines(trace);
+        assertEquals(2, lines.length);
+        assertTrue(lines[0], lines[0].contains("FRAME") && lines[0].endsWith("640x480 rot=90"));
+        assertTrue(lines[1], lines[1].contains("DUPLICATE") && lines[1].endsWith("48334890"));
+    }
+
+    @Test
+    public void ringKeepsTheMostRecentEventsInOrder() {
+        // Capacité arrondie à 8
+        ScanTrace trace = new ScanTrace(5);
+        trace.setLevel(ScanTrace.Level.VERBOSE);
+        for (int i = 0; i < 20; i++) {
+            trace.record(ScanTrace.Level.DEBUG, ScanTrace.Event.FRAME, i, 1, 0L);
+        }
+
+        String[] lines = lines(trace);
+        assertEquals(8, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertTrue(lines[i], lines[i].endsWith(" " + (12 + i) + "x1 rot=0"));
+        }
+    }
+
+    @Test
+    public void clearEmptiesTheRing() {
+        ScanTrace trace = new ScanTrace(4);
+        trace.setLevel(ScanTrace.Level.ERROR);
+        trace.record(ScanTrace.Level.ERROR, ScanTrace.Event.ENGINE_ERROR, ScanMetrics.Stage.ZXING.ordinal(), 0, 0L,
+                new IllegalStateException("boom"));
+        assertTrue(trace.dump().contains("ZXING IllegalStateException: boom"));
+        trace.clear();
+        assertEquals("", trace.dump());
+    }
+
+    private static String[] lines(ScanTrace trace) {
+        String dump = trace.dump();
+        return dump.isEmpty() ? new String[0] : dump.split("\n");
+    }
+}
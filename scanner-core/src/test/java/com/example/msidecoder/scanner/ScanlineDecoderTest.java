@@ -0,0 +1,85 @@
+package com.example.msidecoder.scanner;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.oned.Code128Reader;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ScanlineDecoderTest {
+
+    private static final String VALUE = "MSI-128-0042";
+
+    @Test
+    public void readsRowsOfAnUprightSymbol() {
+        LuminanceSource source = source(0, false);
+        assertEquals(VALUE, decoder().decode(source, ScanlineDecoder.Direction.ROWS, false, null));
+        assertNull(decoder().decode(source, ScanlineDecoder.Direction.COLUMNS, false, null));
+    }
+
+    @Test
+    public void readsColumnsWithoutRotatedCopy() {
+        // Capteur tourné de 90: barres horizontales dans le plan, lues en colonnes
+        LuminanceSource source = source(90, false);
+        assertNull(decoder().decode(source, ScanlineDecoder.Direction.ROWS, false, null));
+        assertEquals(VALUE, decoder().decode(source, ScanlineDecoder.Direction.COLUMNS, false, null));
+    }
+
+    @Test
+    public void readsBothWays() {
+        assertEquals(VALUE, decoder().decode(source(180, false), ScanlineDecoder.Direction.ROWS, false, null));
+        assertEquals(VALUE, decoder().decode(source(270, false), ScanlineDecoder.Direction.COLUMNS, false, null));
+    }
+
+    @Test
+    public void invertedPolarityOnlyWhenAsked() {
+        LuminanceSource source = source(0, true);
+        assertNull(decoder().decode(source, ScanlineDecoder.Direction.ROWS, false, null));
+        assertEquals(VALUE, decoder().decode(source, ScanlineDecoder.Direction.ROWS, true, null));
+    }
+
+    @Test
+    public void cancelledFlagStopsTheScan() {
+        LuminanceSource source = source(0, false);
+        assertNull(decoder().decode(source, ScanlineDecoder.Direction.ROWS, false, new AtomicBoolean(true)));
+        assertEquals(VALUE, decoder().decode(source, ScanlineDecoder.Direction.ROWS, false, new AtomicBoolean(false)));
+    }
+
+    @Test
+    public void scanlinesReachOffCentreSymbols() {
+        // Bande fine de Code 128 dans un recadrage haut, loin du centre
+        for (float center : new float[]{0.2f, 0.8f, 0.9f}) {
+            ByteBuffer y = TestFrames.render(TestFrames.code128(VALUE), 2f, 640, 720, 0);
+            int top = (int) (720 * center) - 18;
+            for (int row = 0; row < 720; row++) {
+                if (row < top || row >= top + 36) {
+                    for (int x = 0; x < 640; x++) {
+                        y.put(row * 640 + x, (byte) TestFrames.LIGHT);
+                    }
+                }
+            }
+            LuminanceSource source = new YPlaneLuminanceSource(y, 640, 720, 640, 1);
+            assertEquals("centre " + center, VALUE, decoder().decode(source, ScanlineDecoder.Direction.ROWS, false, null));
+        }
+    }
+
+    private static ScanlineDecoder decoder() {
+        EnumMap<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, Collections.singletonList(BarcodeFormat.CODE_128));
+        return new ScanlineDecoder(new Code128Reader(), hints);
+    }
+
+    private static LuminanceSource source(int rotation, boolean inverted) {
+        ByteBuffer y = TestFrames.render(TestFrames.code128(VALUE), 2f, 640, 480, rotation, 640, 1, inverted);
+        return new YPlaneLuminanceSource(y, 640, 480, 640, 1);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.msidecoder.scanner;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SharpnessGateTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void firstFrameIsAlwaysAccepted() {
+        assertTrue(thresholdOnly().offer(5f, 0L));
+    }
+
+    @Test
+    public void frameWellBelowTheRecentPeakIsRejected() {
+        SharpnessGate gate = thresholdOnly();
+        assertTrue(gate.offer(40f, 0L));
+        // Pic atténué sur 33 ms: ~36,4, seuil ~21,9
+        assertFalse(gate.offer(20f, 33 * MS));
+        assertTrue(gate.offer(25f, 66 * MS));
+        assertTrue(gate.offer(45f, 100 * MS));
+    }
+
+    @Test
+    public void peakFadesWithItsHalfLife() {
+        SharpnessGate gate = thresholdOnly();
+        assertTrue(gate.offer(40f, 0L));
+        assertFalse(gate.offer(15f, 100 * MS));
+        // Deux demi-vies: pic ramené à 10, un frame à 15 devient la nouvelle référence
+        assertTrue(gate.offer(15f, 500 * MS));
+        assertFalse(gate.offer(8f, 533 * MS));
+    }
+
+    @Test
+    public void clockGoingBackwardsStartsOver() {
+        SharpnessGate gate = thresholdOnly();
+        assertTrue(gate.offer(40f, 1_000 * MS));
+        assertTrue(gate.offer(10f, 0L));
+    }
+
+    @Test
+    public void bestFrameWindowOpensOnlyOnADecode() {
+        SharpnessGate gate = new SharpnessGate(0.6f, 250 * MS, 150 * MS);
+        assertTrue(gate.offer(40f, 0L));
+        // Rien de lu: pas de fenêtre, seul le seuil adaptatif (~21,9) s'applique
+        assertTrue(gate.offer(32f, 33 * MS));
+        gate.onDecoded(32f, 33 * MS);
+
+        // Fenêtre ouverte par le frame lu: 85% de 32 (27,2) au moins
+        assertFalse(gate.offer(26f, 66 * MS));
+        assertTrue(gate.offer(30f, 100 * MS));
+
+        // Fenêtre refermée 150 ms après le décodage
+        assertTrue(gate.offer(26f, 200 * MS));
+    }
+
+    @Test
+    public void resetClosesTheBestFrameWindow() {
+        SharpnessGate gate = new SharpnessGate(0.6f, 250 * MS, 150 * MS);
+        assertTrue(gate.offer(40f, 0L));
+        gate.onDecoded(40f, 0L);
+        assertFalse(gate.offer(30f, 33 * MS));
+        gate.reset();
+        assertTrue(gate.offer(30f, 66 * MS));
+    }
+
+    // Fenêtre de meilleur frame nulle: seul le seuil adaptatif s'applique
+    private static SharpnessGate thresholdOnly() {
+        return new SharpnessGate(0.6f, 250 * MS, 0L);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.msidecoder.scanner;
+
+import com.example.msidecoder.models.BarcodeResult;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class SyntheticFrameGeneratorTest {
+
+    @Test
+    public void withMod10AppendsLuhnCheckDigit() {
+        assertEquals("48334890", SyntheticFrameGenerator.withMod10("4833489"));
+        assertEquals("12345674", SyntheticFrameGenerator.withMod10("1234567"));
+    }
+
+    @Test
+    public void msiModulesFollowTheMsiTable() {
+        assertArrayEquals(TestFrames.msi("48334890"), SyntheticFrameGenerator.msiModules("48334890"));
+    }
+
+    @Test
+    public void sameSeedRendersSameFrame() {
+        assertArrayEquals(bytes(generator(7).render(SyntheticFrameGenerator.Symbology.MSI, "48334890")),
+                bytes(generator(7).render(SyntheticFrameGenerator.Symbology.MSI, "48334890")));
+        assertFalse(Arrays.equals(
+                bytes(generator(7).render(SyntheticFrameGenerator.Symbology.MSI, "48334890")),
+                bytes(generator(8).render(SyntheticFrameGenerator.Symbology.MSI, "48334890"))));
+    }
+
+    @Test
+    public void renderedFramesDecodeAtEveryRotation() {
+        for (int rotation : new int[]{0, 90, 180, 270}) {
+            Y8Frame msi = generator(rotation).rotation(rotation)
+                    .render(SyntheticFrameGenerator.Symbology.MSI, "48334890");
+            BarcodeResult result = new DecodePipeline().decode(msi);
+            assertEquals("MSI rotation " + rotation, "48334890", result.getValue());
+
+            Y8Frame code128 = generator(rotation).rotation(rotation).moduleWidth(2f)
+                    .render(SyntheticFrameGenerator.Symbology.CODE_128, "MSI-128-0042");
+            result = new DecodePipeline().decode(code128);
+            assertEquals("Code 128 rotation " + rotation, "MSI-128-0042", result.getValue());
+        }
+    }
+
+    @Test
+    public void emptyFrameDecodesNothing() {
+        assertNull(new DecodePipeline().decode(generator(1).renderEmpty()));
+    }
+
+    private static SyntheticFrameGenerator generator(long seed) {
+        return new SyntheticFrameGenerator(seed).size(640, 480).moduleWidth(2.5f).noise(4f).blur(1);
+    }
+
+    private static byte[] bytes(Y8Frame frame) {
+        ByteBuffer buffer = frame.getYBuffer().duplicate();
+        buffer.rewind();
+        byte[] out = new byte[buffer.remaining()];
+        buffer.get(out);
+        return out;
+    }
+}
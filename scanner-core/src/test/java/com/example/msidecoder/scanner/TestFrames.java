@@ -0,0 +1,144 @@
+package com.example.msidecoder.scanner;
+
+import com.google.zxing.oned.Code128Writer;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Plans Y synthétiques pour les tests JVM: un symbole 1D net, barres verticales à l'écran,
+ * centré sur un fond clair, dans un plan capteur tourné de 0, 90, 180 ou 270 degrés. Aussi des
+ * scènes sans barres (texte) pour la pré-détection.
+ */
+final class TestFrames {
+
+    static final int DARK = 30;
+    static final int LIGHT = 220;
+    // Octets hors image (fin de ligne, pixels intercalés): une lecture qui y tombe se voit
+    private static final byte PADDING = (byte) 0x80;
+
+    // Police 5x7 (une ligne de 5 bits par rang, bit fort à gauche): chiffres et capitales courants
+    private static final int[][] GLYPHS = {
+            {0x0E, 0x11, 0x13, 0x15, 0x19, 0x11, 0x0E}, {0x04, 0x0C, 0x04, 0x04, 0x04, 0x04, 0x0E},
+            {0x0E, 0x11, 0x01, 0x02, 0x04, 0x08, 0x1F}, {0x1F, 0x02, 0x04, 0x02, 0x01, 0x11, 0x0E},
+            {0x02, 0x06, 0x0A, 0x12, 0x1F, 0x02, 0x02}, {0x1F, 0x10, 0x1E, 0x01, 0x01, 0x11, 0x0E},
+            {0x0E, 0x11, 0x11, 0x1F, 0x11, 0x11, 0x11}, {0x1E, 0x11, 0x11, 0x1E, 0x11, 0x11, 0x1E},
+            {0x0E, 0x11, 0x10, 0x10, 0x10, 0x11, 0x0E}, {0x1F, 0x10, 0x10, 0x1E, 0x10, 0x10, 0x1F},
+            {0x11, 0x11, 0x11, 0x1F, 0x11, 0x11, 0x11}, {0x11, 0x1B, 0x15, 0x15, 0x11, 0x11, 0x11},
+            {0x0E, 0x11, 0x11, 0x11, 0x11, 0x11, 0x0E}, {0x1E, 0x11, 0x11, 0x1E, 0x10, 0x10, 0x10},
+            {0x0F, 0x10, 0x10, 0x0E, 0x01, 0x01, 0x1E}, {0x1F, 0x04, 0x04, 0x04, 0x04, 0x04, 0x04},
+            {0x11, 0x11, 0x11, 0x11, 0x11, 0x0A, 0x04}, {0x11, 0x11, 0x0A, 0x04, 0x0A, 0x11, 0x11}};
+
+    private TestFrames() {
+    }
+
+    /** Modules MSI (true: bande noire): start 110, chiffres sur 4 bits (1: 110, 0: 100), stop 1001. */
+    static boolean[] msi(String digits) {
+        StringBuilder pattern = new StringBuilder("110");
+        for (int i = 0; i < digits.length(); i++) {
+            int d = digits.charAt(i) - '0';
+            for (int bit = 3; bit >= 0; bit--) {
+                pattern.append((d >> bit & 1) != 0 ? "110" : "100");
+            }
+        }
+        pattern.append("1001");
+        boolean[] modules = new boolean[pattern.length()];
+        for (int i = 0; i < modules.length; i++) {
+            modules[i] = pattern.charAt(i) == '1';
+        }
+        return modules;
+    }
+
+    static boolean[] code128(String text) {
+        return new Code128Writer().encode(text);
+    }
+
+    static ByteBuffer render(boolean[] modules, float moduleWidth, int width, int height, int rotation) {
+        return render(modules, moduleWidth, width, height, rotation, width, 1, false);
+    }
+
+    /**
+     * @param width    largeur du plan capteur
+     * @param height   hauteur du plan capteur
+     * @param rotation rotation capteur -> écran (sens horaire), comme {@code getRotationDegrees()}
+     * @param inverted barres claires sur fond sombre
+     */
+    static ByteBuffer render(boolean[] modules, float moduleWidth, int width, int height, int rotation,
+                             int rowStride, int pixelStride, boolean inverted) {
+        boolean quarterTurn = rotation == 90 || rotation == 270;
+        int displayWidth = quarterTurn ? height : width;
+        float start = (displayWidth - modules.length * moduleWidth) / 2f;
+        byte dark = (byte) (inverted ? LIGHT : DARK);
+        byte light = (byte) (inverted ? DARK : LIGHT);
+
+        ByteBuffer y = ByteBuffer.allocateDirect(rowStride * height);
+        for (int i = 0; i < y.capacity(); i++) {
+            y.put(i, PADDING);
+        }
+        for (int sy = 0; sy < height; sy++) {
+            for (int sx = 0; sx < width; sx++) {
+                // Abscisse écran du pixel capteur (l'écran est le capteur tourné de rotation)
+                int dx;
+                switch (rotation) {
+                    case 90:
+                        dx = height - 1 - sy;
+                        break;
+                    case 180:
+                        dx = width - 1 - sx;
+                        break;
+                    case 270:
+                        dx = sy;
+                        break;
+                    default:
+                        dx = sx;
+                        break;
+                }
+                int module = (int) Math.floor((dx + 0.5f - start) / moduleWidth);
+                boolean bar = module >= 0 && module < modules.length && modules[module];
+                y.put(sy * rowStride + sx * pixelStride, bar ? dark : light);
+            }
+        }
+        return y;
+    }
+
+    /** Plan uni, sans aucune structure. */
+    static ByteBuffer blank(int width, int height) {
+        ByteBuffer y = ByteBuffer.allocateDirect(width * height);
+        for (int i = 0; i < y.capacity(); i++) {
+            y.put(i, (byte) LIGHT);
+        }
+        return y;
+    }
+
+    /**
+     * Page de texte (caractères 5x7 tirés au hasard, un mot sur six remplacé par une espace) sur
+     * fond clair bruité, sans aucun symbole.
+     *
+     * @param scale taille d'un point de la police en pixels
+     */
+    static ByteBuffer text(int width, int height, int scale, long seed) {
+        Random random = new Random(seed);
+        ByteBuffer y = ByteBuffer.allocateDirect(width * height);
+        for (int i = 0; i < y.capacity(); i++) {
+            y.put(i, (byte) (LIGHT + Math.round(random.nextGaussian() * 3)));
+        }
+        int advance = 6 * scale;
+        int lineHeight = 10 * scale;
+        for (int top = lineHeight; top + 7 * scale < height - lineHeight; top += lineHeight) {
+            for (int left = advance; left + 5 * scale < width - advance; left += advance) {
+                if (random.nextInt(6) == 0) {
+                    continue;
+                }
+                int[] glyph = GLYPHS[random.nextInt(GLYPHS.length)];
+                for (int gy = 0; gy < 7 * scale; gy++) {
+                    for (int gx = 0; gx < 5 * scale; gx++) {
+                        if ((glyph[gy / scale] >> (4 - gx / scale) & 1) != 0) {
+                            y.put((top + gy) * width + left + gx, (byte) (DARK + Math.round(random.nextGaussian() * 3)));
+                        }
+                    }
+                }
+            }
+        }
+        return y;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.msidecoder.scanner;
+
+import com.google.zxing.LuminanceSource;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class YPlaneLuminanceSourceTest {
+
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 23;
+    // Plan entrelacé (pixelStride 2) avec fin de ligne: 2 * 37 + 9
+    private static final int ROW_STRIDE = 83;
+    private static final int PIXEL_STRIDE = 2;
+
+    @Test
+    public void readsInPlaceWithStrides() {
+        LuminanceSource source = source();
+        assertEquals(WIDTH, source.getWidth());
+        assertEquals(HEIGHT, source.getHeight());
+        assertView(reference(), source);
+    }
+
+    @Test
+    public void cropIsAView() {
+        LuminanceSource crop = source().crop(5, 3, 20, 11);
+        assertEquals(20, crop.getWidth());
+        assertEquals(11, crop.getHeight());
+        assertView(crop(reference(), 5, 3, 20, 11), crop);
+        // Recadrage d'un recadrage
+        assertView(crop(crop(reference(), 5, 3, 20, 11), 2, 4, 9, 6), crop.crop(2, 4, 9, 6));
+    }
+
+    @Test
+    public void rotationsMatchTheSensor() {
+        int[][] expected = reference();
+        LuminanceSource view = source();
+        assertTrue(view.isRotateSupported());
+        for (int turn = 1; turn <= 4; turn++) {
+            expected = rotateCounterClockwise(expected);
+            view = view.rotateCounterClockwise();
+            assertView(expected, view);
+        }
+        assertView(reference(), view);
+    }
+
+    @Test
+    public void cropAfterRotationAndRotationAfterCrop() {
+        int[][] expected = crop(rotateCounterClockwise(reference()), 4, 6, 12, 9);
+        assertView(expected, source().rotateCounterClockwise().crop(4, 6, 12, 9));
+
+        expected = rotateCounterClockwise(rotateCounterClockwise(rotateCounterClockwise(
+                crop(reference(), 7, 2, 15, 13))));
+        assertView(expected, source().crop(7, 2, 15, 13)
+                .rotateCounterClockwise().rotateCounterClockwise().rotateCounterClockwise());
+
+        expected = crop(rotateCounterClockwise(rotateCounterClockwise(crop(reference(), 3, 1, 30, 20))), 2, 5, 10, 8);
+        assertView(expected, source().crop(3, 1, 30, 20)
+                .rotateCounterClockwise().rotateCounterClockwise().crop(2, 5, 10, 8));
+    }
+
+    @Test
+    public void sensorLineMatchesTheViewRows() {
+        LuminanceSource[] views = {
+                source(),
+                source().crop(5, 3, 20, 11),
+                source().rotateCounterClockwise(),
+                source().crop(3, 1, 30, 20).rotateCounterClockwise().rotateCounterClockwise(),
+                source().rotateCounterClockwise().rotateCounterClockwise().rotateCounterClockwise().crop(4, 6, 12, 9),
+        };
+        int[][] pixels = reference();
+        int[] line = new int[4];
+        for (LuminanceSource view : views) {
+            byte[] row = null;
+            for (int y = 0; y < view.getHeight(); y++) {
+                row = view.getRow(y, row);
+                ((YPlaneLuminanceSource) view).sensorLine(y, line);
+                int last = line[2] + view.getWidth() - 1;
+                for (int x = 0; x < view.getWidth(); x++) {
+                    int p = line[3] != 0 ? last - x : line[2] + x;
+                    int expected = line[0] != 0 ? pixels[p][line[1]] : pixels[line[1]][p];
+                    assertEquals("ligne " + y + ", pixel " + x, expected, row[x] & 0xFF);
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rowOutsideTheViewIsRejected() {
+        source().crop(0, 0, 10, 5).getRow(5, null);
+    }
+
+    // Valeur distincte par pixel capteur
+    private static int value(int x, int y) {
+        return (x * 7 + y * 13) & 0xFF;
+    }
+
+    private static LuminanceSource source() {
+        ByteBuffer y = ByteBuffer.allocateDirect(ROW_STRIDE * HEIGHT);
+        for (int i = 0; i < y.capacity(); i++) {
+            y.put(i, (byte) 0xEE);
+        }
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                y.put(row * ROW_STRIDE + col * PIXEL_STRIDE, (byte) value(col, row));
+            }
+        }
+        return new YPlaneLuminanceSource(y, WIDTH, HEIGHT, ROW_STRIDE, PIXEL_STRIDE);
+    }
+
+    // Référence [ligne][colonne]
+    private static int[][] reference() {
+        int[][] pixels = new int[HEIGHT][WIDTH];
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                pixels[row][col] = value(col, row);
+            }
+        }
+        return pixels;
+    }
+
+    private static int[][] crop(int[][] pixels, int left, int top, int width, int height) {
+        int[][] out = new int[height][width];
+        for (int row = 0; row < height; row++) {
+            System.arraycopy(pixels[top + row], left, out[row], 0, width);
+        }
+        return out;
+    }
+
+    // Quart de tour anti-horaire: (x, y) de la vue = (largeur - 1 - y, x) de l'image
+    private static int[][] rotateCounterClockwise(int[][] pixels) {
+        int height = pixels.length;
+        int width = pixels[0].length;
+        int[][] out = new int[width][height];
+        for (int row = 0; row < width; row++) {
+            for (int col = 0; col < height; col++) {
+                out[row][col] = pixels[col][width - 1 - row];
+            }
+        }
+        return out;
+    }
+
+    private static void assertView(int[][] expected, LuminanceSource view) {
+        int height = expected.length;
+        int width = expected[0].length;
+        assertEquals(width, view.getWidth());
+        assertEquals(height, view.getHeight());
+        byte[] matrix = view.getMatrix();
+        assertEquals(width * height, matrix.length);
+        byte[] row = null;
+        for (int y = 0; y < height; y++) {
+            row = view.getRow(y, row);
+            byte[] expectedRow = new byte[width];
+            for (int x = 0; x < width; x++) {
+                expectedRow[x] = (byte) expected[y][x];
+                assertEquals("matrice (" + x + ", " + y + ")", expected[y][x], matrix[y * width + x] & 0xFF);
+            }
+            byte[] actualRow = new byte[width];
+            System.arraycopy(row, 0, actualRow, 0, width);
+            assertArrayEquals("ligne " + y, expectedRow, actualRow);
+        }
+    }
+}
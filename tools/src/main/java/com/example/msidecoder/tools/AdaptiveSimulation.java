@@ -0,0 +1,152 @@
+package com.example.msidecoder.tools;
+
+import com.example.msidecoder.scanner.AnalysisController;
+import com.example.msidecoder.scanner.DecodePipeline;
+import com.example.msidecoder.scanner.MotionDetector;
+import com.example.msidecoder.scanner.SyntheticFrameGenerator;
+import com.example.msidecoder.scanner.Y8Frame;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Pilote {@link AnalysisController} avec une horloge simulée (30 fps) et des frames synthétiques
+ * rendus à la résolution qu'il demande, décodés par un vrai {@link DecodePipeline}; en veille, un
+ * {@link MotionDetector} tourne comme dans l'analyseur. Scénario: scène vide (mise en veille),
+ * MSI à grosses bandes (descente), MSI à bandes fines (montée), Code 128 moyen, longue scène vide
+ * (veille profonde), ombre qui passe sans barres (réveil sur mouvement), MSI fin en surchauffe
+ * (cadence plafonnée), Code 128 en surchauffe critique (résolution plafonnée), MSI fin refroidi. Une ligne par seconde simulée: résolution,
+ * veille, état thermique, frames analysés et décodés, bande fine apparente, latence moyenne.
+ *
+ * <pre>
+ * ./gradlew :tools:adaptiveSimulation
+ * </pre>
+ */
+public final class AdaptiveSimulation {
+
+    private static final long FRAME_INTERVAL_NS = 33_333_333L;
+    private static final long SECOND_NS = 1_000_000_000L;
+    private static final int REFERENCE_HEIGHT = 1080;
+
+    private static final int EMPTY = -1;
+    private static final int SHADOW = -2;
+
+    // {durée (s), symbologie (-1: vide, -2: ombre en mouvement), bande fine en pixels à 1080p,
+    // état thermique}
+    private static final float[][] PHASES = {
+            {4, EMPTY, 0, AnalysisController.THERMAL_NONE},
+            {6, 0, 8f, AnalysisController.THERMAL_NONE},
+            {10, 0, 2.4f, AnalysisController.THERMAL_NONE},
+            {6, 1, 5f, AnalysisController.THERMAL_NONE},
+            {34, EMPTY, 0, AnalysisController.THERMAL_NONE},
+            {2, SHADOW, 0, AnalysisController.THERMAL_NONE},
+            {6, 0, 2.4f, AnalysisController.THERMAL_SEVERE},
+            {4, 1, 5f, AnalysisController.THERMAL_CRITICAL},
+            {4, 0, 2.4f, AnalysisController.THERMAL_NONE},
+    };
+
+    private static final String MSI_VALUE = SyntheticFrameGenerator.withMod10("4833489");
+    private static final String CODE_128_VALUE = "MSI-128-0042";
+
+    private AdaptiveSimulation() {
+    }
+
+    public static void main(String[] args) {
+        AnalysisController controller = new AnalysisController();
+        controller.setListener((width, height) ->
+                System.out.println(String.format(Locale.ROOT, "  -> résolution %dx%d", width, height)));
+        DecodePipeline pipeline = new DecodePipeline();
+        pipeline.setAnalysisController(controller);
+        SyntheticFrameGenerator generator = new SyntheticFrameGenerator(7).noise(4f);
+        MotionDetector motion = new MotionDetector();
+
+        System.out.println("   t  phase  résolution  veille  therm.  analysés  décodés  bande(px)  latence(ms)");
+        long now = 0L;
+        for (int p = 0; p < PHASES.length; p++) {
+            long end = now + (long) (PHASES[p][0] * SECOND_NS);
+            int symbology = (int) PHASES[p][1];
+            float module = PHASES[p][2];
+            controller.setThermalStatus((int) PHASES[p][3]);
+            int analyzed = 0;
+            int decoded = 0;
+            long latency = 0L;
+            float apparent = 0f;
+            long secondStart = now;
+            while (now < end) {
+                if (controller.shouldAnalyze(now)) {
+                    int width = controller.getTargetWidth();
+                    int height = controller.getTargetHeight();
+                    generator.size(width, height).moduleWidth(module * height / REFERENCE_HEIGHT);
+                    Y8Frame rendered = symbology < 0
+                            ? shade(generator.renderEmpty(), symbology == SHADOW ? now : -1L)
+                            : generator.render(symbology == 0
+                                    ? SyntheticFrameGenerator.Symbology.MSI
+                                    : SyntheticFrameGenerator.Symbology.CODE_128,
+                                    symbology == 0 ? MSI_VALUE : CODE_128_VALUE);
+                    Y8Frame frame = new Y8Frame(rendered.getYBuffer(), width, height, 0, now);
+
+                    if (controller.isIdle() && motion.update(frame)) {
+                        controller.onMotion(now);
+                    }
+                    // Même protocole que l'analyseur: l'état de la pré-détection se lit avant endFrame
+                    long t0 = System.nanoTime();
+                    pipeline.beginFrame(frame);
+                    boolean bars = pipeline.hasBarCandidates();
+                    // En veille, un frame sans barres n'est lu par aucun moteur
+                    boolean hit = pipeline.shouldDecodeMlKit() && !pipeline.isFrameBlurred()
+                            && (pipeline.decodeMsi(frame, null) != null || pipeline.decodeCode128(frame, null) != null);
+                    pipeline.endFrame();
+                    long elapsed = System.nanoTime() - t0;
+                    controller.onFrame(now, height, elapsed, bars, hit, pipeline.getModuleWidth());
+
+                    analyzed++;
+                    latency += elapsed;
+                    if (hit) {
+                        decoded++;
+                        apparent = pipeline.getModuleWidth();
+                    }
+                }
+                now += FRAME_INTERVAL_NS;
+                if (now - secondStart >= SECOND_NS || now >= end) {
+                    System.out.println(String.format(Locale.ROOT,
+                            "%4.0f  %-5s  %4dx%-4d   %-6s  %6d  %8d  %7d  %9.2f  %11.2f",
+                            now / 1e9, phaseLabel(symbology), controller.getTargetWidth(),
+                            controller.getTargetHeight(),
+                            controller.isDeepIdle() ? "prof." : controller.isIdle() ? "oui" : "non",
+                            controller.getThermalStatus(), analyzed, decoded, apparent, analyzed > 0 ? latency / 1e6 / analyzed : 0.0));
+                    secondStart = now;
+                    analyzed = 0;
+                    decoded = 0;
+                    latency = 0L;
+                    apparent = 0f;
+                }
+            }
+        }
+    }
+
+    // Ombre douce (main, chariot) qui traverse le champ en 2 s: du mouvement, pas de barres
+    private static Y8Frame shade(Y8Frame frame, long timestampNanos) {
+        if (timestampNanos < 0L) {
+            return frame;
+        }
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        ByteBuffer y = frame.getYBuffer();
+        float centerX = width * ((timestampNanos % (2 * SECOND_NS)) / (2f * SECOND_NS));
+        float radius = height / 2f;
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                float dx = (col - centerX) / radius;
+                float dy = (row - height / 2f) / radius;
+                float darken = 1f - 0.6f * (float) Math.exp(-(dx * dx + dy * dy));
+                int index = row * width + col;
+                y.put(index, (byte) Math.round((y.get(index) & 0xFF) * darken));
+            }
+        }
+        return frame;
+    }
+
+    private static String phaseLabel(int symbology) {
+        return symbology == SHADOW ? "ombre" : symbology < 0 ? "vide" : symbology == 0 ? "MSI" : "C128";
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.msidecoder.tools;
+
+import com.example.msidecoder.models.BarcodeResult;
+import com.example.msidecoder.scanner.DecodePipeline;
+import com.example.msidecoder.scanner.Y8Frame;
+import com.example.msidecoder.scanner.YPlaneLuminanceSource;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.MultiFormatReader;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Décodage hors ligne de photos et scans (dossiers, fichiers image, archives zip) avec les mêmes
+ * moteurs que l'app: {@link DecodePipeline} (MSI maison puis Code 128), sur l'image puis sur son
+ * négatif (étiquettes claires sur fond sombre), puis ZXing multi-formats (QR, EAN, Code 39,
+ * Data Matrix...) si rien n'a été lu. Chaque image est un frame isolé: pas de vote multi-frames
+ * ni de suivi, le temps par image est celui d'une recherche complète.
+ *
+ * Les images sont décodées sur un pool work-stealing (un {@link DecodePipeline} et un buffer de
+ * luminance par thread, réutilisés d'une image à l'autre); chaque résultat est remis au
+ * {@link Listener} dès qu'il est prêt, dans l'ordre d'achèvement. Lecture via {@code javax.imageio}
+ * (PNG, JPEG, BMP, GIF), sans affichage: utilisable sur une JVM Linux headless.
+ */
+public final class BatchDecoder implements AutoCloseable {
+
+    private static final List<String> EXTENSIONS = Arrays.asList(
+            ".png", ".jpg", ".jpeg", ".bmp", ".gif");
+    private static final String ARCHIVE_EXTENSION = ".zip";
+
+    // Les images sont indépendantes: un écart de timestamps au-delà de la fenêtre du vote MSI
+    // (300 ms) l'empêche de cumuler les voix de deux images
+    private static final long IMAGE_INTERVAL_NS = 1_000_000_000L;
+
+    /** Reçoit les résultats depuis les threads du pool (implémentation thread-safe). */
+    public interface Listener {
+        /** @param result le résultat, ou null si rien n'a été décodé */
+        void onDecoded(Source source, BarcodeResult result, long elapsedNanos);
+
+        void onError(Source source, Exception error);
+    }
+
+    /** Une image à décoder: fichier ou entrée d'archive. */
+    public abstract static class Source {
+        private final int index;
+        private final String name;
+
+        Source(int index, String name) {
+            this.index = index;
+            this.name = name;
+        }
+
+        /** Rang dans la liste d'entrée (les résultats arrivent dans l'ordre d'achèvement). */
+        public int getIndex() {
+            return index;
+        }
+
+        /** Chemin du fichier, ou {@code archive.zip!/entrée}. */
+        public String getName() {
+            return name;
+        }
+
+        abstract InputStream open() throws IOException;
+    }
+
+    private final int threads;
+    private final boolean otherFormats;
+    private final List<ZipFile> archives = new ArrayList<>();
+    private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+        @Override
+        protected Worker initialValue() {
+            return new Worker(otherFormats);
+        }
+    };
+
+    /**
+     * @param threads      taille du pool (0: nombre de cœurs)
+     * @param otherFormats essayer ZXing multi-formats quand MSI et Code 128 n'ont rien lu
+     */
+    public BatchDecoder(int threads, boolean otherFormats) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.otherFormats = otherFormats;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Liste les images des entrées (dossiers parcourus récursivement, fichiers image, archives zip),
+     * triées par nom. Les archives restent ouvertes jusqu'à {@link #close()}.
+     */
+    public List<Source> list(List<String> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String input : inputs) {
+            Path path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    files.addAll(walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        List<Source> sources = new ArrayList<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(ARCHIVE_EXTENSION)) {
+                addArchive(file, sources);
+            } else if (hasImageExtension(name)) {
+                sources.add(new FileSource(sources.size(), file));
+            }
+        }
+        return sources;
+    }
+
+    private void addArchive(Path file, List<Source> sources) throws IOException {
+        ZipFile zip = new ZipFile(file.toFile());
+        archives.add(zip);
+        List<ZipEntry> entries = new ArrayList<>();
+        Enumeration<? extends ZipEntry> e = zip.entries();
+        while (e.hasMoreElements()) {
+            ZipEntry entry = e.nextElement();
+            if (!entry.isDirectory() && hasImageExtension(entry.getName().toLowerCase(Locale.ROOT))) {
+                entries.add(entry);
+            }
+        }
+        entries.sort((a, b) -> a.getName().compareTo(b.getName()));
+        for (ZipEntry entry : entries) {
+            sources.add(new ZipSource(sources.size(), zip, entry, file + "!/" + entry.getName()));
+        }
+    }
+
+    private static boolean hasImageExtension(String lowerName) {
+        for (String ext : EXTENSIONS) {
+            if (lowerName.endsWith(ext)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Décode toutes les sources et attend la fin. */
+    public void run(List<Source> sources, Listener listener) throws InterruptedException {
+        ExecutorService pool = Executors.newWorkStealingPool(threads);
+        try {
+            for (Source source : sources) {
+                pool.execute(() -> decode(source, listener));
+            }
+        } finally {
+            pool.shutdown();
+        }
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    private void decode(Source source, Listener listener) {
+        long t0 = System.nanoTime();
+        BarcodeResult result;
+        try {
+            BufferedImage image;
+            try (InputStream in = new BufferedInputStream(source.open())) {
+                image = ImageIO.read(in);
+            }
+            if (image == null) {
+                throw new IOException("format d'image non reconnu");
+            }
+            result = workers.get().decode(image);
+        } catch (Exception e) {
+            listener.onError(source, e);
+            return;
+        }
+        listener.onDecoded(source, result, System.nanoTime() - t0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (ZipFile zip : archives) {
+            zip.close();
+        }
+        archives.clear();
+    }
+
+    // État par thread du pool: pipeline, lecteur multi-formats et buffer de luminance réutilisés
+    private static final class Worker {
+        private final DecodePipeline pipeline = new DecodePipeline();
+        private final MultiFormatReader reader;
+        private ByteBuffer luma = ByteBuffer.allocateDirect(0);
+        private int[] row = new int[0];
+        private long timestampNanos;
+
+        Worker(boolean otherFormats) {
+            // Images fixes: pas de filtre de netteté (pensé pour écarter des frames d'un flux)
+            pipeline.setSharpnessGate(null);
+            if (otherFormats) {
+                reader = new MultiFormatReader();
+                EnumMap<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+                hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+                hints.put(DecodeHintType.ALSO_INVERTED, Boolean.TRUE);
+                reader.setHints(hints);
+            } else {
+                reader = null;
+            }
+        }
+
+        BarcodeResult decode(BufferedImage image) {
+            int width = image.getWidth();
+            int height = image.getHeight();
+            toLuma(image, width, height);
+            BarcodeResult result = decodePipeline(width, height);
+            if (result == null) {
+                invertLuma(width * height);
+                result = decodePipeline(width, height);
+                invertLuma(width * height);
+            }
+            if (result != null || reader == null) {
+                return result;
+            }
+            try {
+                Result zxing = reader.decodeWithState(new BinaryBitmap(new HybridBinarizer(
+                        new YPlaneLuminanceSource(luma, width, height, width, 1))));
+                return new BarcodeResult(zxing.getBarcodeFormat().name(), zxing.getText(),
+                        DecodePipeline.SOURCE_ZXING);
+            } catch (NotFoundException e) {
+                return null;
+            } finally {
+                reader.reset();
+            }
+        }
+
+        private BarcodeResult decodePipeline(int width, int height) {
+            timestampNanos += IMAGE_INTERVAL_NS;
+            // La position du symbole de l'image précédente ne dit rien de celle-ci
+            pipeline.getTracker().reset();
+            return pipeline.decode(new Y8Frame(luma, width, height, 0, timestampNanos));
+        }
+
+        private void invertLuma(int size) {
+            for (int i = 0; i < size; i++) {
+                luma.put(i, (byte) ~luma.get(i));
+            }
+        }
+
+        // Luminance BT.601 entière, comme le plan Y de la caméra
+        private void toLuma(BufferedImage image, int width, int height) {
+            int size = width * height;
+            if (luma.capacity() < size) {
+                luma = ByteBuffer.allocateDirect(size);
+            }
+            if (row.length < width) {
+                row = new int[width];
+            }
+            luma.clear();
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int x = 0; x < width; x++) {
+                    int rgb = row[x];
+                    int r = (rgb >> 16) & 0xFF;
+                    int g = (rgb >> 8) & 0xFF;
+                    int b = rgb & 0xFF;
+                    luma.put((byte) ((77 * r + 150 * g + 29 * b) >> 8));
+                }
+            }
+            luma.flip();
+        }
+    }
+
+    private static final class FileSource extends Source {
+        private final Path path;
+
+        FileSource(int index, Path path) {
+            super(index, path.toString());
+            this.path = path;
+        }
+
+        @Override
+        InputStream open() throws IOException {
+            return Files.newInputStream(path);
+        }
+    }
+
+    // ZipFile autorise les lectures concurrentes d'entrées différentes
+    private static final class ZipSource extends Source {
+        private final ZipFile zip;
+        private final ZipEntry entry;
+
+        ZipSource(int index, ZipFile zip, ZipEntry entry, String name) {
+            super(index, name);
+            this.zip = zip;
+            this.entry = entry;
+        }
+
+        @Override
+        InputStream open() throws IOException {
+            return zip.getInputStream(entry);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.msidecoder.tools;
+
+import com.example.msidecoder.models.BarcodeResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Décode en lot des dossiers ou archives zip d'images (étiquettes photographiées, feuilles
+ * scannées) avec {@link BatchDecoder}, et écrit un résultat par image en CSV ou JSONL au fil de
+ * l'eau. Progression et débit sur la sortie d'erreur, résumé en fin de traitement.
+ *
+ * <pre>
+ * ./gradlew :tools:batchDecode --args="--format jsonl --output resultats.jsonl /chemin/vers/photos"
+ * </pre>
+ */
+public final class BatchRunner {
+
+    private static final long PROGRESS_INTERVAL_NS = 1_000_000_000L;
+
+    private BatchRunner() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // Aucun affichage: ImageIO sans serveur X
+        System.setProperty("java.awt.headless", "true");
+
+        int threads = 0;
+        boolean jsonl = false;
+        boolean otherFormats = true;
+        String output = null;
+        List<String> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--format":
+                    String format = args[++i];
+                    if (!format.equals("csv") && !format.equals("jsonl")) {
+                        System.err.println("Format inconnu: " + format + " (csv ou jsonl)");
+                        System.exit(2);
+                    }
+                    jsonl = format.equals("jsonl");
+                    break;
+                case "--output":
+                    output = args[++i];
+                    break;
+                case "--no-other-formats":
+                    otherFormats = false;
+                    break;
+                case "--help":
+                    usage();
+                    return;
+                default:
+                    inputs.add(arg);
+                    break;
+            }
+        }
+        if (inputs.isEmpty()) {
+            usage();
+            System.exit(2);
+        }
+
+        Writer writer = output != null
+                ? Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try (BatchDecoder decoder = new BatchDecoder(threads, otherFormats)) {
+            List<BatchDecoder.Source> sources = decoder.list(inputs);
+            if (sources.isEmpty()) {
+                System.err.println("Aucune image trouvée (png, jpg, bmp, gif, ou archives zip)");
+                System.exit(1);
+            }
+            System.err.println("Images: " + sources.size() + ", threads: " + decoder.getThreads());
+
+            ResultWriter results = new ResultWriter(writer, jsonl, sources.size(), System.err);
+            results.writeHeader();
+            long start = System.nanoTime();
+            decoder.run(sources, results);
+            results.printSummary(System.nanoTime() - start);
+        } finally {
+            writer.flush();
+            if (output != null) {
+                writer.close();
+            }
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: BatchRunner [options] <dossier|image|archive.zip>...\n"
+                + "  --format csv|jsonl    format de sortie (défaut csv)\n"
+                + "  --output FICHIER      fichier de sortie (défaut: sortie standard)\n"
+                + "  --threads N           taille du pool (défaut: nombre de cœurs)\n"
+                + "  --no-other-formats    MSI et Code 128 seulement (pas de ZXing multi-formats)\n"
+                + "Une ligne par image, dans l'ordre d'achèvement (colonne index = rang d'entrée);\n"
+                + "statut ok, aucun ou erreur. Progression et résumé sur la sortie d'erreur.");
+    }
+
+    // Sérialise les résultats des threads du pool et tient les compteurs de progression
+    private static final class ResultWriter implements BatchDecoder.Listener {
+        private final Writer out;
+        private final boolean jsonl;
+        private final int total;
+        private final PrintStream progress;
+        private final long start = System.nanoTime();
+        private final StringBuilder line = new StringBuilder();
+        private final Map<String, Integer> byType = new TreeMap<>();
+        private int done;
+        private int decoded;
+        private int errors;
+        private long lastProgress = start;
+
+        ResultWriter(Writer out, boolean jsonl, int total, PrintStream progress) {
+            this.out = out;
+            this.jsonl = jsonl;
+            this.total = total;
+            this.progress = progress;
+        }
+
+        void writeHeader() throws IOException {
+            if (!jsonl) {
+                out.write("index,source,status,type,value,engine,ms,error\n");
+            }
+        }
+
+        @Override
+        public synchronized void onDecoded(BatchDecoder.Source source, BarcodeResult result, long elapsedNanos) {
+            if (result != null) {
+                decoded++;
+                byType.merge(result.getType(), 1, Integer::sum);
+            }
+            write(source, result != null ? "ok" : "aucun", result, elapsedNanos, null);
+        }
+
+        @Override
+        public synchronized void onError(BatchDecoder.Source source, Exception error) {
+            errors++;
+            String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+            write(source, "erreur", null, 0L, message);
+        }
+
+        private void write(BatchDecoder.Source source, String status, BarcodeResult result,
+                           long elapsedNanos, String error) {
+            line.setLength(0);
+            String ms = String.format(Locale.ROOT, "%.1f", elapsedNanos / 1e6);
+            if (jsonl) {
+                line.append("{\"index\":").append(source.getIndex());
+                appendJson(",\"source\":", source.getName());
+                appendJson(",\"status\":", status);
+                if (result != null) {
+                    appendJson(",\"type\":", result.getType());
+                    appendJson(",\"value\":", result.getValue());
+                    appendJson(",\"engine\":", result.getSource());
+                }
+                if (error != null) {
+                    appendJson(",\"error\":", error);
+                } else {
+                    line.append(",\"ms\":").append(ms);
+                }
+                line.append("}\n");
+            } else {
+                line.append(source.getIndex()).append(',');
+                appendCsv(source.getName()).append(',');
+                line.append(status).append(',');
+                appendCsv(result != null ? result.getType() : "").append(',');
+                appendCsv(result != null ? result.getValue() : "").append(',');
+                appendCsv(result != null ? result.getSource() : "").append(',');
+                line.append(error == null ? ms : "").append(',');
+                appendCsv(error != null ? error : "").append('\n');
+            }
+            try {
+                out.write(line.toString());
+            } catch (IOException e) {
+                throw new RuntimeException("Écriture des résultats impossible", e);
+            }
+
+            done++;
+            long now = System.nanoTime();
+            if (now - lastProgress >= PROGRESS_INTERVAL_NS || done == total) {
+                lastProgress = now;
+                progress.println(String.format(Locale.ROOT, "%d/%d (%.0f%%) décodés=%d erreurs=%d %.1f images/s",
+                        done, total, 100.0 * done / total, decoded, errors, done / ((now - start) / 1e9)));
+            }
+        }
+
+        private void appendJson(String key, String value) {
+            line.append(key).append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        line.append("\\\"");
+                        break;
+                    case '\\':
+                        line.append("\\\\");
+                        break;
+                    case '\n':
+                        line.append("\\n");
+                        break;
+                    case '\r':
+                        line.append("\\r");
+                        break;
+                    case '\t':
+                        line.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            line.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                        } else {
+                            line.append(c);
+                        }
+                        break;
+                }
+            }
+            line.append('"');
+        }
+
+        // RFC 4180: guillemets si séparateur, guillemet ou fin de ligne dans la valeur
+        private StringBuilder appendCsv(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return line.append(value);
+            }
+            return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+
+        synchronized void printSummary(long elapsedNanos) {
+            double seconds = elapsedNanos / 1e9;
+            progress.println(String.format(Locale.ROOT, "Images:   %d", total));
+            progress.println(String.format(Locale.ROOT, "Décodées: %d (%.1f%%)", decoded, 100.0 * decoded / total));
+            progress.println(String.format(Locale.ROOT, "Aucun:    %d", total - decoded - errors));
+            progress.println(String.format(Locale.ROOT, "Erreurs:  %d", errors));
+            progress.println(String.format(Locale.ROOT, "Durée:    %.1f s (%.1f images/s)", seconds, total / seconds));
+            for (Map.Entry<String, Integer> e : byType.entrySet()) {
+                progress.println(String.format(Locale.ROOT, "  %-20s %d", e.getKey(), e.getValue()));
+            }
+        }
+    }
+}
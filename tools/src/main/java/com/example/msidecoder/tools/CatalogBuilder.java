@@ -0,0 +1,127 @@
+package com.example.msidecoder.tools;
+
+import com.example.msidecoder.scanner.ProductCatalog;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compile un export produits (CSV ou TSV UTF-8: code, libellé) en catalogue binaire
+ * {@link ProductCatalog}, à déposer dans le stockage de l'app ({@code files/catalog.msic}).
+ *
+ * Séparateur détecté par ligne ({@code ;}, tabulation ou {@code ,}); la clé est faite des
+ * 7 premiers chiffres du code (un MSI complet, check digit compris, est accepté). Lignes sans
+ * clé (en-tête, code trop court) ignorées; pour une clé en double, la première ligne gagne.
+ * Le tri se fait sur des {@code long} (clé, rang de ligne), sans objet par entrée.
+ *
+ * <pre>
+ * ./gradlew :tools:buildCatalog --args="--output catalog.msic produits.csv"
+ * adb push catalog.msic /data/local/tmp/ &amp;&amp; adb shell run-as com.example.msidecoder cp /data/local/tmp/catalog.msic files/
+ * </pre>
+ */
+public final class CatalogBuilder {
+
+    private CatalogBuilder() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String output = null;
+        String input = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--output":
+                    output = args[++i];
+                    break;
+                case "--help":
+                    usage();
+                    return;
+                default:
+                    input = arg;
+                    break;
+            }
+        }
+        if (input == null || output == null) {
+            usage();
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        List<String> labels = new ArrayList<>();
+        long[] entries = new long[1024];
+        int count = 0;
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = separatorOf(line);
+                String code = unquote(separator < 0 ? line : line.substring(0, separator));
+                int key = ProductCatalog.keyOf(code);
+                if (key < 0) {
+                    skipped++;
+                    continue;
+                }
+                String label = separator < 0 ? "" : unquote(line.substring(separator + 1));
+                if (count == entries.length) {
+                    entries = Arrays.copyOf(entries, count * 2);
+                }
+                entries[count++] = ((long) key << 32) | labels.size();
+                labels.add(label);
+            }
+        }
+
+        // Clé puis rang de ligne: la première occurrence d'une clé passe devant les suivantes
+        Arrays.sort(entries, 0, count);
+        int[] keys = new int[count];
+        String[] sorted = new String[count];
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            int key = (int) (entries[i] >>> 32);
+            if (unique > 0 && keys[unique - 1] == key) {
+                continue;
+            }
+            keys[unique] = key;
+            sorted[unique] = labels.get((int) entries[i]);
+            unique++;
+        }
+        ProductCatalog.write(new File(output), Arrays.copyOf(keys, unique), Arrays.copyOf(sorted, unique));
+
+        System.err.println(String.format(Locale.ROOT, "Produits: %d (doublons: %d, lignes ignorées: %d) en %.0f ms -> %s (%d Ko)",
+                unique, count - unique, skipped, (System.nanoTime() - start) / 1e6, output,
+                new File(output).length() / 1024));
+    }
+
+    // Premier séparateur de la ligne: ';' puis tabulation puis ','
+    private static int separatorOf(String line) {
+        for (char c : new char[]{';', '\t', ','}) {
+            int index = line.indexOf(c);
+            if (index >= 0) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static String unquote(String field) {
+        String s = field.trim();
+        if (s.length() >= 2 && s.charAt(0) == '"' && s.charAt(s.length() - 1) == '"') {
+            s = s.substring(1, s.length() - 1).replace("\"\"", "\"");
+        }
+        return s;
+    }
+
+    private static void usage() {
+        System.out.println("Usage: CatalogBuilder --output FICHIER.msic <export.csv>\n"
+                + "  --output FICHIER      catalogue binaire à produire\n"
+                + "Une ligne par produit: code (7 premiers chiffres du MSI ou plus), libellé;\n"
+                + "séparateur ';', tabulation ou ','.");
+    }
+}
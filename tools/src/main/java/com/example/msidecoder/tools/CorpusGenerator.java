@@ -0,0 +1,90 @@
+package com.example.msidecoder.tools;
+
+import com.example.msidecoder.scanner.LumaFrame;
+import com.example.msidecoder.scanner.SyntheticFrameGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+/**
+ * Écrit un corpus de frames Y8 synthétiques (MSI et Code 128) relisible par {@link ReplayRunner}:
+ * pour chaque résolution et rotation, un cas de référence et ses variantes (flou, bruit, contraste,
+ * inversion, quiet zone), plus un frame vide.
+ *
+ * <pre>
+ * ./gradlew :tools:generateCorpus --args="/tmp/corpus"
+ * </pre>
+ */
+public final class CorpusGenerator {
+
+    private static final int[][] RESOLUTIONS = { {640, 480}, {1280, 720}, {1920, 1080} };
+    private static final int[] ROTATIONS = { 0, 90, 180, 270 };
+    // Variantes appliquées une à une à partir d'un cas de référence:
+    // {flou, bruit, contraste, inversé (0/1), quiet zone}
+    private static final int[][] VARIANTS = {
+            {0, 0, 180, 0, 10},  // référence
+            {2, 0, 180, 0, 10},  // bougé
+            {0, 12, 180, 0, 10}, // bruit
+            {0, 0, 60, 0, 10},   // faible contraste
+            {0, 0, 180, 1, 10},  // inversé
+            {0, 0, 180, 0, 4},   // quiet zone étroite
+    };
+
+    private static final String MSI_VALUE = SyntheticFrameGenerator.withMod10("4833489");
+    private static final String CODE_128_VALUE = "MSI-128-0042";
+
+    private CorpusGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: CorpusGenerator <dossier de sortie>");
+            System.exit(2);
+        }
+        Path out = Paths.get(args[0]);
+        Files.createDirectories(out);
+
+        SyntheticFrameGenerator generator = new SyntheticFrameGenerator();
+        int count = 0;
+        for (int[] resolution : RESOLUTIONS) {
+            int width = resolution[0];
+            int height = resolution[1];
+            // Bandes fines d'environ 2 px en 640x480, proportionnelles au petit côté pour que
+            // le symbole tienne aussi dans la largeur écran en 90/270
+            float module = Math.max(1.5f, Math.min(width, height) / 480f * 2f);
+            for (int rotation : ROTATIONS) {
+                generator.size(width, height).rotation(rotation).moduleWidth(module);
+                for (int[] v : VARIANTS) {
+                    generator.blur(v[0]).noise(v[1]).contrast(v[2]).inverted(v[3] != 0).quietZone(v[4]);
+                    String suffix = String.format(Locale.ROOT, "%dx%d_rot%d_b%d_n%d_c%d_%s_qz%d",
+                            width, height, rotation, v[0], v[1], v[2], v[3] != 0 ? "inv" : "norm", v[4]);
+                    write(out.resolve("msi_" + suffix + ".y8"),
+                            generator.render(SyntheticFrameGenerator.Symbology.MSI, MSI_VALUE));
+                    write(out.resolve("code128_" + suffix + ".y8"),
+                            generator.render(SyntheticFrameGenerator.Symbology.CODE_128, CODE_128_VALUE));
+                    count += 2;
+                }
+                generator.blur(0).noise(8f);
+                write(out.resolve(String.format(Locale.ROOT, "empty_%dx%d_rot%d.y8", width, height, rotation)),
+                        generator.renderEmpty());
+                count++;
+            }
+        }
+        System.out.println(count + " frames écrits dans " + out);
+    }
+
+    private static void write(Path path, LumaFrame frame) throws IOException {
+        ByteBuffer buffer = frame.getYBuffer();
+        byte[] bytes = new byte[frame.getWidth() * frame.getHeight()];
+        buffer.position(0);
+        buffer.get(bytes);
+        try (OutputStream os = Files.newOutputStream(path)) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.msidecoder.tools;
+
+import com.example.msidecoder.scanner.ScanJournal;
+import com.example.msidecoder.scanner.ScanJournalReader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Exporte en CSV le journal des scans de l'app ({@link ScanJournal}), copié depuis l'appareil:
+ * une ligne par scan, dans l'ordre d'écriture (date UTC ISO 8601, format, valeur, moteur,
+ * latence en ms).
+ *
+ * <pre>
+ * adb exec-out run-as com.example.msidecoder tar c files/journal | tar x
+ * ./gradlew :tools:exportJournal --args="--output scans.csv files/journal"
+ * </pre>
+ */
+public final class JournalExport {
+
+    private JournalExport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String output = null;
+        String input = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--output":
+                    output = args[++i];
+                    break;
+                case "--help":
+                    usage();
+                    return;
+                default:
+                    input = arg;
+                    break;
+            }
+        }
+        if (input == null) {
+            usage();
+            System.exit(2);
+        }
+        File directory = new File(input);
+        if (!directory.isDirectory()) {
+            System.err.println("Dossier introuvable: " + directory);
+            System.exit(1);
+        }
+
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.ROOT);
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+        StringBuilder line = new StringBuilder();
+        Writer writer = output != null
+                ? Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        long start = System.nanoTime();
+        long count;
+        try {
+            writer.write("time,type,value,engine,latency_ms\n");
+            count = ScanJournalReader.read(directory, entry -> {
+                line.setLength(0);
+                line.append(iso.format(new Date(entry.getTimeMillis()))).append(',');
+                appendCsv(line, entry.getType()).append(',');
+                appendCsv(line, entry.getValue()).append(',');
+                appendCsv(line, entry.getSource()).append(',');
+                line.append(String.format(Locale.ROOT, "%.3f", entry.getLatencyMicros() / 1e3)).append('\n');
+                writer.append(line);
+            });
+        } finally {
+            writer.flush();
+            if (output != null) {
+                writer.close();
+            }
+        }
+        System.err.println(String.format(Locale.ROOT, "Scans: %d (%.1f ms)", count, (System.nanoTime() - start) / 1e6));
+    }
+
+    // RFC 4180: guillemets si séparateur, guillemet ou fin de ligne dans la valeur
+    private static StringBuilder appendCsv(StringBuilder line, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return line.append(value);
+        }
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static void usage() {
+        System.out.println("Usage: JournalExport [--output FICHIER] <dossier du journal>\n"
+                + "  --output FICHIER      fichier CSV (défaut: sortie standard)\n"
+                + "Segments scans-NNNNNN.seg lus dans l'ordre; un enregistrement incomplet\n"
+                + "(écriture interrompue) termine son segment.");
+    }
+}
@@ -0,0 +1,390 @@
+package com.example.msidecoder.tools;
+
+import com.example.msidecoder.models.BarcodeResult;
+import com.example.msidecoder.scanner.DecodePipeline;
+import com.example.msidecoder.scanner.EngineWarmup;
+import com.example.msidecoder.scanner.LumaFrame;
+import com.example.msidecoder.scanner.ScanMetrics;
+import com.example.msidecoder.scanner.ScanTrace;
+import com.example.msidecoder.scanner.Y8Frame;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Rejoue des frames enregistrés (dumps Y8 ou YUV 4:2:0) dans le même {@link DecodePipeline}
+ * que l'app, sur une JVM sans caméra, et mesure débit, taux de décodage et latence.
+ *
+ * Les dimensions et la rotation sont lues dans le nom de fichier ({@code etiquette_1280x720_rot90.y8})
+ * ou passées en options. Pour les formats YUV, seul le plan Y (en tête de fichier) est utilisé.
+ * Le résumé inclut le détail par étape ({@link ScanMetrics}) et les octets alloués par frame
+ * (compteur par thread de la JVM HotSpot, absent sur les autres JVM).
+ *
+ * Avec {@code --threads N}, N workers (un {@link DecodePipeline} chacun, métriques et trace
+ * partagées) se partagent les frames comme les workers de l'analyseur; le débit mesure alors la
+ * montée en charge sur les cœurs disponibles.
+ *
+ * Avec {@code --warmup 0}, le premier décodage mesure un démarrage à froid; {@code --engine-warmup}
+ * passe d'abord la chauffe de l'app ({@link EngineWarmup}) pour comparer.
+ *
+ * <pre>
+ * ./gradlew :tools:run --args="--loops 10 /chemin/vers/frames"
+ * </pre>
+ */
+public final class ReplayRunner {
+
+    private static final Pattern SIZE = Pattern.compile("(\\d+)x(\\d+)");
+    private static final Pattern ROTATION = Pattern.compile("rot(\\d+)");
+    private static final List<String> EXTENSIONS = Arrays.asList(
+            ".y8", ".gray", ".raw", ".yuv", ".nv21", ".nv12", ".i420", ".yv12");
+
+    // Cadence nominale des timestamps synthétiques (30 fps)
+    private static final long FRAME_INTERVAL_NS = 33_333_333L;
+
+    private ReplayRunner() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int width = 0;
+        int height = 0;
+        int rotation = -1;
+        int loops = 1;
+        int warmup = 30;
+        int threads = 1;
+        boolean verbose = false;
+        boolean traceEnabled = false;
+        boolean presence = true;
+        boolean sharpnessGate = true;
+        boolean rowBinarization = true;
+        boolean engineWarmup = false;
+        List<String> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--width":
+                    width = Integer.parseInt(args[++i]);
+                    break;
+                case "--height":
+                    height = Integer.parseInt(args[++i]);
+                    break;
+                case "--rotation":
+                    rotation = Integer.parseInt(args[++i]);
+                    break;
+                case "--loops":
+                    loops = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Math.max(1, Integer.parseInt(args[++i]));
+                    break;
+                case "--verbose":
+                    verbose = true;
+                    break;
+                case "--trace":
+                    traceEnabled = true;
+                    break;
+                case "--no-presence":
+                    presence = false;
+                    break;
+                case "--no-gate":
+                    sharpnessGate = false;
+                    break;
+                case "--no-row-binarizer":
+                    rowBinarization = false;
+                    break;
+                case "--engine-warmup":
+                    engineWarmup = true;
+                    break;
+                case "--help":
+                    usage();
+                    return;
+                default:
+                    inputs.add(arg);
+                    break;
+            }
+        }
+        if (inputs.isEmpty()) {
+            usage();
+            System.exit(2);
+        }
+
+        List<LoadedFrame> corpus = load(inputs, width, height, rotation);
+        if (corpus.isEmpty()) {
+            System.err.println("Aucun frame lisible (extensions: " + EXTENSIONS + ")");
+            System.exit(1);
+        }
+        System.out.println("Corpus: " + corpus.size() + " frames, " + loops + " passe(s)"
+                + (threads > 1 ? ", " + threads + " workers" : ""));
+
+        ScanMetrics metrics = new ScanMetrics();
+        ScanTrace trace = new ScanTrace();
+        if (engineWarmup) {
+            long warmupStart = System.nanoTime();
+            EngineWarmup.run(EngineWarmup.DEFAULT_ROUNDS);
+            metrics.recordWarmup(System.nanoTime() - warmupStart);
+        }
+        int total = corpus.size() * loops;
+        long[] latencies = new long[total];
+        AtomicInteger decoded = new AtomicInteger();
+        List<Worker> workers = new ArrayList<>();
+        for (int w = 0; w < threads; w++) {
+            DecodePipeline pipeline = new DecodePipeline(metrics, trace);
+            pipeline.setPresenceDetection(presence);
+            if (!sharpnessGate) {
+                pipeline.setSharpnessGate(null);
+            }
+            pipeline.setRowBinarization(rowBinarization);
+            // Chauffe JIT, non mesurée
+            for (int i = 0; i < warmup; i++) {
+                pipeline.decode(corpus.get(i % corpus.size()).frame);
+            }
+            workers.add(new Worker(pipeline, corpus, latencies, decoded, metrics, verbose));
+        }
+        metrics.setEnabled(true);
+        if (traceEnabled) {
+            trace.setLevel(ScanTrace.Level.VERBOSE);
+        }
+
+        long start = System.nanoTime();
+        if (threads == 1) {
+            Worker worker = workers.get(0);
+            long allocStart = allocatedBytes();
+            for (int n = 0; n < total; n++) {
+                // Cadence nominale continue sur toutes les passes: aucun frame perdu en rejeu
+                metrics.recordFrame((n + 1) * FRAME_INTERVAL_NS);
+                worker.process(n);
+            }
+            recordAllocation(metrics, allocStart);
+        } else {
+            // Producteur unique (comme la caméra): timestamps en ordre, file bornée, aucun frame perdu
+            BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(2 * threads);
+            List<Thread> running = new ArrayList<>();
+            for (int w = 0; w < threads; w++) {
+                Worker worker = workers.get(w);
+                Thread thread = new Thread(() -> worker.drain(queue), "replay-" + w);
+                thread.start();
+                running.add(thread);
+            }
+            try {
+                for (int n = 0; n < total; n++) {
+                    metrics.recordFrame((n + 1) * FRAME_INTERVAL_NS);
+                    queue.put(n);
+                }
+                for (int w = 0; w < threads; w++) {
+                    queue.put(Worker.END);
+                }
+                for (Thread thread : running) {
+                    thread.join();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        printSummary(total, decoded.get(), elapsed, latencies);
+        System.out.println("Étapes:");
+        System.out.print(metrics.snapshot());
+        if (traceEnabled) {
+            System.out.println("Trace (derniers événements):");
+            System.out.print(trace.dump());
+        }
+    }
+
+    private static void recordAllocation(ScanMetrics metrics, long allocStart) {
+        long allocEnd = allocatedBytes();
+        if (allocStart >= 0 && allocEnd >= 0) {
+            metrics.recordAllocatedBytes(allocEnd - allocStart);
+        }
+    }
+
+    /** Octets alloués par le thread courant, ou -1 si la JVM ne l'expose pas. */
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+            if (hotspot.isThreadAllocatedMemorySupported()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1L;
+    }
+
+    private static void printSummary(int total, int decoded, long elapsedNs, long[] latencies) {
+        Arrays.sort(latencies);
+        long sum = 0;
+        for (long l : latencies) {
+            sum += l;
+        }
+        System.out.println(String.format(Locale.ROOT, "Frames:   %d", total));
+        System.out.println(String.format(Locale.ROOT, "Débit:    %.1f fps", total / (elapsedNs / 1e9)));
+        System.out.println(String.format(Locale.ROOT, "Décodés:  %d (%.1f%%)", decoded, 100.0 * decoded / total));
+        System.out.println(String.format(Locale.ROOT, "Latence:  moy=%.2f ms, p50=%.2f ms, p95=%.2f ms, max=%.2f ms",
+                sum / (double) total / 1e6,
+                percentile(latencies, 0.50) / 1e6,
+                percentile(latencies, 0.95) / 1e6,
+                latencies[latencies.length - 1] / 1e6));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static List<LoadedFrame> load(List<String> inputs, int width, int height, int rotation)
+            throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String input : inputs) {
+            Path path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    files.addAll(walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        List<LoadedFrame> frames = new ArrayList<>();
+        long timestamp = 0L;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (!hasFrameExtension(name)) {
+                continue;
+            }
+            int w = width;
+            int h = height;
+            Matcher size = SIZE.matcher(name);
+            if (size.find()) {
+                w = Integer.parseInt(size.group(1));
+                h = Integer.parseInt(size.group(2));
+            }
+            int r = rotation;
+            Matcher rot = ROTATION.matcher(name);
+            if (r < 0 && rot.find()) {
+                r = Integer.parseInt(rot.group(1));
+            }
+            if (w <= 0 || h <= 0) {
+                System.err.println("Ignoré (dimensions inconnues): " + file);
+                continue;
+            }
+
+            byte[] bytes = Files.readAllBytes(file);
+            if (bytes.length < w * h) {
+                System.err.println("Ignoré (fichier trop court pour " + w + "x" + h + "): " + file);
+                continue;
+            }
+            // Buffer direct comme le plan Y CameraX
+            ByteBuffer y = ByteBuffer.allocateDirect(w * h);
+            y.put(bytes, 0, w * h);
+            y.rewind();
+            frames.add(new LoadedFrame(name, new Y8Frame(y, w, h, Math.max(0, r), timestamp)));
+            timestamp += FRAME_INTERVAL_NS;
+        }
+        return frames;
+    }
+
+    private static boolean hasFrameExtension(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (String ext : EXTENSIONS) {
+            if (lower.endsWith(ext)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void usage() {
+        System.out.println("Usage: ReplayRunner [options] <fichier|dossier>...\n"
+                + "  --width W --height H  dimensions si absentes du nom (ex: frame_1280x720.y8)\n"
+                + "  --rotation R          rotation capteur 0/90/180/270 (sinon _rotR dans le nom, défaut 0)\n"
+                + "  --loops N             nombre de passes sur le corpus (défaut 1)\n"
+                + "  --warmup N            frames de chauffe non mesurés (défaut 30, par worker)\n"
+                + "  --threads N           workers de décodage en parallèle (défaut 1)\n"
+                + "  --verbose             résultat de chaque frame de la première passe\n"
+                + "  --trace               trace de décodage (tentatives ZXing, passes MSI) en fin de rejeu\n"
+                + "  --no-presence         sans pré-détection de présence (comparaison)\n"
+                + "  --no-gate             sans filtre de netteté (comparaison)\n"
+                + "  --no-row-binarizer    chaque moteur seuille ses propres lignes (comparaison)\n"
+                + "  --engine-warmup       chauffe des moteurs de l'app avant le rejeu (avec --warmup 0)\n"
+                + "Formats: " + EXTENSIONS + " (plan Y en tête de fichier)");
+    }
+
+    /** Un worker de rejeu: son propre pipeline, latences et compteurs partagés. */
+    private static final class Worker {
+        static final Integer END = -1;
+
+        private final DecodePipeline pipeline;
+        private final List<LoadedFrame> corpus;
+        private final long[] latencies;
+        private final AtomicInteger decoded;
+        private final ScanMetrics metrics;
+        private final boolean verbose;
+
+        Worker(DecodePipeline pipeline, List<LoadedFrame> corpus, long[] latencies,
+               AtomicInteger decoded, ScanMetrics metrics, boolean verbose) {
+            this.pipeline = pipeline;
+            this.corpus = corpus;
+            this.latencies = latencies;
+            this.decoded = decoded;
+            this.metrics = metrics;
+            this.verbose = verbose;
+        }
+
+        void process(int n) {
+            LoadedFrame loaded = corpus.get(n % corpus.size());
+            long t0 = System.nanoTime();
+            BarcodeResult result = pipeline.decode(loaded.frame);
+            latencies[n] = System.nanoTime() - t0;
+            metrics.record(ScanMetrics.Stage.FRAME, latencies[n]);
+            if (result != null) {
+                decoded.incrementAndGet();
+            }
+            if (verbose && n < corpus.size()) {
+                System.out.println(loaded.name + " -> " + (result != null ? result : "rien"));
+            }
+        }
+
+        void drain(BlockingQueue<Integer> queue) {
+            long allocStart = allocatedBytes();
+            try {
+                for (Integer n = queue.take(); !END.equals(n); n = queue.take()) {
+                    process(n);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            recordAllocation(metrics, allocStart);
+        }
+    }
+
+    private static final class LoadedFrame {
+        final String name;
+        final LumaFrame frame;
+
+        LoadedFrame(String name, LumaFrame frame) {
+            this.name = name;
+            this.frame = frame;
+        }
+    }
+}
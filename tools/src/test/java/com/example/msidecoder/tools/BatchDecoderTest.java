@@ -0,0 +1,155 @@
+package com.example.msidecoder.tools;
+
+import com.example.msidecoder.models.BarcodeResult;
+import com.example.msidecoder.scanner.DecodePipeline;
+import com.example.msidecoder.scanner.SyntheticFrameGenerator;
+import com.example.msidecoder.scanner.Y8Frame;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BatchDecoderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void decodesImagesOfAFolderAndAnArchive() throws Exception {
+        File dir = folder.newFolder("images");
+        writePng(symbol(SyntheticFrameGenerator.Symbology.MSI, "48334890", false), new File(dir, "a_msi.png"));
+        writePng(symbol(SyntheticFrameGenerator.Symbology.CODE_128, "MSI-128-0042", true), new File(dir, "b_inverse.png"));
+        writePng(blank(), new File(dir, "c_vide.png"));
+        Files.write(new File(dir, "notes.txt").toPath(), "pas une image".getBytes("UTF-8"));
+
+        File zip = new File(dir, "d_lot.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+            out.putNextEntry(new ZipEntry("lot/qr.png"));
+            ImageIO.write(qr("https://example.com/48334890"), "png", out);
+            out.closeEntry();
+        }
+
+        Results results = new Results();
+        try (BatchDecoder decoder = new BatchDecoder(2, true)) {
+            List<BatchDecoder.Source> sources = decoder.list(Collections.singletonList(dir.getPath()));
+            // Fichier texte ignoré, entrée d'archive à la suite des fichiers, dans l'ordre des noms
+            assertEquals(4, sources.size());
+            assertTrue(sources.get(3).getName().endsWith("d_lot.zip!/lot/qr.png"));
+            decoder.run(sources, results);
+        }
+
+        assertEquals(0, results.errors.size());
+        assertEquals(4, results.completed.get());
+        assertEquals("48334890", results.value(0));
+        assertEquals(DecodePipeline.TYPE_MSI, results.decoded.get(0).getType());
+        assertEquals("MSI-128-0042", results.value(1));
+        assertNull(results.value(2));
+        assertEquals("https://example.com/48334890", results.value(3));
+    }
+
+    @Test
+    public void unreadableImageIsReportedAsAnError() throws Exception {
+        File broken = folder.newFile("casse.png");
+        Files.write(broken.toPath(), new byte[]{(byte) 0x89, 'P', 'N', 'G', 0, 1, 2, 3});
+
+        Results results = new Results();
+        try (BatchDecoder decoder = new BatchDecoder(1, false)) {
+            decoder.run(decoder.list(Collections.singletonList(broken.getPath())), results);
+        }
+        assertEquals(0, results.completed.get());
+        assertEquals(1, results.errors.size());
+    }
+
+    @Test
+    public void multiFormatFallbackIsOptional() throws Exception {
+        File file = folder.newFile("qr.png");
+        ImageIO.write(qr("QR-0001"), "png", file);
+
+        Results results = new Results();
+        try (BatchDecoder decoder = new BatchDecoder(1, false)) {
+            decoder.run(decoder.list(Collections.singletonList(file.getPath())), results);
+        }
+        assertEquals(1, results.completed.get());
+        assertNull(results.value(0));
+    }
+
+    private static Y8Frame symbol(SyntheticFrameGenerator.Symbology symbology, String value, boolean inverted) {
+        return new SyntheticFrameGenerator(1).size(640, 480).moduleWidth(2.5f).noise(3f)
+                .inverted(inverted).render(symbology, value);
+    }
+
+    private static Y8Frame blank() {
+        return new SyntheticFrameGenerator(2).size(640, 480).noise(3f).renderEmpty();
+    }
+
+    private static BufferedImage qr(String text) throws Exception {
+        BitMatrix matrix = new QRCodeWriter().encode(text, BarcodeFormat.QR_CODE, 300, 300);
+        BufferedImage image = new BufferedImage(matrix.getWidth(), matrix.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                image.getRaster().setSample(x, y, 0, matrix.get(x, y) ? 20 : 235);
+            }
+        }
+        return image;
+    }
+
+    private static void writePng(Y8Frame frame, File file) throws IOException {
+        BufferedImage image = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        ByteBuffer y = frame.getYBuffer();
+        for (int row = 0; row < frame.getHeight(); row++) {
+            for (int col = 0; col < frame.getWidth(); col++) {
+                image.getRaster().setSample(col, row, 0, y.get(row * frame.getRowStride() + col) & 0xFF);
+            }
+        }
+        ImageIO.write(image, "png", file);
+    }
+
+    private static final class Results implements BatchDecoder.Listener {
+        final Map<Integer, BarcodeResult> decoded = new ConcurrentHashMap<>();
+        final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+        final AtomicInteger completed = new AtomicInteger();
+
+        @Override
+        public void onDecoded(BatchDecoder.Source source, BarcodeResult result, long elapsedNanos) {
+            if (result != null) {
+                decoded.put(source.getIndex(), result);
+            }
+            completed.incrementAndGet();
+        }
+
+        @Override
+        public void onError(BatchDecoder.Source source, Exception error) {
+            errors.add(error);
+        }
+
+        String value(int index) {
+            BarcodeResult result = decoded.get(index);
+            return result == null ? null : result.getValue();
+        }
+    }
+}